@@ -1,6 +1,7 @@
 plugins {
     java
     `maven-publish`
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "re.belv"
@@ -42,4 +43,11 @@ publishing {
 
 tasks.test {
     useJUnitPlatform()
+}
+
+jmh {
+    // Benchmarks share the original puzzle and the clause counting sink of the tests
+    includeTests = true
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
 }
\ No newline at end of file
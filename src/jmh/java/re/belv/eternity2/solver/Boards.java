@@ -0,0 +1,173 @@
+package re.belv.eternity2.solver;
+
+import re.belv.eternity2.solver.io.FpsReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Benchmark boards, i.e. reduced versions of the original Eternity II puzzle.
+ * <p>
+ * A board is generated by drawing random colors for the joints between positions of a solved board, then cutting it
+ * into pieces which are shuffled and randomly rotated. Colors are the ones of the original puzzle: Joints on the outer
+ * frame are drawn among the colors joining edge pieces, the other joints among the colors of the center pieces. The
+ * borders on the outer frame have the original frame color. The piece at the center of the board is fixed, as in the
+ * original puzzle. Colors are then renumbered to be contiguous, as expected by the solver.
+ * <p>
+ * Boards are generated from a fixed seed, so that successive benchmark runs measure the same boards.
+ */
+final class Boards {
+
+    /** The original puzzle. */
+    private static final String ORIGINAL_PUZZLE = "/EternityII-256-Bis-ORIGINAL.fps";
+
+    /** The color of the borders on the outer frame in the original puzzle, once shifted to start at 0. */
+    private static final int FRAME_COLOR = 1;
+
+    /** The seed of the random boards. */
+    private static final long SEED = 256;
+
+    /**
+     * A generated board.
+     *
+     * @param pieces       the pieces, shuffled and randomly rotated
+     * @param initialBoard the initial board, where the center piece is fixed
+     * @param solution     a solution
+     * @param frameColor   the color of the borders on the outer frame
+     */
+    record Board(Piece[] pieces, Piece[][] initialBoard, Piece[][] solution, int frameColor) {
+        // Nothing to add
+    }
+
+    private Boards() {
+        // Static methods only
+    }
+
+    /**
+     * Generates a square board.
+     *
+     * @param size the number of rows and columns
+     * @return the generated board
+     */
+    static Board generate(final int size) {
+        final Piece[] originalPieces = readOriginalPieces();
+        final int[] edgeColors = edgeColorsOf(originalPieces);
+        final int[] centerColors = centerColorsOf(originalPieces);
+        final var random = new Random(SEED + size);
+
+        // Colors of the joints: East border of each position, then south border of each position
+        final var eastColors = new int[size][size];
+        final var southColors = new int[size][size];
+        for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < size; columnIndex++) {
+                final boolean onHorizontalFrame = rowIndex == 0 || rowIndex == size - 1;
+                final boolean onVerticalFrame = columnIndex == 0 || columnIndex == size - 1;
+                eastColors[rowIndex][columnIndex] = columnIndex == size - 1 ? FRAME_COLOR
+                        : draw(random, onHorizontalFrame ? edgeColors : centerColors);
+                southColors[rowIndex][columnIndex] = rowIndex == size - 1 ? FRAME_COLOR
+                        : draw(random, onVerticalFrame ? edgeColors : centerColors);
+            }
+        }
+
+        final List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < size * size; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, random);
+        final int[] denseColors = denseColorsOf(eastColors, southColors);
+        final var pieces = new Piece[size * size];
+        final var solution = new Piece[size][size];
+        for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < size; columnIndex++) {
+                final int id = ids.get(rowIndex * size + columnIndex);
+                final int north = rowIndex == 0 ? FRAME_COLOR : southColors[rowIndex - 1][columnIndex];
+                final int west = columnIndex == 0 ? FRAME_COLOR : eastColors[rowIndex][columnIndex - 1];
+                final var solvedPiece = new Piece(id, denseColors[north],
+                        denseColors[eastColors[rowIndex][columnIndex]], denseColors[southColors[rowIndex][columnIndex]],
+                        denseColors[west]);
+                solution[rowIndex][columnIndex] = solvedPiece;
+                pieces[id] = solvedPiece.rotate(Piece.Rotation.values()[random.nextInt(Piece.Rotation.count())]);
+            }
+        }
+
+        final var initialBoard = new Piece[size][size];
+        initialBoard[size / 2][size / 2] = solution[size / 2][size / 2];
+        return new Board(pieces, initialBoard, solution, denseColors[FRAME_COLOR]);
+    }
+
+    /**
+     * Returns the contiguous number of each original color used by the joints or the frame.
+     */
+    private static int[] denseColorsOf(final int[][] eastColors, final int[][] southColors) {
+        final var usedColors = new TreeSet<Integer>();
+        usedColors.add(FRAME_COLOR);
+        for (int rowIndex = 0; rowIndex < eastColors.length; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < eastColors.length; columnIndex++) {
+                usedColors.add(eastColors[rowIndex][columnIndex]);
+                usedColors.add(southColors[rowIndex][columnIndex]);
+            }
+        }
+        final var denseColors = new int[usedColors.last() + 1];
+        int denseColor = 0;
+        for (final int color : usedColors) {
+            denseColors[color] = denseColor++;
+        }
+        return denseColors;
+    }
+
+    private static int draw(final Random random, final int[] colors) {
+        return colors[random.nextInt(colors.length)];
+    }
+
+    /**
+     * Returns the colors joining two edge pieces, i.e. the colors of the borders next to the frame border.
+     */
+    private static int[] edgeColorsOf(final Piece[] originalPieces) {
+        final var colors = new TreeSet<Integer>();
+        for (final Piece piece : originalPieces) {
+            final int[] borderColors = {piece.northColor(), piece.eastColor(), piece.southColor(), piece.westColor()};
+            for (int border = 0; border < borderColors.length; border++) {
+                if (borderColors[border] == FRAME_COLOR) {
+                    addIfNotFrame(colors, borderColors[(border + 1) % borderColors.length]);
+                    addIfNotFrame(colors, borderColors[(border + 3) % borderColors.length]);
+                }
+            }
+        }
+        return colors.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void addIfNotFrame(final TreeSet<Integer> colors, final int color) {
+        if (color != FRAME_COLOR) {
+            colors.add(color);
+        }
+    }
+
+    /**
+     * Returns the colors of the center pieces, i.e. the pieces without frame border.
+     */
+    private static int[] centerColorsOf(final Piece[] originalPieces) {
+        final var colors = new TreeSet<Integer>();
+        for (final Piece piece : originalPieces) {
+            if (piece.northColor() != FRAME_COLOR && piece.eastColor() != FRAME_COLOR
+                    && piece.southColor() != FRAME_COLOR && piece.westColor() != FRAME_COLOR) {
+                colors.addAll(List.of(piece.northColor(), piece.eastColor(), piece.southColor(), piece.westColor()));
+            }
+        }
+        return colors.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Piece[] readOriginalPieces() {
+        try (final var input = Objects.requireNonNull(Boards.class.getResourceAsStream(ORIGINAL_PUZZLE))) {
+            return FpsReader.parse(ByteBuffer.wrap(input.readAllBytes())).pieces();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
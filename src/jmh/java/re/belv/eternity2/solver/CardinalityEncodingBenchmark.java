@@ -0,0 +1,90 @@
+package re.belv.eternity2.solver;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Configuration.CardinalityEncoding cardinality encodings}, from the game to its first
+ * solution.
+ * <p>
+ * The search speed is reported as the {@code conflicts} and {@code propagations} secondary results, i.e. per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CardinalityEncodingBenchmark {
+
+    /**
+     * Counts the conflicts and propagations of the searches of each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class SearchCounters implements SolverListener {
+
+        /** The number of conflicts. */
+        public long conflicts;
+
+        /** The number of propagations. */
+        public long propagations;
+
+        /** Resets the counters. */
+        @Setup(Level.Iteration)
+        public void reset() {
+            conflicts = 0;
+            propagations = 0;
+        }
+
+        @Override
+        public void modelFound(final SearchStatistics statistics) {
+            conflicts += statistics.conflicts();
+            propagations += statistics.propagations();
+        }
+    }
+
+    /** The number of rows and columns of the board. */
+    @Param({"6", "7", "8"})
+    int size;
+
+    /** The cardinality encoding. */
+    @Param({"NATIVE", "SEQUENTIAL_COUNTER", "COMMANDER", "PRODUCT", "LADDER"})
+    Configuration.CardinalityEncoding cardinalityEncoding;
+
+    private Boards.Board board;
+
+    /** Generates the board. */
+    @Setup
+    public void setUp() {
+        board = Boards.generate(size);
+    }
+
+    /**
+     * Solves the board until the first solution is found.
+     *
+     * @param counters the counters of the search
+     * @return the first solution
+     */
+    @Benchmark
+    public Piece[][] firstSolution(final SearchCounters counters) {
+        final Configuration configuration = Configuration.defaults()
+                .withFrameColor(board.frameColor())
+                .withCardinalityEncoding(cardinalityEncoding)
+                .withListener(counters);
+        return new Solver(configuration).solve(board.pieces(), board.initialBoard()).next();
+    }
+}
@@ -0,0 +1,89 @@
+package re.belv.eternity2.solver;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Configuration.ColorEncoding color encodings}, from the game to its first solution.
+ * <p>
+ * The size of the encoding is reported as the {@code variables} and {@code constraints} secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ColorEncodingBenchmark {
+
+    /**
+     * Records the size of the encoding of the last search of each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodingSize implements SolverListener {
+
+        /** The number of variables, including the auxiliary variables introduced by the solver. */
+        public long variables;
+
+        /** The number of clauses and cardinality constraints. */
+        public long constraints;
+
+        /** Resets the counters. */
+        @Setup(Level.Iteration)
+        public void reset() {
+            variables = 0;
+            constraints = 0;
+        }
+
+        @Override
+        public void encoded(final EncodingStatistics statistics) {
+            variables = statistics.variableCount();
+            constraints = statistics.constraintCount();
+        }
+    }
+
+    /** The number of rows and columns of the board. */
+    @Param({"6", "7", "8", "9", "10"})
+    int size;
+
+    /** The color encoding. */
+    @Param({"BORDERS", "SHARED_EDGES", "LOG", "DIRECT"})
+    Configuration.ColorEncoding colorEncoding;
+
+    private Boards.Board board;
+
+    /** Generates the board. */
+    @Setup
+    public void setUp() {
+        board = Boards.generate(size);
+    }
+
+    /**
+     * Solves the board until the first solution is found.
+     *
+     * @param encodingSize the size of the encoding
+     * @return the first solution
+     */
+    @Benchmark
+    public Piece[][] timeToFirstSolution(final EncodingSize encodingSize) {
+        final Configuration configuration = Configuration.defaults()
+                .withFrameColor(board.frameColor())
+                .withColorEncoding(colorEncoding)
+                .withListener(encodingSize);
+        return new Solver(configuration).solve(board.pieces(), board.initialBoard()).next();
+    }
+}
@@ -0,0 +1,84 @@
+package re.belv.eternity2.solver;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sat4j.specs.ContradictionException;
+
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the encoding of a game into clauses, i.e. of {@link Constraints#addAllConstraintsTo(ConstraintSink)}.
+ * <p>
+ * The clause generation rate is reported as the {@code constraints} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmark {
+
+    /**
+     * Counts the constraints written during each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        /** The number of clauses and cardinality constraints written. */
+        public long constraints;
+
+        /** Resets the counters. */
+        @Setup(Level.Iteration)
+        public void reset() {
+            constraints = 0;
+        }
+    }
+
+    /** The number of rows and columns of the board. */
+    @Param({"4", "5", "6", "7", "8"})
+    int size;
+
+    private Game game;
+
+    private Variables variables;
+
+    private ClauseCountingSink sink;
+
+    /** Generates the board and its variables. */
+    @Setup
+    public void setUp() {
+        final Boards.Board board = Boards.generate(size);
+        game = new Game(board.pieces(), board.initialBoard(), OptionalInt.of(board.frameColor()));
+        variables = new Variables(game);
+        sink = new ClauseCountingSink();
+    }
+
+    /**
+     * Writes all the constraints of the game.
+     *
+     * @param counters the counters of the constraints written
+     * @return the number of constraints written
+     * @throws ContradictionException never, the board has a solution
+     */
+    @Benchmark
+    public long addAllConstraints(final Counters counters) throws ContradictionException {
+        sink.reset();
+        new Constraints(variables, game).addAllConstraintsTo(sink);
+        counters.constraints += sink.constraintCount();
+        return sink.constraintCount();
+    }
+}
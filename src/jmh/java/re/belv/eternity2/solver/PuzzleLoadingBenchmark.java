@@ -0,0 +1,98 @@
+package re.belv.eternity2.solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import re.belv.eternity2.solver.io.FpsReader;
+import re.belv.eternity2.solver.io.Puzzle;
+import re.belv.eternity2.solver.io.PuzzleFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the loading of a corpus of 10,000 copies of the original 16x16 puzzle, from {@code .fps} contents and
+ * from a {@link PuzzleFile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PuzzleLoadingBenchmark {
+
+    /** The number of puzzles of the corpus. */
+    private static final int PUZZLE_COUNT = 10_000;
+
+    /** The content of the original puzzle file. */
+    private ByteBuffer fpsContent;
+
+    /** The corpus, as a puzzle file. */
+    private Path puzzleFile;
+
+    /**
+     * Reads the original puzzle and writes the corpus.
+     *
+     * @throws IOException if the corpus cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        try (final var input = Objects.requireNonNull(
+                PuzzleLoadingBenchmark.class.getResourceAsStream("/EternityII-256-Bis-ORIGINAL.fps"))) {
+            fpsContent = ByteBuffer.wrap(input.readAllBytes());
+        }
+        final Puzzle original = FpsReader.parse(fpsContent.duplicate());
+        puzzleFile = Files.createTempFile("corpus", ".e2p");
+        PuzzleFile.write(puzzleFile, Collections.nCopies(PUZZLE_COUNT, original));
+    }
+
+    /**
+     * Deletes the corpus.
+     *
+     * @throws IOException if the corpus cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(puzzleFile);
+    }
+
+    /**
+     * Parses the corpus from {@code .fps} contents, already in memory.
+     *
+     * @return the last puzzle
+     */
+    @Benchmark
+    public Puzzle parseFps() {
+        Puzzle puzzle = null;
+        for (int i = 0; i < PUZZLE_COUNT; i++) {
+            puzzle = FpsReader.parse(fpsContent.duplicate());
+        }
+        return puzzle;
+    }
+
+    /**
+     * Loads the corpus from the puzzle file.
+     *
+     * @return the puzzles
+     * @throws IOException if the corpus cannot be read
+     */
+    @Benchmark
+    public List<Puzzle> readPuzzleFile() throws IOException {
+        return PuzzleFile.read(puzzleFile);
+    }
+}
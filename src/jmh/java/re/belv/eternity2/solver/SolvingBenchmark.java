@@ -0,0 +1,73 @@
+package re.belv.eternity2.solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the whole solving process, from the game to the solutions, with each engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SolvingBenchmark {
+
+    /** The number of rows and columns of the board. */
+    @Param({"4", "5", "6", "7", "8"})
+    int size;
+
+    /** The engine. */
+    @Param({"SAT", "BACKTRACKING"})
+    Configuration.Engine engine;
+
+    private Boards.Board board;
+
+    private Configuration configuration;
+
+    /** Generates the board. */
+    @Setup
+    public void setUp() {
+        board = Boards.generate(size);
+        configuration = Configuration.defaults().withFrameColor(board.frameColor()).withEngine(engine);
+    }
+
+    /**
+     * Solves the board until the first solution is found.
+     *
+     * @return the first solution
+     */
+    @Benchmark
+    public Piece[][] timeToFirstSolution() {
+        return new Solver(configuration).solve(board.pieces(), board.initialBoard()).next();
+    }
+
+    /**
+     * Solves the board until all the solutions are found.
+     *
+     * @return the number of solutions
+     */
+    @Benchmark
+    public int timeToAllSolutions() {
+        final Iterator<Piece[][]> solutions = new Solver(configuration).solve(board.pieces(), board.initialBoard());
+        int solutionCount = 0;
+        while (solutions.hasNext()) {
+            solutions.next();
+            solutionCount++;
+        }
+        return solutionCount;
+    }
+}
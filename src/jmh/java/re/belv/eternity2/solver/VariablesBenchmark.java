@@ -0,0 +1,150 @@
+package re.belv.eternity2.solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the hot methods of {@link Variables}: The translations of placements and borders to variables, and of
+ * models back to pieces or packed boards.
+ * <p>
+ * The translations are called in turn for every placement (resp. border color) of the board, so that the measure does
+ * not favor a single, well-predicted input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariablesBenchmark {
+
+    private static final Piece.Rotation[] ROTATIONS = Piece.Rotation.values();
+
+    private static final Piece.Border[] BORDERS = Piece.Border.values();
+
+    /** The number of rows and columns of the board. */
+    @Param({"4", "5", "6", "7", "8"})
+    int size;
+
+    private Variables variables;
+
+    /** The possible placements, as (row, column, piece, rotation) quadruplets. */
+    private int[][] placements;
+
+    /** The border colors, as (row, column, border, color) quadruplets. */
+    private int[][] borders;
+
+    /** A model of the board. */
+    private int[] model;
+
+    private int nextPlacement;
+
+    private int nextBorder;
+
+    /**
+     * Generates the board, its variables and a model.
+     *
+     * @throws ContradictionException never, the board has a solution
+     * @throws TimeoutException       never, there is no timeout
+     */
+    @Setup
+    public void setUp() throws ContradictionException, TimeoutException {
+        final Boards.Board board = Boards.generate(size);
+        final var game = new Game(board.pieces(), board.initialBoard(), OptionalInt.of(board.frameColor()));
+        variables = new Variables(game);
+
+        final List<int[]> possiblePlacements = new ArrayList<>();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                        if (variables.domain().contains(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            possiblePlacements.add(new int[]{rowIndex, columnIndex, pieceIndex, rotation.ordinal()});
+                        }
+                    }
+                }
+            }
+        }
+        placements = possiblePlacements.toArray(int[][]::new);
+
+        final List<int[]> borderColors = new ArrayList<>();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (final Piece.Border border : Piece.Border.all()) {
+                    for (int colorIndex = 0; colorIndex < game.colorCount(); colorIndex++) {
+                        borderColors.add(new int[]{rowIndex, columnIndex, border.ordinal(), colorIndex});
+                    }
+                }
+            }
+        }
+        borders = borderColors.toArray(int[][]::new);
+
+        final var backend = new Sat4jBackend(SolverFactory.newLight());
+        backend.newVar(variables.count());
+        new Constraints(variables, game).addAllConstraintsTo(backend);
+        model = backend.findModel(new VecInt(0));
+    }
+
+    /**
+     * Translates a placement to its variable.
+     *
+     * @return the variable
+     */
+    @Benchmark
+    public int representingPiece() {
+        final int[] placement = placements[nextPlacement];
+        nextPlacement = (nextPlacement + 1) % placements.length;
+        return variables.representingPiece(placement[0], placement[1], placement[2],
+                ROTATIONS[placement[3]]);
+    }
+
+    /**
+     * Translates a border color to its variable.
+     *
+     * @return the variable
+     */
+    @Benchmark
+    public int representingBorder() {
+        final int[] border = borders[nextBorder];
+        nextBorder = (nextBorder + 1) % borders.length;
+        return variables.representingBorder(border[0], border[1], BORDERS[border[2]], border[3]);
+    }
+
+    /**
+     * Translates a model back to pieces.
+     *
+     * @return the pieces
+     */
+    @Benchmark
+    public Piece[][] backToPieces() {
+        return variables.backToPieces(model);
+    }
+
+    /**
+     * Translates a model back to a packed board.
+     *
+     * @return the board
+     */
+    @Benchmark
+    public PackedBoard backToBoard() {
+        return variables.backToBoard(model);
+    }
+}
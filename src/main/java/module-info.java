@@ -2,6 +2,8 @@
  * Eternity 2 solver module.
  */
 module re.belv.eternityii.solver {
+    requires jdk.jfr;
     requires org.ow2.sat4j.core;
     exports re.belv.eternity2.solver;
+    exports re.belv.eternity2.solver.io;
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.Map;
+
+/**
+ * A SAT solver, where the {@link Constraints} are written and the models are searched for.
+ */
+interface Backend extends ConstraintSink, AutoCloseable {
+
+    /**
+     * Removes all variables and constraints.
+     */
+    void reset();
+
+    /**
+     * Looks for a model satisfying the constraints and the given assumptions.
+     * <p>
+     * This call blocks until a model is found, the problem is proven unsatisfiable or the search is
+     * {@link #interrupt() interrupted}.
+     *
+     * @param assumptions literals assumed to be satisfied, for this search only
+     * @return the model, as an array whose element {@code i} is the literal of variable {@code i + 1}; {@code null}
+     * if there is no model
+     * @throws TimeoutException if the search has been interrupted
+     */
+    int[] findModel(IVecInt assumptions) throws TimeoutException;
+
+    /**
+     * Interrupts the current search, if any.
+     * <p>
+     * May be called from any thread.
+     */
+    void interrupt();
+
+    /**
+     * Returns the current assignment of the search.
+     * <p>
+     * May be called from any thread, during a search: The assignment is then read without synchronization, so it may
+     * mix the assignments of close steps of the search. It is meant for monitoring only.
+     *
+     * @return the assignment, as an array whose element {@code i} is the literal of variable {@code i + 1}, or 0 if
+     * the variable is not assigned; {@code null} if the backend does not expose its assignment
+     */
+    int[] currentAssignment();
+
+    /**
+     * Returns the counters of the solver, e.g. the number of conflicts, cumulated since the last {@link #reset()}.
+     * <p>
+     * Counters are named as in Sat4j, e.g. {@code conflicts}, {@code decisions}, {@code propagations},
+     * {@code starts} or {@code learnedclauses}. Backends only return the counters they know of. May be called from any
+     * thread, during a search.
+     *
+     * @return the counters of the solver, by name
+     */
+    Map<String, Number> statistics();
+
+    /**
+     * Releases the resources held by the solver, e.g. its temporary files. Does nothing by default.
+     * <p>
+     * The solver cannot search anymore, but its {@link #statistics() statistics} can still be read.
+     */
+    @Override
+    default void close() {
+        // Most solvers only hold memory
+    }
+}
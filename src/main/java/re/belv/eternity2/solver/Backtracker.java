@@ -0,0 +1,275 @@
+package re.belv.eternity2.solver;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator of solutions found by a dedicated backtracking search, without SAT solver.
+ * <p>
+ * Positions are filled in scan order, i.e. row by row, from left to right. The candidates for a position are the
+ * placements (piece and rotation) whose north and west colors match the south and east colors of the pieces above and
+ * on the left. They are precomputed for each pair of (north, west) colors, so that finding the next candidate is a
+ * mere scan of an array. The positions on the first row (resp. column) use a wildcard north (resp. west) color.
+ * Placements outside the {@link Domain domain} are skipped, which takes the fixed pieces and the frame color into
+ * account. Used pieces are tracked in a bitset.
+ * <p>
+ * The search state is held in primitive arrays allocated once: Nothing is allocated during the search, except the
+ * solutions returned. The search can be {@link #interrupt() interrupted} from another thread.
+ */
+final class Backtracker implements SolutionIterator {
+
+    /** Marker for a search which has not started yet. */
+    private static final int NOT_STARTED = -1;
+
+    /** The number of search steps between two checks of {@link #interrupted}, minus one; A power of two minus one. */
+    private static final int INTERRUPTION_CHECK_MASK = (1 << 16) - 1;
+
+    /** The game. */
+    private final Game game;
+
+    /** The number of rows. */
+    private final int rowCount;
+
+    /** The number of columns. */
+    private final int columnCount;
+
+    /** The number of placements, i.e. of rotated pieces: Placements are numbered {@code piece * 4 + rotation}. */
+    private final int placementCount;
+
+    /** The colors of the placements, indexed by placement and border. */
+    private final int[] colors;
+
+    /** The wildcard color, matching any color. */
+    private final int wildcard;
+
+    /** The candidate placements, grouped by (north, west) colors. */
+    private final int[] candidates;
+
+    /** The index of the first candidate of each (north, west) colors in {@link #candidates}, plus a final bound. */
+    private final int[] candidatesStart;
+
+    /** Whether each placement is possible at each position, indexed by position and placement. */
+    private final boolean[] possible;
+
+    /** The used pieces. */
+    private final long[] usedPieces;
+
+    /** The current placement of each filled position. */
+    private final int[] placements;
+
+    /** The index in {@link #candidates} of the next candidate to try for each filled or current position. */
+    private final int[] nextCandidates;
+
+    /** The index in {@link #candidates} after the last candidate for each filled or current position. */
+    private final int[] lastCandidates;
+
+    /** The current position, or {@link #NOT_STARTED}. */
+    private int position;
+
+    /** Whether the current placements form a solution not returned yet. */
+    private boolean solutionPending;
+
+    /** Whether all the solutions have been found. */
+    private boolean exhausted;
+
+    /** Whether the search has been interrupted. */
+    private volatile boolean interrupted;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param game   the game
+     * @param domain the possible placements of the game
+     */
+    Backtracker(final Game game, final Domain domain) {
+        this.game = game;
+        rowCount = game.rowCount();
+        columnCount = game.columnCount();
+        placementCount = game.piecesCount() * Piece.Rotation.count();
+        colors = new int[placementCount * Piece.Border.count()];
+        int maxColor = 0;
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                final int placement = pieceIndex * Piece.Rotation.count() + rotation.ordinal();
+                for (final Piece.Border border : Piece.Border.all()) {
+                    final int color = game.colorOf(pieceIndex, rotation, border);
+                    colors[placement * Piece.Border.count() + border.ordinal()] = color;
+                    maxColor = Math.max(maxColor, color);
+                }
+            }
+        }
+        wildcard = maxColor + 1;
+
+        final int keyCount = (wildcard + 1) * (wildcard + 1);
+        candidatesStart = new int[keyCount + 1];
+        for (int placement = 0; placement < placementCount; placement++) {
+            for (int key = 0; key < keyCount; key++) {
+                if (matches(placement, key)) {
+                    candidatesStart[key + 1]++;
+                }
+            }
+        }
+        for (int key = 0; key < keyCount; key++) {
+            candidatesStart[key + 1] += candidatesStart[key];
+        }
+        candidates = new int[candidatesStart[keyCount]];
+        final int[] filled = new int[keyCount];
+        for (int placement = 0; placement < placementCount; placement++) {
+            for (int key = 0; key < keyCount; key++) {
+                if (matches(placement, key)) {
+                    candidates[candidatesStart[key] + filled[key]++] = placement;
+                }
+            }
+        }
+
+        final int cellCount = rowCount * columnCount;
+        possible = new boolean[cellCount * placementCount];
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                        possible[(rowIndex * columnCount + columnIndex) * placementCount
+                                + pieceIndex * Piece.Rotation.count() + rotation.ordinal()] =
+                                domain.contains(rowIndex, columnIndex, pieceIndex, rotation);
+                    }
+                }
+            }
+        }
+
+        usedPieces = new long[(game.piecesCount() + Long.SIZE - 1) / Long.SIZE];
+        placements = new int[cellCount];
+        nextCandidates = new int[cellCount];
+        lastCandidates = new int[cellCount];
+        position = NOT_STARTED;
+        exhausted = domain.isInconsistent();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!solutionPending && !exhausted && !interrupted) {
+            search();
+        }
+        return solutionPending;
+    }
+
+    @Override
+    public PackedBoard next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        // Placements are numbered as packed placements
+        final var solution = new PackedBoard(game, placements.clone());
+        solutionPending = false;
+        return solution;
+    }
+
+    @Override
+    public void skip() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        solutionPending = false;
+    }
+
+    /**
+     * Interrupts the search: The iteration ends as soon as the current search notices it.
+     * <p>
+     * May be called from any thread.
+     */
+    void interrupt() {
+        interrupted = true;
+    }
+
+    /**
+     * Searches for the next solution, starting from the current placements.
+     */
+    private void search() {
+        final int cellCount = placements.length;
+        if (position == NOT_STARTED) {
+            position = 0;
+            prepareCandidates(0);
+        } else {
+            // Backtrack from the last solution found
+            position = cellCount - 1;
+            release(placements[position]);
+        }
+        int steps = 0;
+        while (position >= 0) {
+            if ((++steps & INTERRUPTION_CHECK_MASK) == 0 && interrupted) {
+                exhausted = true;
+                return;
+            }
+            final int offset = position * placementCount;
+            final int last = lastCandidates[position];
+            int candidateIndex = nextCandidates[position];
+            int placement = -1;
+            while (candidateIndex < last) {
+                final int candidate = candidates[candidateIndex++];
+                if (possible[offset + candidate] && !isUsed(candidate)) {
+                    placement = candidate;
+                    break;
+                }
+            }
+            nextCandidates[position] = candidateIndex;
+            if (placement >= 0) {
+                placements[position] = placement;
+                use(placement);
+                if (position == cellCount - 1) {
+                    solutionPending = true;
+                    return;
+                }
+                position++;
+                prepareCandidates(position);
+            } else {
+                position--;
+                if (position >= 0) {
+                    release(placements[position]);
+                }
+            }
+        }
+        exhausted = true;
+    }
+
+    /**
+     * Sets the candidates of the given position, according to the placements above and on the left.
+     */
+    private void prepareCandidates(final int cell) {
+        final int rowIndex = cell / columnCount;
+        final int columnIndex = cell % columnCount;
+        final int north = rowIndex == 0 ? wildcard
+                : color(placements[cell - columnCount], Piece.Border.SOUTH);
+        final int west = columnIndex == 0 ? wildcard
+                : color(placements[cell - 1], Piece.Border.EAST);
+        final int key = north * (wildcard + 1) + west;
+        nextCandidates[cell] = candidatesStart[key];
+        lastCandidates[cell] = candidatesStart[key + 1];
+    }
+
+    /**
+     * Returns whether the given placement has the north and west colors of the given key.
+     */
+    private boolean matches(final int placement, final int key) {
+        final int north = key / (wildcard + 1);
+        final int west = key % (wildcard + 1);
+        return (north == wildcard || color(placement, Piece.Border.NORTH) == north)
+                && (west == wildcard || color(placement, Piece.Border.WEST) == west);
+    }
+
+    private int color(final int placement, final Piece.Border border) {
+        return colors[placement * Piece.Border.count() + border.ordinal()];
+    }
+
+    private boolean isUsed(final int placement) {
+        final int pieceIndex = placement / Piece.Rotation.count();
+        return (usedPieces[pieceIndex / Long.SIZE] & (1L << pieceIndex)) != 0;
+    }
+
+    private void use(final int placement) {
+        final int pieceIndex = placement / Piece.Rotation.count();
+        usedPieces[pieceIndex / Long.SIZE] |= 1L << pieceIndex;
+    }
+
+    private void release(final int placement) {
+        final int pieceIndex = placement / Piece.Rotation.count();
+        usedPieces[pieceIndex / Long.SIZE] &= ~(1L << pieceIndex);
+    }
+}
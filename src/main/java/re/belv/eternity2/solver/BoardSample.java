@@ -0,0 +1,75 @@
+package re.belv.eternity2.solver;
+
+import java.time.Duration;
+
+/**
+ * A sample of the board being built by a search.
+ * <p>
+ * The board is decoded from the current assignment of the SAT solver: It shows how deep the search is. Comparing the
+ * best board of successive samples shows whether the search progresses.
+ *
+ * @param elapsed the time elapsed since the beginning of the search
+ * @param current the board currently built by the search
+ * @param best    the best board sampled since the beginning of the search, possibly the current one
+ */
+public record BoardSample(Duration elapsed, Board current, Board best) {
+
+    /**
+     * A partially filled board.
+     * <p>
+     * A board is better than another one if it has more placed pieces or, with as many placed pieces, more matched
+     * edges.
+     *
+     * @param pieces           the pieces, indexed by row and column, {@code null} where no piece is placed; Shared
+     *                         between samples, must not be modified
+     * @param placedPieceCount the number of placed pieces
+     * @param matchedEdgeCount the number of edges between two adjacent placed pieces whose colors match
+     */
+    public record Board(Piece[][] pieces, int placedPieceCount, int matchedEdgeCount) {
+
+        /**
+         * Creates an instance, counting the placed pieces and matched edges of the given pieces.
+         *
+         * @param pieces the pieces, indexed by row and column, {@code null} where no piece is placed
+         * @return the board
+         */
+        static Board of(final Piece[][] pieces) {
+            int placedPieceCount = 0;
+            int matchedEdgeCount = 0;
+            for (int rowIndex = 0; rowIndex < pieces.length; rowIndex++) {
+                for (int columnIndex = 0; columnIndex < pieces[rowIndex].length; columnIndex++) {
+                    final Piece piece = pieces[rowIndex][columnIndex];
+                    if (piece == null) {
+                        continue;
+                    }
+                    placedPieceCount++;
+                    if (columnIndex + 1 < pieces[rowIndex].length) {
+                        final Piece east = pieces[rowIndex][columnIndex + 1];
+                        if (east != null && east.westColor() == piece.eastColor()) {
+                            matchedEdgeCount++;
+                        }
+                    }
+                    if (rowIndex + 1 < pieces.length) {
+                        final Piece south = pieces[rowIndex + 1][columnIndex];
+                        if (south != null && south.northColor() == piece.southColor()) {
+                            matchedEdgeCount++;
+                        }
+                    }
+                }
+            }
+            return new Board(pieces, placedPieceCount, matchedEdgeCount);
+        }
+
+        /**
+         * Returns whether this board is better than the given one.
+         *
+         * @param other the other board
+         * @return {@code true} if this board has more placed pieces or, with as many placed pieces, more matched edges
+         */
+        boolean isBetterThan(final Board other) {
+            return placedPieceCount != other.placedPieceCount
+                    ? placedPieceCount > other.placedPieceCount
+                    : matchedEdgeCount > other.matchedEdgeCount;
+        }
+    }
+}
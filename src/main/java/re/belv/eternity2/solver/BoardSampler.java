@@ -0,0 +1,61 @@
+package re.belv.eternity2.solver;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Samples the boards being built by the searches of some backends, keeping the best one.
+ * <p>
+ * Sampling decodes the {@link Backend#currentAssignment() current assignment} of each backend, which costs a pass over
+ * the variables: It is meant to be called on a timer, not on each step of the search. This class is <em>not</em>
+ * thread-safe: Samples must be taken from a single thread at a time, e.g. the monitor thread of {@link Solutions}.
+ */
+final class BoardSampler {
+
+    /** The problem variables. */
+    private final Variables variables;
+
+    /** The backends searching for models. */
+    private final List<Backend> backends;
+
+    /** The best board sampled so far, {@code null} if none. */
+    private BoardSample.Board best;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param variables the problem variables
+     * @param backends  the backends searching for models
+     */
+    BoardSampler(final Variables variables, final List<Backend> backends) {
+        this.variables = variables;
+        this.backends = backends;
+    }
+
+    /**
+     * Samples the boards being built by the backends, the best of them being the current board of the sample.
+     *
+     * @param elapsed the time elapsed since the beginning of the search
+     * @return the sample, or {@code null} if no backend exposes its assignment
+     */
+    BoardSample sample(final Duration elapsed) {
+        BoardSample.Board current = null;
+        for (final Backend backend : backends) {
+            final int[] assignment = backend.currentAssignment();
+            if (assignment == null) {
+                continue;
+            }
+            final BoardSample.Board board = BoardSample.Board.of(variables.backToPieces(assignment));
+            if (current == null || board.isBetterThan(current)) {
+                current = board;
+            }
+        }
+        if (current == null) {
+            return null;
+        }
+        if (best == null || current.isBetterThan(best)) {
+            best = current;
+        }
+        return new BoardSample(elapsed, current, best);
+    }
+}
@@ -0,0 +1,329 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.Map;
+
+/**
+ * A {@link ConstraintSink} decorator encoding the exactly-one and at-most-one constraints into clauses, instead of
+ * passing them as cardinality constraints to the decorated sink.
+ * <p>
+ * An exactly-one constraint is encoded as a single at-least-one clause plus the at-most-one encoding of the
+ * {@link Configuration.CardinalityEncoding selected kind}. Auxiliary variables are declared to the decorated sink as
+ * needed, after the variables already declared. Constraints with another degree are passed through unchanged.
+ * <p>
+ * Clauses are built in scratch buffers, reused from one clause to the next. An instance is not thread-safe.
+ */
+final class CardinalityEncoder implements ConstraintSink {
+
+    /** The size under which groups are encoded pairwise by the commander and product encodings. */
+    private static final int PAIRWISE_THRESHOLD = 4;
+
+    /** The size of the groups of the commander encoding. */
+    private static final int COMMANDER_GROUP_SIZE = 3;
+
+    /** The decorated sink. */
+    private final ConstraintSink delegate;
+
+    /** The encoding of the at-most-one constraints. */
+    private final Configuration.CardinalityEncoding encoding;
+
+    /** Scratch buffer for the clauses of the encoding. */
+    private final VecInt clause;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param delegate the decorated sink
+     * @param encoding the encoding of the at-most-one constraints; Not {@link Configuration.CardinalityEncoding#NATIVE}
+     */
+    CardinalityEncoder(final ConstraintSink delegate, final Configuration.CardinalityEncoding encoding) {
+        if (encoding == Configuration.CardinalityEncoding.NATIVE) {
+            throw new IllegalArgumentException("Native cardinality constraints need no encoding");
+        }
+        this.delegate = delegate;
+        this.encoding = encoding;
+        clause = new VecInt(4);
+    }
+
+    /**
+     * Returns a backend encoding the exactly-one and at-most-one constraints into clauses, before passing them to the
+     * given backend.
+     *
+     * @param backend  the backend searching for models
+     * @param encoding the encoding of the at-most-one constraints; Not {@link Configuration.CardinalityEncoding#NATIVE}
+     * @return the backend
+     */
+    static Backend encodingTo(final Backend backend, final Configuration.CardinalityEncoding encoding) {
+        return new EncodingBackend(backend, new CardinalityEncoder(backend, encoding));
+    }
+
+    @Override
+    public void newVar(final int count) {
+        delegate.newVar(count);
+    }
+
+    @Override
+    public void expectConstraints(final int count) {
+        delegate.expectConstraints(count);
+    }
+
+    @Override
+    public int variableCount() {
+        return delegate.variableCount();
+    }
+
+    @Override
+    public void addClause(final IVecInt literals) throws ContradictionException {
+        delegate.addClause(literals);
+    }
+
+    @Override
+    public void addExactly(final IVecInt literals, final int degree) throws ContradictionException {
+        if (degree != 1) {
+            delegate.addExactly(literals, degree);
+            return;
+        }
+        delegate.addClause(literals);
+        addAtMostOne(literals);
+    }
+
+    @Override
+    public void addAtMost(final IVecInt literals, final int degree) throws ContradictionException {
+        if (degree != 1) {
+            delegate.addAtMost(literals, degree);
+            return;
+        }
+        addAtMostOne(literals);
+    }
+
+    @Override
+    public void startPhase(final String name) {
+        delegate.startPhase(name);
+    }
+
+    private void addAtMostOne(final IVecInt literals) throws ContradictionException {
+        if (literals.size() <= 1) {
+            return;
+        }
+        switch (encoding) {
+            case SEQUENTIAL_COUNTER -> addSequentialCounter(literals);
+            case COMMANDER -> addCommander(literals);
+            case PRODUCT -> addProduct(literals);
+            case LADDER -> addLadder(literals);
+            default -> throw new IllegalStateException("Unexpected encoding: " + encoding);
+        }
+    }
+
+    /**
+     * Sequential counter encoding by Carsten Sinz, for a degree of 1: Register {@code s(i)} is satisfied if one of the
+     * first {@code i + 1} literals is.
+     */
+    private void addSequentialCounter(final IVecInt literals) throws ContradictionException {
+        final int n = literals.size();
+        int previousRegister = newVariable();
+        addClause(-literals.get(0), previousRegister);
+        for (int i = 1; i < n - 1; i++) {
+            final int register = newVariable();
+            addClause(-literals.get(i), register);
+            addClause(-previousRegister, register);
+            addClause(-literals.get(i), -previousRegister);
+            previousRegister = register;
+        }
+        addClause(-literals.get(n - 1), -previousRegister);
+    }
+
+    /**
+     * Ladder encoding by Gent and Nightingale: Rung {@code y(i)} is satisfied if the satisfied literal, if any, comes
+     * after literal {@code i}. Rungs are ordered, i.e. {@code y(i + 1)} implies {@code y(i)}.
+     */
+    private void addLadder(final IVecInt literals) throws ContradictionException {
+        final int n = literals.size();
+        final int firstRung = newVariables(n - 1);
+        for (int i = 0; i < n - 2; i++) {
+            addClause(-(firstRung + i + 1), firstRung + i);
+        }
+        for (int i = 0; i < n; i++) {
+            if (i < n - 1) {
+                addClause(-literals.get(i), -(firstRung + i));
+            }
+            if (i > 0) {
+                addClause(-literals.get(i), firstRung + i - 1);
+            }
+        }
+    }
+
+    /**
+     * Commander encoding by Klieber and Kwon: Literals are split into groups of 3 with a commander each, implied by
+     * the literals of its group; Then at most one commander is satisfied, recursively.
+     */
+    private void addCommander(final IVecInt literals) throws ContradictionException {
+        final int n = literals.size();
+        if (n <= PAIRWISE_THRESHOLD) {
+            addPairwise(literals);
+            return;
+        }
+        final var commanders = new VecInt((n + COMMANDER_GROUP_SIZE - 1) / COMMANDER_GROUP_SIZE + 1);
+        for (int groupStart = 0; groupStart < n; groupStart += COMMANDER_GROUP_SIZE) {
+            final int groupEnd = Math.min(groupStart + COMMANDER_GROUP_SIZE, n);
+            final int commander = newVariable();
+            for (int i = groupStart; i < groupEnd; i++) {
+                addClause(-literals.get(i), commander);
+                for (int j = i + 1; j < groupEnd; j++) {
+                    addClause(-literals.get(i), -literals.get(j));
+                }
+            }
+            commanders.push(commander);
+        }
+        addCommander(commanders);
+    }
+
+    /**
+     * Product encoding by Chen: Literals are laid out on a grid, each one implying its row and its column; Then at
+     * most one row and at most one column are satisfied, recursively.
+     */
+    private void addProduct(final IVecInt literals) throws ContradictionException {
+        final int n = literals.size();
+        if (n <= PAIRWISE_THRESHOLD) {
+            addPairwise(literals);
+            return;
+        }
+        final int columnCount = (int) Math.ceil(Math.sqrt(n));
+        final int rowCount = (n + columnCount - 1) / columnCount;
+        final int firstRow = newVariables(rowCount);
+        final int firstColumn = newVariables(columnCount);
+        for (int i = 0; i < n; i++) {
+            addClause(-literals.get(i), firstRow + i / columnCount);
+            addClause(-literals.get(i), firstColumn + i % columnCount);
+        }
+        addProduct(consecutive(firstRow, rowCount));
+        addProduct(consecutive(firstColumn, columnCount));
+    }
+
+    private void addPairwise(final IVecInt literals) throws ContradictionException {
+        for (int i = 0; i < literals.size(); i++) {
+            for (int j = i + 1; j < literals.size(); j++) {
+                addClause(-literals.get(i), -literals.get(j));
+            }
+        }
+    }
+
+    private static IVecInt consecutive(final int first, final int count) {
+        final var variables = new VecInt(count + 1);
+        for (int i = 0; i < count; i++) {
+            variables.push(first + i);
+        }
+        return variables;
+    }
+
+    private int newVariable() {
+        return newVariables(1);
+    }
+
+    /**
+     * Declares the given number of auxiliary variables to the decorated sink.
+     *
+     * @return the first of the new variables, the others following it
+     */
+    private int newVariables(final int count) {
+        final int first = delegate.variableCount() + 1;
+        delegate.newVar(first + count - 1);
+        return first;
+    }
+
+    private void addClause(final int firstLiteral, final int secondLiteral) throws ContradictionException {
+        clause.clear();
+        delegate.addClause(clause.push(firstLiteral).push(secondLiteral));
+    }
+
+    /**
+     * A backend whose constraints go through a {@link CardinalityEncoder}.
+     */
+    private static final class EncodingBackend implements Backend {
+
+        /** The backend searching for models. */
+        private final Backend backend;
+
+        /** The encoder of the constraints, passing them to the backend. */
+        private final CardinalityEncoder encoder;
+
+        /**
+         * Constructs an instance.
+         *
+         * @param backend the backend searching for models
+         * @param encoder the encoder of the constraints, passing them to the backend
+         */
+        EncodingBackend(final Backend backend, final CardinalityEncoder encoder) {
+            this.backend = backend;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void reset() {
+            backend.reset();
+        }
+
+        @Override
+        public void newVar(final int count) {
+            encoder.newVar(count);
+        }
+
+        @Override
+        public void expectConstraints(final int count) {
+            encoder.expectConstraints(count);
+        }
+
+        @Override
+        public int variableCount() {
+            return encoder.variableCount();
+        }
+
+        @Override
+        public void addClause(final IVecInt literals) throws ContradictionException {
+            encoder.addClause(literals);
+        }
+
+        @Override
+        public void addExactly(final IVecInt literals, final int degree) throws ContradictionException {
+            encoder.addExactly(literals, degree);
+        }
+
+        @Override
+        public void addAtMost(final IVecInt literals, final int degree) throws ContradictionException {
+            encoder.addAtMost(literals, degree);
+        }
+
+        @Override
+        public void startPhase(final String name) {
+            encoder.startPhase(name);
+        }
+
+        @Override
+        public int[] findModel(final IVecInt assumptions) throws TimeoutException {
+            return backend.findModel(assumptions);
+        }
+
+        @Override
+        public void interrupt() {
+            backend.interrupt();
+        }
+
+        @Override
+        public void close() {
+            backend.close();
+        }
+
+        @Override
+        public int[] currentAssignment() {
+            return backend.currentAssignment();
+        }
+
+        @Override
+        public Map<String, Number> statistics() {
+            return backend.statistics();
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The progress of an enumeration, saved to a file as it goes so that the enumeration can be resumed.
+ * <p>
+ * The progress is made of the solutions returned so far and of the {@link Cubes cubes} exhausted by the enumeration
+ * workers, if any. A resumed enumeration blocks the solutions already returned, as if it had found them, and skips the
+ * exhausted cubes. Learned clauses are not saved: They are a cache of the search, rebuilt as the search goes on.
+ * <p>
+ * The file is made of big-endian integers:
+ * <pre>
+ * int     magic number, "E2CP"
+ * int     version of the format
+ * UTF     fingerprint of the game and of its color encoding, see {@link EncodingCache#fingerprintOf}
+ * int[]   id &lt;&lt; 2 | rotation of the piece at each position of the initial board, -1 if none
+ * then, for each solution returned or cube exhausted, in order:
+ *     either, for a solution: int[] id &lt;&lt; 2 | rotation of the piece at each position
+ *     or, for a cube:         int ~number of literals, int[] literals
+ * </pre>
+ * The fingerprint and the initial board tell whether the checkpoint applies to a game, with the same variable
+ * numbering. A cube is told from a solution by its negative first integer, since the first position of a solution is
+ * never empty.
+ * <p>
+ * The header is written once; Solutions and cubes are then appended to a buffer as they are returned, so that neither
+ * the memory used nor the cost of a write grow with the number of solutions. The buffer is flushed to the file on a
+ * thread shared by all instances, only when the progress has changed since the previous flush. A record cut by a kill
+ * during a flush is dropped on resume.
+ */
+final class Checkpoint implements Closeable {
+
+    /** The magic number starting the files, "E2CP" in ASCII. */
+    private static final int MAGIC = 0x45324350;
+
+    /** The version of the format, increased on incompatible changes. */
+    private static final int VERSION = 2;
+
+    /** Flushes the checkpoints of all instances. */
+    private static final ScheduledExecutorService WRITER = newWriter();
+
+    /** The file. */
+    private final Path file;
+
+    /** The game. */
+    private final Game game;
+
+    /** The number of positions of the board. */
+    private final int cellCount;
+
+    /** The literals of the cubes exhausted so far, guarded by this instance. */
+    private final List<int[]> exhaustedCubes;
+
+    /** The offset of the first record in the file. */
+    private final long recordsOffset;
+
+    /** The offset of the end of the records written before resuming, i.e. of the solutions to block. */
+    private final long resumedRecordsEnd;
+
+    /** Where records are appended, guarded by this instance. */
+    private final DataOutputStream output;
+
+    /** Whether the progress has changed since the last flush, guarded by this instance. */
+    private boolean changed;
+
+    /** Whether the checkpoint has been closed, guarded by this instance. */
+    private boolean closed;
+
+    /** The periodic flushing of the file. */
+    private ScheduledFuture<?> flushing;
+
+    /** The error raised by the last write, if any. */
+    private volatile IOException failure;
+
+    private Checkpoint(final Path file, final Game game, final List<int[]> exhaustedCubes, final long recordsOffset,
+                       final long resumedRecordsEnd, final DataOutputStream output) {
+        this.file = file;
+        this.game = game;
+        cellCount = game.rowCount() * game.columnCount();
+        this.exhaustedCubes = exhaustedCubes;
+        this.recordsOffset = recordsOffset;
+        this.resumedRecordsEnd = resumedRecordsEnd;
+        this.output = output;
+    }
+
+    /**
+     * Starts a checkpoint of an enumeration from scratch, replacing the given file.
+     *
+     * @param file          the file
+     * @param interval      the interval at which the file is flushed
+     * @param game          the game
+     * @param colorEncoding how the colors are encoded
+     * @return the checkpoint
+     * @throws IOException if the file cannot be written
+     */
+    static Checkpoint start(final Path file, final Duration interval, final Game game,
+                            final Configuration.ColorEncoding colorEncoding) throws IOException {
+        final byte[] header = headerOf(game, colorEncoding);
+        final var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                SolutionWriter.BUFFER_SIZE));
+        try {
+            output.write(header);
+            output.flush();
+        } catch (final IOException e) {
+            output.close();
+            throw e;
+        }
+        final var checkpoint = new Checkpoint(file, game, new ArrayList<>(), header.length, header.length, output);
+        checkpoint.startFlushing(interval);
+        return checkpoint;
+    }
+
+    /**
+     * Resumes the checkpoint of an enumeration from the given file.
+     * <p>
+     * The exhausted cubes are read; The solutions are only read when {@link #blockResumedSolutions blocked}.
+     *
+     * @param file          the file
+     * @param interval      the interval at which the file is flushed
+     * @param game          the game
+     * @param colorEncoding how the colors are encoded
+     * @return the checkpoint
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a checkpoint of the given game with the given color encoding
+     */
+    static Checkpoint resume(final Path file, final Duration interval, final Game game,
+                             final Configuration.ColorEncoding colorEncoding) throws IOException {
+        final String fingerprint = EncodingCache.fingerprintOf(game, colorEncoding);
+        final int[] initialCells = initialCellsOf(game);
+        final long recordsOffset = headerOf(game, colorEncoding).length;
+        final List<int[]> exhaustedCubes = new ArrayList<>();
+        long recordsEnd = recordsOffset;
+        try (final var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a checkpoint file: " + file);
+            }
+            final int version = input.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported checkpoint file version: " + version);
+            }
+            if (!input.readUTF().equals(fingerprint) || !Arrays.equals(readInts(input, initialCells.length),
+                    initialCells)) {
+                throw new IllegalArgumentException("Checkpoint of another game or color encoding: " + file);
+            }
+            try {
+                while (true) {
+                    final int first = input.readInt();
+                    if (first < 0) {
+                        exhaustedCubes.add(readInts(input, ~first));
+                        recordsEnd += Integer.BYTES * (1L + ~first);
+                    } else {
+                        input.skipNBytes(Integer.BYTES * (initialCells.length - 1L));
+                        recordsEnd += (long) Integer.BYTES * initialCells.length;
+                    }
+                }
+            } catch (final EOFException e) {
+                // End of the records, possibly in the middle of the last one, cut by a kill
+            }
+        }
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(recordsEnd);
+        }
+        final var output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.APPEND), SolutionWriter.BUFFER_SIZE));
+        final var checkpoint = new Checkpoint(file, game, exhaustedCubes, recordsOffset, recordsEnd, output);
+        checkpoint.startFlushing(interval);
+        return checkpoint;
+    }
+
+    /**
+     * Records a solution returned by the enumeration.
+     * <p>
+     * A failure to write it is raised by {@link #failure()}.
+     *
+     * @param solution the solution
+     */
+    synchronized void solutionReturned(final PackedBoard solution) {
+        if (closed) {
+            return;
+        }
+        try {
+            for (int position = 0; position < cellCount; position++) {
+                output.writeInt(solution.cell(position));
+            }
+            changed = true;
+        } catch (final IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Records a cube exhausted by the enumeration, once all its solutions have been returned.
+     * <p>
+     * A failure to write it is raised by {@link #failure()}.
+     *
+     * @param cube the cube, as assumptions
+     */
+    synchronized void cubeExhausted(final IVecInt cube) {
+        final int[] literals = Arrays.copyOf(cube.toArray(), cube.size());
+        exhaustedCubes.add(literals);
+        if (closed) {
+            return;
+        }
+        try {
+            output.writeInt(~literals.length);
+            writeInts(output, literals);
+            changed = true;
+        } catch (final IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Returns whether the given cube has been exhausted, before resuming or since.
+     *
+     * @param cube the cube, as assumptions
+     * @return whether the given cube has been exhausted
+     */
+    synchronized boolean isExhausted(final IVecInt cube) {
+        final int[] literals = Arrays.copyOf(cube.toArray(), cube.size());
+        for (final int[] exhaustedCube : exhaustedCubes) {
+            if (Arrays.equals(exhaustedCube, literals)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Blocks the solutions returned before resuming in the given backend, so that they are not found again.
+     * <p>
+     * The solutions are read from the file, where they precede the records appended since resuming.
+     *
+     * @param variables the problem variables
+     * @param backend   the backend, where the problem has been written
+     * @throws ContradictionException if no solution is left once these solutions are blocked
+     * @throws IOException            if the file cannot be read
+     */
+    void blockResumedSolutions(final Variables variables, final Backend backend)
+            throws ContradictionException, IOException {
+        if (resumedRecordsEnd == recordsOffset) {
+            return;
+        }
+        try (final var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            input.skipNBytes(recordsOffset);
+            long position = recordsOffset;
+            while (position < resumedRecordsEnd) {
+                final int first = input.readInt();
+                if (first < 0) {
+                    input.skipNBytes((long) Integer.BYTES * ~first);
+                    position += Integer.BYTES * (1L + ~first);
+                } else {
+                    final var cells = new int[cellCount];
+                    cells[0] = first;
+                    for (int cell = 1; cell < cellCount; cell++) {
+                        cells[cell] = input.readInt();
+                    }
+                    position += (long) Integer.BYTES * cellCount;
+                    backend.addClause(variables.blockingClauseOf(new PackedBoard(game, cells)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the error raised by the last write of the file.
+     *
+     * @return the error raised by the last write of the file, {@code null} if none
+     */
+    IOException failure() {
+        return failure;
+    }
+
+    /**
+     * Stops flushing the file periodically, then flushes and closes it, if not done yet.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        flushing.cancel(false);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            output.close();
+        }
+    }
+
+    private void startFlushing(final Duration interval) {
+        flushing = WRITER.scheduleWithFixedDelay(() -> {
+            try {
+                flushIfChanged();
+            } catch (final IOException e) {
+                failure = e;
+            }
+        }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void flushIfChanged() throws IOException {
+        if (!changed || closed) {
+            return;
+        }
+        changed = false;
+        output.flush();
+    }
+
+    /**
+     * Returns the header of the checkpoint files of the given game with the given color encoding.
+     */
+    private static byte[] headerOf(final Game game, final Configuration.ColorEncoding colorEncoding)
+            throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(EncodingCache.fingerprintOf(game, colorEncoding));
+            writeInts(output, initialCellsOf(game));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int[] initialCellsOf(final Game game) {
+        final var initialBoard = new Piece[game.rowCount()][game.columnCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                initialBoard[rowIndex][columnIndex] = game.initialBoardPiece(rowIndex, columnIndex).orElse(null);
+            }
+        }
+        final PackedBoard board = PackedBoard.of(game, initialBoard);
+        final var cells = new int[game.rowCount() * game.columnCount()];
+        for (int position = 0; position < cells.length; position++) {
+            cells[position] = board.cell(position);
+        }
+        return cells;
+    }
+
+    private static int[] readInts(final DataInputStream input, final int count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid checkpoint file: Negative length " + count);
+        }
+        final var values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    private static void writeInts(final DataOutputStream output, final int[] values) throws IOException {
+        for (final int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static ScheduledExecutorService newWriter() {
+        final var writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final var thread = new Thread(runnable, "eternity2-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.setRemoveOnCancelPolicy(true);
+        return writer;
+    }
+}
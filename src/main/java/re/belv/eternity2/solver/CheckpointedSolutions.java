@@ -0,0 +1,85 @@
+package re.belv.eternity2.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator of solutions which records the solutions of another iterator in a {@link Checkpoint checkpoint} as they
+ * are returned.
+ * <p>
+ * The checkpoint is closed once the solutions are exhausted, or once they are abandoned, i.e. no longer reachable, so
+ * that the solutions returned are flushed to the file. A failure to write the checkpoint is raised as an
+ * {@link UncheckedIOException} by the next call.
+ */
+final class CheckpointedSolutions implements SolutionIterator {
+
+    /** Closes the checkpoints of the abandoned solutions. */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** The solutions. */
+    private final Iterator<PackedBoard> solutions;
+
+    /** The checkpoint. */
+    private final Checkpoint checkpoint;
+
+    /** Whether the checkpoint has been closed. */
+    private boolean closed;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param solutions  the solutions
+     * @param checkpoint the checkpoint, closed once the solutions are exhausted or abandoned
+     */
+    CheckpointedSolutions(final Iterator<PackedBoard> solutions, final Checkpoint checkpoint) {
+        this.solutions = solutions;
+        this.checkpoint = checkpoint;
+        CLEANER.register(this, closerOf(checkpoint));
+    }
+
+    @Override
+    public boolean hasNext() {
+        final IOException failure = checkpoint.failure();
+        if (failure != null) {
+            throw new UncheckedIOException("Cannot write checkpoint", failure);
+        }
+        if (solutions.hasNext()) {
+            return true;
+        }
+        if (!closed) {
+            closed = true;
+            try {
+                checkpoint.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Cannot write checkpoint", e);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public PackedBoard next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        final PackedBoard solution = solutions.next();
+        checkpoint.solutionReturned(solution);
+        return solution;
+    }
+
+    /**
+     * Returns the action closing the given checkpoint, which must not reference the solutions to let them be cleaned.
+     */
+    private static Runnable closerOf(final Checkpoint checkpoint) {
+        return () -> {
+            try {
+                checkpoint.close();
+            } catch (final IOException e) {
+                // Nobody left to report the failure to
+            }
+        };
+    }
+}
@@ -0,0 +1,699 @@
+package re.belv.eternity2.solver;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+
+/**
+ * The configuration of a {@link Solver}.
+ * <p>
+ * Instances are immutable: Each {@code with*} method returns a modified copy.
+ * <p>
+ * Example of usage:
+ * <pre>{@code
+ * final var configuration = Configuration.defaults()
+ *         .withSymmetryBreaking(Configuration.SymmetryBreaking.CANONICAL)
+ *         .withFrameColor(1);
+ * final var solver = new Solver(configuration);
+ * }</pre>
+ */
+public final class Configuration {
+
+    /**
+     * How symmetric solutions are handled.
+     */
+    public enum SymmetryBreaking {
+        /** Symmetries are not broken: All solutions are searched, including symmetric ones. */
+        NONE,
+        /**
+         * Symmetries are broken: Only canonical solutions are searched and returned, i.e. one solution per class of
+         * symmetric solutions.
+         */
+        CANONICAL,
+        /**
+         * Symmetries are broken during the search, but each canonical solution is expanded back to all the distinct
+         * solutions it represents.
+         */
+        EXPANDED
+    }
+
+    /**
+     * The algorithm searching for solutions.
+     */
+    public enum Engine {
+        /** The game is encoded as a SAT problem and solved by a SAT solver. */
+        SAT,
+        /**
+         * The game is solved by a dedicated backtracking search, filling the board in scan order. Only the
+         * {@link Configuration#withFrameColor(int) frame color} option applies to this engine.
+         */
+        BACKTRACKING,
+        /**
+         * The outer frame of the board is solved first by a SAT solver, then the interior of each frame solution by
+         * other SAT solvers, the frame being passed as assumptions. Both problems are much smaller than the whole
+         * game, and frames whose interior is infeasible are rejected early. The search runs in background threads:
+         * The {@link Configuration#withParallelEnumeration(int) enumeration workers} solve the interiors of distinct
+         * frames in parallel. This engine pays off with a {@link Configuration#withFrameColor(int) frame color}, which
+         * keeps the frame pieces apart from the interior ones. Symmetry breaking, encoding cache and heap budget are
+         * not supported; The other operations of the solver, e.g. optimization or sessions, use the SAT engine.
+         */
+        FRAME_FIRST
+    }
+
+    /**
+     * How the colors of the borders are encoded, i.e. how the SAT engine ensures that adjacent borders match.
+     */
+    public enum ColorEncoding {
+        /**
+         * Each border of each position has a set of variables, one per color, exactly one of them being true.
+         * Adjacent borders have mirrored sets of variables, which must be equal.
+         */
+        BORDERS,
+        /**
+         * Each internal edge, i.e. each pair of adjacent borders, has a single set of variables, one per color,
+         * exactly one of them being true. Borders on the frame have no variable.
+         */
+        SHARED_EDGES,
+        /**
+         * Each internal edge has the binary representation of its color, i.e. the logarithm of the number of colors
+         * variables. No cardinality constraint is needed.
+         */
+        LOG,
+        /**
+         * There is no color variable: Each placement requires, for each of its neighbors, one of the placements
+         * matching it there.
+         */
+        DIRECT
+    }
+
+    /**
+     * How the SAT engine encodes the exactly-one constraints, e.g. "exactly one piece per position".
+     */
+    public enum CardinalityEncoding {
+        /** Constraints are passed as is to the solver, which handles them natively. */
+        NATIVE,
+        /** Constraints are encoded into clauses with the sequential counter encoding by Sinz. */
+        SEQUENTIAL_COUNTER,
+        /** Constraints are encoded into clauses with the commander encoding by Klieber and Kwon. */
+        COMMANDER,
+        /** Constraints are encoded into clauses with the product encoding by Chen. */
+        PRODUCT,
+        /** Constraints are encoded into clauses with the ladder encoding by Gent and Nightingale. */
+        LADDER
+    }
+
+    /**
+     * What the SAT engine does when the estimated memory of an encoding exceeds the heap budget.
+     */
+    public enum HeapBudgetPolicy {
+        /** The search is refused. */
+        REFUSE,
+        /**
+         * The most compact {@link ColorEncoding color encoding} fitting in the budget is used instead of the configured
+         * one; The search is refused if none fits.
+         */
+        DEGRADE
+    }
+
+    /** The default configuration. */
+    private static final Configuration DEFAULTS = new Configuration(new Builder());
+
+    /** How symmetric solutions are handled. */
+    private final SymmetryBreaking symmetryBreaking;
+
+    /** The color of the borders on the outer frame of the board, if any. */
+    private final OptionalInt frameColor;
+
+    /** The command starting an external SAT solver, or an empty list to use the embedded Sat4j solver. */
+    private final List<String> externalSolverCommand;
+
+    /** The number of embedded solvers racing on each search. */
+    private final int portfolioSize;
+
+    /** The number of workers enumerating the solutions in parallel. */
+    private final int enumerationWorkerCount;
+
+    /** The algorithm searching for solutions. */
+    private final Engine engine;
+
+    /** The maximum number of encodings kept in memory, 0 if encodings are not cached. */
+    private final int encodingCacheSize;
+
+    /** The directory where encodings are cached, if any. */
+    private final Optional<Path> encodingCacheDirectory;
+
+    /** The listener of the solver progress. */
+    private final SolverListener listener;
+
+    /** The interval at which the search statistics are sampled. */
+    private final Duration samplingInterval;
+
+    /** How the colors of the borders are encoded. */
+    private final ColorEncoding colorEncoding;
+
+    /** How the exactly-one constraints are encoded. */
+    private final CardinalityEncoding cardinalityEncoding;
+
+    /** The maximum estimated number of bytes of an encoding, if any. */
+    private final OptionalLong heapBudget;
+
+    /** What to do when an encoding exceeds the heap budget. */
+    private final HeapBudgetPolicy heapBudgetPolicy;
+
+    /** The file where the progress of enumerations is saved, if any. */
+    private final Optional<Path> checkpointFile;
+
+    /** The interval at which the progress of enumerations is saved. */
+    private final Duration checkpointInterval;
+
+    private Configuration(final Builder builder) {
+        symmetryBreaking = builder.symmetryBreaking;
+        frameColor = builder.frameColor;
+        externalSolverCommand = builder.externalSolverCommand;
+        portfolioSize = builder.portfolioSize;
+        enumerationWorkerCount = builder.enumerationWorkerCount;
+        engine = builder.engine;
+        encodingCacheSize = builder.encodingCacheSize;
+        encodingCacheDirectory = builder.encodingCacheDirectory;
+        listener = builder.listener;
+        samplingInterval = builder.samplingInterval;
+        colorEncoding = builder.colorEncoding;
+        cardinalityEncoding = builder.cardinalityEncoding;
+        heapBudget = builder.heapBudget;
+        heapBudgetPolicy = builder.heapBudgetPolicy;
+        checkpointFile = builder.checkpointFile;
+        checkpointInterval = builder.checkpointInterval;
+    }
+
+    /**
+     * Returns the default configuration.
+     *
+     * @return the default configuration
+     */
+    public static Configuration defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns how symmetric solutions are handled.
+     *
+     * @return how symmetric solutions are handled
+     */
+    public SymmetryBreaking symmetryBreaking() {
+        return symmetryBreaking;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given symmetry breaking.
+     *
+     * @param newSymmetryBreaking how symmetric solutions shall be handled
+     * @return a copy of this configuration with the given symmetry breaking
+     * @throws NullPointerException if given symmetry breaking is {@code null}
+     */
+    public Configuration withSymmetryBreaking(final SymmetryBreaking newSymmetryBreaking) {
+        return copy(builder -> builder.symmetryBreaking = Objects.requireNonNull(newSymmetryBreaking));
+    }
+
+    /**
+     * Returns the color that all the borders on the outer frame of the board must have.
+     *
+     * @return the frame color, or an empty value if the borders on the outer frame may have any color
+     */
+    public OptionalInt frameColor() {
+        return frameColor;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given frame color.
+     * <p>
+     * Setting a frame color adds a rule to the game: All the borders on the outer frame of the board must have this
+     * color, as in the original Eternity II puzzle. Knowing it allows to eliminate many placements before encoding:
+     * Corner pieces can only be in corners and edge pieces only on edges, both with a single rotation.
+     *
+     * @param newFrameColor the frame color
+     * @return a copy of this configuration with the given frame color
+     * @throws IllegalArgumentException if given color is negative
+     */
+    public Configuration withFrameColor(final int newFrameColor) {
+        if (newFrameColor < 0) {
+            throw new IllegalArgumentException("Invalid frame color: " + newFrameColor);
+        }
+        return copy(builder -> builder.frameColor = OptionalInt.of(newFrameColor));
+    }
+
+    /**
+     * Returns the command starting the external SAT solver.
+     *
+     * @return the command starting the external SAT solver, or an empty list if the embedded Sat4j solver is used
+     */
+    public List<String> externalSolverCommand() {
+        return externalSolverCommand;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given external SAT solver.
+     * <p>
+     * The external solver must read a DIMACS CNF problem on its standard input and write its result on its standard
+     * output following the SAT competition format, as <a href="https://github.com/arminbiere/kissat">kissat</a> or
+     * <a href="https://github.com/arminbiere/cadical">CaDiCaL</a> do. The executable is looked up on the
+     * {@code PATH} if not given as an absolute path. A new process is started for each solution search.
+     *
+     * @param newExternalSolverCommand the command starting the external SAT solver, e.g. {@code ["kissat", "-q"]};
+     *                                 An empty list selects the embedded Sat4j solver
+     * @return a copy of this configuration with the given external SAT solver
+     * @throws NullPointerException if given command or any of its elements is {@code null}
+     */
+    public Configuration withExternalSolver(final List<String> newExternalSolverCommand) {
+        return copy(builder -> builder.externalSolverCommand = List.copyOf(newExternalSolverCommand));
+    }
+
+    /**
+     * Returns the number of embedded solvers racing on each search.
+     *
+     * @return the number of embedded solvers racing on each search
+     */
+    public int portfolioSize() {
+        return portfolioSize;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given portfolio size.
+     * <p>
+     * With a portfolio size greater than 1, several differently configured Sat4j solvers (restart, phase selection
+     * and learned clause deletion strategies) search the same problem in parallel, each in its own thread. The first
+     * answer wins and the other solvers are stopped. Unit clauses learned by a solver are shared with the others.
+     * <p>
+     * This is the simplest way to use several cores to find a solution faster. Memory usage grows linearly with the
+     * portfolio size though, since each solver holds its own copy of the problem. A portfolio cannot be used with an
+     * {@link #withExternalSolver(List) external solver}.
+     *
+     * @param newPortfolioSize the number of solvers racing on each search; 1 disables the portfolio
+     * @return a copy of this configuration with the given portfolio size
+     * @throws IllegalArgumentException if given size is not strictly positive
+     */
+    public Configuration withPortfolioSize(final int newPortfolioSize) {
+        if (newPortfolioSize < 1) {
+            throw new IllegalArgumentException("Invalid portfolio size: " + newPortfolioSize);
+        }
+        return copy(builder -> builder.portfolioSize = newPortfolioSize);
+    }
+
+    /**
+     * Returns the number of workers enumerating the solutions in parallel.
+     *
+     * @return the number of workers enumerating the solutions in parallel
+     */
+    public int enumerationWorkerCount() {
+        return enumerationWorkerCount;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given number of enumeration workers.
+     * <p>
+     * With more than 1 worker, the search space is split into disjoint cubes by assigning the pieces of a few positions
+     * next to the fixed pieces. Each worker owns a solver, on which it enumerates the solutions of a cube after the
+     * other. This is the way to use several cores to enumerate all the solutions of a game: Unlike a
+     * {@link #withPortfolioSize(int) portfolio}, workers do not repeat each other's search. Solutions are returned in
+     * no particular order. Memory usage grows linearly with the number of workers, since each solver holds its own
+     * copy of the problem.
+     *
+     * @param newEnumerationWorkerCount the number of workers; 1 enumerates the solutions sequentially
+     * @return a copy of this configuration with the given number of enumeration workers
+     * @throws IllegalArgumentException if given number is not strictly positive
+     */
+    public Configuration withParallelEnumeration(final int newEnumerationWorkerCount) {
+        if (newEnumerationWorkerCount < 1) {
+            throw new IllegalArgumentException("Invalid number of enumeration workers: " + newEnumerationWorkerCount);
+        }
+        return copy(builder -> builder.enumerationWorkerCount = newEnumerationWorkerCount);
+    }
+
+    /**
+     * Returns the algorithm searching for solutions.
+     *
+     * @return the algorithm searching for solutions
+     */
+    public Engine engine() {
+        return engine;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given engine.
+     * <p>
+     * The {@link Engine#SAT SAT} engine is the most versatile one and performs well on small boards. The
+     * {@link Engine#BACKTRACKING backtracking} engine is a hand-tuned search which explores more placements per second
+     * and scales better to full-size boards. The options specific to the SAT engine (symmetry breaking, external
+     * solver, portfolio, parallel enumeration, encoding cache) cannot be used with the backtracking engine. The
+     * {@link Engine#FRAME_FIRST frame-first} engine decomposes the SAT problem, which helps on boards with a frame
+     * color.
+     *
+     * @param newEngine the algorithm searching for solutions
+     * @return a copy of this configuration with the given engine
+     * @throws NullPointerException if given engine is {@code null}
+     */
+    public Configuration withEngine(final Engine newEngine) {
+        return copy(builder -> builder.engine = Objects.requireNonNull(newEngine));
+    }
+
+    /**
+     * Returns the maximum number of encodings kept in memory.
+     *
+     * @return the maximum number of encodings kept in memory, 0 if encodings are not cached
+     */
+    public int encodingCacheSize() {
+        return encodingCacheSize;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given encoding cache size.
+     * <p>
+     * With a cache, the part of the encoding which does not depend on the initial board is built once per set of
+     * pieces (and board dimensions and frame color), and kept in a loaded solver. Solving the same pieces again with
+     * another initial board skips the encoding entirely: The fixed pieces are passed to the solver as assumptions
+     * instead of being encoded. The least recently used solver is dropped when the cache is full.
+     * <p>
+     * Since fixed pieces are no longer used to prune the placements before encoding, a single search may be slower
+     * than without cache: The cache pays off when the same pieces are solved many times. Each cached solver holds its
+     * own copy of the problem. The cache cannot be used with symmetry breaking, which depends on the fixed pieces, nor
+     * with parallel enumeration.
+     *
+     * @param newEncodingCacheSize the maximum number of encodings kept in memory; 0 disables the cache
+     * @return a copy of this configuration with the given encoding cache size
+     * @throws IllegalArgumentException if given size is negative
+     */
+    public Configuration withEncodingCache(final int newEncodingCacheSize) {
+        if (newEncodingCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid encoding cache size: " + newEncodingCacheSize);
+        }
+        return copy(builder -> builder.encodingCacheSize = newEncodingCacheSize);
+    }
+
+    /**
+     * Returns the directory where encodings are cached.
+     *
+     * @return the directory where encodings are cached, if any
+     */
+    public Optional<Path> encodingCacheDirectory() {
+        return encodingCacheDirectory;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given encoding cache directory.
+     * <p>
+     * Encodings missing from the {@link #withEncodingCache(int) memory cache} are then looked up in this directory
+     * before being built, and written to it once built, in DIMACS format. Files are named after a fingerprint of the
+     * pieces, so the directory can be shared by several solvers, possibly on different machines. This option only
+     * applies if the memory cache is enabled.
+     *
+     * @param newEncodingCacheDirectory the directory where encodings are cached; Must exist
+     * @return a copy of this configuration with the given encoding cache directory
+     * @throws NullPointerException if given directory is {@code null}
+     */
+    public Configuration withEncodingCacheDirectory(final Path newEncodingCacheDirectory) {
+        return copy(builder -> builder.encodingCacheDirectory = Optional.of(newEncodingCacheDirectory));
+    }
+
+    /**
+     * Returns the listener of the solver progress.
+     *
+     * @return the listener of the solver progress, {@link SolverListener#NONE} if progress is not listened to
+     */
+    public SolverListener listener() {
+        return listener;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given listener.
+     * <p>
+     * The listener receives the statistics of the encoding, periodic samples of the search statistics at the
+     * {@link #withSamplingInterval(Duration) sampling interval} and the statistics at each model found. Only the SAT
+     * engine reports its progress. {@link JfrSolverListener} records these statistics as JDK Flight Recorder events.
+     *
+     * @param newListener the listener of the solver progress
+     * @return a copy of this configuration with the given listener
+     * @throws NullPointerException if given listener is {@code null}
+     */
+    public Configuration withListener(final SolverListener newListener) {
+        return copy(builder -> builder.listener = Objects.requireNonNull(newListener));
+    }
+
+    /**
+     * Returns the interval at which the search statistics are sampled.
+     *
+     * @return the interval at which the search statistics are sampled
+     */
+    public Duration samplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given sampling interval.
+     * <p>
+     * During a search, the statistics of the solver are passed to the {@link #withListener(SolverListener) listener}
+     * at this interval. Sampling runs on a thread shared by all the solvers and does not slow the search down.
+     *
+     * @param newSamplingInterval the interval at which the search statistics are sampled
+     * @return a copy of this configuration with the given sampling interval
+     * @throws NullPointerException     if given interval is {@code null}
+     * @throws IllegalArgumentException if given interval is not strictly positive
+     */
+    public Configuration withSamplingInterval(final Duration newSamplingInterval) {
+        if (newSamplingInterval.isNegative() || newSamplingInterval.isZero()) {
+            throw new IllegalArgumentException("Invalid sampling interval: " + newSamplingInterval);
+        }
+        return copy(builder -> builder.samplingInterval = newSamplingInterval);
+    }
+
+    /**
+     * Returns how the colors of the borders are encoded.
+     *
+     * @return how the colors of the borders are encoded
+     */
+    public ColorEncoding colorEncoding() {
+        return colorEncoding;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given color encoding.
+     * <p>
+     * The {@link ColorEncoding#BORDERS borders} encoding is the historical one. The
+     * {@link ColorEncoding#SHARED_EDGES shared edges} and {@link ColorEncoding#LOG log} encodings need fewer
+     * variables, and the {@link ColorEncoding#DIRECT direct} encoding none, at the price of larger clauses: Which one
+     * is the fastest depends on the board, see {@code ColorEncodingBenchmark}. The color encoding does not apply to
+     * the {@link Solver#optimize optimization} mode, which always uses the borders encoding.
+     *
+     * @param newColorEncoding how the colors of the borders shall be encoded
+     * @return a copy of this configuration with the given color encoding
+     * @throws NullPointerException if given color encoding is {@code null}
+     */
+    public Configuration withColorEncoding(final ColorEncoding newColorEncoding) {
+        return copy(builder -> builder.colorEncoding = Objects.requireNonNull(newColorEncoding));
+    }
+
+    /**
+     * Returns how the exactly-one constraints are encoded.
+     *
+     * @return how the exactly-one constraints are encoded
+     */
+    public CardinalityEncoding cardinalityEncoding() {
+        return cardinalityEncoding;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given cardinality encoding.
+     * <p>
+     * The exactly-one constraints of the game ("exactly one piece per position", "exactly one position per piece" and
+     * "exactly one color per border") span up to 4 times as many literals as pieces. Sat4j handles them
+     * {@link CardinalityEncoding#NATIVE natively} by default; The other encodings translate them into clauses, with
+     * auxiliary variables, which may propagate faster on large boards. Which one gives the most conflicts per second
+     * depends on the board, see {@code CardinalityEncodingBenchmark}.
+     *
+     * @param newCardinalityEncoding how the exactly-one constraints shall be encoded
+     * @return a copy of this configuration with the given cardinality encoding
+     * @throws NullPointerException if given cardinality encoding is {@code null}
+     */
+    public Configuration withCardinalityEncoding(final CardinalityEncoding newCardinalityEncoding) {
+        return copy(builder -> builder.cardinalityEncoding = Objects.requireNonNull(newCardinalityEncoding));
+    }
+
+    /**
+     * Returns the maximum estimated number of bytes of an encoding.
+     *
+     * @return the maximum estimated number of bytes of an encoding, or an empty value if there is no budget
+     */
+    public OptionalLong heapBudget() {
+        return heapBudget;
+    }
+
+    /**
+     * Returns what to do when an encoding exceeds the heap budget.
+     *
+     * @return what to do when an encoding exceeds the heap budget
+     */
+    public HeapBudgetPolicy heapBudgetPolicy() {
+        return heapBudgetPolicy;
+    }
+
+    /**
+     * Returns a copy of this configuration with the given heap budget.
+     * <p>
+     * Before encoding a game, the SAT engine {@link Solver#memoryReport estimates} the memory the encoding will take
+     * in the solvers, i.e. in each solver of a portfolio and each enumeration worker. If the estimate exceeds the
+     * budget, the search is either refused with an {@link IllegalStateException} or degraded to a more compact color
+     * encoding, depending on the given policy. The budget does not apply to the encoding cache nor to the
+     * optimization mode.
+     *
+     * @param newHeapBudget       the maximum estimated number of bytes of an encoding
+     * @param newHeapBudgetPolicy what to do when an encoding exceeds the budget
+     * @return a copy of this configuration with the given heap budget
+     * @throws NullPointerException     if given policy is {@code null}
+     * @throws IllegalArgumentException if given budget is not strictly positive
+     */
+    public Configuration withHeapBudget(final long newHeapBudget, final HeapBudgetPolicy newHeapBudgetPolicy) {
+        if (newHeapBudget <= 0) {
+            throw new IllegalArgumentException("Invalid heap budget: " + newHeapBudget);
+        }
+        return copy(builder -> {
+            builder.heapBudget = OptionalLong.of(newHeapBudget);
+            builder.heapBudgetPolicy = Objects.requireNonNull(newHeapBudgetPolicy);
+        });
+    }
+
+    /**
+     * Returns the file where the progress of enumerations is saved.
+     *
+     * @return the file where the progress of enumerations is saved, if any
+     */
+    public Optional<Path> checkpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Returns the interval at which the progress of enumerations is saved.
+     *
+     * @return the interval at which the progress of enumerations is saved
+     */
+    public Duration checkpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Returns a copy of this configuration saving the progress of enumerations to the given file at the given
+     * interval.
+     * <p>
+     * The SAT engine then periodically saves the solutions returned so far, and the parts of the search space
+     * exhausted by the {@link #withParallelEnumeration(int) enumeration workers}, so that an enumeration killed before
+     * its end can be {@link Solver#resume resumed} without returning these solutions again nor searching these parts
+     * again. The solutions and parts of the search space are appended to the file as they go, and flushed to it at the
+     * given interval, only if the enumeration has progressed: A record cut by a kill is dropped on resume. It takes 4
+     * bytes per position of each solution returned. Checkpoints are not supported with the
+     * {@link SymmetryBreaking#EXPANDED expanded} symmetry breaking, the encoding cache nor the other engines.
+     *
+     * @param newCheckpointFile     the file where the progress of enumerations is saved, replaced by each
+     *                              enumeration; Its directory must exist
+     * @param newCheckpointInterval the interval at which the progress of enumerations is saved
+     * @return a copy of this configuration with the given checkpoint
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given interval is not strictly positive
+     */
+    public Configuration withCheckpoint(final Path newCheckpointFile, final Duration newCheckpointInterval) {
+        if (newCheckpointInterval.isNegative() || newCheckpointInterval.isZero()) {
+            throw new IllegalArgumentException("Invalid checkpoint interval: " + newCheckpointInterval);
+        }
+        return copy(builder -> {
+            builder.checkpointFile = Optional.of(newCheckpointFile);
+            builder.checkpointInterval = newCheckpointInterval;
+        });
+    }
+
+    /**
+     * Returns a copy of this configuration without checkpoint.
+     *
+     * @return a copy of this configuration without checkpoint
+     */
+    Configuration withoutCheckpoint() {
+        return copy(builder -> builder.checkpointFile = Optional.empty());
+    }
+
+    /**
+     * Returns a copy of this configuration with the given modification.
+     *
+     * @param modification sets the modified fields of the copy
+     * @return the modified copy
+     */
+    private Configuration copy(final Consumer<Builder> modification) {
+        final var builder = new Builder(this);
+        modification.accept(builder);
+        return new Configuration(builder);
+    }
+
+    @Override
+    public String toString() {
+        return "Configuration[symmetryBreaking=" + symmetryBreaking + ", frameColor=" + frameColor
+                + ", externalSolverCommand=" + externalSolverCommand + ", portfolioSize=" + portfolioSize
+                + ", enumerationWorkerCount=" + enumerationWorkerCount + ", engine=" + engine
+                + ", encodingCacheSize=" + encodingCacheSize + ", encodingCacheDirectory=" + encodingCacheDirectory
+                + ", listener=" + listener + ", samplingInterval=" + samplingInterval
+                + ", colorEncoding=" + colorEncoding + ", cardinalityEncoding=" + cardinalityEncoding
+                + ", heapBudget=" + heapBudget + ", heapBudgetPolicy=" + heapBudgetPolicy
+                + ", checkpointFile=" + checkpointFile + ", checkpointInterval=" + checkpointInterval + "]";
+    }
+
+    /**
+     * The fields of a configuration being built, initialized to the default values.
+     */
+    private static final class Builder {
+        private SymmetryBreaking symmetryBreaking = SymmetryBreaking.NONE;
+        private OptionalInt frameColor = OptionalInt.empty();
+        private List<String> externalSolverCommand = List.of();
+        private int portfolioSize = 1;
+        private int enumerationWorkerCount = 1;
+        private Engine engine = Engine.SAT;
+        private int encodingCacheSize;
+        private Optional<Path> encodingCacheDirectory = Optional.empty();
+        private SolverListener listener = SolverListener.NONE;
+        private Duration samplingInterval = Duration.ofSeconds(5);
+        private ColorEncoding colorEncoding = ColorEncoding.BORDERS;
+        private CardinalityEncoding cardinalityEncoding = CardinalityEncoding.NATIVE;
+        private OptionalLong heapBudget = OptionalLong.empty();
+        private HeapBudgetPolicy heapBudgetPolicy = HeapBudgetPolicy.REFUSE;
+        private Optional<Path> checkpointFile = Optional.empty();
+        private Duration checkpointInterval = Duration.ofMinutes(1);
+
+        /**
+         * Constructs a builder of the default configuration.
+         */
+        Builder() {
+            // Fields are initialized to the default values
+        }
+
+        /**
+         * Constructs a builder of a copy of the given configuration.
+         *
+         * @param configuration the configuration to copy
+         */
+        Builder(final Configuration configuration) {
+            symmetryBreaking = configuration.symmetryBreaking;
+            frameColor = configuration.frameColor;
+            externalSolverCommand = configuration.externalSolverCommand;
+            portfolioSize = configuration.portfolioSize;
+            enumerationWorkerCount = configuration.enumerationWorkerCount;
+            engine = configuration.engine;
+            encodingCacheSize = configuration.encodingCacheSize;
+            encodingCacheDirectory = configuration.encodingCacheDirectory;
+            listener = configuration.listener;
+            samplingInterval = configuration.samplingInterval;
+            colorEncoding = configuration.colorEncoding;
+            cardinalityEncoding = configuration.cardinalityEncoding;
+            heapBudget = configuration.heapBudget;
+            heapBudgetPolicy = configuration.heapBudgetPolicy;
+            checkpointFile = configuration.checkpointFile;
+            checkpointInterval = configuration.checkpointInterval;
+        }
+    }
+}
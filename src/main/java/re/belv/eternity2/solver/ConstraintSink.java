@@ -0,0 +1,73 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+/**
+ * Where the {@link Constraints} are written, e.g. a {@link Backend} searching for models or a {@link DimacsWriter}
+ * exporting them.
+ * <p>
+ * Literals follow the DIMACS convention: Variables are numbered from 1 and a negative literal is the negation of a
+ * variable.
+ */
+interface ConstraintSink {
+
+    /**
+     * Declares the variables of the problem.
+     *
+     * @param count the number of variables, which are then numbered from 1 to {@code count}
+     */
+    void newVar(int count);
+
+    /**
+     * Announces the number of constraints about to be added, so that the sink can size its storage once instead of
+     * growing it constraint by constraint.
+     *
+     * @param count the expected number of constraints; A hint only, more or fewer constraints may be added
+     */
+    void expectConstraints(int count);
+
+    /**
+     * Returns the number of variables, including the auxiliary variables the sink may have introduced to encode
+     * cardinality constraints.
+     *
+     * @return the number of variables
+     */
+    int variableCount();
+
+    /**
+     * Adds a clause.
+     *
+     * @param literals the literals of the clause; Not retained, may be reused by the caller
+     * @throws ContradictionException if the clause makes the problem trivially unsatisfiable
+     */
+    void addClause(IVecInt literals) throws ContradictionException;
+
+    /**
+     * Adds a cardinality constraint.
+     *
+     * @param literals the literals; Not retained, may be reused by the caller
+     * @param degree   the exact number of literals which must be satisfied
+     * @throws ContradictionException if the constraint makes the problem trivially unsatisfiable
+     */
+    void addExactly(IVecInt literals, int degree) throws ContradictionException;
+
+    /**
+     * Adds a cardinality constraint.
+     *
+     * @param literals the literals; Not retained, may be reused by the caller
+     * @param degree   the maximum number of literals which may be satisfied
+     * @throws ContradictionException if the constraint makes the problem trivially unsatisfiable
+     */
+    void addAtMost(IVecInt literals, int degree) throws ContradictionException;
+
+    /**
+     * Marks the start of a named phase of the encoding: The constraints added from now on, until the start of the next
+     * phase, belong to this phase. Does nothing by default.
+     *
+     * @param name the name of the phase
+     */
+    default void startPhase(final String name) {
+        // Phases are of no interest to most sinks
+    }
+}
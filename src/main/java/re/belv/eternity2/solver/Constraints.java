@@ -2,12 +2,25 @@ package re.belv.eternity2.solver;
 
 import org.sat4j.core.VecInt;
 import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.ISolver;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Where the game constraints are built and added to the solver.
+ * <p>
+ * Only the placements of the {@link Variables#domain() domain} are encoded: Impossible placements have no variable
+ * and thus do not appear in any constraint. If the domain is {@link Domain#restrictedTo(boolean[]) restricted} to a
+ * region of the board, only the positions of this region are constrained, and the pieces which may also be placed
+ * outside of it are placed at most once instead of exactly once.
+ *
+ * <p>
+ * Clauses are built in scratch buffers which are reused from one clause to the next, since backends do not retain the
+ * literals they are given. Loops iterate on cached arrays of rotations and borders, and piece colors are read from the
+ * {@link Game#colorOf(int, Piece.Rotation, Piece.Border) color table} rather than from rotated pieces: Apart from the
+ * buffers, allocated once per instance, encoding allocates nothing.
+ * <p>
+ * As a consequence, an instance is not thread-safe.
  *
  * @apiNote In an ideal world, this class would only be a factory of clauses but given there may be a lot of them it is
  * more memory efficient to build them and add them to the solver in one go.
@@ -20,6 +33,15 @@ final class Constraints {
     /** The game. */
     private final Game game;
 
+    /** Scratch buffer for unit, binary and ternary clauses. */
+    private final VecInt shortClause;
+
+    /** Scratch buffer for the literals of a position, a piece or a border. */
+    private final VecInt longClause;
+
+    /** Scratch buffer for the placements of a position matching a color, with the direct color encoding. */
+    private final VecInt supports;
+
     /**
      * Constructs an instance.
      *
@@ -29,36 +51,233 @@ final class Constraints {
     Constraints(final Variables variables, final Game game) {
         this.variables = variables;
         this.game = game;
+        // VecInt grows when its size reaches its capacity, hence one spare element
+        shortClause = new VecInt(4);
+        longClause = new VecInt(Math.max(game.piecesCount(), game.rowCount() * game.columnCount())
+                * Piece.Rotation.count() + Math.max(game.colorCount(), 2));
+        supports = new VecInt(game.piecesCount() * Piece.Rotation.count() + 1);
     }
 
     /**
      * Adds all constraints to the given solver.
+     * <p>
+     * The constraints linking the pieces to the colors depend on the {@link Variables#colorEncoding() color
+     * encoding}. Each kind of constraints is added in its own {@link ConstraintSink#startPhase(String) phase}.
      *
      * @param solver the solver
      * @throws ContradictionException if a constraint is trivially unsatisfiable
      */
-    void addAllConstraintsTo(final ISolver solver) throws ContradictionException {
+    void addAllConstraintsTo(final ConstraintSink solver) throws ContradictionException {
+        solver.startPhase("initialBoardPiecesAreFixed");
+        addInitialBoardPiecesAreFixedTo(solver);
+        solver.startPhase("exactlyOnePiecePerPosition");
+        addExactlyOnePiecePerPositionTo(solver);
+        solver.startPhase("exactlyOnePositionPerPiece");
+        addExactlyOnePositionPerPieceTo(solver);
+        switch (variables.colorEncoding()) {
+            case BORDERS -> {
+                solver.startPhase("exactlyOneColorPerBorder");
+                addExactlyOneColorPerBorderTo(solver);
+                solver.startPhase("adjacentBordersMustHaveSameColor");
+                addAdjacentBordersMustHaveSameColorTo(solver);
+                solver.startPhase("borderColorsMatchPieces");
+                addBorderColorsMatchPiecesTo(solver);
+            }
+            case SHARED_EDGES -> {
+                solver.startPhase("exactlyOneColorPerEdge");
+                addExactlyOneColorPerEdgeTo(solver);
+                solver.startPhase("edgeColorsMatchPieces");
+                addEdgeColorsMatchPiecesTo(solver);
+            }
+            case LOG -> {
+                solver.startPhase("edgeColorBitsMatchPieces");
+                addEdgeColorBitsMatchPiecesTo(solver);
+            }
+            case DIRECT -> {
+                solver.startPhase("adjacentPiecesMatch");
+                addAdjacentPiecesMatchTo(solver);
+            }
+        }
+    }
+
+    /**
+     * Adds all constraints to the given solver, except that adjacent borders may have different colors.
+     * <p>
+     * Each edge between two adjacent positions has a mismatch variable: Adjacent borders must have the same color
+     * unless the mismatch variable of their edge is satisfied. Mismatch variables are numbered from the given variable,
+     * east-west edges first, in {@link Game#edgeAt edge} order. They shall be declared to the solver beforehand.
+     * <p>
+     * Each kind of constraints is added in its own {@link ConstraintSink#startPhase(String) phase}.
+     *
+     * @param solver                the solver
+     * @param firstMismatchVariable the mismatch variable of the first edge
+     * @throws ContradictionException if a constraint is trivially unsatisfiable
+     * @throws IllegalStateException  if the colors are not encoded {@link Configuration.ColorEncoding#BORDERS by
+     *                                border}
+     */
+    void addRelaxedConstraintsTo(final ConstraintSink solver, final int firstMismatchVariable)
+            throws ContradictionException {
+        if (variables.colorEncoding() != Configuration.ColorEncoding.BORDERS) {
+            throw new IllegalStateException("Relaxed constraints require the BORDERS color encoding: "
+                    + variables.colorEncoding());
+        }
+        solver.startPhase("initialBoardPiecesAreFixed");
         addInitialBoardPiecesAreFixedTo(solver);
+        solver.startPhase("exactlyOnePiecePerPosition");
         addExactlyOnePiecePerPositionTo(solver);
+        solver.startPhase("exactlyOnePositionPerPiece");
         addExactlyOnePositionPerPieceTo(solver);
+        solver.startPhase("exactlyOneColorPerBorder");
         addExactlyOneColorPerBorderTo(solver);
-        addAdjacentBordersMustHaveSameColorTo(solver);
+        solver.startPhase("adjacentBordersHaveSameColorUnlessMismatched");
+        addAdjacentBordersHaveSameColorUnlessMismatchedTo(solver, firstMismatchVariable);
+        solver.startPhase("borderColorsMatchPieces");
         addBorderColorsMatchPiecesTo(solver);
     }
 
+    /**
+     * Adds symmetry breaking constraints to the given solver.
+     * <p>
+     * These constraints are optional: They remove solutions which are only a symmetric image of another solution.
+     * Removed solutions can be recovered with {@link Symmetries#expand(Piece[][])}.
+     * <p>
+     * Each kind of constraints is added in its own {@link ConstraintSink#startPhase(String) phase}.
+     *
+     * @param solver     the solver
+     * @param symmetries the symmetries to break
+     * @throws ContradictionException if a constraint is trivially unsatisfiable
+     */
+    void addSymmetryBreakingConstraintsTo(final ConstraintSink solver, final Symmetries symmetries)
+            throws ContradictionException {
+        solver.startPhase("boardRotationIsFixed");
+        addBoardRotationIsFixedTo(solver, symmetries);
+        solver.startPhase("identicalPiecesAreOrdered");
+        addIdenticalPiecesAreOrderedTo(solver, symmetries);
+        solver.startPhase("symmetricPiecesHaveDistinctRotations");
+        addSymmetricPiecesHaveDistinctRotationsTo(solver);
+    }
+
+    /**
+     * Constrains the given solver so that the rotation of the {@link Symmetries#pinnedPiece() pinned piece} is
+     * restricted, so that a solution and its rotated images cannot all be found.
+     *
+     * @param solver     the solver
+     * @param symmetries the symmetries to break
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     */
+    void addBoardRotationIsFixedTo(final ConstraintSink solver, final Symmetries symmetries)
+            throws ContradictionException {
+        if (symmetries.pinnedPiece().isEmpty()) {
+            return;
+        }
+        final int pieceIndex = symmetries.pinnedPiece().getAsInt();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                    if (rotation.ordinal() >= symmetries.boardRotationStep()
+                            && isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                        final int pieceLit = variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation);
+                        addClause(solver, -pieceLit);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Constrains the given solver so that identical pieces are placed in ascending order of their indices, in
+     * row-major order of positions.
+     *
+     * @param solver     the solver
+     * @param symmetries the symmetries to break
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     */
+    void addIdenticalPiecesAreOrderedTo(final ConstraintSink solver, final Symmetries symmetries)
+            throws ContradictionException {
+        final VecInt clause = longClause;
+        clause.clear();
+        for (final List<Integer> group : symmetries.identicalPieces()) {
+            for (int i = 0; i + 1 < group.size(); i++) {
+                final int pieceIndex = group.get(i);
+                final int nextPieceIndex = group.get(i + 1);
+                for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+                    for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                        for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                            if (!isPossible(rowIndex, columnIndex, nextPieceIndex, rotation)) {
+                                continue;
+                            }
+                            // nextPiece at (row, column) => piece at a preceding position
+                            clause.push(-variables.representingPiece(rowIndex, columnIndex, nextPieceIndex, rotation));
+                            pushPiecePrecedingPositions(clause, rowIndex, columnIndex, pieceIndex);
+                            solver.addClause(clause);
+                            clause.clear();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void pushPiecePrecedingPositions(final VecInt clause, final int rowIndex, final int columnIndex,
+                                             final int pieceIndex) {
+        for (int precedingRowIndex = 0; precedingRowIndex <= rowIndex; precedingRowIndex++) {
+            final int columnEnd = precedingRowIndex == rowIndex ? columnIndex : game.columnCount();
+            for (int precedingColumnIndex = 0; precedingColumnIndex < columnEnd; precedingColumnIndex++) {
+                for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                    if (isPossible(precedingRowIndex, precedingColumnIndex, pieceIndex, rotation)) {
+                        clause.push(variables.representingPiece(precedingRowIndex, precedingColumnIndex, pieceIndex, rotation));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Constrains the given solver so that pieces which look the same under some rotations can only take their
+     * {@link Piece#distinctRotationCount() distinct rotations}.
+     *
+     * @param solver the solver
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     */
+    void addSymmetricPiecesHaveDistinctRotationsTo(final ConstraintSink solver) throws ContradictionException {
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            final int distinctRotationCount = game.piece(pieceIndex).distinctRotationCount();
+            if (distinctRotationCount == Piece.Rotation.count()) {
+                continue;
+            }
+            for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+                for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                        if (rotation.ordinal() >= distinctRotationCount
+                                && isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            final int pieceLit = variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation);
+                            addClause(solver, -pieceLit);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Constrains the given solver so that there is exactly one piece with exactly one rotation, in each position.
      *
      * @param solver the solver
      * @throws ContradictionException when a constraint is trivially unsatisfiable
      */
-    void addExactlyOnePiecePerPositionTo(final ISolver solver) throws ContradictionException {
-        final var positionPieces = new VecInt(game.piecesCount() * Piece.Rotation.count());
+    void addExactlyOnePiecePerPositionTo(final ConstraintSink solver) throws ContradictionException {
+        final VecInt positionPieces = longClause;
+        positionPieces.clear();
         for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
             for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                if (!isCovered(rowIndex, columnIndex)) {
+                    continue;
+                }
                 for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
-                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
-                        positionPieces.push(variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation));
+                    for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                        if (isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            positionPieces.push(variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation));
+                        }
                     }
                 }
                 solver.addExactly(positionPieces, 1);
@@ -70,21 +289,30 @@ final class Constraints {
     /**
      * Constrains the given solver so that there is exactly one position for each piece (i.e. a piece cannot be in two
      * positions in the same time).
+     * <p>
+     * Pieces which may be placed outside the region of a restricted domain only have at most one position in it.
      *
      * @param solver the solver
      * @throws ContradictionException when a constraint is trivially unsatisfiable
      */
-    void addExactlyOnePositionPerPieceTo(final ISolver solver) throws ContradictionException {
-        final var piecePositions = new VecInt(game.rowCount() * game.columnCount() * Piece.Rotation.count());
+    void addExactlyOnePositionPerPieceTo(final ConstraintSink solver) throws ContradictionException {
+        final VecInt piecePositions = longClause;
+        piecePositions.clear();
         for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
             for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
                 for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
-                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
-                        piecePositions.push(variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation));
+                    for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                        if (isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            piecePositions.push(variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation));
+                        }
                     }
                 }
             }
-            solver.addExactly(piecePositions, 1);
+            if (variables.domain().confines(pieceIndex)) {
+                solver.addExactly(piecePositions, 1);
+            } else if (!piecePositions.isEmpty()) {
+                solver.addAtMost(piecePositions, 1);
+            }
             piecePositions.clear();
         }
     }
@@ -96,11 +324,15 @@ final class Constraints {
      * @param solver the solver
      * @throws ContradictionException when a constraint is trivially unsatisfiable
      */
-    void addExactlyOneColorPerBorderTo(final ISolver solver) throws ContradictionException {
-        final var borderColors = new VecInt(game.colorCount());
+    void addExactlyOneColorPerBorderTo(final ConstraintSink solver) throws ContradictionException {
+        final VecInt borderColors = longClause;
+        borderColors.clear();
         for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
             for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
-                for (final Piece.Border border : Piece.Border.all()) {
+                if (!isCovered(rowIndex, columnIndex)) {
+                    continue;
+                }
+                for (final Piece.Border border : Piece.Border.VALUES) {
                     for (int colorIndex = 0; colorIndex < game.colorCount(); colorIndex++) {
                         borderColors.push(variables.representingBorder(rowIndex, columnIndex, border, colorIndex));
                     }
@@ -117,33 +349,79 @@ final class Constraints {
      * @param solver the solver
      * @throws ContradictionException when a constraint is trivially unsatisfiable
      */
-    void addAdjacentBordersMustHaveSameColorTo(final ISolver solver) throws ContradictionException {
+    void addAdjacentBordersMustHaveSameColorTo(final ConstraintSink solver) throws ContradictionException {
         // east-west
         for (int row = 0; row < game.rowCount(); row++) {
             for (int column = 0; column < game.columnCount() - 1; column++) {
+                if (!isCovered(row, column) || !isCovered(row, column + 1)) {
+                    continue;
+                }
                 for (int color = 0; color < game.colorCount(); color++) {
                     final int eastBorder = variables.representingBorder(row, column, Piece.Border.EAST, color);
                     final int neighborWestBorder = variables.representingBorder(row, column + 1, Piece.Border.WEST, color);
                     // eastBorder <=> neighborWestBorder
-                    solver.addClause(new VecInt(new int[]{-eastBorder, neighborWestBorder}));
-                    solver.addClause(new VecInt(new int[]{eastBorder, -neighborWestBorder}));
+                    addClause(solver, -eastBorder, neighborWestBorder);
+                    addClause(solver, eastBorder, -neighborWestBorder);
                 }
             }
         }
         // north-south
         for (int rowIndex = 0; rowIndex < game.rowCount() - 1; rowIndex++) {
             for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                if (!isCovered(rowIndex, columnIndex) || !isCovered(rowIndex + 1, columnIndex)) {
+                    continue;
+                }
                 for (int colorIndex = 0; colorIndex < game.colorCount(); colorIndex++) {
                     final int southBorder = variables.representingBorder(rowIndex, columnIndex, Piece.Border.SOUTH, colorIndex);
                     final int neighborNorthBorder = variables.representingBorder(rowIndex + 1, columnIndex, Piece.Border.NORTH, colorIndex);
                     // southBorder <=> neighborNorthBorder
-                    solver.addClause(new VecInt(new int[]{-southBorder, neighborNorthBorder}));
-                    solver.addClause(new VecInt(new int[]{southBorder, -neighborNorthBorder}));
+                    addClause(solver, -southBorder, neighborNorthBorder);
+                    addClause(solver, southBorder, -neighborNorthBorder);
                 }
             }
         }
     }
 
+    /**
+     * Constrains the solver so that adjacent borders have the same color, unless the mismatch variable of their edge
+     * is satisfied.
+     *
+     * @param solver                the solver
+     * @param firstMismatchVariable the mismatch variable of the first edge
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     * @see #addRelaxedConstraintsTo(ConstraintSink, int)
+     */
+    void addAdjacentBordersHaveSameColorUnlessMismatchedTo(final ConstraintSink solver, final int firstMismatchVariable)
+            throws ContradictionException {
+        int mismatch = firstMismatchVariable;
+        // east-west
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount() - 1; columnIndex++) {
+                for (int colorIndex = 0; colorIndex < game.colorCount(); colorIndex++) {
+                    final int eastBorder = variables.representingBorder(rowIndex, columnIndex, Piece.Border.EAST, colorIndex);
+                    final int neighborWestBorder = variables.representingBorder(rowIndex, columnIndex + 1, Piece.Border.WEST, colorIndex);
+                    // mismatch or (eastBorder <=> neighborWestBorder)
+                    addClause(solver, mismatch, -eastBorder, neighborWestBorder);
+                    addClause(solver, mismatch, eastBorder, -neighborWestBorder);
+                }
+                mismatch++;
+            }
+        }
+        // north-south
+        for (int rowIndex = 0; rowIndex < game.rowCount() - 1; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (int colorIndex = 0; colorIndex < game.colorCount(); colorIndex++) {
+                    final int southBorder = variables.representingBorder(rowIndex, columnIndex, Piece.Border.SOUTH, colorIndex);
+                    final int neighborNorthBorder = variables.representingBorder(rowIndex + 1, columnIndex, Piece.Border.NORTH, colorIndex);
+                    // mismatch or (southBorder <=> neighborNorthBorder)
+                    addClause(solver, mismatch, -southBorder, neighborNorthBorder);
+                    addClause(solver, mismatch, southBorder, -neighborNorthBorder);
+                }
+                mismatch++;
+            }
+        }
+    }
+
     /**
      * Constrains the solver so that the colors of the borders match the colors of the pieces.
      * <p>
@@ -152,17 +430,19 @@ final class Constraints {
      * @param solver the solver
      * @throws ContradictionException when a constraint is trivially unsatisfiable
      */
-    void addBorderColorsMatchPiecesTo(final ISolver solver) throws ContradictionException {
+    void addBorderColorsMatchPiecesTo(final ConstraintSink solver) throws ContradictionException {
         for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
             for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
                 for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
-                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                        if (!isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            continue;
+                        }
                         final int pieceLit = variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation);
-                        final Piece piece = game.piece(pieceIndex).rotate(rotation);
-                        for (final Piece.Border border : Piece.Border.all()) {
-                            final int color = piece.colorTo(border);
+                        for (final Piece.Border border : Piece.Border.VALUES) {
+                            final int color = game.colorOf(pieceIndex, rotation, border);
                             final int pieceBorder = variables.representingBorder(rowIndex, columnIndex, border, color);
-                            solver.addClause(new VecInt(new int[]{-pieceLit, pieceBorder}));
+                            addClause(solver, -pieceLit, pieceBorder);
                         }
                     }
                 }
@@ -170,24 +450,227 @@ final class Constraints {
         }
     }
 
+    /**
+     * Constrains the given solver so that there is exactly one color per edge, with the
+     * {@link Configuration.ColorEncoding#SHARED_EDGES shared edges} color encoding.
+     *
+     * @param solver the solver
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     */
+    void addExactlyOneColorPerEdgeTo(final ConstraintSink solver) throws ContradictionException {
+        final VecInt edgeColors = longClause;
+        edgeColors.clear();
+        for (int edge = 0; edge < game.edgeCount(); edge++) {
+            if (!isCovered(edge)) {
+                continue;
+            }
+            for (int colorIndex = 0; colorIndex < game.colorCount(); colorIndex++) {
+                edgeColors.push(variables.representingEdge(edge, colorIndex));
+            }
+            solver.addExactly(edgeColors, 1);
+            edgeColors.clear();
+        }
+    }
+
+    /**
+     * Constrains the solver so that the colors of the edges match the colors of the pieces, with the
+     * {@link Configuration.ColorEncoding#SHARED_EDGES shared edges} color encoding.
+     * <p>
+     * Since both pieces around an edge imply its color, adjacent pieces match without further constraint. Borders on
+     * the outer frame have no variable.
+     *
+     * @param solver the solver
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     */
+    void addEdgeColorsMatchPiecesTo(final ConstraintSink solver) throws ContradictionException {
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                        if (!isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            continue;
+                        }
+                        final int pieceLit = variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation);
+                        for (final Piece.Border border : Piece.Border.VALUES) {
+                            final int edge = game.edgeAt(rowIndex, columnIndex, border);
+                            if (edge < 0) {
+                                continue;
+                            }
+                            final int color = game.colorOf(pieceIndex, rotation, border);
+                            addClause(solver, -pieceLit, variables.representingEdge(edge, color));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Constrains the solver so that the bits of the colors of the edges match the colors of the pieces, with the
+     * {@link Configuration.ColorEncoding#LOG log} color encoding.
+     * <p>
+     * Each piece implies each bit of the color of its edges: Two adjacent pieces with different colors imply
+     * opposite values of at least one bit, hence cannot be placed together.
+     *
+     * @param solver the solver
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     */
+    void addEdgeColorBitsMatchPiecesTo(final ConstraintSink solver) throws ContradictionException {
+        final int bitCount = variables.colorBitCount();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                        if (!isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            continue;
+                        }
+                        final int pieceLit = variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation);
+                        for (final Piece.Border border : Piece.Border.VALUES) {
+                            final int edge = game.edgeAt(rowIndex, columnIndex, border);
+                            if (edge < 0) {
+                                continue;
+                            }
+                            final int color = game.colorOf(pieceIndex, rotation, border);
+                            for (int bit = 0; bit < bitCount; bit++) {
+                                final int bitLit = variables.representingEdgeBit(edge, bit);
+                                addClause(solver, -pieceLit, ((color >> bit) & 1) == 1 ? bitLit : -bitLit);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Constrains the solver so that adjacent pieces match, with the {@link Configuration.ColorEncoding#DIRECT direct}
+     * color encoding.
+     * <p>
+     * For each neighbor of a position, each placement there requires one of the neighbor placements having the same
+     * color on the opposite border (support encoding). Rather than forbidding each incompatible pair of placements,
+     * which would take a quadratic number of binary clauses, this takes one clause per placement and neighbor.
+     *
+     * @param solver the solver
+     * @throws ContradictionException when a constraint is trivially unsatisfiable
+     */
+    void addAdjacentPiecesMatchTo(final ConstraintSink solver) throws ContradictionException {
+        final VecInt clause = longClause;
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (final Piece.Border border : Piece.Border.VALUES) {
+                    if (game.edgeAt(rowIndex, columnIndex, border) < 0) {
+                        continue;
+                    }
+                    final int neighborRowIndex = rowIndex + switch (border) {
+                        case NORTH -> -1;
+                        case SOUTH -> 1;
+                        default -> 0;
+                    };
+                    final int neighborColumnIndex = columnIndex + switch (border) {
+                        case WEST -> -1;
+                        case EAST -> 1;
+                        default -> 0;
+                    };
+                    if (!isCovered(rowIndex, columnIndex) || !isCovered(neighborRowIndex, neighborColumnIndex)) {
+                        // Matched by assumptions on the placements, if any
+                        continue;
+                    }
+                    final Piece.Border oppositeBorder = border.opposite();
+                    for (int color = 0; color < game.colorCount(); color++) {
+                        supports.clear();
+                        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                            for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                                if (game.colorOf(pieceIndex, rotation, oppositeBorder) == color
+                                        && isPossible(neighborRowIndex, neighborColumnIndex, pieceIndex, rotation)) {
+                                    supports.push(variables.representingPiece(neighborRowIndex, neighborColumnIndex,
+                                            pieceIndex, rotation));
+                                }
+                            }
+                        }
+                        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                            for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                                if (game.colorOf(pieceIndex, rotation, border) != color
+                                        || !isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                                    continue;
+                                }
+                                clause.clear();
+                                clause.push(-variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation));
+                                for (int i = 0; i < supports.size(); i++) {
+                                    clause.push(supports.get(i));
+                                }
+                                solver.addClause(clause);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        clause.clear();
+        supports.clear();
+    }
+
     /**
      * Constrains the solver so that the pieces on the initial board are fixed.
      *
      * @param solver the solver
      * @throws ContradictionException if a constraint is trivially unsatisfiable
      */
-    void addInitialBoardPiecesAreFixedTo(final ISolver solver) throws ContradictionException {
+    void addInitialBoardPiecesAreFixedTo(final ConstraintSink solver) throws ContradictionException {
         for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
             for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
                 final Optional<Piece> fixedPiece = game.initialBoardPiece(rowIndex, columnIndex);
-                if (fixedPiece.isPresent()) {
+                if (fixedPiece.isPresent() && isCovered(rowIndex, columnIndex)) {
                     final int pieceIndex = fixedPiece.get().id();
                     final Piece originalPiece = game.piece(pieceIndex);
                     final Piece.Rotation rotation = originalPiece.rotationTo(fixedPiece.get());
+                    if (!isPossible(rowIndex, columnIndex, pieceIndex, rotation)) {
+                        throw new ContradictionException("Fixed piece cannot be placed at (" + rowIndex + "," + columnIndex + ")");
+                    }
                     final int pieceLit = variables.representingPiece(rowIndex, columnIndex, pieceIndex, rotation);
-                    solver.addClause(new VecInt(new int[]{pieceLit}));
+                    addClause(solver, pieceLit);
                 }
             }
         }
     }
+
+    private void addClause(final ConstraintSink solver, final int literal) throws ContradictionException {
+        shortClause.clear();
+        solver.addClause(shortClause.push(literal));
+    }
+
+    private void addClause(final ConstraintSink solver, final int firstLiteral, final int secondLiteral)
+            throws ContradictionException {
+        shortClause.clear();
+        solver.addClause(shortClause.push(firstLiteral).push(secondLiteral));
+    }
+
+    private void addClause(final ConstraintSink solver, final int firstLiteral, final int secondLiteral,
+                           final int thirdLiteral) throws ContradictionException {
+        shortClause.clear();
+        solver.addClause(shortClause.push(firstLiteral).push(secondLiteral).push(thirdLiteral));
+    }
+
+    private boolean isCovered(final int rowIndex, final int columnIndex) {
+        return variables.domain().covers(rowIndex, columnIndex);
+    }
+
+    /**
+     * Returns whether at least one of the positions around the given edge is covered by the domain.
+     */
+    private boolean isCovered(final int edge) {
+        final int eastWestEdgeCount = game.rowCount() * (game.columnCount() - 1);
+        if (edge < eastWestEdgeCount) {
+            final int rowIndex = edge / (game.columnCount() - 1);
+            final int columnIndex = edge % (game.columnCount() - 1);
+            return isCovered(rowIndex, columnIndex) || isCovered(rowIndex, columnIndex + 1);
+        }
+        final int rowIndex = (edge - eastWestEdgeCount) / game.columnCount();
+        final int columnIndex = (edge - eastWestEdgeCount) % game.columnCount();
+        return isCovered(rowIndex, columnIndex) || isCovered(rowIndex + 1, columnIndex);
+    }
+
+    private boolean isPossible(final int rowIndex, final int columnIndex, final int pieceIndex,
+                               final Piece.Rotation rotation) {
+        return variables.domain().contains(rowIndex, columnIndex, pieceIndex, rotation);
+    }
 }
@@ -0,0 +1,316 @@
+package re.belv.eternity2.solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The coordinator of a search distributed over several processes, possibly on several machines.
+ * <p>
+ * The game is split into work units, i.e. disjoint partial boards which together cover all the solutions, as for
+ * {@link Configuration#withParallelEnumeration(int) parallel enumeration}. {@link Worker Workers} connect over TCP,
+ * take the units one at a time, enumerate their solutions with their own {@link Solver} and stream them back. The
+ * solutions of a unit are passed to the sink once the unit is exhausted: If a worker is lost before, its connection
+ * being closed or reset, its unit is put back in the queue and taken by another worker, and the solutions it already
+ * sent are dropped. Each solution is thus passed to the sink exactly once. A worker which has not sent anything, not
+ * even a heartbeat, for a minute while holding a unit is considered lost as well.
+ * <p>
+ * Example of usage:
+ * <pre>{@code
+ * try (final var coordinator = new Coordinator(Configuration.defaults(), pieces, initialBoard, 1024, 4242)) {
+ *     // Then, on each worker machine: java -cp ... re.belv.eternity2.solver.Worker coordinator-host 4242
+ *     final long solutionCount = coordinator.run(solution -> System.out.println(solution));
+ * }
+ * }</pre>
+ */
+public final class Coordinator implements Closeable {
+
+    /** How long a connection waits for a unit before checking whether the search is over, in milliseconds. */
+    private static final int UNIT_POLL_INTERVAL = 100;
+
+    /** How long a silent worker is waited for before being considered lost, in milliseconds. */
+    private static final int DEFAULT_WORKER_TIMEOUT = 60_000;
+
+    /** The number of heartbeats a worker sends per worker timeout. */
+    private static final int HEARTBEATS_PER_TIMEOUT = 4;
+
+    /** The game. */
+    private final Game game;
+
+    /** The units, by id. */
+    private final List<PackedBoard> units;
+
+    /** The ids of the units not taken by a worker yet, including the ones of lost workers. */
+    private final BlockingDeque<Integer> pendingUnits;
+
+    /** The solutions of the exhausted units, not passed to the sink yet. */
+    private final BlockingQueue<List<PackedBoard>> exhaustedUnits;
+
+    /** The number of units not exhausted yet. */
+    private final AtomicInteger remainingUnitCount;
+
+    /** Where the workers connect. */
+    private final ServerSocket serverSocket;
+
+    /** The connections to the workers, to close them when closing. */
+    private final Set<Socket> connections;
+
+    /** Accepts the workers and talks to each of them. */
+    private final ExecutorService connectionThreads;
+
+    /** How long a silent worker is waited for before being considered lost, in milliseconds. */
+    private final int workerTimeout;
+
+    /** Whether this coordinator has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Creates an instance, splitting the given game into units and listening to workers on the given port.
+     *
+     * @param configuration the solver configuration, of which only the frame color applies: The workers solve with
+     *                      their own configuration
+     * @param pieces        the available pieces
+     * @param initialBoard  the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param unitCount     the number of units above which the game is not split anymore; Aim for many more units
+     *                      than workers, so that workers finishing early can take over remaining units
+     * @param port          the port to listen to, 0 for any free port
+     * @throws IOException              if the port cannot be listened to
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board
+     *                                  dimensions) or if given unit count is not strictly positive
+     */
+    public Coordinator(final Configuration configuration, final Piece[] pieces, final Piece[][] initialBoard,
+                       final int unitCount, final int port) throws IOException {
+        this(configuration, pieces, initialBoard, unitCount, port, DEFAULT_WORKER_TIMEOUT);
+    }
+
+    /**
+     * Creates an instance with the given worker timeout.
+     *
+     * @param workerTimeout how long a silent worker is waited for before being considered lost, in milliseconds
+     * @see #Coordinator(Configuration, Piece[], Piece[][], int, int)
+     */
+    Coordinator(final Configuration configuration, final Piece[] pieces, final Piece[][] initialBoard,
+                final int unitCount, final int port, final int workerTimeout) throws IOException {
+        if (unitCount < 1) {
+            throw new IllegalArgumentException("Invalid number of units: " + unitCount);
+        }
+        this.workerTimeout = workerTimeout;
+        game = new Game(pieces, initialBoard, configuration.frameColor());
+        final var domain = new Domain(game);
+        units = domain.isInconsistent() ? List.of() : Cubes.boardsOf(game, domain, unitCount);
+        pendingUnits = new LinkedBlockingDeque<>();
+        for (int unit = 0; unit < units.size(); unit++) {
+            pendingUnits.add(unit);
+        }
+        exhaustedUnits = new LinkedBlockingQueue<>();
+        remainingUnitCount = new AtomicInteger(units.size());
+        connections = ConcurrentHashMap.newKeySet();
+        connectionThreads = Executors.newCachedThreadPool(runnable -> {
+            final var thread = new Thread(runnable, "eternity2-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        serverSocket = new ServerSocket(port);
+        connectionThreads.execute(this::accept);
+    }
+
+    /**
+     * Returns the port the workers connect to.
+     *
+     * @return the port the workers connect to
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the address the workers connect to.
+     *
+     * @return the address the workers connect to
+     */
+    public InetAddress address() {
+        return serverSocket.getInetAddress();
+    }
+
+    /**
+     * Returns the number of units the game has been split into.
+     *
+     * @return the number of units
+     */
+    public int unitCount() {
+        return units.size();
+    }
+
+    /**
+     * Waits for the workers to exhaust all the units, passing the solutions to the given sink as units are
+     * exhausted.
+     * <p>
+     * The sink is called on the calling thread. Workers are told to disconnect once all the units are exhausted.
+     *
+     * @param sink where the solutions go
+     * @return the number of solutions passed to the sink
+     * @throws IOException           if the sink fails to receive a solution
+     * @throws InterruptedException  if the calling thread is interrupted while waiting for the workers
+     * @throws IllegalStateException if this coordinator has been closed
+     */
+    public long run(final SolutionSink sink) throws IOException, InterruptedException {
+        Objects.requireNonNull(sink);
+        long solutionCount = 0;
+        for (int exhaustedUnitCount = 0; exhaustedUnitCount < units.size(); exhaustedUnitCount++) {
+            List<PackedBoard> solutions;
+            while ((solutions = exhaustedUnits.poll(UNIT_POLL_INTERVAL, TimeUnit.MILLISECONDS)) == null) {
+                if (closed) {
+                    throw new IllegalStateException("Coordinator closed");
+                }
+            }
+            for (final PackedBoard solution : solutions) {
+                sink.accept(solution);
+                solutionCount++;
+            }
+        }
+        return solutionCount;
+    }
+
+    /**
+     * Stops listening to workers and closes the connections to the workers, which stop.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        connectionThreads.shutdownNow();
+        for (final Socket connection : connections) {
+            closeQuietly(connection);
+        }
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!closed) {
+            final Socket connection;
+            try {
+                connection = serverSocket.accept();
+            } catch (final IOException e) {
+                // Server socket closed
+                return;
+            }
+            connections.add(connection);
+            try {
+                connectionThreads.execute(() -> serve(connection));
+            } catch (final RuntimeException e) {
+                // Closed meanwhile
+                connections.remove(connection);
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Hands units over to the worker at the other end of the given connection, until all units are exhausted or the
+     * worker is lost.
+     * <p>
+     * The unit held by the worker is put back in the queue whatever the reason the connection ends for.
+     */
+    private void serve(final Socket connection) {
+        Integer unit = null;
+        try (connection) {
+            connection.setKeepAlive(true);
+            connection.setTcpNoDelay(true);
+            connection.setSoTimeout(workerTimeout);
+            final var input = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            final var output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            WorkProtocol.readHello(input);
+            WorkProtocol.writeGame(output, game);
+            output.writeInt(Math.max(1, workerTimeout / HEARTBEATS_PER_TIMEOUT));
+            output.flush();
+            while ((unit = nextUnit()) != null) {
+                output.writeByte(WorkProtocol.UNIT);
+                output.writeInt(unit);
+                WorkProtocol.writeBoard(output, units.get(unit));
+                output.flush();
+                final List<PackedBoard> solutions = readSolutions(input, unit);
+                remainingUnitCount.decrementAndGet();
+                exhaustedUnits.add(solutions);
+                unit = null;
+            }
+            output.writeByte(WorkProtocol.DONE);
+            output.flush();
+        } catch (final IOException e) {
+            // Worker lost, silent for too long, or protocol error: Another worker will take the unit over
+        } catch (final InterruptedException e) {
+            // Closed
+            Thread.currentThread().interrupt();
+        } finally {
+            if (unit != null) {
+                pendingUnits.addFirst(unit);
+            }
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * Returns the next unit to hand over, waiting for the units of lost workers if all the other ones are taken.
+     *
+     * @return the id of the next unit, {@code null} if all the units are exhausted
+     */
+    private Integer nextUnit() throws InterruptedException {
+        Integer unit;
+        while ((unit = pendingUnits.poll(UNIT_POLL_INTERVAL, TimeUnit.MILLISECONDS)) == null) {
+            if (remainingUnitCount.get() == 0 || closed) {
+                return null;
+            }
+        }
+        return unit;
+    }
+
+    private List<PackedBoard> readSolutions(final DataInputStream input, final int unit) throws IOException {
+        final List<PackedBoard> solutions = new ArrayList<>();
+        while (true) {
+            final byte message = input.readByte();
+            if (message == WorkProtocol.HEARTBEAT) {
+                continue;
+            }
+            if (message == WorkProtocol.EXHAUSTED) {
+                final int exhaustedUnit = input.readInt();
+                if (exhaustedUnit != unit) {
+                    throw new ProtocolException("Unexpected unit: " + exhaustedUnit + " != " + unit);
+                }
+                return solutions;
+            }
+            if (message != WorkProtocol.SOLUTION) {
+                throw new ProtocolException("Unexpected message: " + message);
+            }
+            solutions.add(WorkProtocol.readBoard(input, game));
+        }
+    }
+
+    private static void closeQuietly(final Socket connection) {
+        try {
+            connection.close();
+        } catch (final IOException e) {
+            // Closing anyway
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.IVecInt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The cubes of a game, i.e. disjoint partial boards which together cover all the solutions.
+ * <p>
+ * Cubes are built by splitting on the placements of a few positions: Each cube assigns a piece and a rotation to each
+ * of these positions. Since a solution has exactly one placement per position, each solution belongs to exactly one
+ * cube. Positions are chosen close to the pieces fixed on the initial board (or to the center of the board if there is
+ * none), where the matching constraints prune the most: Cubes placing a piece twice or with mismatching adjacent
+ * borders are left out since they contain no solution.
+ * <p>
+ * Each cube is expressed either as the assumptions satisfying its placements, or as a board where its placements are
+ * fixed, e.g. to be solved by a {@link Worker worker} of a distributed search.
+ */
+final class Cubes {
+
+    private Cubes() {
+        // Static methods only
+    }
+
+    /**
+     * Splits the given game into cubes.
+     *
+     * @param variables    the problem variables
+     * @param game         the game
+     * @param minimumCount the number of cubes above which positions are not split anymore
+     * @return the cubes, as assumptions; A single empty cube if no position can be split
+     */
+    static List<IVecInt> of(final Variables variables, final Game game, final int minimumCount) {
+        final List<Placement[]> cubes = split(game, variables.domain(), minimumCount);
+        final List<IVecInt> assumptions = new ArrayList<>(cubes.size());
+        for (final Placement[] cube : cubes) {
+            final var literals = new VecInt(cube.length);
+            for (final Placement placement : cube) {
+                literals.push(variables.representingPiece(placement.rowIndex(), placement.columnIndex(),
+                        placement.piece().id(), placement.rotation()));
+            }
+            assumptions.add(literals);
+        }
+        return assumptions;
+    }
+
+    /**
+     * Splits the given game into cubes, expressed as boards.
+     *
+     * @param game         the game
+     * @param domain       the possible placements of the game
+     * @param minimumCount the number of cubes above which positions are not split anymore
+     * @return the cubes, as the initial board of the game where the placements of each cube are fixed; A single
+     * board, the initial one, if no position can be split
+     */
+    static List<PackedBoard> boardsOf(final Game game, final Domain domain, final int minimumCount) {
+        final var initialCells = new int[game.rowCount() * game.columnCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                initialCells[rowIndex * game.columnCount() + columnIndex] = game.initialBoardPiece(rowIndex, columnIndex)
+                        .map(piece -> PackedBoard.placement(piece.id(), game.piece(piece.id()).rotationTo(piece)))
+                        .orElse(PackedBoard.EMPTY);
+            }
+        }
+        final List<Placement[]> cubes = split(game, domain, minimumCount);
+        final List<PackedBoard> boards = new ArrayList<>(cubes.size());
+        for (final Placement[] cube : cubes) {
+            final int[] cells = initialCells.clone();
+            for (final Placement placement : cube) {
+                cells[placement.rowIndex() * game.columnCount() + placement.columnIndex()] =
+                        PackedBoard.placement(placement.piece().id(), placement.rotation());
+            }
+            boards.add(new PackedBoard(game, cells));
+        }
+        return boards;
+    }
+
+    private static List<Placement[]> split(final Game game, final Domain domain, final int minimumCount) {
+        List<Placement[]> cubes = List.<Placement[]>of(new Placement[0]);
+        for (final int[] position : splitPositions(game, domain)) {
+            if (cubes.size() >= minimumCount) {
+                break;
+            }
+            final List<Placement[]> splitCubes = new ArrayList<>();
+            for (final Placement[] cube : cubes) {
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                        if (!domain.contains(position[0], position[1], pieceIndex, rotation)) {
+                            continue;
+                        }
+                        final var placement = new Placement(position[0], position[1], rotation,
+                                game.piece(pieceIndex).rotate(rotation));
+                        if (isCompatible(cube, placement)) {
+                            final Placement[] splitCube = Arrays.copyOf(cube, cube.length + 1);
+                            splitCube[cube.length] = placement;
+                            splitCubes.add(splitCube);
+                        }
+                    }
+                }
+            }
+            cubes = splitCubes;
+        }
+        return cubes;
+    }
+
+    /**
+     * Returns the positions which are not fixed, closest to the fixed positions first.
+     */
+    private static List<int[]> splitPositions(final Game game, final Domain domain) {
+        final List<int[]> anchors = new ArrayList<>();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                if (game.initialBoardPiece(rowIndex, columnIndex).isPresent()) {
+                    anchors.add(new int[]{rowIndex, columnIndex});
+                }
+            }
+        }
+        if (anchors.isEmpty()) {
+            anchors.add(new int[]{game.rowCount() / 2, game.columnCount() / 2});
+        }
+        final List<int[]> positions = new ArrayList<>();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                if (game.initialBoardPiece(rowIndex, columnIndex).isEmpty()
+                        && placementCount(game, domain, rowIndex, columnIndex) > 1) {
+                    positions.add(new int[]{rowIndex, columnIndex});
+                }
+            }
+        }
+        positions.sort((a, b) -> Integer.compare(distanceToAnchors(a, anchors), distanceToAnchors(b, anchors)));
+        return positions;
+    }
+
+    private static int placementCount(final Game game, final Domain domain, final int rowIndex, final int columnIndex) {
+        int count = 0;
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                if (domain.contains(rowIndex, columnIndex, pieceIndex, rotation)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int distanceToAnchors(final int[] position, final List<int[]> anchors) {
+        int distance = Integer.MAX_VALUE;
+        for (final int[] anchor : anchors) {
+            distance = Math.min(distance, Math.abs(position[0] - anchor[0]) + Math.abs(position[1] - anchor[1]));
+        }
+        return distance;
+    }
+
+    /**
+     * Returns whether the given placement can complete the given cube, i.e. whether its piece is not already placed
+     * and its borders match the adjacent placements of the cube.
+     */
+    private static boolean isCompatible(final Placement[] cube, final Placement placement) {
+        for (final Placement other : cube) {
+            if (other.piece().id() == placement.piece().id()) {
+                return false;
+            }
+            final int rowOffset = other.rowIndex() - placement.rowIndex();
+            final int columnOffset = other.columnIndex() - placement.columnIndex();
+            if (Math.abs(rowOffset) + Math.abs(columnOffset) != 1) {
+                continue;
+            }
+            final Piece.Border border;
+            if (rowOffset == -1) {
+                border = Piece.Border.NORTH;
+            } else if (rowOffset == 1) {
+                border = Piece.Border.SOUTH;
+            } else if (columnOffset == 1) {
+                border = Piece.Border.EAST;
+            } else {
+                border = Piece.Border.WEST;
+            }
+            final Piece.Border oppositeBorder = border.opposite();
+            if (placement.piece().colorTo(border) != other.piece().colorTo(oppositeBorder)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A piece placed at a position.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @param rotation    the rotation of the piece
+     * @param piece       the rotated piece
+     */
+    private record Placement(int rowIndex, int columnIndex, Piece.Rotation rotation, Piece piece) {
+        // Nothing to add
+    }
+}
@@ -0,0 +1,411 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * The encoding of a game as a <a href="https://jix.github.io/varisat/manual/0.2.0/formats/dimacs.html">DIMACS CNF</a>
+ * file, so that a game can be encoded once and solved many times, possibly elsewhere.
+ * <p>
+ * The file starts with comment lines describing the game and the meaning of the variables, e.g.:
+ * <pre>
+ * c eternity2-solver 1
+ * c board 2 2
+ * c frame-color 0
+ * c symmetry-breaking NONE
+ * c color-encoding BORDERS
+ * c piece 0 0 1 2 3
+ * c ...
+ * c fixed 1 1 1 3 0 1 2
+ * c variables 1-5 pieces: (row, column, piece, rotation) of the possible placements, in this order
+ * c variables 6-69 borders: 1 + 5 + ((row * 2 + column) * 4 + border) * 4 + color
+ * c variables 70-84 auxiliary: cardinality constraints encoding
+ * p cnf 84 230
+ * </pre>
+ * The {@code piece} lines give the id and the north, east, south and west colors of the available pieces; The
+ * {@code fixed} lines give the row, column, id and colors of the pieces fixed on the initial board. The game, and thus
+ * the {@link Variables}, can be rebuilt from these lines alone. The line describing the color variables depends on the
+ * {@link Configuration.ColorEncoding color encoding}; Files without {@code color-encoding} line use the borders
+ * encoding.
+ * <p>
+ * Clauses are streamed to and from the file through a fixed-size buffer, so that neither writing nor reading the
+ * file retains the clauses: Writing a game encodes it twice, once to count the clauses declared in the header, then
+ * to write them.
+ */
+final class DimacsFile {
+
+    /** The version of the format, increased on incompatible changes. */
+    private static final int VERSION = 1;
+
+    /** The size of the read buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * A game read from a file.
+     *
+     * @param game             the game
+     * @param variables        the problem variables, to decode the models
+     * @param variableCount    the number of variables declared in the file, including auxiliary variables
+     * @param symmetryBreaking the symmetry breaking constraints included in the encoding
+     * @param satisfiable      {@code false} if the problem is trivially unsatisfiable
+     */
+    record Problem(Game game, Variables variables, int variableCount,
+                   Configuration.SymmetryBreaking symmetryBreaking, boolean satisfiable) {
+        // Nothing to add
+    }
+
+    private DimacsFile() {
+        // Static methods only
+    }
+
+    /**
+     * Writes the encoding of the given game to the given file.
+     *
+     * @param file             the file to write, replaced if it exists
+     * @param game             the game
+     * @param variables        the problem variables, giving the possible placements and the color encoding
+     * @param symmetryBreaking the symmetry breaking constraints included in the encoding
+     * @param encoder          writes the encoding of the game
+     * @throws IOException if the file cannot be written
+     */
+    static void write(final Path file, final Game game, final Variables variables,
+                      final Configuration.SymmetryBreaking symmetryBreaking, final Encoder encoder)
+            throws IOException {
+        final Domain domain = variables.domain();
+        final var counter = new DimacsWriter(null);
+        counter.newVar(variables.count());
+        boolean satisfiable = !domain.isInconsistent();
+        if (satisfiable) {
+            try {
+                encoder.encodeTo(counter);
+            } catch (final ContradictionException e) {
+                satisfiable = false;
+            }
+        }
+
+        try (final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var writer = new DimacsWriter(channel);
+            writeHeader(writer, game, variables, symmetryBreaking,
+                    satisfiable ? counter.variableCount() : variables.count());
+            if (satisfiable) {
+                writer.writeProblemLine(counter.variableCount(), counter.clauseCount());
+                writer.newVar(variables.count());
+                encoder.encodeTo(writer);
+            } else {
+                writer.writeProblemLine(variables.count(), 1);
+                writer.addClause(new VecInt(0));
+            }
+            writer.flush();
+        } catch (final ContradictionException e) {
+            throw new IllegalStateException("Encoding is not deterministic", e);
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeHeader(final DimacsWriter writer, final Game game, final Variables variables,
+                                    final Configuration.SymmetryBreaking symmetryBreaking, final int variableCount) {
+        writer.writeComment("eternity2-solver " + VERSION);
+        writer.writeComment("board " + game.rowCount() + " " + game.columnCount());
+        game.frameColor().ifPresent(frameColor -> writer.writeComment("frame-color " + frameColor));
+        writer.writeComment("symmetry-breaking " + symmetryBreaking);
+        writer.writeComment("color-encoding " + variables.colorEncoding());
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            writer.writeComment("piece " + colorsOf(game.piece(pieceIndex)));
+        }
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final int row = rowIndex;
+                final int column = columnIndex;
+                game.initialBoardPiece(rowIndex, columnIndex).ifPresent(piece ->
+                        writer.writeComment("fixed " + row + " " + column + " " + colorsOf(piece)));
+            }
+        }
+        final int pieceCount = variables.representingPieceCount();
+        final String colorRange = "variables " + (pieceCount + 1) + "-" + variables.count();
+        writer.writeComment("variables 1-" + pieceCount
+                + " pieces: (row, column, piece, rotation) of the possible placements, in this order");
+        switch (variables.colorEncoding()) {
+            case BORDERS -> writer.writeComment(colorRange + " borders: 1 + " + pieceCount + " + ((row * "
+                    + game.columnCount() + " + column) * " + Piece.Border.count() + " + border) * "
+                    + game.colorCount() + " + color");
+            case SHARED_EDGES -> writer.writeComment(colorRange + " edges: 1 + " + pieceCount + " + edge * "
+                    + game.colorCount() + " + color, east-west edges first");
+            case LOG -> writer.writeComment(colorRange + " edge color bits: 1 + " + pieceCount + " + edge * "
+                    + variables.colorBitCount() + " + bit, east-west edges first");
+            case DIRECT -> {
+                // No color variable
+            }
+        }
+        if (variableCount > variables.count()) {
+            writer.writeComment("variables " + (variables.count() + 1) + "-" + variableCount
+                    + " auxiliary: cardinality constraints encoding");
+        }
+    }
+
+    private static String colorsOf(final Piece piece) {
+        return piece.id() + " " + piece.northColor() + " " + piece.eastColor() + " " + piece.southColor() + " "
+                + piece.westColor();
+    }
+
+    /**
+     * Reads the encoding of a game from the given file, writing its clauses to the given sink.
+     * <p>
+     * The sink shall be empty. If the problem is trivially unsatisfiable, the sink may contain only part of the
+     * clauses.
+     *
+     * @param file the file to read
+     * @param sink where to write the clauses
+     * @return the game read
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a game encoding written by {@link #write}
+     */
+    static Problem read(final Path file, final ConstraintSink sink) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final var reader = new Reader(channel);
+            final var header = new Header();
+            String line;
+            while ((line = reader.nextLine()) != null && !line.startsWith("p ")) {
+                if (line.startsWith("c ")) {
+                    header.parse(line.substring(2));
+                }
+            }
+            if (line == null) {
+                throw new IllegalArgumentException("Missing problem line in " + file);
+            }
+            final String[] problem = line.trim().split("\\s+");
+            if (problem.length != 4 || !"cnf".equals(problem[1])) {
+                throw new IllegalArgumentException("Invalid problem line: " + line);
+            }
+            final int variableCount = parseInt(problem[2], line);
+            final long clauseCount = Long.parseLong(problem[3]);
+
+            final Game game = header.toGame();
+            final var variables = new Variables(game, new Domain(game), header.colorEncoding);
+            if (variables.representingPieceCount() != header.pieceVariableCount
+                    || variableCount < variables.count()) {
+                throw new IllegalArgumentException("Variables do not match the game: " + variableCount
+                        + " variables, " + header.pieceVariableCount + " representing pieces, "
+                        + variables.representingPieceCount() + " expected");
+            }
+
+            sink.newVar(variableCount);
+            final var clause = new VecInt();
+            long readClauseCount = 0;
+            boolean satisfiable = true;
+            int literal;
+            while (satisfiable && (literal = reader.nextLiteral()) != Reader.END_OF_FILE) {
+                if (literal != 0) {
+                    if (Math.abs(literal) > variableCount) {
+                        throw new IllegalArgumentException("Undeclared variable: " + literal);
+                    }
+                    clause.push(literal);
+                    continue;
+                }
+                readClauseCount++;
+                try {
+                    sink.addClause(clause);
+                } catch (final ContradictionException e) {
+                    satisfiable = false;
+                }
+                clause.clear();
+            }
+            if (satisfiable && (readClauseCount != clauseCount || !clause.isEmpty())) {
+                throw new IllegalArgumentException("Truncated file: " + readClauseCount + " clauses read, "
+                        + clauseCount + " declared");
+            }
+            return new Problem(game, variables, variableCount, header.symmetryBreaking, satisfiable);
+        }
+    }
+
+    private static int parseInt(final String value, final String line) {
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in line: " + line, e);
+        }
+    }
+
+    /**
+     * The game description read from the comment lines.
+     */
+    private static final class Header {
+
+        private boolean versionRead;
+        private int rowCount = -1;
+        private int columnCount = -1;
+        private OptionalInt frameColor = OptionalInt.empty();
+        private Configuration.SymmetryBreaking symmetryBreaking = Configuration.SymmetryBreaking.NONE;
+        private Configuration.ColorEncoding colorEncoding = Configuration.ColorEncoding.BORDERS;
+        private final List<Piece> pieces = new ArrayList<>();
+        private final List<int[]> fixedPositions = new ArrayList<>();
+        private final List<Piece> fixedPieces = new ArrayList<>();
+        private int pieceVariableCount = -1;
+
+        void parse(final String comment) {
+            final String[] tokens = comment.trim().split("\\s+");
+            switch (tokens[0]) {
+                case "eternity2-solver" -> {
+                    if (tokens.length != 2 || parseInt(tokens[1], comment) != VERSION) {
+                        throw new IllegalArgumentException("Unsupported format: " + comment);
+                    }
+                    versionRead = true;
+                }
+                case "board" -> {
+                    final int[] values = parseInts(tokens, 2, comment);
+                    rowCount = values[0];
+                    columnCount = values[1];
+                }
+                case "frame-color" -> frameColor = OptionalInt.of(parseInts(tokens, 1, comment)[0]);
+                case "symmetry-breaking" -> {
+                    try {
+                        symmetryBreaking = Configuration.SymmetryBreaking.valueOf(tokens[1]);
+                    } catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                        throw new IllegalArgumentException("Invalid symmetry breaking: " + comment, e);
+                    }
+                }
+                case "color-encoding" -> {
+                    try {
+                        colorEncoding = Configuration.ColorEncoding.valueOf(tokens[1]);
+                    } catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                        throw new IllegalArgumentException("Invalid color encoding: " + comment, e);
+                    }
+                }
+                case "piece" -> pieces.add(pieceOf(parseInts(tokens, 5, comment), 0));
+                case "fixed" -> {
+                    final int[] values = parseInts(tokens, 7, comment);
+                    fixedPositions.add(new int[]{values[0], values[1]});
+                    fixedPieces.add(pieceOf(values, 2));
+                }
+                case "variables" -> {
+                    if (comment.contains(" pieces:")) {
+                        final String range = tokens[1];
+                        pieceVariableCount = parseInt(range.substring(range.indexOf('-') + 1), comment);
+                    }
+                }
+                default -> {
+                    // Free comment
+                }
+            }
+        }
+
+        Game toGame() {
+            if (!versionRead || rowCount < 0 || pieceVariableCount < 0) {
+                throw new IllegalArgumentException("Missing eternity2-solver header");
+            }
+            final var initialBoard = new Piece[rowCount][columnCount];
+            for (int i = 0; i < fixedPieces.size(); i++) {
+                final int[] position = fixedPositions.get(i);
+                if (position[0] >= rowCount || position[1] >= columnCount) {
+                    throw new IllegalArgumentException("Fixed piece out of board: " + fixedPieces.get(i));
+                }
+                initialBoard[position[0]][position[1]] = fixedPieces.get(i);
+            }
+            return new Game(pieces.toArray(Piece[]::new), initialBoard, frameColor);
+        }
+
+        private static Piece pieceOf(final int[] values, final int offset) {
+            return new Piece(values[offset], values[offset + 1], values[offset + 2], values[offset + 3],
+                    values[offset + 4]);
+        }
+
+        private static int[] parseInts(final String[] tokens, final int count, final String comment) {
+            if (tokens.length != count + 1) {
+                throw new IllegalArgumentException("Invalid header line: " + comment);
+            }
+            final var values = new int[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = parseInt(tokens[i + 1], comment);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Reads lines and literals from a channel through a fixed-size buffer.
+     */
+    private static final class Reader {
+
+        /** Returned by {@link #nextLiteral()} at the end of the file. */
+        static final int END_OF_FILE = Integer.MIN_VALUE;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final StringBuilder line;
+
+        Reader(final FileChannel channel) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+            line = new StringBuilder();
+        }
+
+        /**
+         * Returns the next line, without line break, or {@code null} at the end of the file.
+         */
+        String nextLine() throws IOException {
+            line.setLength(0);
+            int b;
+            while ((b = nextByte()) >= 0 && b != '\n') {
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return b < 0 && line.isEmpty() ? null : line.toString();
+        }
+
+        /**
+         * Returns the next literal, skipping comment lines, or {@link #END_OF_FILE}.
+         */
+        int nextLiteral() throws IOException {
+            int b = nextByte();
+            while (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == 'c') {
+                if (b == 'c') {
+                    while ((b = nextByte()) >= 0 && b != '\n') {
+                        // Skip comment
+                    }
+                }
+                b = nextByte();
+            }
+            if (b < 0) {
+                return END_OF_FILE;
+            }
+            final boolean negative = b == '-';
+            if (negative) {
+                b = nextByte();
+            }
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("Invalid character in clauses: " + (char) b);
+            }
+            int value = 0;
+            while (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                b = nextByte();
+            }
+            return negative ? -value : value;
+        }
+
+        private int nextByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                final int read = channel.read(buffer);
+                buffer.flip();
+                if (read <= 0) {
+                    return -1;
+                }
+            }
+            return buffer.get() & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link ConstraintSink} streaming the clauses in
+ * <a href="https://jix.github.io/varisat/manual/0.2.0/formats/dimacs.html">DIMACS CNF</a> format to a channel, without
+ * retaining them.
+ * <p>
+ * Clauses are encoded in a fixed-size buffer which is written to the channel when full, so that the memory used does
+ * not depend on the number of clauses. Without channel, clauses are only counted: Since the DIMACS header declares
+ * the numbers of variables and clauses, a counting pass is usually needed before the writing pass.
+ * <p>
+ * Cardinality constraints are encoded into clauses with the sequential counter encoding by Carsten Sinz, which
+ * introduces auxiliary variables numbered after the declared ones.
+ */
+final class DimacsWriter implements ConstraintSink {
+
+    /** The size of the buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The maximum number of bytes of a literal, including sign and separator. */
+    private static final int MAX_LITERAL_LENGTH = 12;
+
+    /** Where to write the clauses, or {@code null} to only count them. */
+    private final WritableByteChannel channel;
+
+    /** The buffer of bytes to write. */
+    private final ByteBuffer buffer;
+
+    /** Scratch buffer for the clauses of the cardinality constraints encoding. */
+    private final VecInt auxiliaryClause;
+
+    /** Scratch buffer for the negated literals of a cardinality constraint. */
+    private final VecInt negatedLiterals;
+
+    /** Scratch buffer for the digits of a literal, written backwards. */
+    private final byte[] digits;
+
+    /** The number of variables, including auxiliary variables. */
+    private int variableCount;
+
+    /** The number of clauses added. */
+    private long clauseCount;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param channel where to write the clauses, or {@code null} to only count them
+     */
+    DimacsWriter(final WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = channel == null ? ByteBuffer.allocate(0) : ByteBuffer.allocateDirect(BUFFER_SIZE);
+        auxiliaryClause = new VecInt(4);
+        negatedLiterals = new VecInt();
+        digits = new byte[MAX_LITERAL_LENGTH];
+    }
+
+    @Override
+    public void newVar(final int count) {
+        variableCount = Math.max(variableCount, count);
+    }
+
+    @Override
+    public void addClause(final IVecInt literals) {
+        if (channel != null) {
+            for (int i = 0; i < literals.size(); i++) {
+                writeInt(literals.get(i));
+                put((byte) ' ');
+            }
+            put((byte) '0');
+            put((byte) '\n');
+        }
+        clauseCount++;
+    }
+
+    @Override
+    public void addExactly(final IVecInt literals, final int degree) throws ContradictionException {
+        if (degree > literals.size()) {
+            throw new ContradictionException("Cannot satisfy " + degree + " literals among " + literals.size());
+        }
+        addAtMost(literals, degree);
+        if (degree == 1) {
+            // At least one: A single clause, instead of a counter as large as the literals squared
+            addClause(literals);
+            return;
+        }
+        negatedLiterals.clear();
+        for (int i = 0; i < literals.size(); i++) {
+            negatedLiterals.push(-literals.get(i));
+        }
+        addAtMost(negatedLiterals, literals.size() - degree);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The constraint is encoded with the sequential counter encoding.
+     */
+    @Override
+    public void addAtMost(final IVecInt literals, final int degree) throws ContradictionException {
+        if (degree < 0) {
+            throw new ContradictionException("Cannot satisfy at most " + degree + " literals");
+        }
+        final int n = literals.size();
+        final VecInt clause = auxiliaryClause;
+        clause.clear();
+        if (degree == 0) {
+            for (int i = 0; i < n; i++) {
+                addClause(clause.push(-literals.get(i)));
+                clause.clear();
+            }
+            return;
+        }
+        if (degree >= n) {
+            return;
+        }
+        // register(i, j) <=> at least j + 1 of the first i + 1 literals are satisfied
+        final int firstRegister = variableCount + 1;
+        variableCount += (n - 1) * degree;
+        addClause(clause.push(-literals.get(0)).push(register(firstRegister, degree, 0, 0)));
+        clause.clear();
+        for (int j = 1; j < degree; j++) {
+            addClause(clause.push(-register(firstRegister, degree, 0, j)));
+            clause.clear();
+        }
+        for (int i = 1; i < n - 1; i++) {
+            addClause(clause.push(-literals.get(i)).push(register(firstRegister, degree, i, 0)));
+            clause.clear();
+            addClause(clause.push(-register(firstRegister, degree, i - 1, 0)).push(register(firstRegister, degree, i, 0)));
+            clause.clear();
+            for (int j = 1; j < degree; j++) {
+                addClause(clause.push(-literals.get(i))
+                        .push(-register(firstRegister, degree, i - 1, j - 1))
+                        .push(register(firstRegister, degree, i, j)));
+                clause.clear();
+                addClause(clause.push(-register(firstRegister, degree, i - 1, j)).push(register(firstRegister, degree, i, j)));
+                clause.clear();
+            }
+            addClause(clause.push(-literals.get(i)).push(-register(firstRegister, degree, i - 1, degree - 1)));
+            clause.clear();
+        }
+        addClause(clause.push(-literals.get(n - 1)).push(-register(firstRegister, degree, n - 2, degree - 1)));
+    }
+
+    private static int register(final int firstRegister, final int degree, final int i, final int j) {
+        return firstRegister + i * degree + j;
+    }
+
+    /**
+     * Writes a comment line.
+     *
+     * @param comment the comment, without line break
+     */
+    void writeComment(final String comment) {
+        writeText("c " + comment + "\n");
+    }
+
+    /**
+     * Writes the problem line.
+     *
+     * @param declaredVariableCount the number of variables
+     * @param declaredClauseCount   the number of clauses
+     */
+    void writeProblemLine(final int declaredVariableCount, final long declaredClauseCount) {
+        writeText("p cnf " + declaredVariableCount + " " + declaredClauseCount + "\n");
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     */
+    void flush() {
+        if (channel == null) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void expectConstraints(final int count) {
+        // Nothing is retained
+    }
+
+    @Override
+    public int variableCount() {
+        return variableCount;
+    }
+
+    /**
+     * Returns the number of clauses added.
+     *
+     * @return the number of clauses added
+     */
+    long clauseCount() {
+        return clauseCount;
+    }
+
+    private void writeText(final String text) {
+        if (channel == null) {
+            return;
+        }
+        for (final byte b : text.getBytes(StandardCharsets.US_ASCII)) {
+            put(b);
+        }
+    }
+
+    /**
+     * Writes the given integer in decimal, without allocating a string.
+     */
+    private void writeInt(final int value) {
+        if (buffer.remaining() < MAX_LITERAL_LENGTH) {
+            flush();
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        int remaining = Math.abs(value);
+        int digitCount = 0;
+        do {
+            digits[digitCount++] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        while (digitCount > 0) {
+            buffer.put(digits[--digitCount]);
+        }
+    }
+
+    private void put(final byte b) {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(b);
+    }
+}
@@ -0,0 +1,422 @@
+package re.belv.eternity2.solver;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The feasible placements of a game, i.e. the (position, piece, rotation) triples which may appear in a solution.
+ * <p>
+ * Placements are eliminated before encoding, so that no variable nor clause is generated for them:
+ * <ol>
+ *     <li>Pieces fixed on the initial board are only possible at their position with their rotation, and their
+ *     position cannot host another piece.</li>
+ *     <li>If the game has a {@link Game#frameColor() frame color}, a placement is only possible if all its borders on
+ *     the outer frame have this color. If the pieces have exactly as many borders of the frame color as the frame
+ *     has, then the borders inside the board cannot have this color.</li>
+ *     <li>A placement is only possible if, for each of its neighbors, there remains a possible placement on the
+ *     neighbor position with a matching color. A position with a single possible piece makes this piece impossible
+ *     anywhere else. These two rules are applied until nothing changes.</li>
+ * </ol>
+ * If edges may mismatch, as when {@link Optimization optimizing} the number of matched edges, the first rule of the
+ * last step is not applied.
+ * <p>
+ * A domain may be {@link #restrictedTo(boolean[]) restricted} to a region of the board, so that only the placements
+ * of this region are encoded, e.g. when the {@link FrameFirstSolutions frame is solved first}.
+ */
+final class Domain {
+
+    /** The game. */
+    private final Game game;
+
+    /** The colors of each piece, indexed by piece, rotation and border. */
+    private final int[] colors;
+
+    /** The number of colors, including the ones unused by the pieces if the colors are not contiguous. */
+    private final int colorSpan;
+
+    /** Whether adjacent borders must have the same color. */
+    private final boolean edgesMustMatch;
+
+    /** Whether each placement is possible, indexed by position, piece and rotation. */
+    private final boolean[] possible;
+
+    /** The number of possible placements. */
+    private int size;
+
+    /** The positions covered by this domain, in row-major order; {@code null} if it covers the whole board. */
+    private final boolean[] region;
+
+    /**
+     * Whether all the possible placements of each piece are covered by this domain; {@code null} if it covers the
+     * whole board.
+     */
+    private final boolean[] confinedPieces;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param game the game
+     */
+    Domain(final Game game) {
+        this(game, true);
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param game           the game
+     * @param edgesMustMatch whether adjacent borders must have the same color; If not, placements are not eliminated
+     *                       because of their neighbors
+     */
+    Domain(final Game game, final boolean edgesMustMatch) {
+        this.game = game;
+        this.edgesMustMatch = edgesMustMatch;
+        colors = new int[game.piecesCount() * Piece.Rotation.count() * Piece.Border.count()];
+        int maxColor = 0;
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                final Piece piece = game.piece(pieceIndex).rotate(rotation);
+                for (final Piece.Border border : Piece.Border.all()) {
+                    final int color = piece.colorTo(border);
+                    colors[(pieceIndex * Piece.Rotation.count() + rotation.ordinal()) * Piece.Border.count() + border.ordinal()] = color;
+                    maxColor = Math.max(maxColor, color);
+                }
+            }
+        }
+        colorSpan = maxColor + 1;
+        possible = new boolean[game.rowCount() * game.columnCount() * game.piecesCount() * Piece.Rotation.count()];
+        region = null;
+        confinedPieces = null;
+        addInitialPlacements();
+        removeUnmatchablePlacements();
+    }
+
+    private Domain(final Domain domain, final boolean[] region) {
+        game = domain.game;
+        edgesMustMatch = domain.edgesMustMatch;
+        colors = domain.colors;
+        colorSpan = domain.colorSpan;
+        possible = new boolean[domain.possible.length];
+        this.region = region.clone();
+        confinedPieces = new boolean[game.piecesCount()];
+        Arrays.fill(confinedPieces, true);
+        for (int cell = 0; cell < cellCount(); cell++) {
+            for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                for (int rotation = 0; rotation < Piece.Rotation.count(); rotation++) {
+                    final int index = index(cell, pieceIndex, rotation);
+                    if (!domain.possible[index]) {
+                        continue;
+                    }
+                    if (region[cell]) {
+                        add(index);
+                    } else {
+                        confinedPieces[pieceIndex] = false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the placements of this domain located in the given region of the board.
+     * <p>
+     * Placements are not eliminated further: The region is only a subset of the board, not a game on its own. A
+     * restricted domain is always {@link #isInconsistent() inconsistent}, since the positions outside the region have
+     * no placement left.
+     *
+     * @param region whether each position belongs to the region, in row-major order
+     * @return the restricted domain
+     * @throws IllegalArgumentException if the region does not have one element per position
+     */
+    Domain restrictedTo(final boolean[] region) {
+        if (region.length != cellCount()) {
+            throw new IllegalArgumentException("Invalid region size: " + region.length + " != " + cellCount());
+        }
+        return new Domain(this, region);
+    }
+
+    /**
+     * Returns whether the given position belongs to the region covered by this domain.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @return {@code true} if the position is covered, always {@code true} if the domain is not restricted
+     */
+    boolean covers(final int rowIndex, final int columnIndex) {
+        return region == null || region[rowIndex * game.columnCount() + columnIndex];
+    }
+
+    /**
+     * Returns whether all the possible placements of the given piece are covered by this domain, i.e. whether the
+     * piece must be placed in its region.
+     *
+     * @param pieceIndex the piece index
+     * @return {@code true} if the piece must be placed in the region covered by this domain, always {@code true} if
+     * the domain is not restricted
+     */
+    boolean confines(final int pieceIndex) {
+        return confinedPieces == null || confinedPieces[pieceIndex];
+    }
+
+    /**
+     * Returns whether the given piece with the given rotation is possible at the given position.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @param pieceIndex  the piece index
+     * @param rotation    the piece rotation
+     * @return {@code true} if the given placement is possible
+     */
+    boolean contains(final int rowIndex, final int columnIndex, final int pieceIndex, final Piece.Rotation rotation) {
+        return possible[index(rowIndex * game.columnCount() + columnIndex, pieceIndex, rotation.ordinal())];
+    }
+
+    /**
+     * Returns the number of possible placements.
+     *
+     * @return the number of possible placements
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether a position or a piece has no possible placement left, in which case the game has no solution.
+     *
+     * @return {@code true} if the game has trivially no solution
+     */
+    boolean isInconsistent() {
+        final var placedPieces = new boolean[game.piecesCount()];
+        for (int cell = 0; cell < cellCount(); cell++) {
+            boolean cellHasPlacement = false;
+            for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                for (int rotation = 0; rotation < Piece.Rotation.count(); rotation++) {
+                    if (possible[index(cell, pieceIndex, rotation)]) {
+                        cellHasPlacement = true;
+                        placedPieces[pieceIndex] = true;
+                    }
+                }
+            }
+            if (!cellHasPlacement) {
+                return true;
+            }
+        }
+        for (final boolean placed : placedPieces) {
+            if (!placed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addInitialPlacements() {
+        final var fixedPieces = new boolean[game.piecesCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                game.initialBoardPiece(rowIndex, columnIndex).ifPresent(piece -> fixedPieces[piece.id()] = true);
+            }
+        }
+        final boolean frameColorOnlyOnFrame = frameColorOnlyOnFrame();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final int cell = rowIndex * game.columnCount() + columnIndex;
+                final Optional<Piece> fixedPiece = game.initialBoardPiece(rowIndex, columnIndex);
+                if (fixedPiece.isPresent()) {
+                    final int pieceIndex = fixedPiece.get().id();
+                    final int rotation = game.piece(pieceIndex).rotationTo(fixedPiece.get()).ordinal();
+                    if (fitsFrame(rowIndex, columnIndex, pieceIndex, rotation, frameColorOnlyOnFrame)) {
+                        add(index(cell, pieceIndex, rotation));
+                    }
+                    continue;
+                }
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    if (fixedPieces[pieceIndex]) {
+                        continue;
+                    }
+                    for (int rotation = 0; rotation < Piece.Rotation.count(); rotation++) {
+                        if (fitsFrame(rowIndex, columnIndex, pieceIndex, rotation, frameColorOnlyOnFrame)) {
+                            add(index(cell, pieceIndex, rotation));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean frameColorOnlyOnFrame() {
+        if (game.frameColor().isEmpty()) {
+            return false;
+        }
+        final int frameColor = game.frameColor().getAsInt();
+        int frameColorCount = 0;
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            for (int border = 0; border < Piece.Border.count(); border++) {
+                if (color(pieceIndex, 0, border) == frameColor) {
+                    frameColorCount++;
+                }
+            }
+        }
+        return frameColorCount == 2 * (game.rowCount() + game.columnCount());
+    }
+
+    private boolean fitsFrame(final int rowIndex, final int columnIndex, final int pieceIndex, final int rotation,
+                              final boolean frameColorOnlyOnFrame) {
+        if (game.frameColor().isEmpty()) {
+            return true;
+        }
+        final int frameColor = game.frameColor().getAsInt();
+        for (final Piece.Border border : Piece.Border.all()) {
+            final boolean onFrame = neighborCell(rowIndex, columnIndex, border) < 0;
+            final boolean hasFrameColor = color(pieceIndex, rotation, border.ordinal()) == frameColor;
+            if (onFrame != hasFrameColor && (onFrame || frameColorOnlyOnFrame)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeUnmatchablePlacements() {
+        final var supportedColors = new boolean[cellCount() * Piece.Border.count() * colorSpan];
+        boolean changed;
+        do {
+            changed = edgesMustMatch && removePlacementsWithoutMatchingNeighbor(supportedColors);
+            changed |= removePiecesOfSingletonPositions();
+        } while (changed);
+    }
+
+    private boolean removePlacementsWithoutMatchingNeighbor(final boolean[] supportedColors) {
+        Arrays.fill(supportedColors, false);
+        for (int cell = 0; cell < cellCount(); cell++) {
+            for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                for (int rotation = 0; rotation < Piece.Rotation.count(); rotation++) {
+                    if (possible[index(cell, pieceIndex, rotation)]) {
+                        for (int border = 0; border < Piece.Border.count(); border++) {
+                            supportedColors[(cell * Piece.Border.count() + border) * colorSpan + color(pieceIndex, rotation, border)] = true;
+                        }
+                    }
+                }
+            }
+        }
+        boolean changed = false;
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final int cell = rowIndex * game.columnCount() + columnIndex;
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (int rotation = 0; rotation < Piece.Rotation.count(); rotation++) {
+                        final int index = index(cell, pieceIndex, rotation);
+                        if (possible[index] && !hasMatchingNeighbors(rowIndex, columnIndex, pieceIndex, rotation, supportedColors)) {
+                            remove(index);
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean hasMatchingNeighbors(final int rowIndex, final int columnIndex, final int pieceIndex,
+                                         final int rotation, final boolean[] supportedColors) {
+        for (final Piece.Border border : Piece.Border.all()) {
+            final int neighborCell = neighborCell(rowIndex, columnIndex, border);
+            if (neighborCell < 0) {
+                continue;
+            }
+            final int oppositeBorder = (border.ordinal() + 2) % Piece.Border.count();
+            final int color = color(pieceIndex, rotation, border.ordinal());
+            if (!supportedColors[(neighborCell * Piece.Border.count() + oppositeBorder) * colorSpan + color]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean removePiecesOfSingletonPositions() {
+        boolean changed = false;
+        for (int cell = 0; cell < cellCount(); cell++) {
+            final int singlePiece = singlePieceAt(cell);
+            if (singlePiece < 0) {
+                continue;
+            }
+            for (int otherCell = 0; otherCell < cellCount(); otherCell++) {
+                if (otherCell == cell) {
+                    continue;
+                }
+                for (int rotation = 0; rotation < Piece.Rotation.count(); rotation++) {
+                    final int index = index(otherCell, singlePiece, rotation);
+                    if (possible[index]) {
+                        remove(index);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the only piece possible at the given cell.
+     *
+     * @param cell the cell
+     * @return the only piece possible at the given cell, or -1 if there are zero or several possible pieces
+     */
+    private int singlePieceAt(final int cell) {
+        int singlePiece = -1;
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            for (int rotation = 0; rotation < Piece.Rotation.count(); rotation++) {
+                if (possible[index(cell, pieceIndex, rotation)]) {
+                    if (singlePiece >= 0 && singlePiece != pieceIndex) {
+                        return -1;
+                    }
+                    singlePiece = pieceIndex;
+                }
+            }
+        }
+        return singlePiece;
+    }
+
+    /**
+     * Returns the cell adjacent to the given position on the given border.
+     *
+     * @return the neighbor cell, or -1 if the given border is on the outer frame of the board
+     */
+    private int neighborCell(final int rowIndex, final int columnIndex, final Piece.Border border) {
+        final int neighborRowIndex = switch (border) {
+            case NORTH -> rowIndex - 1;
+            case SOUTH -> rowIndex + 1;
+            case EAST, WEST -> rowIndex;
+        };
+        final int neighborColumnIndex = switch (border) {
+            case EAST -> columnIndex + 1;
+            case WEST -> columnIndex - 1;
+            case NORTH, SOUTH -> columnIndex;
+        };
+        if (neighborRowIndex < 0 || neighborRowIndex >= game.rowCount()
+                || neighborColumnIndex < 0 || neighborColumnIndex >= game.columnCount()) {
+            return -1;
+        }
+        return neighborRowIndex * game.columnCount() + neighborColumnIndex;
+    }
+
+    private int color(final int pieceIndex, final int rotation, final int border) {
+        return colors[(pieceIndex * Piece.Rotation.count() + rotation) * Piece.Border.count() + border];
+    }
+
+    private int cellCount() {
+        return game.rowCount() * game.columnCount();
+    }
+
+    private int index(final int cell, final int pieceIndex, final int rotation) {
+        return (cell * game.piecesCount() + pieceIndex) * Piece.Rotation.count() + rotation;
+    }
+
+    private void add(final int index) {
+        possible[index] = true;
+        size++;
+    }
+
+    private void remove(final int index) {
+        possible[index] = false;
+        size--;
+    }
+}
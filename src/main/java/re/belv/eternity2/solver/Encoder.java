@@ -0,0 +1,18 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.ContradictionException;
+
+/**
+ * Writes the encoding of a game to a sink.
+ */
+@FunctionalInterface
+interface Encoder {
+
+    /**
+     * Writes the encoding of the game to the given sink.
+     *
+     * @param sink the sink, whose variables are already declared
+     * @throws ContradictionException if the problem is trivially unsatisfiable
+     */
+    void encodeTo(ConstraintSink sink) throws ContradictionException;
+}
@@ -0,0 +1,158 @@
+package re.belv.eternity2.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * A cache of loaded solvers, keyed by a fingerprint of the pieces.
+ * <p>
+ * A cached solver is a {@link Session} holding the encoding of a game without its initial board, i.e. all the
+ * constraints but the fixed pieces. The fixed pieces of each game are then placed on the session, i.e. passed as
+ * assumptions to the solver, so that games differing only by their initial board share the same solver.
+ * <p>
+ * Solvers are kept in memory up to a maximum number, the least recently used one being dropped first. Encodings can
+ * also be stored in a directory, in DIMACS format, so that they survive the solver.
+ */
+final class EncodingCache {
+
+    /** The version of the fingerprint, to change when the encoding changes. */
+    private static final int FINGERPRINT_VERSION = 2;
+
+    /** The cached solvers, by fingerprint, in access order. */
+    private final Map<String, Session> sessions;
+
+    /** The directory where encodings are stored, if any. */
+    private final Optional<Path> directory;
+
+    /** The factory of solvers. */
+    private final Supplier<Backend> newBackend;
+
+    /** The solver configuration, giving the color encoding and the listener of the solver progress. */
+    private final Configuration configuration;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param capacity      the maximum number of solvers kept in memory
+     * @param directory     the directory where encodings are stored, if any
+     * @param newBackend    the factory of solvers
+     * @param configuration the solver configuration, giving the color encoding and the listener of the solver progress
+     */
+    EncodingCache(final int capacity, final Optional<Path> directory, final Supplier<Backend> newBackend,
+                  final Configuration configuration) {
+        sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Session> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                eldest.getValue().close();
+                return true;
+            }
+        };
+        this.directory = directory;
+        this.newBackend = newBackend;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Enumerates the solutions of the given game, using the cached solver of its pieces.
+     * <p>
+     * The iterator returned on previous call becomes invalid if the new game has the same pieces.
+     *
+     * @param game the game
+     * @return the solutions of the given game
+     */
+    Iterator<PackedBoard> solutionsOf(final Game game) {
+        final var emptyBoard = new Piece[game.rowCount()][game.columnCount()];
+        final var unfixedGame = new Game(piecesOf(game), emptyBoard, game.frameColor());
+        final String fingerprint = fingerprintOf(unfixedGame, configuration.colorEncoding());
+        Session session = sessions.get(fingerprint);
+        if (session == null) {
+            try {
+                session = Session.load(unfixedGame, newBackend.get(),
+                        directory.map(dir -> dir.resolve(fingerprint + ".cnf")), configuration);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sessions.put(fingerprint, session);
+        }
+        session.clear();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final Optional<Piece> fixedPiece = game.initialBoardPiece(rowIndex, columnIndex);
+                if (fixedPiece.isPresent()) {
+                    session.place(rowIndex, columnIndex, fixedPiece.get());
+                }
+            }
+        }
+        return session.solutions();
+    }
+
+    /**
+     * Returns the number of solvers in memory.
+     *
+     * @return the number of solvers in memory
+     */
+    int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Drops the solvers in memory, releasing their resources.
+     */
+    void close() {
+        sessions.values().forEach(Session::close);
+        sessions.clear();
+    }
+
+    private static Piece[] piecesOf(final Game game) {
+        final var pieces = new Piece[game.piecesCount()];
+        for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+            pieces[pieceIndex] = game.piece(pieceIndex);
+        }
+        return pieces;
+    }
+
+    /**
+     * Returns the fingerprint of the given game, i.e. a digest of its dimensions, frame color and pieces, and of the
+     * color encoding.
+     * <p>
+     * Two games with the same fingerprint have the same encoding, with the same variable numbering.
+     *
+     * @param game          the game
+     * @param colorEncoding how the colors are encoded
+     * @return the fingerprint, as a hexadecimal string
+     */
+    static String fingerprintOf(final Game game, final Configuration.ColorEncoding colorEncoding) {
+        final var description = new StringBuilder()
+                .append(FINGERPRINT_VERSION).append(';')
+                .append(colorEncoding).append(';')
+                .append(game.rowCount()).append('x').append(game.columnCount()).append(';')
+                .append(game.frameColor().isPresent() ? game.frameColor().getAsInt() : "-").append(';');
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            final Piece piece = game.piece(pieceIndex);
+            description.append(piece.id()).append(':')
+                    .append(piece.northColor()).append(',').append(piece.eastColor()).append(',')
+                    .append(piece.southColor()).append(',').append(piece.westColor()).append(';');
+        }
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(description.toString().getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (final NoSuchAlgorithmException e) {
+            // SHA-256 is available on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ConstraintSink} recording the duration and the number of constraints of each phase of an encoding,
+ * before passing the constraints to the actual sink.
+ * <p>
+ * A phase lasts from its {@link #startPhase(String) start} to the start of the next phase, or to the
+ * {@link #finish() end} of the encoding.
+ */
+final class EncodingRecorder implements ConstraintSink {
+
+    /** The actual sink. */
+    private final ConstraintSink sink;
+
+    /** The finished phases. */
+    private final List<EncodingStatistics.Phase> phases;
+
+    /** When the encoding started, in nanoseconds. */
+    private final long startTime;
+
+    /** The name of the current phase, {@code null} if none. */
+    private String phaseName;
+
+    /** When the current phase started, in nanoseconds. */
+    private long phaseStartTime;
+
+    /** The number of constraints when the current phase started. */
+    private long phaseStartConstraintCount;
+
+    /** The number of constraints added. */
+    private long constraintCount;
+
+    /**
+     * Constructs an instance, starting the encoding.
+     *
+     * @param sink the actual sink
+     */
+    EncodingRecorder(final ConstraintSink sink) {
+        this.sink = sink;
+        phases = new ArrayList<>();
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any, and starts a new one.
+     *
+     * @param name the name of the new phase
+     */
+    @Override
+    public void startPhase(final String name) {
+        endPhase();
+        phaseName = name;
+        phaseStartTime = System.nanoTime();
+        phaseStartConstraintCount = constraintCount;
+    }
+
+    /**
+     * Ends the current phase, if any, and the encoding.
+     *
+     * @return the statistics of the encoding
+     */
+    EncodingStatistics finish() {
+        endPhase();
+        return new EncodingStatistics(phases, sink.variableCount(), constraintCount,
+                Duration.ofNanos(System.nanoTime() - startTime));
+    }
+
+    private void endPhase() {
+        if (phaseName != null) {
+            phases.add(new EncodingStatistics.Phase(phaseName, Duration.ofNanos(System.nanoTime() - phaseStartTime),
+                    constraintCount - phaseStartConstraintCount));
+            phaseName = null;
+        }
+    }
+
+    @Override
+    public void newVar(final int count) {
+        sink.newVar(count);
+    }
+
+    @Override
+    public void expectConstraints(final int count) {
+        sink.expectConstraints(count);
+    }
+
+    @Override
+    public int variableCount() {
+        return sink.variableCount();
+    }
+
+    @Override
+    public void addClause(final IVecInt literals) throws ContradictionException {
+        constraintCount++;
+        sink.addClause(literals);
+    }
+
+    @Override
+    public void addExactly(final IVecInt literals, final int degree) throws ContradictionException {
+        constraintCount++;
+        sink.addExactly(literals, degree);
+    }
+
+    @Override
+    public void addAtMost(final IVecInt literals, final int degree) throws ContradictionException {
+        constraintCount++;
+        sink.addAtMost(literals, degree);
+    }
+}
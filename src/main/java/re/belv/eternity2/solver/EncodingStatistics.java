@@ -0,0 +1,38 @@
+package re.belv.eternity2.solver;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The statistics of the encoding of a game into a SAT solver.
+ *
+ * @param phases          the encoding phases, in execution order
+ * @param variableCount   the number of variables, including the auxiliary variables introduced by the solver if any
+ * @param constraintCount the number of constraints, i.e. clauses and cardinality constraints
+ * @param duration        the total encoding duration
+ */
+public record EncodingStatistics(List<Phase> phases, int variableCount, long constraintCount, Duration duration) {
+
+    /**
+     * An encoding phase, i.e. a kind of constraints.
+     *
+     * @param name            the phase name, e.g. {@code exactlyOnePiecePerPosition}
+     * @param duration        the phase duration
+     * @param constraintCount the number of constraints added during the phase
+     */
+    public record Phase(String name, Duration duration, long constraintCount) {
+        // Nothing to add
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param phases          the encoding phases, in execution order
+     * @param variableCount   the number of variables
+     * @param constraintCount the number of constraints
+     * @param duration        the total encoding duration
+     */
+    public EncodingStatistics {
+        phases = List.copyOf(phases);
+    }
+}
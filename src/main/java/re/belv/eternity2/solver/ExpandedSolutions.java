@@ -0,0 +1,50 @@
+package re.belv.eternity2.solver;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+/**
+ * An iterator of solutions which expands the canonical solutions of another iterator to all the solutions they
+ * represent.
+ */
+final class ExpandedSolutions implements SolutionIterator {
+
+    /** The canonical solutions. */
+    private final Iterator<PackedBoard> canonicalSolutions;
+
+    /** The symmetries used to expand the canonical solutions. */
+    private final Symmetries symmetries;
+
+    /** The expanded solutions not returned yet. */
+    private final Queue<PackedBoard> pendingSolutions;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param canonicalSolutions the canonical solutions
+     * @param symmetries         the symmetries used to expand the canonical solutions
+     */
+    ExpandedSolutions(final Iterator<PackedBoard> canonicalSolutions, final Symmetries symmetries) {
+        this.canonicalSolutions = canonicalSolutions;
+        this.symmetries = symmetries;
+        pendingSolutions = new ArrayDeque<>();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !pendingSolutions.isEmpty() || canonicalSolutions.hasNext();
+    }
+
+    @Override
+    public PackedBoard next() {
+        if (pendingSolutions.isEmpty()) {
+            if (!canonicalSolutions.hasNext()) {
+                throw new NoSuchElementException("No more solution.");
+            }
+            pendingSolutions.addAll(symmetries.expand(canonicalSolutions.next()));
+        }
+        return pendingSolutions.remove();
+    }
+}
@@ -0,0 +1,243 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link Backend} running an external SAT solver process, e.g.
+ * <a href="https://github.com/arminbiere/kissat">kissat</a> or <a href="https://github.com/arminbiere/cadical">CaDiCaL</a>.
+ * <p>
+ * The external solver must read a DIMACS CNF problem on its standard input and write its result on its standard output
+ * following the SAT competition format, i.e. a {@code s SATISFIABLE} or {@code s UNSATISFIABLE} line followed by the
+ * model on {@code v} lines.
+ * <p>
+ * Clauses are written in DIMACS format to a temporary file as they are added. Each search starts a new solver process
+ * and streams this file, followed by the assumptions as unit clauses, to its standard input. The file is deleted when
+ * the backend is {@link #close() closed}.
+ * <p>
+ * Clauses are written by a {@link DimacsWriter}, which encodes cardinality constraints with a sequential counter.
+ */
+final class ExternalBackend implements Backend {
+
+    /** The command starting the external solver. */
+    private final List<String> command;
+
+    /** The file containing the clauses, without DIMACS header. */
+    private Path clausesFile;
+
+    /** The channel of the clauses file. */
+    private FileChannel clausesChannel;
+
+    /** The writer of the clauses, including the auxiliary variables of cardinality constraints. */
+    private DimacsWriter clauses;
+
+    /** The running solver process, if any. */
+    private volatile Process process;
+
+    /** Whether the current or next search has been interrupted, until the search ends or the backend is reset. */
+    private volatile boolean interrupted;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param command the command starting the external solver, e.g. {@code ["kissat", "-q"]}
+     */
+    ExternalBackend(final List<String> command) {
+        this.command = List.copyOf(command);
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        interrupted = false;
+        if (clausesChannel != null) {
+            close();
+        }
+        try {
+            clausesFile = Files.createTempFile("eternity2-", ".cnf");
+            clausesChannel = FileChannel.open(clausesFile, StandardOpenOption.WRITE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        clauses = new DimacsWriter(clausesChannel);
+    }
+
+    @Override
+    public void newVar(final int count) {
+        clauses.newVar(count);
+    }
+
+    @Override
+    public void expectConstraints(final int count) {
+        // Clauses are streamed to a file
+    }
+
+    @Override
+    public int variableCount() {
+        return clauses.variableCount();
+    }
+
+    @Override
+    public void addClause(final IVecInt literals) {
+        clauses.addClause(literals);
+    }
+
+    @Override
+    public void addExactly(final IVecInt literals, final int degree) throws ContradictionException {
+        clauses.addExactly(literals, degree);
+    }
+
+    @Override
+    public void addAtMost(final IVecInt literals, final int degree) throws ContradictionException {
+        clauses.addAtMost(literals, degree);
+    }
+
+    @Override
+    public int[] findModel(final IVecInt assumptions) throws TimeoutException {
+        final Path outputFile;
+        try {
+            clauses.flush();
+            outputFile = Files.createTempFile("eternity2-", ".out");
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            process = new ProcessBuilder(command)
+                    .redirectOutput(outputFile.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (interrupted) {
+                // Interrupted before the process was visible to interrupt()
+                process.destroy();
+            }
+            writeProblemTo(process.getOutputStream(), assumptions);
+            process.waitFor();
+            return readModelFrom(outputFile);
+        } catch (final IOException e) {
+            if (interrupted) {
+                throw interruption();
+            }
+            throw new UncheckedIOException(e);
+        } catch (final InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw interruption();
+        } finally {
+            process = null;
+            try {
+                Files.deleteIfExists(outputFile);
+            } catch (final IOException e) {
+                // Not a big deal, it is a temporary file
+            }
+        }
+    }
+
+    /**
+     * Consumes the interruption of the current search.
+     *
+     * @return the exception to throw
+     */
+    private TimeoutException interruption() {
+        interrupted = false;
+        return new TimeoutException("External solver interrupted");
+    }
+
+    private void writeProblemTo(final OutputStream processInput, final IVecInt assumptions) throws IOException {
+        try (final var writer = new BufferedWriter(new OutputStreamWriter(processInput, StandardCharsets.US_ASCII));
+             final InputStream clausesInput = Files.newInputStream(clausesFile)) {
+            final long clauseCount = clauses.clauseCount() + assumptions.size();
+            writer.write("p cnf " + clauses.variableCount() + " " + clauseCount + "\n");
+            writer.flush();
+            clausesInput.transferTo(processInput);
+            for (int i = 0; i < assumptions.size(); i++) {
+                writer.write(assumptions.get(i) + " 0\n");
+            }
+        }
+    }
+
+    private int[] readModelFrom(final Path outputFile) throws IOException, TimeoutException {
+        final int variableCount = clauses.variableCount();
+        final var model = new int[variableCount];
+        for (int variable = 1; variable <= variableCount; variable++) {
+            model[variable - 1] = -variable;
+        }
+        String status = null;
+        try (final BufferedReader reader = Files.newBufferedReader(outputFile, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("s ")) {
+                    status = line.substring(2).trim();
+                } else if (line.startsWith("v ")) {
+                    for (final String token : line.substring(2).trim().split("\\s+")) {
+                        final int literal = Integer.parseInt(token);
+                        if (literal != 0 && Math.abs(literal) <= variableCount) {
+                            model[Math.abs(literal) - 1] = literal;
+                        }
+                    }
+                }
+            }
+        }
+        if ("SATISFIABLE".equals(status) || "UNSATISFIABLE".equals(status)) {
+            // An interruption arriving after the result was printed is too late for this search, not meant for the next
+            interrupted = false;
+            return "SATISFIABLE".equals(status) ? model : null;
+        }
+        if (interrupted) {
+            throw interruption();
+        }
+        throw new IllegalStateException("Unexpected external solver result: " + status);
+    }
+
+    @Override
+    public void interrupt() {
+        interrupted = true;
+        final Process runningProcess = process;
+        if (runningProcess != null) {
+            runningProcess.destroy();
+        }
+    }
+
+    /**
+     * Not supported: The assignment of the external solver is not visible until it prints its model.
+     *
+     * @return {@code null}
+     */
+    @Override
+    public int[] currentAssignment() {
+        return null;
+    }
+
+    /**
+     * Closes and deletes the file containing the clauses.
+     */
+    @Override
+    public void close() {
+        try {
+            clausesChannel.close();
+            Files.deleteIfExists(clausesFile);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Number> statistics() {
+        return Map.of("variables", clauses.variableCount(), "clauses", clauses.clauseCount());
+    }
+}
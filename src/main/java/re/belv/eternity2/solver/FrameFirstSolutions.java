@@ -0,0 +1,344 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * An iterator of solutions found frame first: The outer frame of the board is solved first, then the interior of each
+ * frame solution.
+ * <p>
+ * The frame and the interior are encoded as two separate problems, each one restricted to the placements of its
+ * {@link Domain#restrictedTo(boolean[]) region} of the board: Both are much smaller than the encoding of the whole
+ * game. A single backend enumerates the frames. Each worker owns a backend on which it writes the interior problem
+ * once, then takes the frames one by one and enumerates the interiors matching each of them. The colors the frame
+ * shows to the interior and the pieces it uses are passed as assumptions, and the blocking clauses are guarded by a
+ * selector retired once the frame is done, as in a {@link Session}: What a worker learns from a frame is kept for
+ * the next ones, so that frames whose interior is infeasible are rejected faster and faster.
+ * <p>
+ * Solutions are handed over to the consumer through the bounded buffer of a {@link WorkerPool}: Workers wait when the
+ * buffer is full, so that the search does not run ahead of the consumer.
+ * <p>
+ * The statistics reported to the {@link SolverListener listener} are summed over the frame backend and all the
+ * workers. The sampled boards only show the interiors being built.
+ */
+final class FrameFirstSolutions implements SolutionIterator {
+
+    /** The number of solutions per worker which can be found ahead of the consumer. */
+    private static final int BUFFERED_SOLUTIONS_PER_WORKER = 16;
+
+    /** No assumption. */
+    private static final IVecInt NO_ASSUMPTIONS = new VecInt(0);
+
+    /** The game. */
+    private final Game game;
+
+    /** The variables of the frame problem. */
+    private final Variables frameVariables;
+
+    /** The variables of the interior problem, {@code null} if the board has no interior. */
+    private final Variables interiorVariables;
+
+    /** The backend enumerating the frames, also the lock guarding the frame enumeration. */
+    private final Backend frameBackend;
+
+    /** The listener of the encodings. */
+    private final SolverListener listener;
+
+    /** The workers, handing over the solutions found. */
+    private final WorkerPool<PackedBoard> workers;
+
+    /** Whether the frame problem has been written to its backend, guarded by the frame backend. */
+    private boolean frameEncoded;
+
+    /** Whether all the frames have been taken by the workers, guarded by the frame backend. */
+    private boolean framesExhausted;
+
+    /** The solution to return on call to {@link #next()}. */
+    private PackedBoard nextSolution;
+
+    /**
+     * Constructs an instance, immediately starting the workers.
+     *
+     * @param game          the game
+     * @param domain        the possible placements of the whole game, which shall be consistent
+     * @param newBackend    the factory of backends, called once for the frame and once per worker
+     * @param configuration the solver configuration, giving the color encoding, the number of workers and the
+     *                      listener of the search progress
+     */
+    FrameFirstSolutions(final Game game, final Domain domain, final Supplier<Backend> newBackend,
+                        final Configuration configuration) {
+        final int workerCount = configuration.enumerationWorkerCount();
+        this.game = game;
+        final boolean[] frame = frameRegion(game);
+        final var interior = new boolean[frame.length];
+        boolean hasInterior = false;
+        for (int position = 0; position < frame.length; position++) {
+            interior[position] = !frame[position];
+            hasInterior |= interior[position];
+        }
+        frameVariables = new Variables(game, domain.restrictedTo(frame), configuration.colorEncoding());
+        interiorVariables = hasInterior
+                ? new Variables(game, domain.restrictedTo(interior), configuration.colorEncoding())
+                : null;
+        listener = configuration.listener();
+        frameBackend = newBackend.get();
+        final List<Backend> workerBackends = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workerBackends.add(newBackend.get());
+        }
+        final BoardSampler boardSampler = hasInterior ? new BoardSampler(interiorVariables, workerBackends)
+                : new BoardSampler(frameVariables, List.of(frameBackend));
+        // Workers start once all the backends are created, since they read all of them to report statistics
+        workers = new WorkerPool<>(workerBackends, List.of(frameBackend), boardSampler, BUFFERED_SOLUTIONS_PER_WORKER,
+                configuration);
+        workers.start(this::work);
+    }
+
+    /**
+     * Returns the positions of the outer frame of the given game, i.e. of its first and last rows and columns.
+     *
+     * @param game the game
+     * @return whether each position belongs to the frame, in row-major order
+     */
+    static boolean[] frameRegion(final Game game) {
+        final var frame = new boolean[game.rowCount() * game.columnCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                frame[rowIndex * game.columnCount() + columnIndex] = rowIndex == 0 || rowIndex == game.rowCount() - 1
+                        || columnIndex == 0 || columnIndex == game.columnCount() - 1;
+            }
+        }
+        return frame;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextSolution() != null;
+    }
+
+    @Override
+    public PackedBoard next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        final PackedBoard solution = nextSolution;
+        nextSolution = null;
+        return solution;
+    }
+
+    /**
+     * Stops the workers.
+     * <p>
+     * The solutions not returned yet are lost. May be called from any thread: A consumer waiting for a solution is
+     * woken up and finds no more solution.
+     */
+    void stop() {
+        workers.stop();
+    }
+
+    private PackedBoard nextSolution() {
+        if (nextSolution == null) {
+            nextSolution = workers.take();
+        }
+        return nextSolution;
+    }
+
+    private void work(final Backend backend) throws InterruptedException, TimeoutException {
+        try {
+            int variableCount = interiorVariables == null ? 0 : encode(backend, interiorVariables);
+            PackedBoard frame;
+            while ((frame = nextFrame()) != null) {
+                if (interiorVariables == null) {
+                    workers.modelFound();
+                    workers.put(frame);
+                    continue;
+                }
+                final int selector = ++variableCount;
+                backend.newVar(variableCount);
+                enumerateInteriors(backend, frame, selector);
+                backend.addClause(new VecInt(new int[]{-selector}));
+            }
+        } catch (final ContradictionException e) {
+            // Interior is trivially unsatisfiable, nothing to enumerate
+        }
+    }
+
+    /**
+     * Writes the problem of the given variables to the given backend.
+     *
+     * @return the number of variables declared to the backend
+     */
+    private int encode(final Backend backend, final Variables variables) throws ContradictionException {
+        backend.reset();
+        backend.newVar(variables.count());
+        final var recorder = new EncodingRecorder(backend);
+        new Constraints(variables, game).addAllConstraintsTo(recorder);
+        listener.encoded(recorder.finish());
+        return Math.max(variables.count(), backend.variableCount());
+    }
+
+    /**
+     * Returns the next frame, the frame problem being encoded on first call.
+     *
+     * @return the next frame, {@code null} if there is none left
+     */
+    private PackedBoard nextFrame() throws TimeoutException {
+        synchronized (frameBackend) {
+            if (framesExhausted || workers.isStopped()) {
+                return null;
+            }
+            if (!frameEncoded) {
+                frameEncoded = true;
+                try {
+                    encode(frameBackend, frameVariables);
+                } catch (final ContradictionException e) {
+                    framesExhausted = true;
+                    return null;
+                }
+            }
+            final int[] model = frameBackend.findModel(NO_ASSUMPTIONS);
+            if (model == null) {
+                framesExhausted = true;
+                return null;
+            }
+            try {
+                frameBackend.addClause(frameVariables.blockingClauseOf(model));
+            } catch (final ContradictionException e) {
+                // This frame was the last one
+                framesExhausted = true;
+            }
+            return frameVariables.backToBoard(model);
+        }
+    }
+
+    /**
+     * Enumerates the interiors matching the given frame, passing the solutions to the consumer.
+     */
+    private void enumerateInteriors(final Backend backend, final PackedBoard frame, final int selector)
+            throws InterruptedException, TimeoutException {
+        final IVecInt assumptions = interiorAssumptions(frame);
+        assumptions.push(selector);
+        int[] model;
+        while (!workers.isStopped() && (model = backend.findModel(assumptions)) != null) {
+            workers.modelFound();
+            workers.put(merge(frame, interiorVariables.backToBoard(model)));
+            final IVecInt blockingClause = interiorVariables.blockingClauseOf(model);
+            blockingClause.push(-selector);
+            try {
+                backend.addClause(blockingClause);
+            } catch (final ContradictionException e) {
+                // Cannot happen: The selector is a fresh variable, only appearing negatively in the blocking clauses
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the literals restricting the interior to the given frame: The borders of the interior facing the frame
+     * must have the colors of the frame, and the pieces of the frame cannot be placed in the interior.
+     */
+    private IVecInt interiorAssumptions(final PackedBoard frame) {
+        final Domain interiorDomain = interiorVariables.domain();
+        final var assumptions = new VecInt();
+        final var framePieces = new boolean[game.piecesCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                if (!interiorDomain.covers(rowIndex, columnIndex)) {
+                    final int cell = frame.cell(rowIndex * game.columnCount() + columnIndex);
+                    framePieces[PackedBoard.pieceIndexOf(cell)] = true;
+                    continue;
+                }
+                for (final Piece.Border border : Piece.Border.VALUES) {
+                    final int neighborRowIndex = rowIndex + switch (border) {
+                        case NORTH -> -1;
+                        case SOUTH -> 1;
+                        default -> 0;
+                    };
+                    final int neighborColumnIndex = columnIndex + switch (border) {
+                        case WEST -> -1;
+                        case EAST -> 1;
+                        default -> 0;
+                    };
+                    if (interiorDomain.covers(neighborRowIndex, neighborColumnIndex)) {
+                        continue;
+                    }
+                    final int neighborCell = frame.cell(neighborRowIndex * game.columnCount() + neighborColumnIndex);
+                    final Piece.Border oppositeBorder = border.opposite();
+                    final int color = game.colorOf(PackedBoard.pieceIndexOf(neighborCell),
+                            PackedBoard.rotationOf(neighborCell), oppositeBorder);
+                    pushColorAssumptions(assumptions, rowIndex, columnIndex, border, color);
+                }
+            }
+        }
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            if (framePieces[pieceIndex] && !interiorDomain.confines(pieceIndex)) {
+                pushPlacementsOf(assumptions, pieceIndex);
+            }
+        }
+        return assumptions;
+    }
+
+    /**
+     * Pushes the literals giving the given color to the given border of the given interior position, according to
+     * the color encoding. The direct encoding has no color variable: The placements with another color on this border
+     * are excluded instead.
+     */
+    private void pushColorAssumptions(final VecInt assumptions, final int rowIndex, final int columnIndex,
+                                      final Piece.Border border, final int color) {
+        switch (interiorVariables.colorEncoding()) {
+            case BORDERS -> assumptions.push(interiorVariables.representingBorder(rowIndex, columnIndex, border, color));
+            case SHARED_EDGES ->
+                    assumptions.push(interiorVariables.representingEdge(game.edgeAt(rowIndex, columnIndex, border), color));
+            case LOG -> {
+                final int edge = game.edgeAt(rowIndex, columnIndex, border);
+                for (int bit = 0; bit < interiorVariables.colorBitCount(); bit++) {
+                    final int bitLit = interiorVariables.representingEdgeBit(edge, bit);
+                    assumptions.push(((color >> bit) & 1) == 1 ? bitLit : -bitLit);
+                }
+            }
+            case DIRECT -> {
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                        if (game.colorOf(pieceIndex, rotation, border) != color
+                                && interiorVariables.domain().contains(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            assumptions.push(-interiorVariables.representingPiece(rowIndex, columnIndex, pieceIndex,
+                                    rotation));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes the negation of all the interior placements of the given piece.
+     */
+    private void pushPlacementsOf(final VecInt assumptions, final int pieceIndex) {
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                for (final Piece.Rotation rotation : Piece.Rotation.VALUES) {
+                    if (interiorVariables.domain().contains(rowIndex, columnIndex, pieceIndex, rotation)) {
+                        assumptions.push(-interiorVariables.representingPiece(rowIndex, columnIndex, pieceIndex,
+                                rotation));
+                    }
+                }
+            }
+        }
+    }
+
+    private PackedBoard merge(final PackedBoard frame, final PackedBoard interior) {
+        final var cells = new int[game.rowCount() * game.columnCount()];
+        for (int position = 0; position < cells.length; position++) {
+            final int frameCell = frame.cell(position);
+            cells[position] = frameCell != PackedBoard.EMPTY ? frameCell : interior.cell(position);
+        }
+        return new PackedBoard(game, cells);
+    }
+}
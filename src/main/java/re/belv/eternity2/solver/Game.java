@@ -1,8 +1,11 @@
 package re.belv.eternity2.solver;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.stream.IntStream;
 
 /**
@@ -15,9 +18,11 @@ final class Game {
     private final int rowCount;
     private final int columnCount;
     private final int colorCount;
+    private final OptionalInt frameColor;
+    private final int[][][] rotatedColors;
 
     /**
-     * Constructs an instance.
+     * Constructs an instance, without frame color.
      *
      * @param pieces       the available pieces
      * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
@@ -25,27 +30,119 @@ final class Game {
      * @throws IllegalArgumentException if the number of pieces is inconsistent with the given row and column counts
      */
     Game(final Piece[] pieces, final Piece[][] initialBoard) {
-        this.pieces = Objects.requireNonNull(pieces);
-        this.initialBoard = Objects.requireNonNull(initialBoard);
+        this(pieces, initialBoard, OptionalInt.empty());
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param frameColor   the color that all the borders on the outer frame of the board must have, if any
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if the number of pieces is inconsistent with the given row and column counts
+     */
+    Game(final Piece[] pieces, final Piece[][] initialBoard, final OptionalInt frameColor) {
+        validate(pieces, initialBoard, frameColor);
+        this.pieces = pieces;
+        this.initialBoard = initialBoard;
+        this.frameColor = frameColor;
         rowCount = initialBoard.length;
         columnCount = rowCount == 0 ? 0 : initialBoard[0].length;
-        if (rowCount * columnCount != pieces.length) {
-            throw new IllegalArgumentException("Inconsistent number of pieces: " + pieces.length + " != " + rowCount + " * " + columnCount);
-        }
         colorCount = (int) Arrays.stream(pieces)
                 .flatMapToInt(piece -> IntStream.of(piece.northColor(), piece.eastColor(), piece.southColor(), piece.westColor()))
                 .distinct()
                 .count();
+        rotatedColors = new int[pieces.length][Piece.Rotation.count()][Piece.Border.count()];
+        for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+            for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                final Piece rotatedPiece = pieces[pieceIndex].rotate(rotation);
+                for (final Piece.Border border : Piece.Border.all()) {
+                    rotatedColors[pieceIndex][rotation.ordinal()][border.ordinal()] = rotatedPiece.colorTo(border);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the given arguments make a valid game, without building it.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board
+     * @param frameColor   the color that all the borders on the outer frame of the board must have, if any
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if the number of pieces is inconsistent with the given row and column counts
+     */
+    static void validate(final Piece[] pieces, final Piece[][] initialBoard, final OptionalInt frameColor) {
+        Objects.requireNonNull(pieces);
+        Objects.requireNonNull(initialBoard);
+        Objects.requireNonNull(frameColor);
+        final int rowCount = initialBoard.length;
+        final int columnCount = rowCount == 0 ? 0 : initialBoard[0].length;
+        if (rowCount * columnCount != pieces.length) {
+            throw new IllegalArgumentException("Inconsistent number of pieces: " + pieces.length + " != " + rowCount + " * " + columnCount);
+        }
     }
 
     Piece piece(final int pieceNumber) {
         return pieces[pieceNumber];
     }
 
+    /**
+     * Returns the color of the given border of the given piece, once rotated.
+     * <p>
+     * Colors are looked up in a table precomputed for all pieces and rotations, so unlike
+     * {@code piece(pieceIndex).rotate(rotation).colorTo(border)}, this method does not allocate anything.
+     *
+     * @param pieceIndex the piece index
+     * @param rotation   the piece rotation
+     * @param border     the border of the rotated piece
+     * @return the color of the given border
+     */
+    int colorOf(final int pieceIndex, final Piece.Rotation rotation, final Piece.Border border) {
+        return rotatedColors[pieceIndex][rotation.ordinal()][border.ordinal()];
+    }
+
     Optional<Piece> initialBoardPiece(final int rowIndex, final int columnIndex) {
         return Optional.ofNullable(initialBoard[rowIndex][columnIndex]);
     }
 
+    /**
+     * Returns whether at least one piece is fixed on the initial board.
+     *
+     * @return {@code true} if at least one piece is fixed on the initial board
+     */
+    boolean hasInitialBoardPieces() {
+        return Arrays.stream(initialBoard).flatMap(Arrays::stream).anyMatch(Objects::nonNull);
+    }
+
+    /**
+     * Returns the groups of identical pieces, i.e. of pieces which have the same colors up to a rotation.
+     *
+     * @return the groups of identical pieces; Each group contains at least two piece indices, in ascending order
+     */
+    List<List<Integer>> identicalPieces() {
+        final List<List<Integer>> groups = new ArrayList<>();
+        final var grouped = new boolean[pieces.length];
+        for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+            if (grouped[pieceIndex]) {
+                continue;
+            }
+            final List<Integer> group = new ArrayList<>();
+            group.add(pieceIndex);
+            for (int otherPieceIndex = pieceIndex + 1; otherPieceIndex < pieces.length; otherPieceIndex++) {
+                if (!grouped[otherPieceIndex] && pieces[pieceIndex].isIdenticalTo(pieces[otherPieceIndex])) {
+                    grouped[otherPieceIndex] = true;
+                    group.add(otherPieceIndex);
+                }
+            }
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
     int rowCount() {
         return rowCount;
     }
@@ -65,4 +162,43 @@ final class Game {
     int colorCount() {
         return colorCount;
     }
+
+    /**
+     * Returns the number of edges between two adjacent positions.
+     *
+     * @return the number of edges between two adjacent positions
+     */
+    int edgeCount() {
+        return rowCount * (columnCount - 1) + (rowCount - 1) * columnCount;
+    }
+
+    /**
+     * Returns the edge at the given border of the given position.
+     * <p>
+     * Edges are numbered from 0, east-west edges first, then north-south edges, both in row-major order of their
+     * western or northern position.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @param border      the border
+     * @return the edge shared with the neighbor at the given border, -1 if the border is on the outer frame
+     */
+    int edgeAt(final int rowIndex, final int columnIndex, final Piece.Border border) {
+        final int eastWestEdgeCount = rowCount * (columnCount - 1);
+        return switch (border) {
+            case EAST -> columnIndex < columnCount - 1 ? rowIndex * (columnCount - 1) + columnIndex : -1;
+            case WEST -> columnIndex > 0 ? rowIndex * (columnCount - 1) + columnIndex - 1 : -1;
+            case SOUTH -> rowIndex < rowCount - 1 ? eastWestEdgeCount + rowIndex * columnCount + columnIndex : -1;
+            case NORTH -> rowIndex > 0 ? eastWestEdgeCount + (rowIndex - 1) * columnCount + columnIndex : -1;
+        };
+    }
+
+    /**
+     * Returns the color that all the borders on the outer frame of the board must have.
+     *
+     * @return the frame color, or an empty value if the frame borders may have any color
+     */
+    OptionalInt frameColor() {
+        return frameColor;
+    }
 }
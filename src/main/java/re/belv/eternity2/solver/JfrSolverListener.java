@@ -0,0 +1,216 @@
+package re.belv.eternity2.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A {@link SolverListener} recording the solver progress as <a href="https://openjdk.org/jeps/328">JDK Flight
+ * Recorder</a> events, so that solves can be profiled with standard tools, e.g. JDK Mission Control.
+ * <p>
+ * Events are committed only while a recording enables them, e.g. when the JVM is started with
+ * {@code -XX:StartFlightRecording}. Since the statistics are reported once measured, events are instantaneous: Their
+ * durations are fields. They belong to the {@code Eternity II} category:
+ * <ul>
+ *     <li>{@code re.belv.eternity2.EncodingPhase}: an encoding phase, i.e. a kind of constraints;</li>
+ *     <li>{@code re.belv.eternity2.Encoding}: an encoding, with its variable and constraint counts;</li>
+ *     <li>{@code re.belv.eternity2.SearchSample}: a periodic sample of the search statistics;</li>
+ *     <li>{@code re.belv.eternity2.BoardSample}: a periodic sample of the current and best boards, summed up by
+ *     their numbers of placed pieces and matched edges;</li>
+ *     <li>{@code re.belv.eternity2.ModelFound}: a model found, with the search statistics.</li>
+ * </ul>
+ * <p>
+ * Example of usage:
+ * <pre>{@code
+ * final var solver = new Solver(Configuration.defaults().withListener(new JfrSolverListener()));
+ * }</pre>
+ */
+public final class JfrSolverListener implements SolverListener {
+
+    /**
+     * Creates an instance.
+     */
+    public JfrSolverListener() {
+        // Nothing to initialize
+    }
+
+    @Override
+    public void encoded(final EncodingStatistics statistics) {
+        for (final EncodingStatistics.Phase phase : statistics.phases()) {
+            final var event = new EncodingPhaseEvent();
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.phaseDuration = phase.duration().toNanos();
+                event.constraintCount = phase.constraintCount();
+                event.commit();
+            }
+        }
+        final var event = new EncodingEvent();
+        if (event.shouldCommit()) {
+            event.encodingDuration = statistics.duration().toNanos();
+            event.variableCount = statistics.variableCount();
+            event.constraintCount = statistics.constraintCount();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void searchSampled(final SearchStatistics statistics) {
+        final var event = new SearchSampleEvent();
+        if (event.shouldCommit()) {
+            event.set(statistics);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void boardSampled(final BoardSample sample) {
+        final var event = new BoardSampleEvent();
+        if (event.shouldCommit()) {
+            event.elapsed = sample.elapsed().toNanos();
+            event.placedPieceCount = sample.current().placedPieceCount();
+            event.matchedEdgeCount = sample.current().matchedEdgeCount();
+            event.bestPlacedPieceCount = sample.best().placedPieceCount();
+            event.bestMatchedEdgeCount = sample.best().matchedEdgeCount();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void modelFound(final SearchStatistics statistics) {
+        final var event = new ModelFoundEvent();
+        if (event.shouldCommit()) {
+            event.set(statistics);
+            event.commit();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JfrSolverListener";
+    }
+
+    @Name("re.belv.eternity2.EncodingPhase")
+    @Label("Encoding Phase")
+    @Description("A kind of constraints added to the SAT solver")
+    @Category("Eternity II")
+    @StackTrace(false)
+    static final class EncodingPhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Phase Duration")
+        @Timespan
+        long phaseDuration;
+
+        @Label("Constraints")
+        long constraintCount;
+    }
+
+    @Name("re.belv.eternity2.Encoding")
+    @Label("Encoding")
+    @Description("A game encoded into a SAT solver")
+    @Category("Eternity II")
+    @StackTrace(false)
+    static final class EncodingEvent extends Event {
+
+        @Label("Encoding Duration")
+        @Timespan
+        long encodingDuration;
+
+        @Label("Variables")
+        int variableCount;
+
+        @Label("Constraints")
+        long constraintCount;
+    }
+
+    /**
+     * The fields common to the search events.
+     */
+    abstract static class SearchEvent extends Event {
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+
+        @Label("Models")
+        long modelCount;
+
+        @Label("Models per Second")
+        double modelsPerSecond;
+
+        @Label("Conflicts")
+        long conflicts;
+
+        @Label("Decisions")
+        long decisions;
+
+        @Label("Propagations")
+        long propagations;
+
+        @Label("Restarts")
+        long restarts;
+
+        @Label("Learned Clauses")
+        long learnedClauses;
+
+        final void set(final SearchStatistics statistics) {
+            elapsed = statistics.elapsed().toNanos();
+            modelCount = statistics.modelCount();
+            modelsPerSecond = statistics.modelsPerSecond();
+            conflicts = statistics.conflicts();
+            decisions = statistics.decisions();
+            propagations = statistics.propagations();
+            restarts = statistics.restarts();
+            learnedClauses = statistics.learnedClauses();
+        }
+    }
+
+    @Name("re.belv.eternity2.SearchSample")
+    @Label("Search Sample")
+    @Description("A periodic sample of the statistics of a search")
+    @Category("Eternity II")
+    @StackTrace(false)
+    static final class SearchSampleEvent extends SearchEvent {
+        // Fields inherited
+    }
+
+    @Name("re.belv.eternity2.BoardSample")
+    @Label("Board Sample")
+    @Description("A periodic sample of the board being built by a search")
+    @Category("Eternity II")
+    @StackTrace(false)
+    static final class BoardSampleEvent extends Event {
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+
+        @Label("Placed Pieces")
+        int placedPieceCount;
+
+        @Label("Matched Edges")
+        int matchedEdgeCount;
+
+        @Label("Best Placed Pieces")
+        int bestPlacedPieceCount;
+
+        @Label("Best Matched Edges")
+        int bestMatchedEdgeCount;
+    }
+
+    @Name("re.belv.eternity2.ModelFound")
+    @Label("Model Found")
+    @Description("A model found by a search")
+    @Category("Eternity II")
+    @StackTrace(false)
+    static final class ModelFoundEvent extends SearchEvent {
+        // Fields inherited
+    }
+}
@@ -0,0 +1,191 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ConstraintSink} retaining nothing, which estimates the memory the constraints it receives would take in a Sat4j
+ * solver, by constraint family.
+ * <p>
+ * A family lasts from its {@link #startPhase(String) start} to the start of the next family, or to the
+ * {@link #finish end} of the encoding. Exactly-one and at-most-one constraints are encoded beforehand if the
+ * cardinality encoding is not {@link Configuration.CardinalityEncoding#NATIVE native}, so that the estimate covers
+ * the clauses actually passed to the solver.
+ * <p>
+ * The costs below were measured on the Sat4j light solver, on a 64-bit JVM with compressed references: They include
+ * the constraint objects, their literals and their watches.
+ */
+final class MemoryEstimator implements ConstraintSink {
+
+    /** The estimated number of bytes per variable. */
+    static final long BYTES_PER_VARIABLE = 28;
+
+    /** The estimated number of bytes per clause, without its literals. */
+    static final long BYTES_PER_CLAUSE = 128;
+
+    /** The estimated number of bytes per literal of a clause. */
+    static final long BYTES_PER_CLAUSE_LITERAL = 8;
+
+    /** The estimated number of bytes per cardinality constraint, without its literals. */
+    static final long BYTES_PER_CARDINALITY = 112;
+
+    /** The estimated number of bytes per literal of a cardinality constraint. */
+    static final long BYTES_PER_CARDINALITY_LITERAL = 56;
+
+    /** Where the constraints are counted. */
+    private final ConstraintSink sink;
+
+    /** Where the cardinality constraints go, i.e. the sink, possibly through a {@link CardinalityEncoder}. */
+    private final ConstraintSink cardinalitySink;
+
+    /** The finished families. */
+    private final List<MemoryReport.Family> families;
+
+    /** The name of the current family, {@code null} if none. */
+    private String familyName;
+
+    /** The number of constraints when the current family started. */
+    private long familyStartConstraintCount;
+
+    /** The number of literals when the current family started. */
+    private long familyStartLiteralCount;
+
+    /** The estimated number of bytes when the current family started. */
+    private long familyStartBytes;
+
+    /** The number of variables, including the auxiliary variables of the cardinality encoding. */
+    private int variableCount;
+
+    /** The number of constraints. */
+    private long constraintCount;
+
+    /** The number of literals of the constraints. */
+    private long literalCount;
+
+    /** The estimated number of bytes of the constraints. */
+    private long constraintBytes;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param cardinalityEncoding how the exactly-one and at-most-one constraints are encoded
+     */
+    MemoryEstimator(final Configuration.CardinalityEncoding cardinalityEncoding) {
+        sink = new Sink();
+        cardinalitySink = cardinalityEncoding == Configuration.CardinalityEncoding.NATIVE ? sink
+                : new CardinalityEncoder(sink, cardinalityEncoding);
+        families = new ArrayList<>();
+    }
+
+    /**
+     * Ends the current family, if any, and starts a new one.
+     *
+     * @param name the name of the new family
+     */
+    @Override
+    public void startPhase(final String name) {
+        endFamily();
+        familyName = name;
+        familyStartConstraintCount = constraintCount;
+        familyStartLiteralCount = literalCount;
+        familyStartBytes = constraintBytes;
+    }
+
+    /**
+     * Ends the current family, if any, and the encoding.
+     *
+     * @param colorEncoding the color encoding of the variables
+     * @param solverCount   the number of solvers holding their own copy of the problem
+     * @return the memory report
+     */
+    MemoryReport finish(final Configuration.ColorEncoding colorEncoding, final int solverCount) {
+        endFamily();
+        final long bytesPerSolver = variableCount * BYTES_PER_VARIABLE + constraintBytes;
+        return new MemoryReport(colorEncoding, variableCount, families, solverCount, bytesPerSolver * solverCount);
+    }
+
+    private void endFamily() {
+        if (familyName != null) {
+            families.add(new MemoryReport.Family(familyName, constraintCount - familyStartConstraintCount,
+                    literalCount - familyStartLiteralCount, constraintBytes - familyStartBytes));
+            familyName = null;
+        }
+    }
+
+    @Override
+    public void newVar(final int count) {
+        sink.newVar(count);
+    }
+
+    @Override
+    public int variableCount() {
+        return variableCount;
+    }
+
+    @Override
+    public void expectConstraints(final int count) {
+        // Nothing to allocate
+    }
+
+    @Override
+    public void addClause(final IVecInt literals) throws ContradictionException {
+        sink.addClause(literals);
+    }
+
+    @Override
+    public void addExactly(final IVecInt literals, final int degree) throws ContradictionException {
+        cardinalitySink.addExactly(literals, degree);
+    }
+
+    @Override
+    public void addAtMost(final IVecInt literals, final int degree) throws ContradictionException {
+        cardinalitySink.addAtMost(literals, degree);
+    }
+
+    /**
+     * Counts the constraints, as passed to the solver.
+     */
+    private final class Sink implements ConstraintSink {
+
+        @Override
+        public void newVar(final int count) {
+            variableCount = Math.max(variableCount, count);
+        }
+
+        @Override
+        public int variableCount() {
+            return variableCount;
+        }
+
+        @Override
+        public void expectConstraints(final int count) {
+            // Nothing to allocate
+        }
+
+        @Override
+        public void addClause(final IVecInt literals) {
+            constraintCount++;
+            literalCount += literals.size();
+            constraintBytes += BYTES_PER_CLAUSE + literals.size() * BYTES_PER_CLAUSE_LITERAL;
+        }
+
+        @Override
+        public void addExactly(final IVecInt literals, final int degree) {
+            addCardinality(literals);
+        }
+
+        @Override
+        public void addAtMost(final IVecInt literals, final int degree) {
+            addCardinality(literals);
+        }
+
+        private void addCardinality(final IVecInt literals) {
+            constraintCount++;
+            literalCount += literals.size();
+            constraintBytes += BYTES_PER_CARDINALITY + literals.size() * BYTES_PER_CARDINALITY_LITERAL;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package re.belv.eternity2.solver;
+
+import java.util.List;
+
+/**
+ * The estimated memory footprint of the encoding of a game, computed before encoding it.
+ * <p>
+ * Estimates are calibrated on the embedded Sat4j solver, on a 64-bit JVM with compressed references. They cover the
+ * problem as loaded in the solvers, not the clauses learned during the search.
+ *
+ * @param colorEncoding  the color encoding the estimate is computed for
+ * @param variableCount  the number of variables of a solver, including the auxiliary variables of the cardinality
+ *                       encoding if any
+ * @param families       the constraint families, i.e. the kinds of constraints, in encoding order
+ * @param solverCount    the number of solvers holding their own copy of the problem, e.g. the portfolio size
+ * @param estimatedBytes the estimated number of bytes of the problem, for all the solvers
+ */
+public record MemoryReport(Configuration.ColorEncoding colorEncoding, int variableCount, List<Family> families,
+                           int solverCount, long estimatedBytes) {
+
+    /**
+     * A constraint family, i.e. a kind of constraints.
+     *
+     * @param name            the family name, e.g. {@code exactlyOnePiecePerPosition}, as in the
+     *                        {@link EncodingStatistics.Phase encoding phases}
+     * @param constraintCount the number of constraints passed to a solver, i.e. clauses and cardinality constraints
+     * @param literalCount    the total number of literals of these constraints
+     * @param estimatedBytes  the estimated number of bytes of these constraints, for a solver
+     */
+    public record Family(String name, long constraintCount, long literalCount, long estimatedBytes) {
+        // Nothing to add
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param colorEncoding  the color encoding the estimate is computed for
+     * @param variableCount  the number of variables of a solver
+     * @param families       the constraint families, in encoding order
+     * @param solverCount    the number of solvers holding their own copy of the problem
+     * @param estimatedBytes the estimated number of bytes of the problem, for all the solvers
+     */
+    public MemoryReport {
+        families = List.copyOf(families);
+    }
+
+    /**
+     * Returns the number of constraints passed to a solver.
+     *
+     * @return the number of constraints passed to a solver
+     */
+    public long constraintCount() {
+        return families.stream().mapToLong(Family::constraintCount).sum();
+    }
+}
@@ -0,0 +1,173 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An iterator of boards matching more and more edges, found by a linear SAT-UNSAT search.
+ * <p>
+ * The backend holds the {@link Constraints#addRelaxedConstraintsTo(ConstraintSink, int) relaxed constraints}, where
+ * each edge may mismatch at the cost of its mismatch variable. Each board found is scored by its number of matched
+ * edges; A cardinality constraint on the mismatch variables then forces the next board to mismatch fewer edges.
+ * Constraints only get tighter, so that what the solver has learned is kept from one search to the next.
+ * <p>
+ * The iteration ends when the target score is reached, when no better board exists, the last board returned being then
+ * optimal, or when the time limit is reached.
+ * <p>
+ * Searches run on the thread calling {@link #hasNext()} or {@link #next()}. The monitor thread of {@link Solutions}
+ * stops them when the time limit is reached or when the calling thread is interrupted.
+ */
+final class Optimization implements Iterator<BoardSample.Board> {
+
+    /** The interval at which to check the time limit and the interruption of the searching thread, in milliseconds. */
+    private static final int WATCH_INTERVAL = 100;
+
+    /** No assumption. */
+    private static final IVecInt NO_ASSUMPTIONS = new VecInt(0);
+
+    /** The problem variables. */
+    private final Variables variables;
+
+    /** The solver backend. */
+    private final Backend backend;
+
+    /** The mismatch variables of all the edges. */
+    private final IVecInt mismatches;
+
+    /** The score at which to stop. */
+    private final int targetScore;
+
+    /** When the optimization started, in nanoseconds. */
+    private final long startTime;
+
+    /** The maximum duration of the optimization, in nanoseconds. */
+    private final long timeLimit;
+
+    /** The listener of the search progress. */
+    private final SolverListener listener;
+
+    /** The number of boards found. */
+    private long boardCount;
+
+    /** The board to return on call to {@link #next()}. */
+    private BoardSample.Board nextBoard;
+
+    /** Whether no better board shall be searched for. */
+    private boolean exhausted;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param variables             the problem variables
+     * @param backend               the solver backend, holding the relaxed constraints
+     * @param firstMismatchVariable the mismatch variable of the first edge
+     * @param edgeCount             the number of edges, i.e. the maximum score
+     * @param targetScore           the score at which to stop
+     * @param startTime             when the optimization started, in nanoseconds
+     * @param timeLimit             the maximum duration of the optimization
+     * @param configuration         the solver configuration, giving the listener of the search progress
+     */
+    Optimization(final Variables variables, final Backend backend, final int firstMismatchVariable,
+                 final int edgeCount, final int targetScore, final long startTime, final Duration timeLimit,
+                 final Configuration configuration) {
+        this.variables = variables;
+        this.backend = backend;
+        mismatches = new VecInt(edgeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            mismatches.push(firstMismatchVariable + edge);
+        }
+        this.targetScore = targetScore;
+        this.startTime = startTime;
+        this.timeLimit = saturatedNanos(timeLimit);
+        listener = configuration.listener();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextBoard() != null;
+    }
+
+    @Override
+    public BoardSample.Board next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No better board.");
+        }
+        final BoardSample.Board board = nextBoard;
+        nextBoard = null;
+        return board;
+    }
+
+    private BoardSample.Board nextBoard() {
+        if (nextBoard != null || exhausted) {
+            return nextBoard;
+        }
+        if (isExpired()) {
+            exhausted = true;
+            return null;
+        }
+
+        final Thread searchingThread = Thread.currentThread();
+        final ScheduledFuture<?> watching = Solutions.MONITOR.scheduleAtFixedRate(() -> {
+            // Repeated, so that an interruption arriving before the search starts is not lost
+            if (isExpired() || searchingThread.isInterrupted()) {
+                backend.interrupt();
+            }
+        }, WATCH_INTERVAL, WATCH_INTERVAL, TimeUnit.MILLISECONDS);
+        try {
+            lookForBetterBoard();
+        } catch (final TimeoutException e) {
+            // Time limit reached or search interrupted
+            exhausted = true;
+        } finally {
+            watching.cancel(false);
+        }
+
+        return nextBoard;
+    }
+
+    private void lookForBetterBoard() throws TimeoutException {
+        final int[] model = backend.findModel(NO_ASSUMPTIONS);
+        if (model == null) {
+            // The previous board was optimal
+            exhausted = true;
+            return;
+        }
+        nextBoard = BoardSample.Board.of(variables.backToPieces(model));
+        boardCount++;
+        listener.modelFound(SearchStatistics.of(Duration.ofNanos(System.nanoTime() - startTime), boardCount,
+                List.of(backend)));
+        final int score = nextBoard.matchedEdgeCount();
+        if (score >= targetScore) {
+            exhausted = true;
+            return;
+        }
+        try {
+            // Actual mismatches are never more than satisfied mismatch variables
+            backend.addAtMost(mismatches, mismatches.size() - score - 1);
+        } catch (final ContradictionException e) {
+            // This board is optimal
+            exhausted = true;
+        }
+    }
+
+    private boolean isExpired() {
+        return System.nanoTime() - startTime >= timeLimit;
+    }
+
+    private static long saturatedNanos(final Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (final ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
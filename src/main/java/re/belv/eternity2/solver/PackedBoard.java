@@ -0,0 +1,221 @@
+package re.belv.eternity2.solver;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A board stored as a single primitive array, each position holding the id and the rotation of its piece packed in an
+ * {@code int}.
+ * <p>
+ * A packed board takes about 4 bytes per position, against a {@link Piece} record per position for a
+ * {@code Piece[][]}: It is the preferred form when enumerating many solutions. The {@link Piece} view of a position
+ * or of the whole board is built on demand, by {@link #pieceAt(int, int)} and {@link #toPieces()}.
+ * <p>
+ * Instances are immutable. Two boards are equal if they place the same pieces, by id, with the same rotations.
+ */
+public final class PackedBoard {
+
+    /** The value of a position where no piece is placed. */
+    static final int EMPTY = -1;
+
+    /** The number of low bits of a position value holding the rotation. */
+    private static final int ROTATION_BITS = 2;
+
+    /** The mask of the rotation bits of a position value. */
+    private static final int ROTATION_MASK = (1 << ROTATION_BITS) - 1;
+
+    /** The game, giving the pieces by id. */
+    private final Game game;
+
+    /** The placement of each position, in row-major order: {@code id << 2 | rotation}, or {@link #EMPTY}. */
+    private final int[] cells;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param game  the game, giving the pieces by id
+     * @param cells the placement of each position, in row-major order, as returned by {@link #placement}; Not copied
+     */
+    PackedBoard(final Game game, final int[] cells) {
+        this.game = game;
+        this.cells = cells;
+    }
+
+    /**
+     * Packs the given pieces.
+     *
+     * @param game   the game the pieces belong to
+     * @param pieces the pieces, indexed by row and column, {@code null} where no piece is placed
+     * @return the packed board
+     * @throws IllegalArgumentException if a piece is not a rotation of the game piece with the same id
+     */
+    static PackedBoard of(final Game game, final Piece[][] pieces) {
+        final var cells = new int[game.rowCount() * game.columnCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final Piece piece = pieces[rowIndex][columnIndex];
+                cells[rowIndex * game.columnCount() + columnIndex] = piece == null ? EMPTY
+                        : placement(piece.id(), game.piece(piece.id()).rotationTo(piece));
+            }
+        }
+        return new PackedBoard(game, cells);
+    }
+
+    /**
+     * Returns the value of a position holding the given piece with the given rotation.
+     *
+     * @param pieceIndex the piece index, i.e. its id
+     * @param rotation   the piece rotation
+     * @return the value of the position
+     */
+    static int placement(final int pieceIndex, final Piece.Rotation rotation) {
+        return pieceIndex << ROTATION_BITS | rotation.ordinal();
+    }
+
+    /**
+     * Returns the index of the piece of the given position value.
+     *
+     * @param cell the position value, not {@link #EMPTY}
+     * @return the piece index, i.e. its id
+     */
+    static int pieceIndexOf(final int cell) {
+        return cell >>> ROTATION_BITS;
+    }
+
+    /**
+     * Returns the rotation of the piece of the given position value.
+     *
+     * @param cell the position value, not {@link #EMPTY}
+     * @return the piece rotation
+     */
+    static Piece.Rotation rotationOf(final int cell) {
+        return Piece.Rotation.VALUES[cell & ROTATION_MASK];
+    }
+
+    /**
+     * Returns an iterator translating the given boards to pieces, as the boards are returned.
+     *
+     * @param boards the boards
+     * @return the pieces of the given boards
+     */
+    static Iterator<Piece[][]> toPieces(final Iterator<PackedBoard> boards) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return boards.hasNext();
+            }
+
+            @Override
+            public Piece[][] next() {
+                return boards.next().toPieces();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int rowCount() {
+        return game.rowCount();
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return the number of columns
+     */
+    public int columnCount() {
+        return game.columnCount();
+    }
+
+    /**
+     * Returns the id of the piece at the given position.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @return the id of the piece at the given position, -1 if no piece is placed there
+     * @throws IndexOutOfBoundsException if the position is outside the board
+     */
+    public int pieceIdAt(final int rowIndex, final int columnIndex) {
+        final int cell = cellAt(rowIndex, columnIndex);
+        return cell == EMPTY ? EMPTY : cell >>> ROTATION_BITS;
+    }
+
+    /**
+     * Returns the piece at the given position, rotated as placed.
+     * <p>
+     * The piece is built on each call.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @return the piece at the given position, {@code null} if no piece is placed there
+     * @throws IndexOutOfBoundsException if the position is outside the board
+     */
+    public Piece pieceAt(final int rowIndex, final int columnIndex) {
+        final int cell = cellAt(rowIndex, columnIndex);
+        return cell == EMPTY ? null : pieceOf(cell);
+    }
+
+    /**
+     * Returns the pieces of this board, rotated as placed.
+     * <p>
+     * The pieces are built on each call: The returned array belongs to the caller.
+     *
+     * @return the pieces, indexed by row and column, {@code null} where no piece is placed
+     */
+    public Piece[][] toPieces() {
+        final var pieces = new Piece[game.rowCount()][game.columnCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final int cell = cells[rowIndex * game.columnCount() + columnIndex];
+                if (cell != EMPTY) {
+                    pieces[rowIndex][columnIndex] = pieceOf(cell);
+                }
+            }
+        }
+        return pieces;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof PackedBoard board
+                && board.game.columnCount() == game.columnCount()
+                && Arrays.equals(board.cells, cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(cells);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.deepToString(toPieces());
+    }
+
+    /**
+     * Returns the value of the given position: {@code id << 2 | rotation}, -1 if no piece is placed there.
+     *
+     * @param position the position, in row-major order
+     * @return the value of the given position
+     */
+    int cell(final int position) {
+        return cells[position];
+    }
+
+    private int cellAt(final int rowIndex, final int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= game.rowCount()) {
+            throw new IndexOutOfBoundsException("Row index out of bounds: " + rowIndex);
+        }
+        if (columnIndex < 0 || columnIndex >= game.columnCount()) {
+            throw new IndexOutOfBoundsException("Column index out of bounds: " + columnIndex);
+        }
+        return cells[rowIndex * game.columnCount() + columnIndex];
+    }
+
+    private Piece pieceOf(final int cell) {
+        return game.piece(cell >>> ROTATION_BITS).rotate(Piece.Rotation.VALUES[cell & ROTATION_MASK]);
+    }
+}
@@ -0,0 +1,176 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * An iterator of solutions found in parallel, following the cube-and-conquer approach.
+ * <p>
+ * The game is split into disjoint {@link Cubes cubes}. Each worker owns a backend on which it writes the whole
+ * problem, then takes the cubes one by one from a shared queue and enumerates the solutions of each cube, using the
+ * cube placements as assumptions. Since cubes are disjoint, no solution is found twice.
+ * <p>
+ * Solutions are handed over to the consumer through the bounded buffer of a {@link WorkerPool}: Workers wait when the
+ * buffer is full, so that the search does not run ahead of the consumer.
+ * <p>
+ * The statistics reported to the {@link SolverListener listener} are summed over all the workers.
+ * <p>
+ * With a {@link Checkpoint checkpoint}, each worker blocks the solutions returned before resuming and skips the cubes
+ * exhausted before resuming. A cube is recorded as exhausted once all its solutions have been taken by the consumer.
+ */
+final class ParallelSolutions implements SolutionIterator {
+
+    /** The number of cubes per worker, so that workers finishing early can take over remaining cubes. */
+    private static final int CUBES_PER_WORKER = 8;
+
+    /** The number of solutions per worker which can be found ahead of the consumer. */
+    private static final int BUFFERED_SOLUTIONS_PER_WORKER = 16;
+
+    /** The problem variables. */
+    private final Variables variables;
+
+    /** The cubes not taken by a worker yet. */
+    private final Queue<IVecInt> cubes;
+
+    /** Where the progress is recorded, {@code null} if none. */
+    private final Checkpoint checkpoint;
+
+    /** The workers, handing over the solutions found and, if checkpointed, the ends of the cubes. */
+    private final WorkerPool<Entry> workers;
+
+    /** The solution to return on call to {@link #next()}. */
+    private PackedBoard nextSolution;
+
+    /**
+     * Constructs an instance, immediately starting the workers.
+     *
+     * @param variables     the problem variables
+     * @param game          the game
+     * @param newBackend    the factory of backends, called once per worker
+     * @param encoder       writes the problem to a backend
+     * @param configuration the solver configuration, giving the number of workers and the listener of the search
+     *                      progress
+     * @param checkpoint    where the progress is recorded, {@code null} if none
+     */
+    ParallelSolutions(final Variables variables, final Game game, final Supplier<Backend> newBackend,
+                      final Encoder encoder, final Configuration configuration, final Checkpoint checkpoint) {
+        final int workerCount = configuration.enumerationWorkerCount();
+        this.variables = variables;
+        this.checkpoint = checkpoint;
+        cubes = new ConcurrentLinkedQueue<>(Cubes.of(variables, game, workerCount * CUBES_PER_WORKER));
+        if (checkpoint != null) {
+            cubes.removeIf(checkpoint::isExhausted);
+        }
+        final List<Backend> backends = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            backends.add(newBackend.get());
+        }
+        // Workers start once all the backends are created, since they read all of them to report statistics
+        workers = new WorkerPool<>(backends, List.of(), new BoardSampler(variables, backends),
+                BUFFERED_SOLUTIONS_PER_WORKER, configuration);
+        workers.start(backend -> work(backend, encoder));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextSolution() != null;
+    }
+
+    @Override
+    public PackedBoard next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        final PackedBoard solution = nextSolution;
+        nextSolution = null;
+        return solution;
+    }
+
+    /**
+     * Stops the workers.
+     * <p>
+     * The solutions not returned yet are lost. May be called from any thread: A consumer waiting for a solution is
+     * woken up and finds no more solution.
+     */
+    void stop() {
+        workers.stop();
+    }
+
+    private PackedBoard nextSolution() {
+        while (nextSolution == null) {
+            final Entry entry = workers.take();
+            if (entry == null) {
+                break;
+            }
+            if (entry.exhaustedCube() != null) {
+                checkpoint.cubeExhausted(entry.exhaustedCube());
+            } else {
+                nextSolution = entry.solution();
+            }
+        }
+        return nextSolution;
+    }
+
+    private void work(final Backend backend, final Encoder encoder) throws InterruptedException, TimeoutException {
+        try {
+            backend.reset();
+            backend.newVar(variables.count());
+            encoder.encodeTo(backend);
+            if (checkpoint != null) {
+                checkpoint.blockResumedSolutions(variables, backend);
+            }
+            IVecInt cube;
+            while ((cube = cubes.poll()) != null) {
+                if (!enumerate(backend, cube)) {
+                    // All the remaining models of the problem have been found by this worker
+                    break;
+                }
+                if (checkpoint != null) {
+                    workers.put(new Entry(null, cube));
+                }
+            }
+        } catch (final ContradictionException e) {
+            // Problem is trivially unsatisfiable, nothing to enumerate
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot read checkpoint", e);
+        }
+    }
+
+    /**
+     * Enumerates the solutions of the given cube.
+     *
+     * @return {@code false} if the problem is unsatisfiable once the models found are blocked
+     */
+    private boolean enumerate(final Backend backend, final IVecInt cube) throws InterruptedException, TimeoutException {
+        int[] model;
+        while ((model = backend.findModel(cube)) != null) {
+            workers.modelFound();
+            workers.put(new Entry(variables.backToBoard(model), null));
+            try {
+                backend.addClause(variables.blockingClauseOf(model));
+            } catch (final ContradictionException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An entry of the buffer: Either a solution or the end of a cube.
+     *
+     * @param solution      the solution, {@code null} if none
+     * @param exhaustedCube the cube whose solutions have all been put in the buffer before, {@code null} if none
+     */
+    private record Entry(PackedBoard solution, IVecInt exhaustedCube) {
+    }
+}
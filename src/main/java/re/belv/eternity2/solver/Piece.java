@@ -22,7 +22,10 @@ public record Piece(int id, int northColor, int eastColor, int southColor, int w
         SOUTH,
         WEST;
 
-        private static final List<Border> CACHED_VALUES = List.of(values());
+        /** All the piece borders, indexed by ordinal, to iterate without allocation; Shall not be modified. */
+        static final Border[] VALUES = values();
+
+        private static final List<Border> CACHED_VALUES = List.of(VALUES);
 
         /**
          * Returns all the piece borders.
@@ -41,6 +44,15 @@ public record Piece(int id, int northColor, int eastColor, int southColor, int w
         static int count() {
             return CACHED_VALUES.size();
         }
+
+        /**
+         * Returns the opposite border, e.g. the south border for the north border.
+         *
+         * @return the opposite border
+         */
+        Border opposite() {
+            return VALUES[(ordinal() + 2) % VALUES.length];
+        }
     }
 
     /**
@@ -56,7 +68,10 @@ public record Piece(int id, int northColor, int eastColor, int southColor, int w
         /** 270 degrees rotation. */
         PLUS_270;
 
-        private static final List<Rotation> CACHED_VALUES = List.of(values());
+        /** All the rotations, indexed by ordinal, to iterate without allocation; Shall not be modified. */
+        static final Rotation[] VALUES = values();
+
+        private static final List<Rotation> CACHED_VALUES = List.of(VALUES);
 
         /**
          * Returns all the rotations.
@@ -107,6 +122,54 @@ public record Piece(int id, int northColor, int eastColor, int southColor, int w
         };
     }
 
+    /**
+     * Returns the number of distinct rotations of this piece.
+     * <p>
+     * A piece whose colors are all different has 4 distinct rotations. A piece whose opposite borders have the same
+     * colors looks the same once rotated by 180 degrees and thus has only 2 distinct rotations. A piece whose borders
+     * all have the same color has a single distinct rotation.
+     * <p>
+     * Rotations whose {@link Rotation#ordinal() ordinal} is greater than or equal to the returned value are
+     * equivalent to a lower rotation.
+     *
+     * @return the number of distinct rotations of this piece (1, 2 or 4)
+     */
+    int distinctRotationCount() {
+        if (hasSameColorsAs(rotate(Rotation.PLUS_90))) {
+            return 1;
+        }
+        if (hasSameColorsAs(rotate(Rotation.PLUS_180))) {
+            return 2;
+        }
+        return Rotation.count();
+    }
+
+    /**
+     * Returns whether this piece is identical to the given one, i.e. whether the given piece has the same colors as
+     * this piece up to a rotation, regardless of the piece ids.
+     *
+     * @param other the other piece
+     * @return {@code true} if this piece is identical to the given one
+     */
+    boolean isIdenticalTo(final Piece other) {
+        for (final Rotation rotation : Rotation.all()) {
+            if (hasSameColorsAs(other.rotate(rotation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a copy of this piece with the given id.
+     *
+     * @param newId the id of the copy
+     * @return a copy of this piece with the given id
+     */
+    Piece withId(final int newId) {
+        return new Piece(newId, northColor, eastColor, southColor, westColor);
+    }
+
     /**
      * Returns the rotation to apply to this piece to get the given piece.
      *
@@ -125,4 +188,11 @@ public record Piece(int id, int northColor, int eastColor, int southColor, int w
         }
         throw new IllegalArgumentException(this + " is not a rotation of this piece: " + piece);
     }
-}
\ No newline at end of file
+
+    private boolean hasSameColorsAs(final Piece other) {
+        return northColor == other.northColor
+                && eastColor == other.eastColor
+                && southColor == other.southColor
+                && westColor == other.westColor;
+    }
+}
@@ -0,0 +1,123 @@
+package re.belv.eternity2.solver;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The solutions of a game solved by a {@link SolverPool}, owning their solver until they are exhausted or closed.
+ * <p>
+ * Once closed, the solutions cannot be iterated anymore: {@link #hasNext()} and {@link #next()} throw an
+ * {@link IllegalStateException}, instead of reading the search of another game on the solver given back to the pool.
+ * <p>
+ * The solutions are meant to be iterated by one thread at a time. They may be closed from any thread, e.g. to cancel
+ * a search: The search in progress, if any, is then interrupted.
+ */
+public final class PooledSolutions implements Iterator<PackedBoard>, AutoCloseable {
+
+    /** The pool of the solver. */
+    private final SolverPool pool;
+
+    /** The solver, owned until the solutions are exhausted or closed. */
+    private final Solver solver;
+
+    /** The solutions. */
+    private final Iterator<PackedBoard> solutions;
+
+    /** Whether the solutions have been closed. */
+    private volatile boolean closed;
+
+    /** Whether the solver has been given back to the pool, guarded by {@link #ownership}. */
+    private boolean released;
+
+    /** Guards the ownership of the solver, so that a search of another owner is never interrupted. */
+    private final Object ownership;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param pool      the pool of the solver
+     * @param solver    the solver, leased from the pool
+     * @param solutions the solutions, searched by the solver
+     */
+    PooledSolutions(final SolverPool pool, final Solver solver, final Iterator<PackedBoard> solutions) {
+        this.pool = pool;
+        this.solver = solver;
+        this.solutions = solutions;
+        ownership = new Object();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The solver is given back to the pool once the solutions are exhausted.
+     *
+     * @throws IllegalStateException if the solutions have been closed
+     */
+    @Override
+    public synchronized boolean hasNext() {
+        requireOpen();
+        if (isReleased()) {
+            return false;
+        }
+        if (solutions.hasNext()) {
+            return true;
+        }
+        release();
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the solutions have been closed
+     */
+    @Override
+    public synchronized PackedBoard next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        return solutions.next();
+    }
+
+    /**
+     * Stops the search and gives the solver back to the pool, if not done yet.
+     * <p>
+     * When called from another thread than the one iterating, waits for the search in progress to be interrupted.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        synchronized (ownership) {
+            if (!released) {
+                solver.interrupt();
+            }
+        }
+        synchronized (this) {
+            if (!isReleased()) {
+                release();
+            }
+        }
+    }
+
+    private void requireOpen() {
+        if (closed) {
+            throw new IllegalStateException("Solutions closed");
+        }
+    }
+
+    private boolean isReleased() {
+        synchronized (ownership) {
+            return released;
+        }
+    }
+
+    private void release() {
+        synchronized (ownership) {
+            released = true;
+            pool.release(solver);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.minisat.core.ICDCL;
+import org.sat4j.minisat.orders.RandomWalkDecorator;
+import org.sat4j.minisat.orders.VarOrderHeap;
+import org.sat4j.specs.ISolver;
+import org.sat4j.tools.ManyCore;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A portfolio of differently configured Sat4j solvers, racing on the same problem.
+ * <p>
+ * The portfolio is a Sat4j {@link ManyCore}: Each solver runs in its own thread, the first answer wins and the other
+ * solvers are stopped. The unit clauses learned by a solver are shared with the others.
+ */
+final class Portfolio {
+
+    /**
+     * The solver configurations, which differ by their restart strategies, phase selection strategies and learned
+     * clauses deletion strategies.
+     */
+    private static final List<Supplier<ICDCL<?>>> CONFIGURATIONS = List.of(
+            SolverFactory::newGlucose21,
+            SolverFactory::newMiniLearningHeapRsatExpSimpLuby,
+            SolverFactory::newDefaultAutoErasePhaseSaving,
+            SolverFactory::newMiniLearningHeapEZSimpNoRestarts,
+            SolverFactory::newDefaultMS21PhaseSaving,
+            SolverFactory::newBestHT,
+            SolverFactory::newBest17,
+            SolverFactory::newMiniLearningHeapEZSimpLongRestarts
+    );
+
+    /** The probability of a random decision added for each cycle through the configurations. */
+    private static final double RANDOM_WALK_PROBABILITY_STEP = 0.01;
+
+    private Portfolio() {
+        // Static methods only
+    }
+
+    /**
+     * Creates a portfolio solver.
+     * <p>
+     * Solvers beyond the number of available configurations reuse a configuration, with an increasing probability
+     * of random decisions so that they do not duplicate the search of another solver.
+     *
+     * @param size the number of solvers
+     * @return the portfolio solver
+     * @throws IllegalArgumentException if size is not strictly positive
+     */
+    static ISolver newSolver(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid portfolio size: " + size);
+        }
+        final var solvers = new ISolver[size];
+        final var names = new String[size];
+        for (int i = 0; i < size; i++) {
+            final ICDCL<?> solver = CONFIGURATIONS.get(i % CONFIGURATIONS.size()).get();
+            final int cycle = i / CONFIGURATIONS.size();
+            if (cycle > 0 && solver.getOrder() instanceof VarOrderHeap order) {
+                solver.setOrder(new RandomWalkDecorator(order, cycle * RANDOM_WALK_PROBABILITY_STEP));
+            }
+            solvers[i] = solver;
+            names[i] = "portfolio#" + i;
+        }
+        return new ManyCore<>(true, names, solvers);
+    }
+}
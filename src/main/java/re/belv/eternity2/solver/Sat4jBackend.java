@@ -0,0 +1,130 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.minisat.core.Solver;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.Lbool;
+import org.sat4j.specs.TimeoutException;
+import org.sat4j.tools.ManyCore;
+
+import java.util.Map;
+
+/**
+ * A {@link Backend} running an in-process <a href="http://www.sat4j.org/">Sat4j</a> solver.
+ */
+final class Sat4jBackend implements Backend {
+
+    /** The actual solver. */
+    private final ISolver solver;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param solver the actual solver
+     */
+    Sat4jBackend(final ISolver solver) {
+        this.solver = solver;
+    }
+
+    @Override
+    public void reset() {
+        solver.reset();
+    }
+
+    @Override
+    public void newVar(final int count) {
+        solver.newVar(count);
+    }
+
+    @Override
+    public void expectConstraints(final int count) {
+        solver.setExpectedNumberOfClauses(count);
+    }
+
+    @Override
+    public int variableCount() {
+        return solver.nVars();
+    }
+
+    @Override
+    public void addClause(final IVecInt literals) throws ContradictionException {
+        solver.addClause(literals);
+    }
+
+    @Override
+    public void addExactly(final IVecInt literals, final int degree) throws ContradictionException {
+        solver.addExactly(literals, degree);
+    }
+
+    @Override
+    public void addAtMost(final IVecInt literals, final int degree) throws ContradictionException {
+        solver.addAtMost(literals, degree);
+    }
+
+    @Override
+    public int[] findModel(final IVecInt assumptions) throws TimeoutException {
+        return solver.isSatisfiable(assumptions) ? solver.model() : null;
+    }
+
+    @Override
+    public void interrupt() {
+        solver.expireTimeout();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The assignment of a portfolio is the one of its solver which has assigned the most variables.
+     */
+    @Override
+    public int[] currentAssignment() {
+        if (solver instanceof ManyCore<?> portfolio) {
+            int[] deepestAssignment = null;
+            int deepestAssignedCount = -1;
+            for (final ISolver member : portfolio.getSolvers()) {
+                final int[] assignment = currentAssignmentOf(member);
+                final int assignedCount = assignedCountOf(assignment);
+                if (assignment != null && assignedCount > deepestAssignedCount) {
+                    deepestAssignment = assignment;
+                    deepestAssignedCount = assignedCount;
+                }
+            }
+            return deepestAssignment;
+        }
+        return currentAssignmentOf(solver);
+    }
+
+    private static int[] currentAssignmentOf(final ISolver solver) {
+        if (!(solver instanceof Solver<?> cdclSolver)) {
+            return null;
+        }
+        final var assignment = new int[cdclSolver.nVars()];
+        for (int variable = 1; variable <= assignment.length; variable++) {
+            final Lbool value = cdclSolver.truthValue(variable);
+            if (value == Lbool.TRUE) {
+                assignment[variable - 1] = variable;
+            } else if (value == Lbool.FALSE) {
+                assignment[variable - 1] = -variable;
+            }
+        }
+        return assignment;
+    }
+
+    private static int assignedCountOf(final int[] assignment) {
+        int assignedCount = 0;
+        if (assignment != null) {
+            for (final int literal : assignment) {
+                if (literal != 0) {
+                    assignedCount++;
+                }
+            }
+        }
+        return assignedCount;
+    }
+
+    @Override
+    public Map<String, Number> statistics() {
+        return solver.getStat();
+    }
+}
@@ -0,0 +1,58 @@
+package re.belv.eternity2.solver;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The statistics of a search for solutions.
+ * <p>
+ * Solver counters are cumulated since the solver was loaded with the game. They are 0 if the solver does not provide
+ * them, e.g. for an external solver.
+ *
+ * @param elapsed        the time elapsed since the beginning of the search
+ * @param modelCount     the number of models found so far
+ * @param conflicts      the number of conflicts
+ * @param decisions      the number of decisions
+ * @param propagations   the number of propagations
+ * @param restarts       the number of restarts
+ * @param learnedClauses the number of learned clauses
+ */
+public record SearchStatistics(Duration elapsed, long modelCount, long conflicts, long decisions,
+                               long propagations, long restarts, long learnedClauses) {
+
+    /** The names of the {@link Backend#statistics() backend counters}, in the order of the record components. */
+    private static final List<String> COUNTERS =
+            List.of("conflicts", "decisions", "propagations", "starts", "learnedclauses");
+
+    /**
+     * Creates an instance from the counters of the given backends, summed.
+     *
+     * @param elapsed    the time elapsed since the beginning of the search
+     * @param modelCount the number of models found so far
+     * @param backends   the backends searching for models
+     * @return the statistics
+     */
+    static SearchStatistics of(final Duration elapsed, final long modelCount, final List<Backend> backends) {
+        final long[] counters = new long[COUNTERS.size()];
+        for (final Backend backend : backends) {
+            final Map<String, Number> statistics = backend.statistics();
+            for (int i = 0; i < counters.length; i++) {
+                final Number value = statistics.get(COUNTERS.get(i));
+                counters[i] += value == null ? 0 : value.longValue();
+            }
+        }
+        return new SearchStatistics(elapsed, modelCount, counters[0], counters[1], counters[2], counters[3],
+                counters[4]);
+    }
+
+    /**
+     * Returns the average number of models found per second.
+     *
+     * @return the average number of models found per second, 0 if no time has elapsed
+     */
+    public double modelsPerSecond() {
+        final double seconds = elapsed.toNanos() / 1e9;
+        return seconds == 0 ? 0 : modelCount / seconds;
+    }
+}
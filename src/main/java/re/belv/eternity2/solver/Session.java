@@ -0,0 +1,280 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * A game loaded in a solver, on which pieces can be placed and lifted between queries.
+ * <p>
+ * The game is encoded once, without any placed piece. The placed pieces are passed to the solver as assumptions on
+ * each query, so that placing or lifting a piece does not require to rebuild the solver: What the solver has learned
+ * during previous queries is kept.
+ * <p>
+ * This class is <em>not</em> thread-safe.
+ * <p>
+ * Example of usage:
+ * <pre>{@code
+ * try (final Session session = new Solver().newSession(pieces, new Piece[16][16])) {
+ *     session.place(8, 7, pieces[138].rotate(Piece.Rotation.PLUS_180));
+ *     if (!session.isSolvable()) {
+ *         session.unplace(8, 7);
+ *     }
+ *     final Optional<Piece[][]> solution = session.nextSolution();
+ * }
+ * }</pre>
+ */
+public final class Session implements AutoCloseable {
+
+    /** The game, without placed piece. */
+    private final Game game;
+
+    /** The problem variables, or {@code null} if the game has trivially no solution. */
+    private final Variables variables;
+
+    /** The solver, where the encoding has been written. */
+    private final Backend backend;
+
+    /** The solver configuration, giving the listener of the search progress. */
+    private final Configuration configuration;
+
+    /** The placed pieces, indexed by row and column. */
+    private final Piece[][] board;
+
+    /** The number of variables declared to the solver. */
+    private int variableCount;
+
+    /** The variable guarding the blocking clauses of the current enumeration, 0 if none. */
+    private int selector;
+
+    /** The solutions for the placed pieces, or {@code null} if pieces have changed since last query. */
+    private Iterator<PackedBoard> solutions;
+
+    private Session(final Game game, final Variables variables, final Backend backend, final int variableCount,
+                    final Configuration configuration) {
+        this.game = game;
+        this.variables = variables;
+        this.backend = backend;
+        this.variableCount = variableCount;
+        this.configuration = configuration;
+        board = new Piece[game.rowCount()][game.columnCount()];
+    }
+
+    /**
+     * Loads the given game in the given backend.
+     * <p>
+     * If a file is given, the encoding is read from it if it exists, written to it otherwise. The encoding is
+     * reported to the listener of the configuration, as a single {@code dimacsFile} phase if read from the file.
+     *
+     * @param game          the game; Its initial board must be empty
+     * @param backend       the backend, which is reset
+     * @param file          the file where the encoding is stored, if any
+     * @param configuration the solver configuration, giving the color encoding and the listener of the solver progress
+     * @return the session
+     * @throws IOException if the file cannot be read or written
+     */
+    static Session load(final Game game, final Backend backend, final Optional<Path> file,
+                        final Configuration configuration) throws IOException {
+        if (file.isPresent() && Files.exists(file.get())) {
+            backend.reset();
+            final var recorder = new EncodingRecorder(backend);
+            recorder.startPhase("dimacsFile");
+            final DimacsFile.Problem problem = DimacsFile.read(file.get(), recorder);
+            configuration.listener().encoded(recorder.finish());
+            return problem.satisfiable()
+                    ? new Session(game, problem.variables(), backend, problem.variableCount(), configuration)
+                    : new Session(game, null, backend, 0, configuration);
+        }
+        final var domain = new Domain(game);
+        if (domain.isInconsistent()) {
+            return new Session(game, null, backend, 0, configuration);
+        }
+        final var variables = new Variables(game, domain, configuration.colorEncoding());
+        final Encoder encoder = target -> new Constraints(variables, game).addAllConstraintsTo(target);
+        if (file.isPresent()) {
+            // Written aside then moved, so that concurrent solvers never read a partial file
+            final Path partialFile = Files.createTempFile(file.get().getParent(), "eternity2-", ".partial");
+            DimacsFile.write(partialFile, game, variables, Configuration.SymmetryBreaking.NONE, encoder);
+            Files.move(partialFile, file.get(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        backend.reset();
+        backend.newVar(variables.count());
+        final var recorder = new EncodingRecorder(backend);
+        try {
+            encoder.encodeTo(recorder);
+        } catch (final ContradictionException e) {
+            return new Session(game, null, backend, 0, configuration);
+        }
+        configuration.listener().encoded(recorder.finish());
+        return new Session(game, variables, backend, Math.max(variables.count(), backend.variableCount()),
+                configuration);
+    }
+
+    /**
+     * Places the given piece at the given position.
+     * <p>
+     * The piece previously placed at this position, if any, is lifted.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @param piece       the piece, rotated as it shall be placed
+     * @throws NullPointerException     if given piece is {@code null}
+     * @throws IllegalArgumentException if given position is out of the board, if given piece is not a rotation of
+     *                                  the piece of the game with the same id or if it is already placed elsewhere
+     */
+    public void place(final int rowIndex, final int columnIndex, final Piece piece) {
+        requirePosition(rowIndex, columnIndex);
+        if (piece.id() < 0 || piece.id() >= game.piecesCount()) {
+            throw new IllegalArgumentException("Unknown piece: " + piece);
+        }
+        game.piece(piece.id()).rotationTo(piece);
+        for (int otherRowIndex = 0; otherRowIndex < game.rowCount(); otherRowIndex++) {
+            for (int otherColumnIndex = 0; otherColumnIndex < game.columnCount(); otherColumnIndex++) {
+                final Piece otherPiece = board[otherRowIndex][otherColumnIndex];
+                if (otherPiece != null && otherPiece.id() == piece.id()
+                        && (otherRowIndex != rowIndex || otherColumnIndex != columnIndex)) {
+                    throw new IllegalArgumentException("Piece #" + piece.id() + " is already placed at ("
+                            + otherRowIndex + "," + otherColumnIndex + ")");
+                }
+            }
+        }
+        board[rowIndex][columnIndex] = piece;
+        solutions = null;
+    }
+
+    /**
+     * Lifts the piece placed at the given position, if any.
+     *
+     * @param rowIndex    the row index
+     * @param columnIndex the column index
+     * @throws IllegalArgumentException if given position is out of the board
+     */
+    public void unplace(final int rowIndex, final int columnIndex) {
+        requirePosition(rowIndex, columnIndex);
+        board[rowIndex][columnIndex] = null;
+        solutions = null;
+    }
+
+    /**
+     * Lifts all the placed pieces.
+     */
+    public void clear() {
+        for (final Piece[] row : board) {
+            Arrays.fill(row, null);
+        }
+        solutions = null;
+    }
+
+    /**
+     * Returns the placed pieces.
+     *
+     * @return a copy of the board, where positions without placed piece are {@code null}
+     */
+    public Piece[][] board() {
+        final var copy = new Piece[board.length][];
+        for (int rowIndex = 0; rowIndex < board.length; rowIndex++) {
+            copy[rowIndex] = board[rowIndex].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns whether the game has a solution with the placed pieces.
+     * <p>
+     * If so, the solution found is the one returned by the next call to {@link #nextSolution()}.
+     *
+     * @return {@code true} if a solution not returned yet exists for the placed pieces
+     */
+    public boolean isSolvable() {
+        return solutions().hasNext();
+    }
+
+    /**
+     * Returns a solution with the placed pieces.
+     * <p>
+     * Successive calls return distinct solutions, until pieces are placed or lifted.
+     *
+     * @return a solution not returned yet for the placed pieces, or an empty value if there is none
+     */
+    public Optional<Piece[][]> nextSolution() {
+        final Iterator<PackedBoard> currentSolutions = solutions();
+        return currentSolutions.hasNext() ? Optional.of(currentSolutions.next().toPieces()) : Optional.empty();
+    }
+
+    /**
+     * Releases the resources of the solver of this session, e.g. the temporary files of an external solver. The
+     * session cannot be queried anymore.
+     */
+    @Override
+    public void close() {
+        backend.close();
+    }
+
+    /**
+     * Returns the solutions for the placed pieces.
+     * <p>
+     * The iterator becomes invalid as soon as a piece is placed or lifted.
+     *
+     * @return the solutions for the placed pieces
+     */
+    Iterator<PackedBoard> solutions() {
+        if (solutions != null) {
+            return solutions;
+        }
+        if (selector != 0) {
+            try {
+                backend.addClause(new VecInt(new int[]{-selector}));
+            } catch (final ContradictionException e) {
+                // Cannot happen: The selector is a fresh variable, only appearing negatively in the blocking clauses
+                throw new IllegalStateException(e);
+            }
+            selector = 0;
+        }
+        final IVecInt assumptions = variables == null ? null : placementAssumptions();
+        if (assumptions == null) {
+            solutions = Collections.emptyIterator();
+        } else {
+            selector = ++variableCount;
+            backend.newVar(variableCount);
+            solutions = new Solutions(variables, backend, assumptions, selector, configuration);
+        }
+        return solutions;
+    }
+
+    /**
+     * Returns the literals of the placed pieces.
+     *
+     * @return the literals, or {@code null} if a placed piece is not possible at its position
+     */
+    private IVecInt placementAssumptions() {
+        final var assumptions = new VecInt();
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final Piece piece = board[rowIndex][columnIndex];
+                if (piece != null) {
+                    final Piece.Rotation rotation = game.piece(piece.id()).rotationTo(piece);
+                    if (!variables.domain().contains(rowIndex, columnIndex, piece.id(), rotation)) {
+                        return null;
+                    }
+                    assumptions.push(variables.representingPiece(rowIndex, columnIndex, piece.id(), rotation));
+                }
+            }
+        }
+        return assumptions;
+    }
+
+    private void requirePosition(final int rowIndex, final int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= game.rowCount() || columnIndex < 0 || columnIndex >= game.columnCount()) {
+            throw new IllegalArgumentException("Position out of board: (" + rowIndex + "," + columnIndex + ")");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package re.belv.eternity2.solver;
+
+import java.util.Iterator;
+
+/**
+ * An iterator of solutions which can move to the next solution without decoding it, e.g. to count the solutions.
+ */
+interface SolutionIterator extends Iterator<PackedBoard> {
+
+    /**
+     * Moves to the next solution, without decoding it if possible.
+     *
+     * @throws java.util.NoSuchElementException if there is no more solution
+     */
+    default void skip() {
+        next();
+    }
+}
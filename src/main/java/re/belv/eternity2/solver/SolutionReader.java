@@ -0,0 +1,183 @@
+package re.belv.eternity2.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator of the solutions of a file written by a {@link SolutionWriter}.
+ * <p>
+ * Solutions are read lazily, through a fixed-size buffer: Iterating over a file does not retain its solutions.
+ * Errors occurring while iterating are thrown as {@link UncheckedIOException}.
+ */
+public final class SolutionReader implements Iterator<PackedBoard>, Closeable {
+
+    /** The file. */
+    private final FileChannel channel;
+
+    /** The bytes read from the file and not decoded yet. */
+    private final ByteBuffer buffer;
+
+    /** The game whose solutions are read. */
+    private final Game game;
+
+    /** The pieces, by id. */
+    private final Piece[] pieces;
+
+    /** Whether the end of the file has been reached. */
+    private boolean endOfFile;
+
+    /**
+     * Opens the given file and reads its header.
+     *
+     * @param file the file to read
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file has not been written by a {@link SolutionWriter}
+     */
+    public SolutionReader(final Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES);
+            readFully(header);
+            if (header.getInt() != SolutionWriter.MAGIC) {
+                throw new IllegalArgumentException("Not a solution file: " + file);
+            }
+            final int version = header.getInt();
+            if (version != SolutionWriter.VERSION) {
+                throw new IllegalArgumentException("Unsupported solution file version: " + version);
+            }
+            final int rowCount = header.getInt();
+            final int columnCount = header.getInt();
+            final long pieceCount = (long) rowCount * columnCount;
+            if (rowCount < 0 || columnCount < 0 || pieceCount > SolutionWriter.MAX_PIECE_COUNT) {
+                throw new IllegalArgumentException("Invalid board dimensions: " + rowCount + "x" + columnCount);
+            }
+            final ByteBuffer colors = ByteBuffer.allocate((int) pieceCount * Piece.Border.count() * Integer.BYTES);
+            readFully(colors);
+            pieces = new Piece[(int) pieceCount];
+            for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+                pieces[pieceIndex] = new Piece(pieceIndex, colors.getInt(), colors.getInt(), colors.getInt(),
+                        colors.getInt());
+            }
+            game = new Game(pieces, new Piece[rowCount][columnCount]);
+            buffer = ByteBuffer.allocateDirect(Math.max(SolutionWriter.BUFFER_SIZE, SolutionWriter.recordSize(game)));
+            buffer.flip();
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the pieces of the game, by id.
+     *
+     * @return the pieces of the game
+     */
+    public Piece[] pieces() {
+        return pieces.clone();
+    }
+
+    /**
+     * Returns the number of rows of the boards.
+     *
+     * @return the number of rows of the boards
+     */
+    public int rowCount() {
+        return game.rowCount();
+    }
+
+    /**
+     * Returns the number of columns of the boards.
+     *
+     * @return the number of columns of the boards
+     */
+    public int columnCount() {
+        return game.columnCount();
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return fill(Integer.BYTES);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public PackedBoard next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        final int positionCount = game.rowCount() * game.columnCount();
+        final int length = buffer.getInt();
+        if (length != Short.BYTES * positionCount) {
+            throw new IllegalArgumentException("Invalid solution length: " + length);
+        }
+        try {
+            if (!fill(length)) {
+                throw new IllegalArgumentException("Truncated solution file");
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final var cells = new int[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            final int cell = buffer.getShort();
+            if (cell != PackedBoard.EMPTY && (cell < 0 || cell >>> 2 >= positionCount)) {
+                throw new IllegalArgumentException("Invalid position value: " + cell);
+            }
+            cells[position] = cell;
+        }
+        return new PackedBoard(game, cells);
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads from the file until the buffer holds at least the given number of bytes.
+     *
+     * @return {@code false} if the end of the file is reached first with an empty buffer
+     * @throws IllegalArgumentException if the end of the file is reached first with a non-empty buffer
+     */
+    private boolean fill(final int byteCount) throws IOException {
+        if (buffer.remaining() >= byteCount) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < byteCount && !endOfFile) {
+            endOfFile = channel.read(buffer) < 0;
+        }
+        buffer.flip();
+        if (buffer.remaining() >= byteCount) {
+            return true;
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Truncated solution file");
+        }
+        return false;
+    }
+
+    private void readFully(final ByteBuffer target) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target) < 0) {
+                throw new IllegalArgumentException("Truncated solution file");
+            }
+        }
+        target.flip();
+    }
+}
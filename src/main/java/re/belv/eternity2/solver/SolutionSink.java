@@ -0,0 +1,21 @@
+package re.belv.eternity2.solver;
+
+import java.io.IOException;
+
+/**
+ * Where the solutions enumerated by {@link Solver#enumerate(Piece[], Piece[][], SolutionSink)} go.
+ * <p>
+ * A sink receives each solution as soon as it is found, so that enumerating does not retain the solutions: Use a
+ * {@link SolutionWriter} to archive them in a file.
+ */
+@FunctionalInterface
+public interface SolutionSink {
+
+    /**
+     * Receives a solution.
+     *
+     * @param solution the solution
+     * @throws IOException if the solution cannot be written; The enumeration stops
+     */
+    void accept(PackedBoard solution) throws IOException;
+}
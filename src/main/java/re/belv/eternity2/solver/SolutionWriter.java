@@ -0,0 +1,152 @@
+package re.belv.eternity2.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A {@link SolutionSink} writing the solutions to a file, in a compact binary format read by {@link SolutionReader}.
+ * <p>
+ * The file is made of big-endian integers. It starts with a header describing the game, so that the file can be read
+ * alone:
+ * <pre>
+ * int   magic number, "E2SB"
+ * int   version of the format
+ * int   number of rows
+ * int   number of columns
+ * int[] north, east, south and west colors of each piece, by id
+ * </pre>
+ * Then each solution is a length-prefixed record holding its positions in row-major order:
+ * <pre>
+ * int     length of the positions, in bytes
+ * short[] id &lt;&lt; 2 | rotation of the piece at each position, -1 if none
+ * </pre>
+ * A solution thus takes 2 bytes per position plus 4, e.g. 1 KiB for a 16x16 board. Solutions are written through a
+ * fixed-size buffer, flushed when full and on {@link #close()}.
+ */
+public final class SolutionWriter implements SolutionSink, Closeable {
+
+    /** The magic number starting the files, "E2SB" in ASCII. */
+    static final int MAGIC = 0x45325342;
+
+    /** The version of the format, increased on incompatible changes. */
+    static final int VERSION = 1;
+
+    /** The size of the buffers. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** The number of pieces beyond which a piece id and its rotation do not fit in a {@code short}. */
+    static final int MAX_PIECE_COUNT = 1 << 13;
+
+    /** The file. */
+    private final FileChannel channel;
+
+    /** The bytes not written to the file yet. */
+    private final ByteBuffer buffer;
+
+    /** The number of rows. */
+    private final int rowCount;
+
+    /** The number of columns. */
+    private final int columnCount;
+
+    /** The number of solutions written. */
+    private long solutionCount;
+
+    /**
+     * Creates the given file and writes its header.
+     *
+     * @param file         the file to write, replaced if it exists
+     * @param pieces       the available pieces, as given to the solver
+     * @param initialBoard the initial board, as given to the solver, giving the board dimensions
+     * @throws IOException              if the file cannot be written
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if the game is invalid, or has more than 8192 pieces
+     */
+    public SolutionWriter(final Path file, final Piece[] pieces, final Piece[][] initialBoard) throws IOException {
+        Objects.requireNonNull(file);
+        final var game = new Game(pieces, initialBoard);
+        if (game.piecesCount() > MAX_PIECE_COUNT) {
+            throw new IllegalArgumentException("Too many pieces: " + game.piecesCount() + " > " + MAX_PIECE_COUNT);
+        }
+        rowCount = game.rowCount();
+        columnCount = game.columnCount();
+        final int headerSize = Integer.BYTES * (4 + Piece.Border.count() * game.piecesCount());
+        buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, Math.max(headerSize, recordSize(game))));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(columnCount);
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            final Piece piece = game.piece(pieceIndex);
+            buffer.putInt(piece.northColor()).putInt(piece.eastColor()).putInt(piece.southColor())
+                    .putInt(piece.westColor());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Returns the size of a record of the given game, length included.
+     *
+     * @param game the game
+     * @return the size of a record, in bytes
+     */
+    static int recordSize(final Game game) {
+        return Integer.BYTES + Short.BYTES * game.rowCount() * game.columnCount();
+    }
+
+    /**
+     * Writes the given solution.
+     *
+     * @param solution the solution
+     * @throws IOException              if the solution cannot be written
+     * @throws IllegalArgumentException if the dimensions of the solution differ from the ones of the file
+     */
+    @Override
+    public void accept(final PackedBoard solution) throws IOException {
+        if (solution.rowCount() != rowCount || solution.columnCount() != columnCount) {
+            throw new IllegalArgumentException("Inconsistent board dimensions: " + solution.rowCount() + "x"
+                    + solution.columnCount() + " != " + rowCount + "x" + columnCount);
+        }
+        final int positionCount = rowCount * columnCount;
+        if (buffer.remaining() < Integer.BYTES + Short.BYTES * positionCount) {
+            flush();
+        }
+        buffer.putInt(Short.BYTES * positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            buffer.putShort((short) solution.cell(position));
+        }
+        solutionCount++;
+    }
+
+    /**
+     * Returns the number of solutions written.
+     *
+     * @return the number of solutions written
+     */
+    public long solutionCount() {
+        return solutionCount;
+    }
+
+    /**
+     * Writes the buffered solutions and closes the file.
+     *
+     * @throws IOException if the solutions cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
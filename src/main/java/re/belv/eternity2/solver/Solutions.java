@@ -1,44 +1,115 @@
 package re.belv.eternity2.solver;
 
-import org.sat4j.specs.ISolver;
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
 import org.sat4j.specs.TimeoutException;
-import org.sat4j.tools.ModelIterator;
 
-import java.io.PrintWriter;
-import java.util.Iterator;
+import java.time.Duration;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An iterator of solver solutions.
+ * <p>
+ * Each model found is blocked by a clause forbidding its placements, so that the next search finds a different
+ * solution.
+ * <p>
+ * Searches run on the thread calling {@link #hasNext()} or {@link #next()}. A single thread, shared by all instances,
+ * periodically samples the statistics of running searches for the {@link SolverListener listener} and stops those
+ * whose calling thread has been interrupted. An interrupted search ends the iteration, as does a call to
+ * {@link #interrupt()}, even if it happens before the search starts.
  */
-final class Solutions implements Iterator<Piece[][]> {
+final class Solutions implements SolutionIterator {
 
-    /** The interval at which to print statistics, in seconds. */
-    private static final int PRINT_STATS_INTERVAL = 5;
+    /** The interval at which to check whether the searching thread has been interrupted, in milliseconds. */
+    private static final int INTERRUPTION_CHECK_INTERVAL = 100;
+
+    /** Samples the statistics and watches for interruptions of the searches of all instances. */
+    static final ScheduledExecutorService MONITOR = newMonitor();
 
     /** The problem variables. */
     private final Variables variables;
 
-    /** The solver backend decorated with {@link ModelIterator}. */
-    private final ISolver backend;
+    /** No assumption. */
+    private static final IVecInt NO_ASSUMPTIONS = new VecInt(0);
+
+    /** The solver backend. */
+    private final Backend backend;
+
+    /** The literals assumed to be satisfied during each search. */
+    private final IVecInt assumptions;
+
+    /** The variable guarding the blocking clauses, 0 if blocking clauses are not guarded. */
+    private final int selector;
+
+    /** The listener of the search progress. */
+    private final SolverListener listener;
 
-    /** Printer for statistics. */
-    private final PrintWriter printer;
+    /** The interval at which the search statistics are sampled. */
+    private final Duration samplingInterval;
+
+    /** Samples the board being built, only used by the monitor thread. */
+    private final BoardSampler boardSampler;
+
+    /** When the first search started, in nanoseconds. */
+    private volatile long startTime;
+
+    /** The number of models found. */
+    private volatile long modelCount;
 
     /** The model to return on call to {@link #next()}. */
     private int[] nextModel;
 
+    /** Whether all the solutions have been found. */
+    private boolean exhausted;
+
+    /** Whether the iteration has been interrupted. */
+    private volatile boolean interrupted;
+
     /**
      * Constructs an instance.
      *
-     * @param variables the problem variables
-     * @param backend   the solver backend
+     * @param variables     the problem variables
+     * @param backend       the solver backend
+     * @param configuration the solver configuration, giving the listener of the search progress
      */
-    Solutions(final Variables variables, final ISolver backend) {
+    Solutions(final Variables variables, final Backend backend, final Configuration configuration) {
+        this(variables, backend, NO_ASSUMPTIONS, 0, configuration);
+    }
+
+    /**
+     * Constructs an instance enumerating the solutions under the given assumptions.
+     * <p>
+     * If a selector is given, it is added to the assumptions and the blocking clauses only apply when the selector is
+     * satisfied: Adding the negation of the selector as a unit clause then removes the effect of the blocking clauses,
+     * so that the backend can be reused for another enumeration.
+     *
+     * @param variables     the problem variables
+     * @param backend       the solver backend
+     * @param assumptions   the literals assumed to be satisfied during each search
+     * @param selector      the variable guarding the blocking clauses, 0 if blocking clauses shall not be guarded
+     * @param configuration the solver configuration, giving the listener of the search progress
+     */
+    Solutions(final Variables variables, final Backend backend, final IVecInt assumptions, final int selector,
+              final Configuration configuration) {
         this.variables = variables;
-        this.backend = new ModelIterator(backend);
-        printer = new PrintWriter(System.out, true);
+        this.backend = backend;
+        this.selector = selector;
+        if (selector == 0) {
+            this.assumptions = assumptions;
+        } else {
+            this.assumptions = new VecInt(assumptions.size() + 1);
+            assumptions.copyTo(this.assumptions);
+            this.assumptions.push(selector);
+        }
+        listener = configuration.listener();
+        samplingInterval = configuration.samplingInterval();
+        boardSampler = new BoardSampler(variables, List.of(backend));
     }
 
     @Override
@@ -47,41 +118,110 @@ final class Solutions implements Iterator<Piece[][]> {
     }
 
     @Override
-    public Piece[][] next() {
+    public PackedBoard next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more solution.");
+        }
+        final PackedBoard board = variables.backToBoard(nextModel);
+        nextModel = null;
+        return board;
+    }
+
+    @Override
+    public void skip() {
         if (!hasNext()) {
             throw new NoSuchElementException("No more solution.");
         }
-        final Piece[][] pieces = variables.backToPieces(nextModel);
         nextModel = null;
-        return pieces;
+    }
+
+    /**
+     * Interrupts the current search, if any, and ends the iteration.
+     * <p>
+     * May be called from any thread. Unlike {@link Backend#interrupt()}, the interruption is not lost if no search is
+     * running: The next search does not start.
+     */
+    void interrupt() {
+        interrupted = true;
+        backend.interrupt();
     }
 
     private int[] nextModel() {
-        if (nextModel != null) {
+        if (nextModel != null || exhausted || interrupted) {
             return nextModel;
         }
 
-        try (final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2)) {
-            executor.scheduleAtFixedRate(this::printStats, PRINT_STATS_INTERVAL, PRINT_STATS_INTERVAL, TimeUnit.SECONDS);
-            nextModel = executor.submit(this::lookForSolution).get();
-        } catch (final InterruptedException e) {
-            // This forces the solver to stop.
-            backend.expireTimeout();
-            Thread.currentThread().interrupt();
-        } catch (final ExecutionException e) {
-            throw new IllegalStateException(e);
+        if (startTime == 0) {
+            startTime = System.nanoTime();
+        }
+        final Thread searchingThread = Thread.currentThread();
+        final ScheduledFuture<?> sampling = listener == SolverListener.NONE ? null
+                : MONITOR.scheduleAtFixedRate(this::sample, samplingInterval.toNanos(), samplingInterval.toNanos(),
+                TimeUnit.NANOSECONDS);
+        final ScheduledFuture<?> interruptionWatching = MONITOR.scheduleAtFixedRate(() -> {
+            // Repeated, so that an interruption arriving before the search starts is not lost
+            if (interrupted || searchingThread.isInterrupted()) {
+                backend.interrupt();
+            }
+        }, INTERRUPTION_CHECK_INTERVAL, INTERRUPTION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        try {
+            nextModel = lookForSolution();
+        } catch (final TimeoutException e) {
+            // Search interrupted, either by the caller thread interruption or by a call to the backend
+        } finally {
+            if (sampling != null) {
+                sampling.cancel(false);
+            }
+            interruptionWatching.cancel(false);
         }
 
         return nextModel;
     }
 
-    private void printStats() {
-        printer.println(PRINT_STATS_INTERVAL + "s elapsed, here are some statistics:");
-        backend.printStat(printer);
-        printer.println("---------------------");
+    /**
+     * Creates the thread shared by all the instances to monitor their search.
+     */
+    private static ScheduledExecutorService newMonitor() {
+        final var monitor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final var thread = new Thread(runnable, "eternity2-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.setRemoveOnCancelPolicy(true);
+        return monitor;
+    }
+
+    private void sample() {
+        final SearchStatistics statistics = statistics();
+        listener.searchSampled(statistics);
+        final BoardSample boardSample = boardSampler.sample(statistics.elapsed());
+        if (boardSample != null) {
+            listener.boardSampled(boardSample);
+        }
+    }
+
+    private SearchStatistics statistics() {
+        return SearchStatistics.of(Duration.ofNanos(System.nanoTime() - startTime), modelCount, List.of(backend));
     }
 
     private int[] lookForSolution() throws TimeoutException {
-        return backend.isSatisfiable() ? backend.model() : null;
+        final int[] model = backend.findModel(assumptions);
+        if (model == null) {
+            exhausted = true;
+            return null;
+        }
+        modelCount++;
+        listener.modelFound(statistics());
+        final IVecInt blockingClause = variables.blockingClauseOf(model);
+        if (selector != 0) {
+            blockingClause.push(-selector);
+        }
+        try {
+            backend.addClause(blockingClause);
+        } catch (final ContradictionException e) {
+            // This model was the last one
+            exhausted = true;
+        }
+        return model;
     }
 }
@@ -0,0 +1,204 @@
+package re.belv.eternity2.solver;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A publisher of the solutions of a game.
+ * <p>
+ * Each subscription runs its own search, with its own solver, on the given executor. Solutions are searched on demand:
+ * The search pauses, without holding a thread, when the subscriber has not requested more solutions. The subscription
+ * is completed when all the solutions have been published, and fails with a {@link TimeoutException} if this takes
+ * longer than the given timeout.
+ */
+final class SolutionsPublisher implements Flow.Publisher<Piece[][]> {
+
+    /** The solver configuration. */
+    private final Configuration configuration;
+
+    /** The available pieces. */
+    private final Piece[] pieces;
+
+    /** The initial board. */
+    private final Piece[][] initialBoard;
+
+    /** The maximum duration of each subscription. */
+    private final Duration timeout;
+
+    /** Where the searches run. */
+    private final Executor executor;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param configuration the solver configuration
+     * @param pieces        the available pieces
+     * @param initialBoard  the initial board
+     * @param timeout       the maximum duration of each subscription
+     * @param executor      where the searches run
+     */
+    SolutionsPublisher(final Configuration configuration, final Piece[] pieces, final Piece[][] initialBoard,
+                       final Duration timeout, final Executor executor) {
+        this.configuration = configuration;
+        this.pieces = pieces;
+        this.initialBoard = initialBoard;
+        this.timeout = timeout;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super Piece[][]> subscriber) {
+        final var subscription = new Subscription(subscriber, new Solver(configuration));
+        subscriber.onSubscribe(subscription);
+        subscription.startDeadline();
+    }
+
+    /**
+     * A subscription, i.e. a search publishing its solutions to a subscriber.
+     * <p>
+     * Signals to the subscriber are only sent by the drain loop, which runs on the executor and never concurrently
+     * with itself, so that they are serialized as required by {@link Flow}.
+     */
+    private final class Subscription implements Flow.Subscription, Runnable {
+
+        /** The subscriber. */
+        private final Flow.Subscriber<? super Piece[][]> subscriber;
+
+        /** The solver dedicated to this subscription. */
+        private final Solver solver;
+
+        /** The number of solutions requested and not published yet. */
+        private final AtomicLong demand;
+
+        /** The number of times the drain loop has been requested to run, 0 if it is not running. */
+        private final AtomicInteger pendingDrains;
+
+        /** Completed when the subscription ends, or exceptionally when the deadline is reached. */
+        private final CompletableFuture<Void> deadline;
+
+        /** The error to signal to the subscriber, if any. */
+        private volatile Throwable error;
+
+        /** Whether the subscription has been cancelled or a terminal signal has been sent. */
+        private volatile boolean terminated;
+
+        /** The solutions, created by the first drain. */
+        private Iterator<Piece[][]> solutions;
+
+        Subscription(final Flow.Subscriber<? super Piece[][]> subscriber, final Solver solver) {
+            this.subscriber = subscriber;
+            this.solver = solver;
+            demand = new AtomicLong();
+            pendingDrains = new AtomicInteger();
+            deadline = new CompletableFuture<>();
+        }
+
+        void startDeadline() {
+            deadline.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS).whenComplete((ignored, timeoutError) -> {
+                if (timeoutError != null && !terminated) {
+                    fail(timeoutError);
+                }
+            });
+        }
+
+        @Override
+        public void request(final long count) {
+            if (count <= 0) {
+                fail(new IllegalArgumentException("Non-positive number of requested solutions: " + count));
+                return;
+            }
+            demand.getAndAccumulate(count, (current, added) -> {
+                final long sum = current + added;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            terminated = true;
+            deadline.complete(null);
+            solver.interrupt();
+            // The drain loop closes the solver once its search is over
+            drain();
+        }
+
+        @Override
+        public void run() {
+            int missedDrains = 1;
+            do {
+                try {
+                    publish();
+                } catch (final RuntimeException e) {
+                    error = e;
+                }
+                if (error != null && !terminated) {
+                    terminate();
+                    subscriber.onError(error);
+                }
+                if (terminated) {
+                    solver.close();
+                }
+                missedDrains = pendingDrains.addAndGet(-missedDrains);
+            } while (missedDrains != 0);
+        }
+
+        /**
+         * Publishes solutions while some are requested.
+         */
+        private void publish() {
+            while (!terminated && error == null && demand.get() > 0) {
+                if (solutions == null) {
+                    solutions = PackedBoard.toPieces(solver.solveBoardsUnlessInterrupted(pieces, initialBoard));
+                    if (terminated || error != null) {
+                        // Cancelled or timed out while encoding
+                        return;
+                    }
+                }
+                final boolean hasNext = solutions.hasNext();
+                if (terminated || error != null) {
+                    // Search interrupted
+                    return;
+                }
+                if (!hasNext) {
+                    terminate();
+                    subscriber.onComplete();
+                    return;
+                }
+                subscriber.onNext(solutions.next());
+                demand.decrementAndGet();
+            }
+        }
+
+        /**
+         * Stops the search and signals the given error to the subscriber.
+         */
+        private void fail(final Throwable cause) {
+            error = cause;
+            solver.interrupt();
+            drain();
+        }
+
+        private void terminate() {
+            terminated = true;
+            deadline.complete(null);
+            solver.interrupt();
+        }
+
+        /**
+         * Runs the drain loop on the executor, unless it is already running.
+         */
+        private void drain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+    }
+}
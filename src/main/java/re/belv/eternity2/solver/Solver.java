@@ -2,15 +2,29 @@ package re.belv.eternity2.solver;
 
 import org.sat4j.minisat.SolverFactory;
 import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.ISolver;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * A solver for the <a href="https://en.wikipedia.org/wiki/Eternity_II_puzzle">Eternity II</a> problem.
  * <p>
- * This class is <em>not</em> thread-safe.
+ * This class is <em>not</em> thread-safe: Use a {@link SolverPool} to solve games for concurrent callers.
+ * <p>
+ * A solver backed by an {@link Configuration#externalSolverCommand() external solver} writes the encoding to a
+ * temporary file, deleted when the solver is {@link #close() closed}.
  * <p>
  * Example of usage:
  * <pre>{@code
@@ -35,16 +49,81 @@ import java.util.Iterator;
  * }
  * </pre>
  */
-public final class Solver {
+public final class Solver implements AutoCloseable {
+
+    /** The actual solver, or {@code null} if the engine does not use a SAT solver. */
+    private final Backend backend;
+
+    /** The solver configuration. */
+    private final Configuration configuration;
+
+    /** The loaded solvers by set of pieces, or {@code null} if encodings are not cached. */
+    private final EncodingCache encodingCache;
+
+    /** The solutions of the last game, if enumerated sequentially by a SAT solver. */
+    private volatile Solutions sequentialSolutions;
+
+    /** The solutions of the last game, if enumerated in parallel. */
+    private volatile ParallelSolutions parallelSolutions;
+
+    /** The solutions of the last game, if searched by the backtracking engine. */
+    private volatile Backtracker backtracker;
+
+    /** The solutions of the last game, if searched by the frame-first engine. */
+    private volatile FrameFirstSolutions frameFirstSolutions;
 
-    /** The actual solver. */
-    private final ISolver backend;
+    /** The checkpoint of the last game, if any. */
+    private Checkpoint checkpoint;
+
+    /** Whether the search for the solutions of the last game has been interrupted. */
+    private volatile boolean interrupted;
 
     /**
-     * Creates an instance.
+     * Creates an instance with the {@link Configuration#defaults() default configuration}.
      */
     public Solver() {
-        backend = SolverFactory.newLight();
+        this(Configuration.defaults());
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param configuration the solver configuration
+     * @throws NullPointerException     if given configuration is {@code null}
+     * @throws IllegalArgumentException if given configuration is inconsistent (e.g. portfolio with an external solver)
+     */
+    public Solver(final Configuration configuration) {
+        this.configuration = Objects.requireNonNull(configuration);
+        if (configuration.engine() == Configuration.Engine.BACKTRACKING) {
+            requireSatEngineDefaults(configuration);
+            backend = null;
+        } else {
+            if (configuration.engine() == Configuration.Engine.FRAME_FIRST
+                    && (configuration.symmetryBreaking() != Configuration.SymmetryBreaking.NONE
+                    || configuration.encodingCacheSize() > 0 || configuration.heapBudget().isPresent()
+                    || configuration.checkpointFile().isPresent())) {
+                throw new IllegalArgumentException("Symmetry breaking, encoding cache, heap budget and checkpoint "
+                        + "are not supported by the " + configuration.engine() + " engine: " + configuration);
+            }
+            if (configuration.checkpointFile().isPresent()
+                    && (configuration.symmetryBreaking() == Configuration.SymmetryBreaking.EXPANDED
+                    || configuration.encodingCacheSize() > 0)) {
+                throw new IllegalArgumentException("Checkpoint is not supported with expanded symmetry breaking nor "
+                        + "encoding cache: " + configuration);
+            }
+            backend = newBackend(configuration);
+        }
+        if (configuration.encodingCacheSize() > 0) {
+            if (configuration.symmetryBreaking() != Configuration.SymmetryBreaking.NONE
+                    || configuration.enumerationWorkerCount() > 1) {
+                throw new IllegalArgumentException("Encoding cache is not supported with symmetry breaking nor "
+                        + "parallel enumeration: " + configuration);
+            }
+            encodingCache = new EncodingCache(configuration.encodingCacheSize(),
+                    configuration.encodingCacheDirectory(), () -> newBackend(configuration), configuration);
+        } else {
+            encodingCache = null;
+        }
     }
 
     /**
@@ -53,27 +132,717 @@ public final class Solver {
      * The search for solution is performed lazily, upon call to the {@link Iterator#hasNext() hasNext} or
      * {@link Iterator#next() next} method of the returned solution {@link Iterator}.
      * <p>
-     * A second call to this method will reset the solver and make the iterator returned on first call invalid.
+     * A second call to this method will reset the solver and make the iterator returned on first call invalid, unlike
+     * {@link SolverPool#solveBoards(Piece[], Piece[][])}.
+     * <p>
+     * If the {@link Configuration#encodingCacheSize() encoding cache} is enabled, the solver loaded with the pieces
+     * of a previous call is reused: Only the fixed pieces of the initial board change.
+     * <p>
+     * If {@link Configuration#enumerationWorkerCount() parallel enumeration} is enabled, the search starts
+     * immediately in background threads and the solutions are returned in no particular order.
+     * <p>
+     * If {@link Configuration#symmetryBreaking() symmetry breaking} is enabled, solutions which are a symmetric image
+     * of another solution are either not returned ({@link Configuration.SymmetryBreaking#CANONICAL CANONICAL}) or
+     * derived from the canonical solution instead of being searched for
+     * ({@link Configuration.SymmetryBreaking#EXPANDED EXPANDED}).
+     * <p>
+     * With the {@link Configuration.Engine#FRAME_FIRST frame-first} engine, the search also starts immediately in
+     * background threads, and the solutions are returned frame by frame.
      *
      * @param pieces       the available pieces
      * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
      * @return an iterator on the solutions (the pieces representing the solved board)
      * @throws NullPointerException     if any argument is {@code null}
      * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if the estimated memory of the encoding exceeds the
+     *                                  {@link Configuration#heapBudget() heap budget}
      */
     public Iterator<Piece[][]> solve(final Piece[] pieces, final Piece[][] initialBoard) {
-        final var game = new Game(pieces, initialBoard);
-        final var variables = new Variables(game);
-        final var constraints = new Constraints(variables, game);
+        return PackedBoard.toPieces(solveBoards(pieces, initialBoard));
+    }
+
+    /**
+     * Solves the given game, returning the solutions as {@link PackedBoard packed boards}.
+     * <p>
+     * Same as {@link #solve(Piece[], Piece[][])}, except that the solutions are not translated to pieces: Prefer this
+     * method when enumerating many solutions, the pieces of a solution being built only on demand, by
+     * {@link PackedBoard#toPieces()}.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @return an iterator on the solutions
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if the estimated memory of the encoding exceeds the
+     *                                  {@link Configuration#heapBudget() heap budget}
+     * @throws UncheckedIOException     if the {@link Configuration#checkpointFile() checkpoint file} cannot be
+     *                                  written, either now or as the solutions are returned
+     */
+    public Iterator<PackedBoard> solveBoards(final Piece[] pieces, final Piece[][] initialBoard) {
+        interrupted = false;
+        return solveBoardsUnlessInterrupted(pieces, initialBoard);
+    }
+
+    /**
+     * Same as {@link #solveBoards(Piece[], Piece[][])}, except that an {@link #interrupt() interruption} issued before
+     * this call is kept: The returned iteration then ends right away. Used by the solvers dedicated to an asynchronous
+     * search, which may be interrupted before their search starts.
+     */
+    Iterator<PackedBoard> solveBoardsUnlessInterrupted(final Piece[] pieces, final Piece[][] initialBoard) {
+        try {
+            return solveBoards(pieces, initialBoard, false);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Resumes the enumeration of the solutions of the given game from the
+     * {@link Configuration#checkpointFile() checkpoint file}.
+     * <p>
+     * Same as {@link #solveBoards(Piece[], Piece[][])}, except that the solutions returned before the checkpoint
+     * was last flushed are not returned again, and the parts of the search space exhausted by then are not searched
+     * again. The checkpoint file goes on recording the progress of the resumed enumeration, so that it can be resumed
+     * again. The configuration may differ from the one of the interrupted enumeration, e.g. by its number of
+     * enumeration workers, as long as the color encoding is the same.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @return an iterator on the solutions not returned before the checkpoint
+     * @throws IOException              if the checkpoint file cannot be read
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid, or if the checkpoint file is not a checkpoint of the
+     *                                  given game with the configured color encoding
+     * @throws IllegalStateException    if no checkpoint file is configured, or if the estimated memory of the encoding
+     *                                  exceeds the {@link Configuration#heapBudget() heap budget}
+     * @throws UncheckedIOException     if the checkpoint file cannot be written as the solutions are returned
+     */
+    public Iterator<PackedBoard> resume(final Piece[] pieces, final Piece[][] initialBoard) throws IOException {
+        if (configuration.checkpointFile().isEmpty()) {
+            throw new IllegalStateException("No checkpoint file configured: " + configuration);
+        }
+        interrupted = false;
+        return solveBoards(pieces, initialBoard, true);
+    }
+
+    private Iterator<PackedBoard> solveBoards(final Piece[] pieces, final Piece[][] initialBoard,
+                                              final boolean resume) throws IOException {
+        stopBackgroundSearch();
+        final var game = new Game(pieces, initialBoard, configuration.frameColor());
+        final var domain = new Domain(game);
+        if (domain.isInconsistent() || interrupted) {
+            return Collections.emptyIterator();
+        }
+        if (configuration.engine() == Configuration.Engine.BACKTRACKING) {
+            backtracker = new Backtracker(game, domain);
+            return interruptedIfRequested(backtracker);
+        }
+        if (configuration.engine() == Configuration.Engine.FRAME_FIRST) {
+            frameFirstSolutions = new FrameFirstSolutions(game, domain, () -> newBackend(configuration),
+                    configuration);
+            return interruptedIfRequested(frameFirstSolutions);
+        }
+        if (encodingCache != null) {
+            return encodingCache.solutionsOf(game);
+        }
+        final var symmetries = new Symmetries(game);
+        final Configuration.ColorEncoding colorEncoding;
+        final long expectedConstraintCount;
+        if (configuration.heapBudget().isPresent()) {
+            // The estimate takes a pass over the constraints: Only pay for it when there is a budget to enforce
+            final MemoryReport memoryReport = memoryReportWithinBudget(game, domain, symmetries,
+                    configuration.heapBudget().getAsLong());
+            colorEncoding = memoryReport.colorEncoding();
+            expectedConstraintCount = memoryReport.constraintCount();
+        } else {
+            colorEncoding = configuration.colorEncoding();
+            expectedConstraintCount = 0;
+        }
+        final var variables = new Variables(game, domain, colorEncoding);
+        final Configuration.SymmetryBreaking symmetryBreaking = configuration.symmetryBreaking();
+        final Encoder encoder = encoderOf(game, variables, symmetries, configuration.listener(),
+                expectedConstraintCount);
+        if (configuration.checkpointFile().isPresent()) {
+            final Path checkpointFile = configuration.checkpointFile().get();
+            checkpoint = resume
+                    ? Checkpoint.resume(checkpointFile, configuration.checkpointInterval(), game, colorEncoding)
+                    : Checkpoint.start(checkpointFile, configuration.checkpointInterval(), game, colorEncoding);
+        }
 
+        Iterator<PackedBoard> solutions;
+        if (configuration.enumerationWorkerCount() > 1) {
+            parallelSolutions = new ParallelSolutions(variables, game, () -> newBackend(configuration), encoder,
+                    configuration, checkpoint);
+            solutions = interruptedIfRequested(parallelSolutions);
+        } else {
+            backend.reset();
+            backend.newVar(variables.count());
+            try {
+                encoder.encodeTo(backend);
+                if (checkpoint != null) {
+                    checkpoint.blockResumedSolutions(variables, backend);
+                }
+                sequentialSolutions = new Solutions(variables, backend, configuration);
+                solutions = interruptedIfRequested(sequentialSolutions);
+            } catch (final ContradictionException e) {
+                solutions = Collections.emptyIterator();
+            }
+        }
+        if (checkpoint != null) {
+            solutions = new CheckpointedSolutions(solutions, checkpoint);
+        }
+        if (symmetryBreaking == Configuration.SymmetryBreaking.EXPANDED) {
+            return new ExpandedSolutions(solutions, symmetries);
+        }
+        return solutions;
+    }
+
+    /**
+     * Solves the given game, passing each solution to the given sink as soon as it is found.
+     * <p>
+     * Same as {@link #solveBoards(Piece[], Piece[][])}, except that the solutions are pushed to the sink instead of
+     * being pulled from an iterator: Use a {@link SolutionWriter} to archive all the solutions of a game in a file.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param sink         where the solutions go
+     * @return the number of solutions passed to the sink
+     * @throws IOException              if the sink fails to receive a solution; The enumeration then stops
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if the estimated memory of the encoding exceeds the
+     *                                  {@link Configuration#heapBudget() heap budget}
+     */
+    public long enumerate(final Piece[] pieces, final Piece[][] initialBoard, final SolutionSink sink)
+            throws IOException {
+        Objects.requireNonNull(sink);
+        final Iterator<PackedBoard> solutions = solveBoards(pieces, initialBoard);
+        long solutionCount = 0;
+        try {
+            while (solutions.hasNext()) {
+                sink.accept(solutions.next());
+                solutionCount++;
+            }
+        } catch (final IOException e) {
+            interrupt();
+            throw e;
+        }
+        return solutionCount;
+    }
+
+    /**
+     * Counts the solutions of the given game.
+     * <p>
+     * The solutions are enumerated as by {@link #solveBoards(Piece[], Piece[][])}, but not decoded, except with
+     * {@link Configuration#enumerationWorkerCount() parallel enumeration},
+     * {@link Configuration.SymmetryBreaking#EXPANDED expanded symmetry breaking} or the
+     * {@link Configuration.Engine#FRAME_FIRST frame-first} engine, which need the solutions to go on.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @return the number of solutions
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if the estimated memory of the encoding exceeds the
+     *                                  {@link Configuration#heapBudget() heap budget}
+     */
+    public long count(final Piece[] pieces, final Piece[][] initialBoard) {
+        final Iterator<PackedBoard> solutions = solveBoards(pieces, initialBoard);
+        long solutionCount = 0;
+        while (solutions.hasNext()) {
+            if (solutions instanceof SolutionIterator solutionIterator) {
+                solutionIterator.skip();
+            } else {
+                solutions.next();
+            }
+            solutionCount++;
+        }
+        return solutionCount;
+    }
+
+    /**
+     * Searches for boards matching as many edges as possible, for games which have no solution or whose solutions are
+     * too hard to find.
+     * <p>
+     * Unlike in {@link #solve(Piece[], Piece[][])}, adjacent borders may have different colors: The score of a board
+     * is its {@link BoardSample.Board#matchedEdgeCount() number of matched edges} between adjacent positions, as in
+     * the original Eternity II contest. All the other rules apply, including fixed pieces and frame color. Boards are
+     * returned from the worst to the best: Each board has a better score than the previous one. Searches are performed
+     * lazily, upon call to the {@link Iterator#hasNext() hasNext} or {@link Iterator#next() next} method of the
+     * returned iterator. The iteration ends:
+     * <ul>
+     *     <li>once a board with the target score, or a better one, has been returned;</li>
+     *     <li>when there is no better board, the last board returned being then optimal;</li>
+     *     <li>when the time limit, counted from this call, is reached, the last board returned being then the best
+     *     found.</li>
+     * </ul>
+     * <p>
+     * {@link Configuration#symmetryBreaking() Symmetry breaking}, if enabled, only removes boards which are a
+     * symmetric image of another board with the same score. Parallel enumeration and the encoding cache do not apply.
+     * A second call to this method or to the {@code solve} methods resets the solver and makes the returned iterator
+     * invalid.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param targetScore  the score at which to stop, e.g. the number of edges to stop at the first solution
+     * @param timeLimit    the maximum duration of the optimization
+     * @return an iterator on boards with increasing scores
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board
+     *                                  dimensions) or if given target score is negative
+     * @throws IllegalStateException    if the engine does not use a SAT solver
+     */
+    public Iterator<BoardSample.Board> optimize(final Piece[] pieces, final Piece[][] initialBoard,
+                                                final int targetScore, final Duration timeLimit) {
+        final long startTime = System.nanoTime();
+        requireSatEngine();
+        Objects.requireNonNull(timeLimit);
+        if (targetScore < 0) {
+            throw new IllegalArgumentException("Negative target score: " + targetScore);
+        }
+        stopBackgroundSearch();
+        final var game = new Game(pieces, initialBoard, configuration.frameColor());
+        final var domain = new Domain(game, false);
+        if (domain.isInconsistent()) {
+            return Collections.emptyIterator();
+        }
+        final var variables = new Variables(game, domain);
+        final var constraints = new Constraints(variables, game);
+        final int firstMismatchVariable = variables.count() + 1;
         backend.reset();
-        backend.newVar(variables.count());
+        backend.newVar(variables.count() + game.edgeCount());
+        final var recorder = new EncodingRecorder(backend);
         try {
-            constraints.addAllConstraintsTo(backend);
+            constraints.addRelaxedConstraintsTo(recorder, firstMismatchVariable);
+            if (configuration.symmetryBreaking() != Configuration.SymmetryBreaking.NONE) {
+                constraints.addSymmetryBreakingConstraintsTo(recorder, new Symmetries(game));
+            }
         } catch (final ContradictionException e) {
             return Collections.emptyIterator();
         }
+        configuration.listener().encoded(recorder.finish());
+        return new Optimization(variables, backend, firstMismatchVariable, game.edgeCount(), targetScore,
+                startTime, timeLimit, configuration);
+    }
+
+    /**
+     * Searches asynchronously for a solution of the given game, on the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param timeout      the maximum duration of the search
+     * @return the future solution
+     * @see #solveAsync(Piece[], Piece[][], Duration, Executor)
+     */
+    public CompletableFuture<Optional<Piece[][]>> solveAsync(final Piece[] pieces, final Piece[][] initialBoard,
+                                                             final Duration timeout) {
+        return solveAsync(pieces, initialBoard, timeout, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Searches asynchronously for a solution of the given game.
+     * <p>
+     * The search runs on the given executor with a solver dedicated to this call, so that any number of searches may
+     * run concurrently, and independently of the {@code solve} methods of this instance. Unless
+     * {@link Configuration#enumerationWorkerCount() parallel enumeration} or a
+     * {@link Configuration#portfolioSize() portfolio} is configured, no thread is created: The search occupies a
+     * thread of the executor, which may be a virtual thread.
+     * <p>
+     * The returned future completes with the first solution found, with an empty value if the game has no solution,
+     * or exceptionally with a {@link TimeoutException} if the timeout is reached first. Cancelling the future, or
+     * reaching the timeout, stops the search right away. Neither the
+     * {@link Configuration#encodingCacheSize() encoding cache} nor the {@link Configuration#checkpointFile() checkpoint
+     * file} is used.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param timeout      the maximum duration of the search
+     * @param executor     where to run the search
+     * @return the future solution
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     */
+    public CompletableFuture<Optional<Piece[][]>> solveAsync(final Piece[] pieces, final Piece[][] initialBoard,
+                                                             final Duration timeout, final Executor executor) {
+        Objects.requireNonNull(timeout);
+        Objects.requireNonNull(executor);
+        Game.validate(pieces, initialBoard, configuration.frameColor());
+        final var solver = new Solver(asyncConfiguration());
+        final var future = new CompletableFuture<Optional<Piece[][]>>();
+        future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((solution, error) -> solver.interrupt());
+        executor.execute(() -> {
+            try (solver) {
+                if (future.isDone()) {
+                    return;
+                }
+                final Iterator<Piece[][]> solutions =
+                        PackedBoard.toPieces(solver.solveBoardsUnlessInterrupted(pieces, initialBoard));
+                if (future.isDone()) {
+                    // Timed out or cancelled while encoding
+                    return;
+                }
+                future.complete(solutions.hasNext() ? Optional.of(solutions.next()) : Optional.empty());
+            } catch (final RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Publishes the solutions of the given game, searched asynchronously.
+     * <p>
+     * Each subscription runs its own search on the given executor, with a solver dedicated to this subscription, as
+     * described in {@link #solveAsync(Piece[], Piece[][], Duration, Executor)}. Solutions are searched as the
+     * subscriber requests them: No executor thread is held while the subscriber has not requested more solutions.
+     * <p>
+     * The subscription completes once all the solutions have been published, or fails with a
+     * {@link TimeoutException} if the timeout is reached first. Cancelling the subscription, or reaching the timeout,
+     * stops the search right away.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param timeout      the maximum duration of each subscription
+     * @param executor     where to run the searches
+     * @return the publisher of the solutions
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     */
+    public Flow.Publisher<Piece[][]> solutionsAsync(final Piece[] pieces, final Piece[][] initialBoard,
+                                                    final Duration timeout, final Executor executor) {
+        Objects.requireNonNull(timeout);
+        Objects.requireNonNull(executor);
+        Game.validate(pieces, initialBoard, configuration.frameColor());
+        return new SolutionsPublisher(asyncConfiguration(), pieces, initialBoard, timeout, executor);
+    }
+
+    /**
+     * Returns the configuration of the solvers dedicated to asynchronous searches, which use neither the encoding cache
+     * nor the checkpoint file of this solver: Their checkpoints would replace the one of the enumeration of this solver.
+     */
+    private Configuration asyncConfiguration() {
+        return configuration.withEncodingCache(0).withoutCheckpoint();
+    }
+
+    /**
+     * Interrupts the search for the solutions of the last game, if any: The iteration ends as soon as possible.
+     * <p>
+     * May be called from any thread, including while the game is being encoded: The search then does not start. The
+     * interruption is cleared by the next call to the {@code solve} methods.
+     */
+    void interrupt() {
+        interrupted = true;
+        if (backend != null) {
+            backend.interrupt();
+        }
+        final Solutions currentSequentialSolutions = sequentialSolutions;
+        if (currentSequentialSolutions != null) {
+            currentSequentialSolutions.interrupt();
+        }
+        final ParallelSolutions currentParallelSolutions = parallelSolutions;
+        if (currentParallelSolutions != null) {
+            currentParallelSolutions.stop();
+        }
+        final Backtracker currentBacktracker = backtracker;
+        if (currentBacktracker != null) {
+            currentBacktracker.interrupt();
+        }
+        final FrameFirstSolutions currentFrameFirstSolutions = frameFirstSolutions;
+        if (currentFrameFirstSolutions != null) {
+            currentFrameFirstSolutions.stop();
+        }
+    }
+
+    /**
+     * Returns the given solutions of the last game, once interrupted if this solver has been interrupted while they
+     * were created, the interruption having then missed them.
+     */
+    private <T extends Iterator<PackedBoard>> T interruptedIfRequested(final T solutions) {
+        if (interrupted) {
+            interrupt();
+        }
+        return solutions;
+    }
+
+    /**
+     * Stops the background threads searching for the solutions of the last game, if any, and flushes and closes its
+     * checkpoint.
+     */
+    private void stopBackgroundSearch() {
+        if (parallelSolutions != null) {
+            parallelSolutions.stop();
+            parallelSolutions = null;
+        }
+        if (frameFirstSolutions != null) {
+            frameFirstSolutions.stop();
+            frameFirstSolutions = null;
+        }
+        if (checkpoint != null) {
+            try {
+                checkpoint.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                checkpoint = null;
+            }
+        }
+    }
+
+    /**
+     * Stops the search for the solutions of the last game, if any, and releases the resources of the SAT solvers, e.g.
+     * the temporary files of an external solver. This solver cannot be used anymore.
+     * <p>
+     * The {@link Session sessions} opened by this solver have their own SAT solver: They shall be closed separately.
+     */
+    @Override
+    public void close() {
+        stopBackgroundSearch();
+        if (backend != null) {
+            backend.close();
+        }
+        if (encodingCache != null) {
+            encodingCache.close();
+        }
+    }
+
+    /**
+     * Opens a session on the given game, where pieces can be placed and lifted between queries.
+     * <p>
+     * The game is encoded once in a dedicated solver, independent of this one: Calls to the {@code solve} methods
+     * do not affect the session. The pieces of the initial board are placed on the session, but, unlike in
+     * {@link #solve(Piece[], Piece[][])}, they can be lifted.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board, whose non-{@code null} pieces are placed on the session
+     * @return the session
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if the engine does not use a SAT solver or if symmetry breaking is enabled,
+     *                                  since symmetries depend on the placed pieces
+     */
+    public Session newSession(final Piece[] pieces, final Piece[][] initialBoard) {
+        requireSatEngine();
+        if (configuration.symmetryBreaking() != Configuration.SymmetryBreaking.NONE) {
+            throw new IllegalStateException("Sessions are not supported with symmetry breaking");
+        }
+        final var game = new Game(pieces, initialBoard, configuration.frameColor());
+        final var emptyBoard = new Piece[game.rowCount()][game.columnCount()];
+        final Session session;
+        try {
+            session = Session.load(new Game(pieces, emptyBoard, configuration.frameColor()),
+                    newBackend(configuration), Optional.empty(), configuration);
+        } catch (final IOException e) {
+            // Cannot happen without file
+            throw new UncheckedIOException(e);
+        }
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                final int row = rowIndex;
+                final int column = columnIndex;
+                game.initialBoardPiece(rowIndex, columnIndex).ifPresent(piece -> session.place(row, column, piece));
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Writes the encoding of the given game to the given file, in DIMACS CNF format.
+     * <p>
+     * The encoding includes the {@link Configuration#symmetryBreaking() symmetry breaking} constraints and the
+     * {@link Configuration#frameColor() frame color} of the configuration, and follows its
+     * {@link Configuration#colorEncoding() color encoding}. The file starts with comments describing
+     * the game and the meaning of the variables, so that it can be solved by any SAT solver, or by
+     * {@link #solve(Path)}. Clauses are streamed to the file, so that memory usage does not depend on their number.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @param file         the file to write, replaced if it exists
+     * @throws IOException              if the file cannot be written
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if the engine does not use a SAT solver
+     */
+    public void export(final Piece[] pieces, final Piece[][] initialBoard, final Path file) throws IOException {
+        requireSatEngine();
+        Objects.requireNonNull(file);
+        final var game = new Game(pieces, initialBoard, configuration.frameColor());
+        final var domain = new Domain(game);
+        final var variables = new Variables(game, domain, configuration.colorEncoding());
+        final var encoder = encoderOf(game, variables, new Symmetries(game), SolverListener.NONE, 0);
+        DimacsFile.write(file, game, variables, configuration.symmetryBreaking(), encoder);
+    }
+
+    /**
+     * Solves the game encoded in the given file, previously written by {@link #export}.
+     * <p>
+     * The game, its symmetry breaking constraints, its frame color and its color encoding are read from the file: The
+     * corresponding options of the configuration are ignored. Solutions are enumerated sequentially, even if
+     * {@link Configuration#enumerationWorkerCount() parallel enumeration} is enabled. Otherwise, this method behaves
+     * like {@link #solve(Piece[], Piece[][])}.
+     *
+     * @param file the file to read
+     * @return an iterator on the solutions (the pieces representing the solved board)
+     * @throws IOException              if the file cannot be read
+     * @throws NullPointerException     if given file is {@code null}
+     * @throws IllegalArgumentException if given file is not a game encoding written by {@link #export}
+     * @throws IllegalStateException    if the engine does not use a SAT solver
+     */
+    public Iterator<Piece[][]> solve(final Path file) throws IOException {
+        requireSatEngine();
+        Objects.requireNonNull(file);
+        stopBackgroundSearch();
+        interrupted = false;
+        backend.reset();
+        final var recorder = new EncodingRecorder(backend);
+        recorder.startPhase("dimacsFile");
+        final DimacsFile.Problem problem = DimacsFile.read(file, recorder);
+        configuration.listener().encoded(recorder.finish());
+        if (!problem.satisfiable()) {
+            return Collections.emptyIterator();
+        }
+        final var solutions = new Solutions(problem.variables(), backend, configuration);
+        sequentialSolutions = solutions;
+        if (problem.symmetryBreaking() == Configuration.SymmetryBreaking.EXPANDED) {
+            return PackedBoard.toPieces(new ExpandedSolutions(solutions, new Symmetries(problem.game())));
+        }
+        return PackedBoard.toPieces(solutions);
+    }
 
-        return new Solutions(variables, backend);
+    /**
+     * Returns the estimated memory of the encoding of the given game, before encoding it.
+     * <p>
+     * The estimate follows the configuration: color encoding, cardinality encoding, symmetry breaking and number of
+     * solvers, i.e. portfolio size and enumeration workers. It takes a pass over the constraints, which are counted
+     * but not retained: It takes about as long as the encoding itself, but allocates almost nothing.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @return the estimated memory of the encoding, by constraint family
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board
+     *                                  dimensions)
+     * @throws IllegalStateException    if the engine does not use a SAT solver
+     */
+    public MemoryReport memoryReport(final Piece[] pieces, final Piece[][] initialBoard) {
+        requireSatEngine();
+        final var game = new Game(pieces, initialBoard, configuration.frameColor());
+        return memoryReportOf(game, new Domain(game), new Symmetries(game), configuration.colorEncoding());
+    }
+
+    /**
+     * Returns the memory report of the configured color encoding if it fits in the given heap budget, otherwise the one
+     * of the most compact color encoding fitting in it if the encoding may be degraded.
+     *
+     * @throws IllegalStateException if no allowed encoding fits in the heap budget
+     */
+    private MemoryReport memoryReportWithinBudget(final Game game, final Domain domain, final Symmetries symmetries,
+                                                  final long budget) {
+        final MemoryReport report = memoryReportOf(game, domain, symmetries, configuration.colorEncoding());
+        if (report.estimatedBytes() <= budget) {
+            return report;
+        }
+        MemoryReport degradedReport = null;
+        if (configuration.heapBudgetPolicy() == Configuration.HeapBudgetPolicy.DEGRADE) {
+            for (final Configuration.ColorEncoding colorEncoding : Configuration.ColorEncoding.values()) {
+                if (colorEncoding == configuration.colorEncoding()) {
+                    continue;
+                }
+                final MemoryReport candidate = memoryReportOf(game, domain, symmetries, colorEncoding);
+                if (candidate.estimatedBytes() <= budget && (degradedReport == null
+                        || candidate.estimatedBytes() < degradedReport.estimatedBytes())) {
+                    degradedReport = candidate;
+                }
+            }
+        }
+        if (degradedReport == null) {
+            throw new IllegalStateException("Estimated encoding memory exceeds the heap budget: "
+                    + report.estimatedBytes() + " > " + budget + " bytes");
+        }
+        return degradedReport;
+    }
+
+    private MemoryReport memoryReportOf(final Game game, final Domain domain, final Symmetries symmetries,
+                                        final Configuration.ColorEncoding colorEncoding) {
+        final var variables = new Variables(game, domain, colorEncoding);
+        final var estimator = new MemoryEstimator(configuration.cardinalityEncoding());
+        estimator.newVar(variables.count());
+        if (!domain.isInconsistent()) {
+            final var constraints = new Constraints(variables, game);
+            try {
+                constraints.addAllConstraintsTo(estimator);
+                if (configuration.symmetryBreaking() != Configuration.SymmetryBreaking.NONE) {
+                    constraints.addSymmetryBreakingConstraintsTo(estimator, symmetries);
+                }
+            } catch (final ContradictionException e) {
+                // The estimator retains nothing, hence cannot detect any contradiction
+                throw new IllegalStateException(e);
+            }
+        }
+        return estimator.finish(colorEncoding, configuration.portfolioSize() * configuration.enumerationWorkerCount());
+    }
+
+    /**
+     * Returns the encoder of the given game.
+     *
+     * @param expectedConstraintCount the number of constraints the encoding is expected to pass to the backend, so
+     *                                that it is sized once; 0 if unknown
+     */
+    private Encoder encoderOf(final Game game, final Variables variables, final Symmetries symmetries,
+                              final SolverListener listener, final long expectedConstraintCount) {
+        final Configuration.SymmetryBreaking symmetryBreaking = configuration.symmetryBreaking();
+        return target -> {
+            if (expectedConstraintCount > 0) {
+                target.expectConstraints((int) Math.min(expectedConstraintCount, Integer.MAX_VALUE));
+            }
+            final var recorder = new EncodingRecorder(target);
+            final var constraints = new Constraints(variables, game);
+            constraints.addAllConstraintsTo(recorder);
+            if (symmetryBreaking != Configuration.SymmetryBreaking.NONE) {
+                constraints.addSymmetryBreakingConstraintsTo(recorder, symmetries);
+            }
+            listener.encoded(recorder.finish());
+        };
+    }
+
+    private void requireSatEngine() {
+        if (backend == null) {
+            throw new IllegalStateException("Not supported by the " + configuration.engine() + " engine");
+        }
+    }
+
+    private static void requireSatEngineDefaults(final Configuration configuration) {
+        final Configuration defaults = Configuration.defaults();
+        if (configuration.symmetryBreaking() != defaults.symmetryBreaking()
+                || !configuration.externalSolverCommand().equals(defaults.externalSolverCommand())
+                || configuration.portfolioSize() != defaults.portfolioSize()
+                || configuration.enumerationWorkerCount() != defaults.enumerationWorkerCount()
+                || configuration.encodingCacheSize() != defaults.encodingCacheSize()
+                || configuration.colorEncoding() != defaults.colorEncoding()
+                || configuration.cardinalityEncoding() != defaults.cardinalityEncoding()
+                || !configuration.heapBudget().equals(defaults.heapBudget())
+                || configuration.checkpointFile().isPresent()) {
+            throw new IllegalArgumentException("Options of the SAT engine are not supported by the "
+                    + configuration.engine() + " engine: " + configuration);
+        }
+    }
+
+    private static Backend newBackend(final Configuration configuration) {
+        final Backend backend = newSolverBackend(configuration);
+        return configuration.cardinalityEncoding() == Configuration.CardinalityEncoding.NATIVE ? backend
+                : CardinalityEncoder.encodingTo(backend, configuration.cardinalityEncoding());
+    }
+
+    private static Backend newSolverBackend(final Configuration configuration) {
+        if (!configuration.externalSolverCommand().isEmpty()) {
+            if (configuration.portfolioSize() > 1) {
+                throw new IllegalArgumentException("Portfolio is not supported with an external solver");
+            }
+            return new ExternalBackend(configuration.externalSolverCommand());
+        }
+        if (configuration.portfolioSize() > 1) {
+            return new Sat4jBackend(Portfolio.newSolver(configuration.portfolioSize()));
+        }
+        return new Sat4jBackend(SolverFactory.newLight());
     }
 }
@@ -0,0 +1,63 @@
+package re.belv.eternity2.solver;
+
+/**
+ * A listener of the progress of a {@link Solver}, e.g. to export metrics.
+ * <p>
+ * Listeners are given to the solver through its {@link Configuration#withListener(SolverListener) configuration}.
+ * All methods do nothing by default, so that implementations only override the ones they need.
+ * <p>
+ * Methods are called synchronously, from the thread encoding or searching, or from a thread shared by all the solvers
+ * for periodic samples: Implementations must be thread-safe and return quickly. Only the SAT engine reports its
+ * progress.
+ *
+ * @see JfrSolverListener
+ */
+public interface SolverListener {
+
+    /** A listener doing nothing. */
+    SolverListener NONE = new SolverListener() {
+        // Nothing to override
+    };
+
+    /**
+     * Called once a game has been encoded into a SAT solver.
+     *
+     * @param statistics the encoding statistics
+     */
+    default void encoded(final EncodingStatistics statistics) {
+        // Nothing to do by default
+    }
+
+    /**
+     * Called periodically during a search, at the {@link Configuration#samplingInterval() sampling interval}.
+     *
+     * @param statistics the statistics of the search so far
+     */
+    default void searchSampled(final SearchStatistics statistics) {
+        // Nothing to do by default
+    }
+
+    /**
+     * Called periodically during a search, at the {@link Configuration#samplingInterval() sampling interval}, with
+     * the board being built by the search and the best board seen so far.
+     * <p>
+     * Boards are only sampled if the solver exposes its current assignment, which is the case of the embedded Sat4j
+     * solver but not of an external solver.
+     *
+     * @param sample the sampled boards
+     */
+    default void boardSampled(final BoardSample sample) {
+        // Nothing to do by default
+    }
+
+    /**
+     * Called each time a model is found.
+     * <p>
+     * The elapsed time of the statistics of the first model is the time to first model.
+     *
+     * @param statistics the statistics of the search so far, including this model
+     */
+    default void modelFound(final SearchStatistics statistics) {
+        // Nothing to do by default
+    }
+}
@@ -0,0 +1,221 @@
+package re.belv.eternity2.solver;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of {@link Solver solvers}, solving games for concurrent callers.
+ * <p>
+ * A {@link Solver} is not thread-safe, and a new search on a solver invalidates the solutions of the previous one.
+ * Creating a solver per game, on the other hand, throws away the allocations of the SAT solver, which grow to the
+ * size of the games solved. A pool leases each search a solver of its own, which is given back to the pool once the
+ * {@link PooledSolutions solutions} are exhausted or closed, and reused by the next searches.
+ * <p>
+ * The pool holds at most a given number of solvers: A search waits when they are all leased. Solvers left idle for
+ * longer than the idle timeout are dropped and {@link Solver#close() closed}, so that an idle pool does not retain the
+ * memory of past searches.
+ * <p>
+ * This class is thread-safe.
+ * <p>
+ * Example of usage:
+ * <pre>{@code
+ * try (final var pool = new SolverPool(Configuration.defaults(), 8, Duration.ofMinutes(1))) {
+ *     // From any thread
+ *     try (final PooledSolutions solutions = pool.solveBoards(pieces, initialBoard)) {
+ *         final boolean solved = solutions.hasNext();
+ *     }
+ * }
+ * }</pre>
+ */
+public final class SolverPool implements AutoCloseable {
+
+    /** The configuration of the solvers. */
+    private final Configuration configuration;
+
+    /** The idle timeout, in nanoseconds. */
+    private final long idleTimeout;
+
+    /** The idle solvers, the most recently released first, guarded by this instance. */
+    private final Deque<IdleSolver> idleSolvers;
+
+    /** The solvers which can still be leased, idle or not created yet. */
+    private final Semaphore availableSolvers;
+
+    /** The periodic eviction of the idle solvers. */
+    private final ScheduledFuture<?> eviction;
+
+    /** Whether this pool has been closed, guarded by this instance. */
+    private boolean closed;
+
+    /**
+     * Creates an instance.
+     * <p>
+     * A first solver is created right away, so that an inconsistent configuration is reported now rather than by the
+     * first search.
+     *
+     * @param configuration the configuration of the solvers
+     * @param maximumSize   the maximum number of solvers, i.e. of concurrent searches
+     * @param idleTimeout   how long a solver may stay idle before being dropped
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given maximum size or idle timeout is not strictly positive, or if given
+     *                                  configuration is inconsistent or has a
+     *                                  {@link Configuration#checkpointFile() checkpoint file}, which would be shared
+     *                                  by the solvers
+     */
+    public SolverPool(final Configuration configuration, final int maximumSize, final Duration idleTimeout) {
+        this.configuration = Objects.requireNonNull(configuration);
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of solvers: " + maximumSize);
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Invalid idle timeout: " + idleTimeout);
+        }
+        if (configuration.checkpointFile().isPresent()) {
+            throw new IllegalArgumentException("Checkpoint is not supported by solver pools: " + configuration);
+        }
+        this.idleTimeout = idleTimeout.toNanos();
+        idleSolvers = new ArrayDeque<>(maximumSize);
+        idleSolvers.push(new IdleSolver(new Solver(configuration), System.nanoTime()));
+        availableSolvers = new Semaphore(maximumSize);
+        eviction = Solutions.MONITOR.scheduleWithFixedDelay(this::evictIdleSolvers, this.idleTimeout,
+                this.idleTimeout, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Solves the given game on a solver of the pool, waiting for a solver if they are all leased.
+     * <p>
+     * Same as {@link Solver#solveBoards(Piece[], Piece[][])}, except that the returned solutions own their solver
+     * until they are exhausted or closed: Always close them, e.g. with a try-with-resources statement, if they may not
+     * be exhausted.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @return the solutions
+     * @throws InterruptedException     if the calling thread is interrupted while waiting for a solver
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if this pool has been closed, or if the estimated memory of the encoding exceeds
+     *                                  the {@link Configuration#heapBudget() heap budget}
+     */
+    public PooledSolutions solveBoards(final Piece[] pieces, final Piece[][] initialBoard)
+            throws InterruptedException {
+        final Solver solver = lease();
+        final Iterator<PackedBoard> solutions;
+        try {
+            solutions = solver.solveBoards(pieces, initialBoard);
+        } catch (final RuntimeException e) {
+            release(solver);
+            throw e;
+        }
+        return new PooledSolutions(this, solver, solutions);
+    }
+
+    /**
+     * Counts the solutions of the given game on a solver of the pool, waiting for a solver if they are all leased.
+     *
+     * @param pieces       the available pieces
+     * @param initialBoard the initial board; Any non-{@code null} piece is considered as fixed and will not be moved
+     * @return the number of solutions
+     * @throws InterruptedException     if the calling thread is interrupted while waiting for a solver
+     * @throws NullPointerException     if any argument is {@code null}
+     * @throws IllegalArgumentException if given game is invalid (e.g. number of pieces inconsistent with board dimensions)
+     * @throws IllegalStateException    if this pool has been closed, or if the estimated memory of the encoding exceeds
+     *                                  the {@link Configuration#heapBudget() heap budget}
+     * @see Solver#count(Piece[], Piece[][])
+     */
+    public long count(final Piece[] pieces, final Piece[][] initialBoard) throws InterruptedException {
+        final Solver solver = lease();
+        try {
+            return solver.count(pieces, initialBoard);
+        } finally {
+            release(solver);
+        }
+    }
+
+    /**
+     * Returns the number of idle solvers, i.e. created and not leased.
+     *
+     * @return the number of idle solvers
+     */
+    public synchronized int idleSolverCount() {
+        return idleSolvers.size();
+    }
+
+    /**
+     * Closes the idle solvers and rejects the next searches. Searches in progress go on: Their solvers are closed
+     * once their solutions are exhausted or closed.
+     */
+    @Override
+    public void close() {
+        eviction.cancel(false);
+        synchronized (this) {
+            closed = true;
+            idleSolvers.forEach(idleSolver -> idleSolver.solver().close());
+            idleSolvers.clear();
+        }
+    }
+
+    /**
+     * Gives back a solver leased by {@link #lease()}.
+     *
+     * @param solver the solver, whose search is over
+     */
+    void release(final Solver solver) {
+        synchronized (this) {
+            if (closed) {
+                solver.close();
+            } else {
+                idleSolvers.push(new IdleSolver(solver, System.nanoTime()));
+            }
+        }
+        availableSolvers.release();
+    }
+
+    /**
+     * Takes an idle solver, or creates one, waiting for a solver to be released if the pool is full.
+     */
+    private Solver lease() throws InterruptedException {
+        synchronized (this) {
+            requireOpen();
+        }
+        availableSolvers.acquire();
+        final IdleSolver idleSolver;
+        synchronized (this) {
+            if (closed) {
+                availableSolvers.release();
+                requireOpen();
+            }
+            idleSolver = idleSolvers.poll();
+        }
+        return idleSolver != null ? idleSolver.solver() : new Solver(configuration);
+    }
+
+    private void requireOpen() {
+        if (closed) {
+            throw new IllegalStateException("Solver pool closed");
+        }
+    }
+
+    private synchronized void evictIdleSolvers() {
+        final long now = System.nanoTime();
+        // The least recently released solvers are last
+        while (!idleSolvers.isEmpty() && now - idleSolvers.peekLast().releaseTime() >= idleTimeout) {
+            idleSolvers.removeLast().solver().close();
+        }
+    }
+
+    /**
+     * A solver waiting for a search.
+     *
+     * @param solver      the solver
+     * @param releaseTime when the solver was released, in nanoseconds
+     */
+    private record IdleSolver(Solver solver, long releaseTime) {
+    }
+}
@@ -0,0 +1,223 @@
+package re.belv.eternity2.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * The symmetries of a game, i.e. the transformations which turn a solution into another solution.
+ * <p>
+ * Three kinds of symmetries are handled:
+ * <ol>
+ *     <li><strong>Board rotations</strong>: When no piece is fixed on the initial board, rotating a solution gives
+ *     another solution (by 90 degrees on a square board, by 180 degrees otherwise). These are broken by pinning the
+ *     rotation of a {@link #pinnedPiece() piece} which looks different under every rotation.</li>
+ *     <li><strong>Identical pieces</strong>: Swapping two {@link Game#identicalPieces() identical pieces} gives
+ *     another solution. These are broken by ordering the positions of the identical pieces.</li>
+ *     <li><strong>Symmetric pieces</strong>: A piece which looks the same under some rotations gives several models
+ *     for the same board. These are broken by forbidding the redundant rotations.</li>
+ * </ol>
+ * The solutions found once the symmetries are broken are called canonical solutions. They can be
+ * {@link #expand(Piece[][]) expanded} back to all the boards they represent.
+ */
+final class Symmetries {
+
+    /** The game. */
+    private final Game game;
+
+    /** The piece whose rotation is pinned, if board rotations are broken. */
+    private final OptionalInt pinnedPiece;
+
+    /** The groups of identical pieces which are not fixed on the initial board. */
+    private final List<List<Integer>> identicalPieces;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param game the game
+     */
+    Symmetries(final Game game) {
+        this.game = game;
+        identicalPieces = identicalMovablePieces(game);
+        pinnedPiece = pinnablePiece(game, identicalPieces);
+    }
+
+    /**
+     * Returns the piece whose rotation is pinned in order to break board rotations.
+     * <p>
+     * The rotation of this piece is restricted to the first {@link #boardRotationStep()} rotations.
+     *
+     * @return the piece whose rotation is pinned, or an empty value if board rotations are not broken
+     */
+    OptionalInt pinnedPiece() {
+        return pinnedPiece;
+    }
+
+    /**
+     * Returns the smallest rotation, in number of quarter turns, of the board which gives another solution: 1 for a
+     * square board, 2 otherwise.
+     *
+     * @return the smallest rotation of the board which gives another solution
+     */
+    int boardRotationStep() {
+        return game.rowCount() == game.columnCount() ? 1 : 2;
+    }
+
+    /**
+     * Returns the groups of identical pieces whose positions are ordered.
+     * <p>
+     * Pieces fixed on the initial board are excluded since they cannot be swapped.
+     *
+     * @return the groups of identical pieces whose positions are ordered, each group in ascending order
+     */
+    List<List<Integer>> identicalPieces() {
+        return identicalPieces;
+    }
+
+    /**
+     * Expands the given canonical solution to all the solutions it represents, as {@link #expand(Piece[][])} does
+     * for boards of pieces.
+     *
+     * @param canonicalSolution a solution found with symmetries broken
+     * @return all the distinct solutions represented by the given canonical solution, including itself first
+     */
+    List<PackedBoard> expand(final PackedBoard canonicalSolution) {
+        final List<Piece[][]> solutions = expand(canonicalSolution.toPieces());
+        final List<PackedBoard> boards = new ArrayList<>(solutions.size());
+        for (final Piece[][] solution : solutions) {
+            boards.add(PackedBoard.of(game, solution));
+        }
+        return boards;
+    }
+
+    /**
+     * Expands the given canonical solution to all the solutions it represents.
+     * <p>
+     * Boards differing only by the rotation of a symmetric piece are equal and thus appear only once.
+     *
+     * @param canonicalSolution a solution found with symmetries broken
+     * @return all the distinct solutions represented by the given canonical solution, including itself first
+     */
+    List<Piece[][]> expand(final Piece[][] canonicalSolution) {
+        final List<Piece[][]> solutions = new ArrayList<>();
+        solutions.add(canonicalSolution);
+        if (pinnedPiece.isPresent()) {
+            final int step = boardRotationStep();
+            for (int quarterTurns = step; quarterTurns < Piece.Rotation.count(); quarterTurns += step) {
+                solutions.add(rotate(canonicalSolution, quarterTurns));
+            }
+        }
+        for (final List<Integer> group : identicalPieces) {
+            final List<Piece[][]> permutedSolutions = new ArrayList<>();
+            for (final Piece[][] solution : solutions) {
+                permute(solution, group, positionsOf(solution, group), 0, permutedSolutions);
+            }
+            solutions.clear();
+            solutions.addAll(permutedSolutions);
+        }
+        return solutions;
+    }
+
+    private static List<List<Integer>> identicalMovablePieces(final Game game) {
+        final var fixed = new boolean[game.piecesCount()];
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                game.initialBoardPiece(rowIndex, columnIndex).ifPresent(piece -> fixed[piece.id()] = true);
+            }
+        }
+        final List<List<Integer>> groups = new ArrayList<>();
+        for (final List<Integer> group : game.identicalPieces()) {
+            final List<Integer> movableGroup = group.stream().filter(pieceIndex -> !fixed[pieceIndex]).toList();
+            if (movableGroup.size() > 1) {
+                groups.add(movableGroup);
+            }
+        }
+        return groups;
+    }
+
+    private static OptionalInt pinnablePiece(final Game game, final List<List<Integer>> identicalPieces) {
+        if (game.hasInitialBoardPieces()) {
+            return OptionalInt.empty();
+        }
+        final var identical = new boolean[game.piecesCount()];
+        identicalPieces.forEach(group -> group.forEach(pieceIndex -> identical[pieceIndex] = true));
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            if (!identical[pieceIndex] && game.piece(pieceIndex).distinctRotationCount() == Piece.Rotation.count()) {
+                return OptionalInt.of(pieceIndex);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    private static Piece[][] rotate(final Piece[][] solution, final int quarterTurns) {
+        Piece[][] rotated = solution;
+        for (int i = 0; i < quarterTurns; i++) {
+            rotated = rotateClockwise(rotated);
+        }
+        return rotated;
+    }
+
+    private static Piece[][] rotateClockwise(final Piece[][] solution) {
+        final int rowCount = solution.length;
+        final int columnCount = rowCount == 0 ? 0 : solution[0].length;
+        final var rotated = new Piece[columnCount][rowCount];
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+                rotated[columnIndex][rowCount - 1 - rowIndex] = solution[rowIndex][columnIndex].rotate(Piece.Rotation.PLUS_90);
+            }
+        }
+        return rotated;
+    }
+
+    private static int[][] positionsOf(final Piece[][] solution, final List<Integer> group) {
+        final var positions = new int[group.size()][];
+        int found = 0;
+        for (int rowIndex = 0; rowIndex < solution.length; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < solution[rowIndex].length; columnIndex++) {
+                if (group.contains(solution[rowIndex][columnIndex].id())) {
+                    positions[found++] = new int[]{rowIndex, columnIndex};
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Adds to the given list all the solutions obtained by assigning the ids of the given group to the given
+     * positions, in every possible order.
+     */
+    private static void permute(final Piece[][] solution, final List<Integer> group, final int[][] positions,
+                                final int assigned, final List<Piece[][]> permutedSolutions) {
+        if (assigned == positions.length) {
+            permutedSolutions.add(solution);
+            return;
+        }
+        final int[] position = positions[assigned];
+        for (final int pieceIndex : group) {
+            if (isAssigned(solution, positions, assigned, pieceIndex)) {
+                continue;
+            }
+            final Piece[][] permuted = copyOf(solution);
+            permuted[position[0]][position[1]] = solution[position[0]][position[1]].withId(pieceIndex);
+            permute(permuted, group, positions, assigned + 1, permutedSolutions);
+        }
+    }
+
+    private static boolean isAssigned(final Piece[][] solution, final int[][] positions, final int assigned,
+                                      final int pieceIndex) {
+        for (int i = 0; i < assigned; i++) {
+            if (solution[positions[i][0]][positions[i][1]].id() == pieceIndex) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Piece[][] copyOf(final Piece[][] solution) {
+        final var copy = new Piece[solution.length][];
+        for (int rowIndex = 0; rowIndex < solution.length; rowIndex++) {
+            copy[rowIndex] = solution[rowIndex].clone();
+        }
+        return copy;
+    }
+}
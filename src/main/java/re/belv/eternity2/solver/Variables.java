@@ -1,5 +1,8 @@
 package re.belv.eternity2.solver;
 
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.IVecInt;
+
 /**
  * Where the translation between the board and the boolean variables occurs.
  * <p>
@@ -7,8 +10,9 @@ package re.belv.eternity2.solver;
  * <ol>
  *     <li><strong>Variables representing pieces</strong>: Define whether a piece in a certain orientation is present
  *     in a certain location.</li>
- *     <li><strong>Variables representing borders</strong>: Define whether a border in a certain location has a certain
- *     color.</li>
+ *     <li><strong>Variables representing colors</strong>, depending on the {@link Configuration.ColorEncoding color
+ *     encoding}: Define whether a border in a certain location has a certain color, whether an edge between two
+ *     locations has a certain color, or a bit of the color of an edge. The direct encoding has no such variable.</li>
  * </ol>
  */
 final class Variables {
@@ -16,13 +20,99 @@ final class Variables {
     /** The problem to solve. */
     private final Game game;
 
+    /** The possible placements, i.e. the ones having a variable. */
+    private final Domain domain;
+
     /**
-     * Constructs an instance.
+     * The variables representing pieces, indexed by position, piece and rotation; 0 if the placement is not
+     * possible.
+     */
+    private final int[] pieceVariables;
+
+    /**
+     * The placements represented by the piece variables, as {@link PackedBoard#placement packed placements}, indexed
+     * by variable minus one.
+     */
+    private final int[] placementsByVariable;
+
+    /**
+     * The first piece variable of each position, in row-major order, plus a final bound: The variables of a position
+     * are consecutive.
+     */
+    private final int[] firstVariableByPosition;
+
+    /** How the colors are encoded. */
+    private final Configuration.ColorEncoding colorEncoding;
+
+    /**
+     * Constructs an instance, with a variable for each possible placement of the {@link Domain} of the given game.
      *
      * @param game the board to solve
      */
     Variables(final Game game) {
+        this(game, new Domain(game));
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param game   the board to solve
+     * @param domain the possible placements, i.e. the placements which shall be represented by a variable
+     */
+    Variables(final Game game, final Domain domain) {
+        this(game, domain, Configuration.ColorEncoding.BORDERS);
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param game          the board to solve
+     * @param domain        the possible placements, i.e. the placements which shall be represented by a variable
+     * @param colorEncoding how the colors are encoded, i.e. which variables represent them
+     */
+    Variables(final Game game, final Domain domain, final Configuration.ColorEncoding colorEncoding) {
         this.game = game;
+        this.domain = domain;
+        this.colorEncoding = colorEncoding;
+        pieceVariables = new int[game.rowCount() * game.columnCount() * game.piecesCount() * Piece.Rotation.count()];
+        placementsByVariable = new int[domain.size()];
+        firstVariableByPosition = new int[game.rowCount() * game.columnCount() + 1];
+        int variable = 1; // variables start at 1
+        int index = 0;
+        int position = 0;
+        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
+                firstVariableByPosition[position++] = variable;
+                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
+                        if (domain.contains(rowIndex, columnIndex, pieceIndex, rotation)) {
+                            placementsByVariable[variable - 1] = PackedBoard.placement(pieceIndex, rotation);
+                            pieceVariables[index] = variable++;
+                        }
+                        index++;
+                    }
+                }
+            }
+        }
+        firstVariableByPosition[position] = variable;
+    }
+
+    /**
+     * Returns the possible placements, i.e. the ones for which {@link #representingPiece} returns a variable.
+     *
+     * @return the possible placements
+     */
+    Domain domain() {
+        return domain;
+    }
+
+    /**
+     * Returns how the colors are encoded.
+     *
+     * @return how the colors are encoded
+     */
+    Configuration.ColorEncoding colorEncoding() {
+        return colorEncoding;
     }
 
     /**
@@ -61,11 +151,15 @@ final class Variables {
      *   </tr>
      * </table>
      *
+     * Only the placements contained in the {@link #domain() domain} are numbered: The table above shows the numbering
+     * when all placements are possible.
+     *
      * @param pieceIndex  the piece
      * @param rotation    the piece rotation
      * @param rowIndex    the row of the piece
      * @param columnIndex the column of the piece
      * @return the variable
+     * @throws IllegalArgumentException if an index is out of bounds or if the placement is not in the domain
      */
     int representingPiece(final int rowIndex, final int columnIndex, final int pieceIndex, final Piece.Rotation rotation) {
         if (rowIndex >= game.rowCount()) {
@@ -77,11 +171,13 @@ final class Variables {
         if (pieceIndex >= game.piecesCount()) {
             throw new IllegalArgumentException("Piece index out of bounds: " + pieceIndex);
         }
-        return rowIndex * game.columnCount() * game.piecesCount() * Piece.Rotation.count()
-                + columnIndex * game.piecesCount() * Piece.Rotation.count()
-                + pieceIndex * Piece.Rotation.count()
-                + rotation.ordinal()
-                + 1; // variables start at 1
+        final int variable = pieceVariables[((rowIndex * game.columnCount() + columnIndex) * game.piecesCount() + pieceIndex)
+                * Piece.Rotation.count() + rotation.ordinal()];
+        if (variable == 0) {
+            throw new IllegalArgumentException("Impossible placement: Piece #" + pieceIndex + " rotated by " + rotation
+                    + " at (" + rowIndex + "," + columnIndex + ")");
+        }
+        return variable;
     }
 
     /**
@@ -90,7 +186,7 @@ final class Variables {
      * @return the  number of variables representing pieces
      */
     int representingPieceCount() {
-        return game.rowCount() * game.columnCount() * game.piecesCount() * Piece.Rotation.count();
+        return domain.size();
     }
 
     /**
@@ -132,8 +228,11 @@ final class Variables {
      * @param border      the border
      * @param colorIndex  the color index
      * @return the variable of the given color at the given border at the given row and column.
+     * @throws IllegalStateException if the colors are not encoded {@link Configuration.ColorEncoding#BORDERS by
+     *                               border}
      */
     int representingBorder(final int rowIndex, final int columnIndex, final Piece.Border border, final int colorIndex) {
+        requireColorEncoding(Configuration.ColorEncoding.BORDERS);
         if (rowIndex >= game.rowCount()) {
             throw new IllegalArgumentException("Row index out of bounds: " + rowIndex);
         }
@@ -151,7 +250,8 @@ final class Variables {
     }
 
     /**
-     * Returns the number of variables representing borders.
+     * Returns the number of variables representing borders, when the colors are encoded
+     * {@link Configuration.ColorEncoding#BORDERS by border}.
      *
      * @return the number of variables representing borders
      */
@@ -159,13 +259,88 @@ final class Variables {
         return game.colorCount() * game.borderCount();
     }
 
+    /**
+     * Returns the variable representing the given color at the given edge, when the colors are encoded
+     * {@link Configuration.ColorEncoding#SHARED_EDGES by edge}.
+     * <p>
+     * Variables follow the piece variables, by edge then by color: {@code 1 + pieces + edge * colors + color}.
+     *
+     * @param edge       the edge, as numbered by {@link Game#edgeAt(int, int, Piece.Border)}
+     * @param colorIndex the color index
+     * @return the variable of the given color at the given edge
+     * @throws IllegalStateException if the colors are not encoded by edge
+     */
+    int representingEdge(final int edge, final int colorIndex) {
+        requireColorEncoding(Configuration.ColorEncoding.SHARED_EDGES);
+        if (edge >= game.edgeCount()) {
+            throw new IllegalArgumentException("Edge out of bounds: " + edge);
+        }
+        if (colorIndex >= game.colorCount()) {
+            throw new IllegalArgumentException("Color index out of bounds: " + colorIndex);
+        }
+        return representingPieceCount() + 1 + edge * game.colorCount() + colorIndex;
+    }
+
+    /**
+     * Returns the variable representing the given bit of the color of the given edge, when the colors are encoded
+     * {@link Configuration.ColorEncoding#LOG in binary}.
+     * <p>
+     * Variables follow the piece variables, by edge then by bit, least significant first:
+     * {@code 1 + pieces + edge * bits + bit}.
+     *
+     * @param edge the edge, as numbered by {@link Game#edgeAt(int, int, Piece.Border)}
+     * @param bit  the bit, from 0 to {@link #colorBitCount()} excluded
+     * @return the variable of the given bit of the color of the given edge
+     * @throws IllegalStateException if the colors are not encoded in binary
+     */
+    int representingEdgeBit(final int edge, final int bit) {
+        requireColorEncoding(Configuration.ColorEncoding.LOG);
+        if (edge >= game.edgeCount()) {
+            throw new IllegalArgumentException("Edge out of bounds: " + edge);
+        }
+        if (bit >= colorBitCount()) {
+            throw new IllegalArgumentException("Bit out of bounds: " + bit);
+        }
+        return representingPieceCount() + 1 + edge * colorBitCount() + bit;
+    }
+
+    /**
+     * Returns the number of bits of a color, when the colors are encoded {@link Configuration.ColorEncoding#LOG in
+     * binary}.
+     *
+     * @return the number of bits of a color, at least 1
+     */
+    int colorBitCount() {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(game.colorCount() - 1));
+    }
+
+    /**
+     * Returns the number of variables representing colors, which depends on the color encoding.
+     *
+     * @return the number of variables representing colors
+     */
+    int representingColorCount() {
+        return switch (colorEncoding) {
+            case BORDERS -> representingBorderCount();
+            case SHARED_EDGES -> game.edgeCount() * game.colorCount();
+            case LOG -> game.edgeCount() * colorBitCount();
+            case DIRECT -> 0;
+        };
+    }
+
     /**
      * Returns the total number of variables.
      *
      * @return the total number of variables
      */
     int count() {
-        return representingPieceCount() + representingBorderCount();
+        return representingPieceCount() + representingColorCount();
+    }
+
+    private void requireColorEncoding(final Configuration.ColorEncoding expected) {
+        if (colorEncoding != expected) {
+            throw new IllegalStateException("No such variable with the " + colorEncoding + " color encoding");
+        }
     }
 
     /**
@@ -175,22 +350,70 @@ final class Variables {
      * @return the pieces
      */
     Piece[][] backToPieces(final int[] model) {
-        final var pieces = new Piece[game.rowCount()][game.columnCount()];
-        for (int rowIndex = 0; rowIndex < game.rowCount(); rowIndex++) {
-            for (int columnIndex = 0; columnIndex < game.columnCount(); columnIndex++) {
-                pieceLoop:
-                for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
-                    for (final Piece.Rotation rotation : Piece.Rotation.all()) {
-                        final int pieceVariable = representingPiece(rowIndex, columnIndex, pieceIndex, rotation);
-                        if (model[pieceVariable - 1] > 0) {
-                            final Piece piece = game.piece(pieceIndex).rotate(rotation);
-                            pieces[rowIndex][columnIndex] = piece;
-                            break pieceLoop;
-                        }
-                    }
+        return backToBoard(model).toPieces();
+    }
+
+    /**
+     * Translates SAT model back to a packed board.
+     * <p>
+     * The variables of each position are read until the satisfied one, and translated through a lookup table: Only
+     * the packed board is allocated. Works with partial assignments too, a position without satisfied variable being
+     * left empty.
+     *
+     * @param model the model, or a partial assignment
+     * @return the board
+     */
+    PackedBoard backToBoard(final int[] model) {
+        final int positionCount = firstVariableByPosition.length - 1;
+        final var cells = new int[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            int cell = PackedBoard.EMPTY;
+            final int end = firstVariableByPosition[position + 1];
+            for (int pieceVariable = firstVariableByPosition[position]; pieceVariable < end; pieceVariable++) {
+                if (model[pieceVariable - 1] > 0) {
+                    cell = placementsByVariable[pieceVariable - 1];
+                    break;
                 }
             }
+            cells[position] = cell;
+        }
+        return new PackedBoard(game, cells);
+    }
+
+    /**
+     * Returns the clause forbidding the placements of the given model.
+     * <p>
+     * Since the borders are determined by the placements, this clause forbids exactly the given model.
+     *
+     * @param model the model
+     * @return the clause forbidding the placements of the given model
+     */
+    IVecInt blockingClauseOf(final int[] model) {
+        final var clause = new VecInt(game.rowCount() * game.columnCount());
+        for (int pieceVariable = 1; pieceVariable <= representingPieceCount(); pieceVariable++) {
+            if (model[pieceVariable - 1] > 0) {
+                clause.push(-pieceVariable);
+            }
+        }
+        return clause;
+    }
+
+    /**
+     * Returns the clause forbidding the placements of the given board, e.g. of a solution found by a previous search.
+     *
+     * @param board the board
+     * @return the clause forbidding the placements of the given board
+     * @throws IllegalArgumentException if a placement of the given board is impossible
+     */
+    IVecInt blockingClauseOf(final PackedBoard board) {
+        final var clause = new VecInt(game.rowCount() * game.columnCount());
+        for (int position = 0; position < game.rowCount() * game.columnCount(); position++) {
+            final int cell = board.cell(position);
+            if (cell != PackedBoard.EMPTY) {
+                clause.push(-representingPiece(position / game.columnCount(), position % game.columnCount(),
+                        PackedBoard.pieceIndexOf(cell), PackedBoard.rotationOf(cell)));
+            }
         }
-        return pieces;
+        return clause;
     }
 }
@@ -0,0 +1,162 @@
+package re.belv.eternity2.solver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.OptionalInt;
+
+/**
+ * The protocol between a {@link Coordinator} and its {@link Worker workers}, over a TCP connection.
+ * <p>
+ * Messages are made of big-endian integers:
+ * <pre>
+ * worker      → coordinator   int MAGIC, int VERSION
+ * coordinator → worker        int rows, int columns, int frame color or -1,
+ *                             then, for each piece, by id: int north, east, south and west colors
+ *                             then int heartbeat interval, in milliseconds
+ * then, until the coordinator sends DONE:
+ * coordinator → worker        byte UNIT, int unit id, then, for each position: int {@code id << 2 | rotation} or -1
+ *                             or byte DONE
+ * worker      → coordinator   for each solution of the unit:
+ *                             byte SOLUTION, then, for each position: int {@code id << 2 | rotation}
+ *                             then byte EXHAUSTED, int unit id
+ * worker      → coordinator   byte HEARTBEAT at the heartbeat interval, between the other messages
+ * </pre>
+ * A unit is the initial board completed with the placements of a {@link Cubes cube}. Heartbeats tell a worker busy
+ * with a long unit from a hung one. Malformed messages raise a {@link ProtocolException}.
+ */
+final class WorkProtocol {
+
+    /** The magic number sent by the workers, "E2WP" in ASCII. */
+    static final int MAGIC = 0x45325750;
+
+    /** The version of the protocol, increased on incompatible changes. */
+    static final int VERSION = 2;
+
+    /** Coordinator message: A unit to solve follows. */
+    static final byte UNIT = 1;
+
+    /** Coordinator message: There is no unit left, the worker may disconnect. */
+    static final byte DONE = 2;
+
+    /** Worker message: A solution of the current unit follows. */
+    static final byte SOLUTION = 3;
+
+    /** Worker message: All the solutions of the current unit have been sent. */
+    static final byte EXHAUSTED = 4;
+
+    /** Worker message: The worker is still alive. */
+    static final byte HEARTBEAT = 5;
+
+    private WorkProtocol() {
+        // Static methods only
+    }
+
+    /**
+     * Writes the header of a worker.
+     *
+     * @param output where to write
+     * @throws IOException if the header cannot be written
+     */
+    static void writeHello(final DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.flush();
+    }
+
+    /**
+     * Reads the header of a worker.
+     *
+     * @param input where to read
+     * @throws IOException if the header cannot be read or is not the one of a compatible worker
+     */
+    static void readHello(final DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new ProtocolException("Not a worker");
+        }
+        final int version = input.readInt();
+        if (version != VERSION) {
+            throw new ProtocolException("Unsupported protocol version: " + version);
+        }
+    }
+
+    /**
+     * Writes the given game, without its initial board.
+     *
+     * @param output where to write
+     * @param game   the game
+     * @throws IOException if the game cannot be written
+     */
+    static void writeGame(final DataOutputStream output, final Game game) throws IOException {
+        output.writeInt(game.rowCount());
+        output.writeInt(game.columnCount());
+        output.writeInt(game.frameColor().orElse(-1));
+        for (int pieceIndex = 0; pieceIndex < game.piecesCount(); pieceIndex++) {
+            final Piece piece = game.piece(pieceIndex);
+            output.writeInt(piece.northColor());
+            output.writeInt(piece.eastColor());
+            output.writeInt(piece.southColor());
+            output.writeInt(piece.westColor());
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads a game, with an empty initial board.
+     *
+     * @param input where to read
+     * @return the game
+     * @throws IOException if the game cannot be read
+     */
+    static Game readGame(final DataInputStream input) throws IOException {
+        final int rowCount = input.readInt();
+        final int columnCount = input.readInt();
+        final long pieceCount = (long) rowCount * columnCount;
+        if (rowCount < 0 || columnCount < 0 || pieceCount > SolutionWriter.MAX_PIECE_COUNT) {
+            throw new ProtocolException("Invalid board dimensions: " + rowCount + "x" + columnCount);
+        }
+        final int frameColor = input.readInt();
+        final var pieces = new Piece[(int) pieceCount];
+        for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+            pieces[pieceIndex] = new Piece(pieceIndex, input.readInt(), input.readInt(), input.readInt(),
+                    input.readInt());
+        }
+        return new Game(pieces, new Piece[rowCount][columnCount],
+                frameColor < 0 ? OptionalInt.empty() : OptionalInt.of(frameColor));
+    }
+
+    /**
+     * Writes the positions of the given board.
+     *
+     * @param output where to write
+     * @param board  the board
+     * @throws IOException if the board cannot be written
+     */
+    static void writeBoard(final DataOutputStream output, final PackedBoard board) throws IOException {
+        final int positionCount = board.rowCount() * board.columnCount();
+        for (int position = 0; position < positionCount; position++) {
+            output.writeInt(board.cell(position));
+        }
+    }
+
+    /**
+     * Reads the positions of a board of the given game.
+     *
+     * @param input where to read
+     * @param game  the game
+     * @return the board
+     * @throws IOException if the board cannot be read
+     */
+    static PackedBoard readBoard(final DataInputStream input, final Game game) throws IOException {
+        final var cells = new int[game.rowCount() * game.columnCount()];
+        for (int position = 0; position < cells.length; position++) {
+            final int cell = input.readInt();
+            if (cell != PackedBoard.EMPTY && (cell < 0 || PackedBoard.pieceIndexOf(cell) >= game.piecesCount())) {
+                throw new ProtocolException("Invalid position value: " + cell);
+            }
+            cells[position] = cell;
+        }
+        return new PackedBoard(game, cells);
+    }
+}
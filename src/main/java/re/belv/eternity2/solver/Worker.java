@@ -0,0 +1,161 @@
+package re.belv.eternity2.solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A worker of a search distributed by a {@link Coordinator}.
+ * <p>
+ * A worker connects to the coordinator, receives the game, then solves the units handed over by the coordinator one
+ * at a time, streaming their solutions back, until the coordinator has no unit left. A worker may be stopped at any
+ * time, e.g. by killing its process: Its current unit is then taken over by another worker. While connected, a worker
+ * sends heartbeats to the coordinator, so that it is not taken for a hung worker during a long unit.
+ * <p>
+ * Workers are typically run as separate processes, on the machines sharing the search:
+ * <pre>
+ * java -cp ... re.belv.eternity2.solver.Worker coordinator-host port
+ * </pre>
+ */
+public final class Worker {
+
+    /** The configuration of the solver of the units. */
+    private final Configuration configuration;
+
+    /**
+     * Creates an instance.
+     *
+     * @param configuration the configuration of the solver of the units; The frame color is given by the coordinator
+     * @throws NullPointerException     if given configuration is {@code null}
+     * @throws IllegalArgumentException if given configuration has a frame color or breaks symmetries (symmetric
+     *                                  solutions may lie in distinct units)
+     */
+    public Worker(final Configuration configuration) {
+        this.configuration = Objects.requireNonNull(configuration);
+        if (configuration.frameColor().isPresent()
+                || configuration.symmetryBreaking() != Configuration.SymmetryBreaking.NONE) {
+            throw new IllegalArgumentException("Frame color and symmetry breaking are not supported by workers: "
+                    + configuration);
+        }
+    }
+
+    /**
+     * Connects to the given coordinator and solves its units until it has none left.
+     *
+     * @param host the host of the coordinator
+     * @param port the port of the coordinator
+     * @return the number of units solved by this worker
+     * @throws IOException if the connection to the coordinator fails or is lost
+     */
+    public long run(final String host, final int port) throws IOException {
+        final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "eternity2-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (final var connection = new Socket(host, port)) {
+            connection.setKeepAlive(true);
+            connection.setTcpNoDelay(true);
+            final var input = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            final var output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            WorkProtocol.writeHello(output);
+            final Game game = WorkProtocol.readGame(input);
+            final int heartbeatInterval = input.readInt();
+            if (heartbeatInterval <= 0) {
+                throw new ProtocolException("Invalid heartbeat interval: " + heartbeatInterval);
+            }
+            heartbeats.scheduleAtFixedRate(() -> sendHeartbeat(output), heartbeatInterval, heartbeatInterval,
+                    TimeUnit.MILLISECONDS);
+            final var pieces = new Piece[game.piecesCount()];
+            for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+                pieces[pieceIndex] = game.piece(pieceIndex);
+            }
+            final Configuration gameConfiguration = game.frameColor().isPresent()
+                    ? configuration.withFrameColor(game.frameColor().getAsInt())
+                    : configuration;
+            try (final var solver = new Solver(gameConfiguration)) {
+                long unitCount = 0;
+                byte message;
+                while ((message = input.readByte()) == WorkProtocol.UNIT) {
+                    final int unit = input.readInt();
+                    final PackedBoard unitBoard = WorkProtocol.readBoard(input, game);
+                    final Iterator<PackedBoard> solutions = solver.solveBoards(pieces, unitBoard.toPieces());
+                    while (solutions.hasNext()) {
+                        final PackedBoard solution = withPlacementsOf(game, unitBoard, solutions.next());
+                        synchronized (output) {
+                            output.writeByte(WorkProtocol.SOLUTION);
+                            WorkProtocol.writeBoard(output, solution);
+                        }
+                    }
+                    synchronized (output) {
+                        output.writeByte(WorkProtocol.EXHAUSTED);
+                        output.writeInt(unit);
+                        output.flush();
+                    }
+                    unitCount++;
+                }
+                if (message != WorkProtocol.DONE) {
+                    throw new ProtocolException("Unexpected message: " + message);
+                }
+                return unitCount;
+            }
+        } finally {
+            heartbeats.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends a heartbeat to the coordinator, along with the solutions written so far.
+     * <p>
+     * A failure is ignored: The connection is then lost, which the thread solving the units finds out by itself.
+     */
+    private static void sendHeartbeat(final DataOutputStream output) {
+        synchronized (output) {
+            try {
+                output.writeByte(WorkProtocol.HEARTBEAT);
+                output.flush();
+            } catch (final IOException e) {
+                // Connection lost
+            }
+        }
+    }
+
+    /**
+     * Returns the given solution with the placements of the given unit.
+     * <p>
+     * The unit is solved as an initial board of pieces, which does not tell apart the rotations of a piece giving the
+     * same colors, e.g. a half turn of a piece with twice the same two colors: The solver then places the piece with
+     * the first of these rotations. The solution is thus fixed to keep the rotations of the unit, so that the units
+     * splitting on these rotations have distinct solutions, as solving the whole game would give.
+     */
+    private static PackedBoard withPlacementsOf(final Game game, final PackedBoard unit,
+                                                final PackedBoard solution) {
+        final var cells = new int[game.rowCount() * game.columnCount()];
+        for (int position = 0; position < cells.length; position++) {
+            cells[position] = unit.cell(position) == PackedBoard.EMPTY ? solution.cell(position) : unit.cell(position);
+        }
+        return new PackedBoard(game, cells);
+    }
+
+    /**
+     * Runs a worker with the {@link Configuration#defaults() default configuration}.
+     *
+     * @param args the host and the port of the coordinator
+     * @throws IOException if the connection to the coordinator fails or is lost
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: Worker <coordinator host> <coordinator port>");
+        }
+        new Worker(Configuration.defaults()).run(args[0], Integer.parseInt(args[1]));
+    }
+}
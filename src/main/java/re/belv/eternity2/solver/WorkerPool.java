@@ -0,0 +1,248 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.TimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The workers of a parallel search, each one searching on a backend of its own, and the bounded buffer through which
+ * they hand over what they find to a single consumer.
+ * <p>
+ * Workers wait when the buffer is full, so that the search does not run ahead of the consumer. Each worker closes its
+ * backend once done; The backends shared by the workers are closed by the last one.
+ * <p>
+ * The statistics reported to the {@link SolverListener listener} are summed over all the backends.
+ *
+ * @param <T> the type of the items found by the workers
+ */
+final class WorkerPool<T> {
+
+    /** The items put by the workers and not taken yet, an empty value marking the end of a worker. */
+    private final BlockingQueue<Optional<T>> buffer;
+
+    /** The backends of the workers, one per worker. */
+    private final List<Backend> workerBackends;
+
+    /** The backends shared by the workers, closed once all the workers are done. */
+    private final List<Backend> sharedBackends;
+
+    /** All the backends, to report their statistics and to interrupt them when stopping. */
+    private final List<Backend> backends;
+
+    /** The listener of the search progress. */
+    private final SolverListener listener;
+
+    /** When the workers started, in nanoseconds. */
+    private final long startTime;
+
+    /** The number of models found by all the workers. */
+    private final AtomicLong modelCount;
+
+    /** Samples the boards being built by the workers, only used by the monitor thread. */
+    private final BoardSampler boardSampler;
+
+    /** The periodic sampling of the statistics, {@code null} if nobody listens. */
+    private final ScheduledFuture<?> sampling;
+
+    /** The workers. */
+    private final ExecutorService workers;
+
+    /** The first error raised by a worker, if any. */
+    private final AtomicReference<RuntimeException> error;
+
+    /** The number of workers still using their backend: The last one closes the shared backends. */
+    private final AtomicInteger openWorkerCount;
+
+    /** Whether the workers have been stopped. */
+    private volatile boolean stopped;
+
+    /** The number of workers which have not put their end in the buffer yet, only used by the consumer. */
+    private int runningWorkerCount;
+
+    /**
+     * Constructs an instance. Workers start on call to {@link #start(Task)}.
+     *
+     * @param workerBackends         the backends of the workers, one per worker
+     * @param sharedBackends         the backends shared by the workers, if any
+     * @param boardSampler           samples the boards being built
+     * @param bufferedItemsPerWorker the number of items per worker which can be found ahead of the consumer
+     * @param configuration          the solver configuration, giving the listener of the search progress
+     */
+    WorkerPool(final List<Backend> workerBackends, final List<Backend> sharedBackends, final BoardSampler boardSampler,
+               final int bufferedItemsPerWorker, final Configuration configuration) {
+        final int workerCount = workerBackends.size();
+        this.workerBackends = List.copyOf(workerBackends);
+        this.sharedBackends = List.copyOf(sharedBackends);
+        backends = new ArrayList<>(sharedBackends.size() + workerCount);
+        backends.addAll(sharedBackends);
+        backends.addAll(workerBackends);
+        this.boardSampler = boardSampler;
+        buffer = new ArrayBlockingQueue<>(workerCount * bufferedItemsPerWorker);
+        error = new AtomicReference<>();
+        openWorkerCount = new AtomicInteger(workerCount);
+        runningWorkerCount = workerCount;
+        listener = configuration.listener();
+        startTime = System.nanoTime();
+        modelCount = new AtomicLong();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            final var thread = new Thread(runnable, "eternity2-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long samplingInterval = configuration.samplingInterval().toNanos();
+        sampling = listener == SolverListener.NONE ? null
+                : Solutions.MONITOR.scheduleAtFixedRate(this::sample, samplingInterval, samplingInterval,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts the workers, each one running the given task on its backend.
+     *
+     * @param task the task of the workers
+     */
+    void start(final Task task) {
+        for (final Backend backend : workerBackends) {
+            workers.execute(() -> work(task, backend));
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * Returns whether the workers have been stopped.
+     *
+     * @return {@code true} if the workers have been stopped
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Reports a model found by a worker to the listener.
+     */
+    void modelFound() {
+        listener.modelFound(statistics(modelCount.incrementAndGet()));
+    }
+
+    /**
+     * Hands over the given item to the consumer, waiting for room in the buffer.
+     *
+     * @param item the item found by a worker
+     * @throws InterruptedException if the worker has been stopped while waiting
+     */
+    void put(final T item) throws InterruptedException {
+        buffer.put(Optional.of(item));
+    }
+
+    /**
+     * Takes the next item found by the workers, waiting for it.
+     *
+     * @return the next item, or {@code null} if all the workers are done or have been stopped
+     * @throws IllegalStateException if there is no more item because a worker failed
+     */
+    T take() {
+        while (runningWorkerCount > 0 && !stopped) {
+            final Optional<T> item;
+            try {
+                item = buffer.take();
+            } catch (final InterruptedException e) {
+                stop();
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (item.isPresent()) {
+                return item.get();
+            }
+            runningWorkerCount--;
+            if (runningWorkerCount == 0) {
+                stopSampling();
+            }
+        }
+        if (error.get() != null) {
+            throw new IllegalStateException(error.get());
+        }
+        return null;
+    }
+
+    /**
+     * Stops the workers.
+     * <p>
+     * The items not taken yet are lost. May be called from any thread: A consumer waiting for an item is woken up and
+     * finds no more item.
+     */
+    void stop() {
+        stopped = true;
+        stopSampling();
+        workers.shutdownNow();
+        backends.forEach(Backend::interrupt);
+        buffer.clear();
+        buffer.offer(Optional.empty());
+    }
+
+    private void stopSampling() {
+        if (sampling != null) {
+            sampling.cancel(false);
+        }
+    }
+
+    private void sample() {
+        final SearchStatistics statistics = statistics(modelCount.get());
+        listener.searchSampled(statistics);
+        final BoardSample boardSample = boardSampler.sample(statistics.elapsed());
+        if (boardSample != null) {
+            listener.boardSampled(boardSample);
+        }
+    }
+
+    private SearchStatistics statistics(final long currentModelCount) {
+        return SearchStatistics.of(Duration.ofNanos(System.nanoTime() - startTime), currentModelCount, backends);
+    }
+
+    private void work(final Task task, final Backend backend) {
+        try {
+            task.run(backend);
+        } catch (final InterruptedException | TimeoutException e) {
+            // Stopped
+            return;
+        } catch (final RuntimeException e) {
+            error.compareAndSet(null, e);
+        } finally {
+            backend.close();
+            if (openWorkerCount.decrementAndGet() == 0) {
+                sharedBackends.forEach(Backend::close);
+            }
+        }
+        try {
+            buffer.put(Optional.empty());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The search of a worker.
+     */
+    @FunctionalInterface
+    interface Task {
+
+        /**
+         * Searches on the given backend, handing over what is found to the consumer.
+         *
+         * @param backend the backend of the worker
+         * @throws InterruptedException if the worker has been stopped while waiting for room in the buffer
+         * @throws TimeoutException     if the search has been interrupted
+         */
+        void run(Backend backend) throws InterruptedException, TimeoutException;
+    }
+}
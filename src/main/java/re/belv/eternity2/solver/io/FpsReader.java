@@ -0,0 +1,321 @@
+package re.belv.eternity2.solver.io;
+
+import re.belv.eternity2.solver.Piece;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A reader of puzzles in the {@code .fps} format of the Eternity II editor, e.g.:
+ * <pre>
+ * [INDICE]
+ * 139=I8-Rot0
+ *
+ * [INFORMATION]
+ * CoteN=16
+ * CoteA=16
+ *
+ * [Bordure]
+ * 1=2-2-1-3
+ * 2=2-2-1-12
+ * ...
+ * </pre>
+ * The {@code [Bordure]} and {@code [Centre]} sections give the north, east, south and west colors of the pieces,
+ * by id. The {@code [INDICE]} section gives the hint pieces: The column as a letter, the row as a number and the
+ * number of clockwise quarter turns. The {@code [INFORMATION]} section gives the board dimensions: {@code CoteN} is
+ * the number of columns and {@code CoteA} the number of rows; A square board is assumed if they are missing. Ids,
+ * colors and rows start at 1 in the file and are shifted to start at 0. Section and key names are case-insensitive;
+ * the other sections are ignored.
+ * <p>
+ * The file is parsed in a single pass over its bytes, without intermediate strings.
+ */
+public final class FpsReader {
+
+    /** The sections of interest. */
+    private enum Section {
+        PIECES,
+        HINTS,
+        INFORMATION,
+        OTHER
+    }
+
+    /** The bytes being parsed. */
+    private final ByteBuffer bytes;
+
+    /** The current line, for error messages. */
+    private int line;
+
+    /** The piece colors, by id: north, east, south and west; -1 where no piece has been read. */
+    private int[] colors;
+
+    /** The hints: id, row, column and quarter turns. */
+    private int[] hints;
+
+    /** The number of hints read. */
+    private int hintCount;
+
+    /** The number of columns, -1 if not read. */
+    private int columnCount;
+
+    /** The number of rows, -1 if not read. */
+    private int rowCount;
+
+    private FpsReader(final ByteBuffer bytes) {
+        this.bytes = bytes;
+        line = 1;
+        colors = new int[0];
+        hints = new int[0];
+        columnCount = -1;
+        rowCount = -1;
+    }
+
+    /**
+     * Reads the given file.
+     *
+     * @param file the file
+     * @return the puzzle
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid {@code .fps} file
+     */
+    public static Puzzle read(final Path file) throws IOException {
+        return parse(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Parses the given bytes, from their position to their limit.
+     *
+     * @param bytes the content of a {@code .fps} file
+     * @return the puzzle
+     * @throws IllegalArgumentException if the bytes are not a valid {@code .fps} file
+     */
+    public static Puzzle parse(final ByteBuffer bytes) {
+        final var reader = new FpsReader(bytes);
+        reader.parse();
+        return reader.puzzle();
+    }
+
+    private void parse() {
+        Section section = Section.OTHER;
+        while (bytes.hasRemaining()) {
+            final byte b = bytes.get(bytes.position());
+            if (b == '\n') {
+                bytes.get();
+                line++;
+            } else if (b == '\r' || b == ' ' || b == '\t') {
+                bytes.get();
+            } else if (b == '[') {
+                section = readSection();
+            } else {
+                switch (section) {
+                    case PIECES -> readPiece();
+                    case HINTS -> readHint();
+                    case INFORMATION -> readInformation();
+                    case OTHER -> skipLine();
+                }
+            }
+        }
+    }
+
+    private Section readSection() {
+        bytes.get();
+        final int start = bytes.position();
+        while (bytes.hasRemaining() && bytes.get(bytes.position()) != ']' && bytes.get(bytes.position()) != '\n') {
+            bytes.get();
+        }
+        final int end = bytes.position();
+        skipLine();
+        if (matches(start, end, "Bordure") || matches(start, end, "Centre")) {
+            return Section.PIECES;
+        }
+        if (matches(start, end, "INDICE")) {
+            return Section.HINTS;
+        }
+        if (matches(start, end, "INFORMATION")) {
+            return Section.INFORMATION;
+        }
+        return Section.OTHER;
+    }
+
+    /**
+     * Reads a piece line, e.g. {@code 1=2-2-1-3}.
+     */
+    private void readPiece() {
+        final int id = readNumber() - 1;
+        expect('=');
+        final int north = readNumber() - 1;
+        expect('-');
+        final int east = readNumber() - 1;
+        expect('-');
+        final int south = readNumber() - 1;
+        expect('-');
+        final int west = readNumber() - 1;
+        skipLine();
+        if (id < 0 || north < 0 || east < 0 || south < 0 || west < 0) {
+            throw invalid("Ids and colors start at 1");
+        }
+        if (4 * id >= colors.length) {
+            final int previousLength = colors.length;
+            colors = Arrays.copyOf(colors, Math.max(4 * (id + 1), 2 * previousLength));
+            Arrays.fill(colors, previousLength, colors.length, -1);
+        }
+        if (colors[4 * id] >= 0) {
+            throw invalid("Duplicate piece " + (id + 1));
+        }
+        colors[4 * id] = north;
+        colors[4 * id + 1] = east;
+        colors[4 * id + 2] = south;
+        colors[4 * id + 3] = west;
+    }
+
+    /**
+     * Reads a hint line, e.g. {@code 139=I8-Rot0}.
+     */
+    private void readHint() {
+        final int id = readNumber() - 1;
+        expect('=');
+        int column = 0;
+        int letterCount = 0;
+        while (bytes.hasRemaining() && isLetter(bytes.get(bytes.position()))) {
+            column = column * 26 + (Character.toUpperCase(bytes.get()) - 'A' + 1);
+            letterCount++;
+        }
+        if (letterCount == 0) {
+            throw invalid("Missing hint column");
+        }
+        final int row = readNumber() - 1;
+        expect('-');
+        expect('R');
+        expect('o');
+        expect('t');
+        final int quarterTurns = readNumber();
+        skipLine();
+        if (id < 0 || row < 0 || quarterTurns >= Rotations.COUNT) {
+            throw invalid("Invalid hint");
+        }
+        if (4 * (hintCount + 1) > hints.length) {
+            hints = Arrays.copyOf(hints, Math.max(16, 2 * hints.length));
+        }
+        hints[4 * hintCount] = id;
+        hints[4 * hintCount + 1] = row;
+        hints[4 * hintCount + 2] = column - 1;
+        hints[4 * hintCount + 3] = quarterTurns;
+        hintCount++;
+    }
+
+    /**
+     * Reads an information line, e.g. {@code CoteN=16}, keeping only the board dimensions.
+     */
+    private void readInformation() {
+        final int start = bytes.position();
+        while (bytes.hasRemaining() && bytes.get(bytes.position()) != '=' && bytes.get(bytes.position()) != '\n') {
+            bytes.get();
+        }
+        final int end = bytes.position();
+        if (matches(start, end, "CoteN")) {
+            expect('=');
+            columnCount = readNumber();
+        } else if (matches(start, end, "CoteA")) {
+            expect('=');
+            rowCount = readNumber();
+        }
+        skipLine();
+    }
+
+    private Puzzle puzzle() {
+        int pieceCount = 0;
+        while (4 * pieceCount < colors.length && colors[4 * pieceCount] >= 0) {
+            pieceCount++;
+        }
+        for (int i = 4 * pieceCount; i < colors.length; i += 4) {
+            if (colors[i] >= 0) {
+                throw new IllegalArgumentException("Missing piece " + (pieceCount + 1));
+            }
+        }
+        final var pieces = new Piece[pieceCount];
+        for (int id = 0; id < pieceCount; id++) {
+            pieces[id] = new Piece(id, colors[4 * id], colors[4 * id + 1], colors[4 * id + 2], colors[4 * id + 3]);
+        }
+        if (rowCount < 0 && columnCount < 0) {
+            final int side = (int) Math.round(Math.sqrt(pieceCount));
+            rowCount = side;
+            columnCount = side;
+        } else if (rowCount < 0) {
+            rowCount = columnCount == 0 ? 0 : pieceCount / columnCount;
+        } else if (columnCount < 0) {
+            columnCount = rowCount == 0 ? 0 : pieceCount / rowCount;
+        }
+        if ((long) rowCount * columnCount != pieceCount) {
+            throw new IllegalArgumentException("Inconsistent number of pieces: " + pieceCount + " != " + rowCount
+                    + " * " + columnCount);
+        }
+        final var initialBoard = new Piece[rowCount][columnCount];
+        for (int hint = 0; hint < hintCount; hint++) {
+            final int id = hints[4 * hint];
+            final int row = hints[4 * hint + 1];
+            final int column = hints[4 * hint + 2];
+            if (id >= pieceCount || row >= rowCount || column >= columnCount) {
+                throw new IllegalArgumentException("Hint out of bounds: piece " + (id + 1) + " at (" + row + ","
+                        + column + ")");
+            }
+            initialBoard[row][column] = Rotations.rotate(pieces[id], hints[4 * hint + 3]);
+        }
+        return new Puzzle(pieces, initialBoard);
+    }
+
+    private int readNumber() {
+        int value = 0;
+        int digitCount = 0;
+        while (bytes.hasRemaining()) {
+            final byte b = bytes.get(bytes.position());
+            if (b < '0' || b > '9') {
+                break;
+            }
+            if (value > (Integer.MAX_VALUE - 9) / 10) {
+                throw invalid("Number too large");
+            }
+            value = value * 10 + (b - '0');
+            digitCount++;
+            bytes.get();
+        }
+        if (digitCount == 0) {
+            throw invalid("Number expected");
+        }
+        return value;
+    }
+
+    private void expect(final char expected) {
+        if (!bytes.hasRemaining() || bytes.get() != expected) {
+            throw invalid("'" + expected + "' expected");
+        }
+    }
+
+    private void skipLine() {
+        while (bytes.hasRemaining() && bytes.get() != '\n') {
+            // Skip until end of line
+        }
+        line++;
+    }
+
+    private boolean matches(final int start, final int end, final String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toUpperCase(bytes.get(start + i)) != Character.toUpperCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(final byte b) {
+        return b >= 'A' && b <= 'Z' || b >= 'a' && b <= 'z';
+    }
+
+    private IllegalArgumentException invalid(final String message) {
+        return new IllegalArgumentException("Invalid .fps file at line " + line + ": " + message);
+    }
+}
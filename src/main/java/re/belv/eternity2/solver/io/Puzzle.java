@@ -0,0 +1,44 @@
+package re.belv.eternity2.solver.io;
+
+import re.belv.eternity2.solver.Piece;
+
+import java.util.Objects;
+
+/**
+ * A puzzle, as given to the solver.
+ *
+ * @param pieces       the available pieces, by id
+ * @param initialBoard the initial board, holding the hint pieces, rotated as placed, {@code null} elsewhere
+ */
+public record Puzzle(Piece[] pieces, Piece[][] initialBoard) {
+
+    /**
+     * Constructs an instance.
+     *
+     * @param pieces       the available pieces, by id
+     * @param initialBoard the initial board, holding the hint pieces, rotated as placed, {@code null} elsewhere
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public Puzzle {
+        Objects.requireNonNull(pieces);
+        Objects.requireNonNull(initialBoard);
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return the number of rows of the board
+     */
+    public int rowCount() {
+        return initialBoard.length;
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return the number of columns of the board
+     */
+    public int columnCount() {
+        return initialBoard.length == 0 ? 0 : initialBoard[0].length;
+    }
+}
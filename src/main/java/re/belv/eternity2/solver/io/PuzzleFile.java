@@ -0,0 +1,196 @@
+package re.belv.eternity2.solver.io;
+
+import re.belv.eternity2.solver.Piece;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compact binary file holding a corpus of puzzles, loaded through a memory mapping.
+ * <p>
+ * The file is made of big-endian integers:
+ * <pre>
+ * int     magic number, "E2PZ"
+ * int     version of the format
+ * int     number of puzzles
+ * then, for each puzzle:
+ * short   number of rows
+ * short   number of columns
+ * short[] north, east, south and west colors of each piece, by id
+ * short   number of hints
+ * then, for each hint:
+ * short   position of the hint, in row-major order
+ * short   id of the hint piece
+ * byte    number of clockwise quarter turns of the hint piece
+ * </pre>
+ * A 16x16 puzzle thus takes about 2 KiB. Loading a corpus maps the file once and decodes the puzzles straight from the
+ * mapping, without copying its bytes.
+ */
+public final class PuzzleFile {
+
+    /** The magic number starting the files, "E2PZ" in ASCII. */
+    private static final int MAGIC = 0x45325A50;
+
+    /** The version of the format, increased on incompatible changes. */
+    private static final int VERSION = 1;
+
+    /** The size of the header, in bytes. */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /** The largest value fitting in a field of the format. */
+    private static final int MAX_VALUE = Short.MAX_VALUE;
+
+    private PuzzleFile() {
+        // Static methods only
+    }
+
+    /**
+     * Writes the given puzzles to the given file.
+     *
+     * @param file    the file to write, replaced if it exists
+     * @param puzzles the puzzles
+     * @throws IOException              if the file cannot be written
+     * @throws IllegalArgumentException if a puzzle has more than 32767 rows, columns, pieces or colors, or if a hint
+     *                                  is not a rotation of the piece with the same id
+     */
+    public static void write(final Path file, final Collection<Puzzle> puzzles) throws IOException {
+        long size = HEADER_SIZE;
+        for (final Puzzle puzzle : puzzles) {
+            size += sizeOf(puzzle);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many puzzles for a single file: " + size + " bytes");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(puzzles.size());
+        for (final Puzzle puzzle : puzzles) {
+            write(buffer, puzzle);
+        }
+        buffer.flip();
+        try (final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the puzzles of the given file.
+     *
+     * @param file the file
+     * @return the puzzles, in the order they were written
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file has not been written by {@link #write(Path, Collection)}
+     */
+    public static List<Puzzle> read(final Path file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Not a puzzle file: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a puzzle file: " + file);
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported puzzle file version: " + version);
+            }
+            final int puzzleCount = buffer.getInt();
+            if (puzzleCount < 0) {
+                throw new IllegalArgumentException("Invalid number of puzzles: " + puzzleCount);
+            }
+            final List<Puzzle> puzzles = new ArrayList<>(Math.min(puzzleCount, buffer.remaining()));
+            for (int i = 0; i < puzzleCount; i++) {
+                puzzles.add(read(buffer));
+            }
+            return puzzles;
+        } catch (final BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated puzzle file: " + file, e);
+        }
+    }
+
+    private static long sizeOf(final Puzzle puzzle) {
+        int hintCount = 0;
+        for (final Piece[] row : puzzle.initialBoard()) {
+            for (final Piece piece : row) {
+                if (piece != null) {
+                    hintCount++;
+                }
+            }
+        }
+        return 3L * Short.BYTES + (long) puzzle.pieces().length * 4 * Short.BYTES
+                + (long) hintCount * (2 * Short.BYTES + Byte.BYTES);
+    }
+
+    private static void write(final ByteBuffer buffer, final Puzzle puzzle) {
+        final Piece[] pieces = puzzle.pieces();
+        if (puzzle.rowCount() > MAX_VALUE || puzzle.columnCount() > MAX_VALUE || pieces.length > MAX_VALUE) {
+            throw new IllegalArgumentException("Puzzle too large: " + puzzle.rowCount() + "x" + puzzle.columnCount());
+        }
+        buffer.putShort((short) puzzle.rowCount()).putShort((short) puzzle.columnCount());
+        for (final Piece piece : pieces) {
+            putColor(buffer, piece.northColor());
+            putColor(buffer, piece.eastColor());
+            putColor(buffer, piece.southColor());
+            putColor(buffer, piece.westColor());
+        }
+        final int hintCountPosition = buffer.position();
+        buffer.putShort((short) 0);
+        short hintCount = 0;
+        for (int rowIndex = 0; rowIndex < puzzle.rowCount(); rowIndex++) {
+            for (int columnIndex = 0; columnIndex < puzzle.columnCount(); columnIndex++) {
+                final Piece hint = puzzle.initialBoard()[rowIndex][columnIndex];
+                if (hint != null) {
+                    buffer.putShort((short) (rowIndex * puzzle.columnCount() + columnIndex))
+                            .putShort((short) hint.id())
+                            .put((byte) Rotations.between(pieces[hint.id()], hint));
+                    hintCount++;
+                }
+            }
+        }
+        buffer.putShort(hintCountPosition, hintCount);
+    }
+
+    private static void putColor(final ByteBuffer buffer, final int color) {
+        if (color < 0 || color > MAX_VALUE) {
+            throw new IllegalArgumentException("Color out of bounds: " + color);
+        }
+        buffer.putShort((short) color);
+    }
+
+    private static Puzzle read(final ByteBuffer buffer) {
+        final int rowCount = buffer.getShort();
+        final int columnCount = buffer.getShort();
+        if (rowCount < 0 || columnCount < 0 || rowCount * columnCount > MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid board dimensions: " + rowCount + "x" + columnCount);
+        }
+        final var pieces = new Piece[rowCount * columnCount];
+        for (int id = 0; id < pieces.length; id++) {
+            pieces[id] = new Piece(id, buffer.getShort(), buffer.getShort(), buffer.getShort(), buffer.getShort());
+        }
+        final var initialBoard = new Piece[rowCount][columnCount];
+        final int hintCount = buffer.getShort();
+        for (int hint = 0; hint < hintCount; hint++) {
+            final int position = buffer.getShort();
+            final int id = buffer.getShort();
+            final int quarterTurns = buffer.get();
+            if (position < 0 || position >= pieces.length || id < 0 || id >= pieces.length) {
+                throw new IllegalArgumentException("Hint out of bounds: piece " + id + " at position " + position);
+            }
+            initialBoard[position / columnCount][position % columnCount] = Rotations.rotate(pieces[id], quarterTurns);
+        }
+        return new Puzzle(pieces, initialBoard);
+    }
+}
@@ -0,0 +1,53 @@
+package re.belv.eternity2.solver.io;
+
+import re.belv.eternity2.solver.Piece;
+
+/**
+ * Rotations of pieces, in number of clockwise quarter turns, as used by the puzzle formats.
+ */
+final class Rotations {
+
+    /** The number of distinct quarter turns. */
+    static final int COUNT = 4;
+
+    private Rotations() {
+        // Static methods only
+    }
+
+    /**
+     * Returns the given piece rotated clockwise by the given number of quarter turns.
+     *
+     * @param piece        the piece
+     * @param quarterTurns the number of clockwise quarter turns, from 0 to 3
+     * @return the rotated piece
+     */
+    static Piece rotate(final Piece piece, final int quarterTurns) {
+        return switch (quarterTurns) {
+            case 0 -> piece;
+            case 1 -> new Piece(piece.id(), piece.westColor(), piece.northColor(), piece.eastColor(),
+                    piece.southColor());
+            case 2 -> new Piece(piece.id(), piece.southColor(), piece.westColor(), piece.northColor(),
+                    piece.eastColor());
+            case 3 -> new Piece(piece.id(), piece.eastColor(), piece.southColor(), piece.westColor(),
+                    piece.northColor());
+            default -> throw new IllegalArgumentException("Invalid number of quarter turns: " + quarterTurns);
+        };
+    }
+
+    /**
+     * Returns the number of clockwise quarter turns to apply to the given piece to get the other one.
+     *
+     * @param piece   the piece
+     * @param rotated the rotated piece
+     * @return the smallest number of clockwise quarter turns giving the rotated piece
+     * @throws IllegalArgumentException if the pieces differ by more than a rotation
+     */
+    static int between(final Piece piece, final Piece rotated) {
+        for (int quarterTurns = 0; quarterTurns < COUNT; quarterTurns++) {
+            if (rotate(piece, quarterTurns).equals(rotated)) {
+                return quarterTurns;
+            }
+        }
+        throw new IllegalArgumentException(rotated + " is not a rotation of " + piece);
+    }
+}
@@ -0,0 +1,59 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.specs.IVecInt;
+
+/**
+ * A {@link ConstraintSink} which only counts the constraints written, so that benchmarks and tests measure the encoding
+ * alone.
+ */
+final class ClauseCountingSink implements ConstraintSink {
+
+    /** The number of clauses and cardinality constraints added since last reset. */
+    private long constraintCount;
+
+    /**
+     * Forgets the constraints counted so far.
+     */
+    void reset() {
+        constraintCount = 0;
+    }
+
+    @Override
+    public void newVar(final int count) {
+        // Nothing to do
+    }
+
+    @Override
+    public void expectConstraints(final int count) {
+        // Nothing to allocate
+    }
+
+    @Override
+    public int variableCount() {
+        return 0;
+    }
+
+    @Override
+    public void addClause(final IVecInt literals) {
+        constraintCount++;
+    }
+
+    @Override
+    public void addExactly(final IVecInt literals, final int degree) {
+        constraintCount++;
+    }
+
+    @Override
+    public void addAtMost(final IVecInt literals, final int degree) {
+        constraintCount++;
+    }
+
+    /**
+     * Returns the number of clauses and cardinality constraints added since last reset.
+     *
+     * @return the number of clauses and cardinality constraints added since last reset
+     */
+    long constraintCount() {
+        return constraintCount;
+    }
+}
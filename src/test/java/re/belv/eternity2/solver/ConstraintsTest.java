@@ -0,0 +1,39 @@
+package re.belv.eternity2.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+final class ConstraintsTest {
+
+    @Test
+    void addAllConstraintsTo_constantAllocation() throws Exception {
+        final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeThat(threads.isThreadAllocatedMemorySupported()).isTrue();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        final int size = 8;
+        final var pieces = new Piece[size * size];
+        for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+            pieces[pieceIndex] = new Piece(pieceIndex, 0, 1, 2, 3);
+        }
+        final var game = new Game(pieces, new Piece[size][size]);
+        final var variables = new Variables(game);
+        final var sink = new ClauseCountingSink();
+        // Warm up, so that class loading is not measured
+        new Constraints(variables, game).addAllConstraintsTo(sink);
+        sink.reset();
+        final var constraints = new Constraints(variables, game);
+        final long threadId = Thread.currentThread().threadId();
+
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        constraints.addAllConstraintsTo(sink);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // 65536 clauses linking borders to pieces alone; less than a byte per constraint means no allocation per clause
+        assertThat(sink.constraintCount()).isGreaterThan(65_536);
+        assertThat(allocated).isLessThan(sink.constraintCount());
+    }
+}
@@ -0,0 +1,156 @@
+package re.belv.eternity2.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static re.belv.eternity2.solver.Piece.Rotation.PLUS_90;
+
+/**
+ * Tests for {@link Coordinator} and {@link Worker}.
+ */
+final class CoordinatorTest {
+
+    private static final Piece[] PIECES = {
+            new Piece(0, 1, 0, 2, 1), new Piece(1, 1, 2, 4, 1), new Piece(2, 1, 2, 0, 1), new Piece(3, 1, 2, 0, 1), new Piece(4, 1, 3, 5, 4),
+            new Piece(5, 1, 0, 8, 2), new Piece(6, 1, 3, 8, 2), new Piece(7, 1, 4, 5, 0), new Piece(8, 1, 3, 6, 0), new Piece(9, 1, 2, 5, 2),
+            new Piece(10, 1, 3, 6, 2), new Piece(11, 1, 0, 7, 3), new Piece(12, 1, 4, 6, 3), new Piece(13, 1, 2, 7, 2), new Piece(14, 1, 0, 6, 3),
+            new Piece(15, 1, 2, 5, 3), new Piece(16, 6, 8, 4, 5), new Piece(17, 4, 8, 5, 5), new Piece(18, 6, 8, 7, 6), new Piece(19, 4, 8, 6, 8),
+            new Piece(20, 6, 7, 6, 7), new Piece(21, 6, 5, 8, 4), new Piece(22, 5, 8, 5, 8), new Piece(23, 5, 7, 7, 7), new Piece(24, 6, 6, 6, 5),
+    };
+
+    private static Piece[][] initialBoard() {
+        final var initialBoard = new Piece[5][5];
+        initialBoard[2][2] = PIECES[19].rotate(PLUS_90);
+        return initialBoard;
+    }
+
+    private static Set<PackedBoard> expectedSolutions() {
+        final var solutions = new HashSet<PackedBoard>();
+        new Solver(Configuration.defaults().withFrameColor(1)).solveBoards(PIECES, initialBoard())
+                .forEachRemaining(solutions::add);
+        return solutions;
+    }
+
+    @Test
+    void run_5x5_workerProcesses() throws IOException, InterruptedException {
+        try (final var coordinator = new Coordinator(Configuration.defaults().withFrameColor(1), PIECES,
+                initialBoard(), 8, 0)) {
+            final var javaExecutable = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            final var workerCommand = List.of(javaExecutable, "-cp", System.getProperty("java.class.path"),
+                    Worker.class.getName(), "localhost", String.valueOf(coordinator.port()));
+            final List<Process> workers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                workers.add(new ProcessBuilder(workerCommand).inheritIO().start());
+            }
+            final List<PackedBoard> solutions = new ArrayList<>();
+
+            final long solutionCount = coordinator.run(solutions::add);
+
+            for (final Process worker : workers) {
+                assertThat(worker.waitFor(1, TimeUnit.MINUTES)).isTrue();
+                assertThat(worker.exitValue()).isZero();
+            }
+            assertThat(coordinator.unitCount()).isGreaterThanOrEqualTo(8);
+            assertThat(solutionCount).isEqualTo(16);
+            assertThat(solutions).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(expectedSolutions());
+        }
+    }
+
+    @Test
+    void run_5x5_workerLost() throws IOException, InterruptedException {
+        try (final var coordinator = new Coordinator(Configuration.defaults().withFrameColor(1), PIECES,
+                initialBoard(), 8, 0)) {
+            // A worker taking a unit, sending a bogus solution and vanishing before exhausting it
+            final PackedBoard bogusSolution;
+            try (final var lostWorker = new Socket("localhost", coordinator.port())) {
+                final var input = new DataInputStream(new BufferedInputStream(lostWorker.getInputStream()));
+                final var output = new DataOutputStream(new BufferedOutputStream(lostWorker.getOutputStream()));
+                WorkProtocol.writeHello(output);
+                final Game game = WorkProtocol.readGame(input);
+                input.readInt(); // heartbeat interval
+                assertThat(input.readByte()).isEqualTo(WorkProtocol.UNIT);
+                input.readInt();
+                bogusSolution = WorkProtocol.readBoard(input, game);
+                output.writeByte(WorkProtocol.SOLUTION);
+                WorkProtocol.writeBoard(output, bogusSolution);
+                output.flush();
+            }
+            final CompletableFuture<Long> worker = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new Worker(Configuration.defaults()).run("localhost", coordinator.port());
+                } catch (final IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            final List<PackedBoard> solutions = new ArrayList<>();
+
+            final long solutionCount = coordinator.run(solutions::add);
+
+            assertThat(worker.join()).isEqualTo(coordinator.unitCount());
+            assertThat(solutionCount).isEqualTo(16);
+            assertThat(solutions).doesNotHaveDuplicates().doesNotContain(bogusSolution)
+                    .containsExactlyInAnyOrderElementsOf(expectedSolutions());
+        }
+    }
+
+    @Test
+    void run_5x5_workerHung() throws IOException, InterruptedException {
+        try (final var coordinator = new Coordinator(Configuration.defaults().withFrameColor(1), PIECES,
+                initialBoard(), 8, 0, 500);
+             final var hungWorker = new Socket("localhost", coordinator.port())) {
+            // A worker taking a unit, then neither sending anything nor disconnecting
+            final var input = new DataInputStream(new BufferedInputStream(hungWorker.getInputStream()));
+            final var output = new DataOutputStream(new BufferedOutputStream(hungWorker.getOutputStream()));
+            WorkProtocol.writeHello(output);
+            final Game game = WorkProtocol.readGame(input);
+            assertThat(input.readInt()).isPositive().isLessThan(500);
+            assertThat(input.readByte()).isEqualTo(WorkProtocol.UNIT);
+            input.readInt();
+            WorkProtocol.readBoard(input, game);
+            final CompletableFuture<Long> worker = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new Worker(Configuration.defaults()).run("localhost", coordinator.port());
+                } catch (final IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            final List<PackedBoard> solutions = new ArrayList<>();
+
+            final long solutionCount = coordinator.run(solutions::add);
+
+            assertThat(worker.join()).isEqualTo(coordinator.unitCount());
+            assertThat(solutionCount).isEqualTo(16);
+            assertThat(solutions).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(expectedSolutions());
+        }
+    }
+
+    @Test
+    void run_inconsistentGame() throws IOException, InterruptedException {
+        final var pieces = new Piece[]{new Piece(0, 0, 0, 0, 0), new Piece(1, 0, 0, 0, 0)};
+        try (final var coordinator = new Coordinator(Configuration.defaults().withFrameColor(1), pieces,
+                new Piece[1][2], 4, 0)) {
+
+            final long solutionCount = coordinator.run(solution -> {
+                throw new AssertionError("Unexpected solution: " + solution);
+            });
+
+            assertThat(coordinator.unitCount()).isZero();
+            assertThat(solutionCount).isZero();
+        }
+    }
+}
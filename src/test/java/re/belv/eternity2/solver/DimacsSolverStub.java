@@ -0,0 +1,41 @@
+package re.belv.eternity2.solver;
+
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.reader.DimacsReader;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * A stub of external SAT solver, reading DIMACS on its standard input and answering in SAT competition format.
+ * <p>
+ * It actually relies on Sat4j but runs in a separate process, like a native solver would.
+ */
+final class DimacsSolverStub {
+
+    private DimacsSolverStub() {
+        // Not instantiable
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final ISolver solver = SolverFactory.newLight();
+        final boolean satisfiable;
+        try {
+            new DimacsReader(solver).parseInstance(System.in);
+            satisfiable = solver.isSatisfiable();
+        } catch (final ContradictionException e) {
+            System.out.println("s UNSATISFIABLE");
+            System.exit(20);
+            return;
+        }
+        if (!satisfiable) {
+            System.out.println("s UNSATISFIABLE");
+            System.exit(20);
+        }
+        System.out.println("s SATISFIABLE");
+        System.out.println("v " + Arrays.stream(solver.model()).mapToObj(Integer::toString).collect(Collectors.joining(" ")) + " 0");
+        System.exit(10);
+    }
+}
@@ -0,0 +1,60 @@
+package re.belv.eternity2.solver;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ExternalBackend}.
+ */
+final class ExternalBackendTest {
+
+    private ExternalBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        final var javaExecutable = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        backend = new ExternalBackend(List.of(javaExecutable, "-cp", System.getProperty("java.class.path"),
+                DimacsSolverStub.class.getName()));
+        backend.newVar(2);
+        backend.addClause(new VecInt(new int[]{1, 2}));
+        backend.addClause(new VecInt(new int[]{-1}));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    void findModel() throws TimeoutException {
+        assertThat(backend.findModel(new VecInt())).containsExactly(-1, 2);
+    }
+
+    @Test
+    void findModel_interruptedBeforeSearch() throws TimeoutException {
+        backend.interrupt();
+
+        assertThatThrownBy(() -> backend.findModel(new VecInt())).isInstanceOf(TimeoutException.class);
+        // The interruption is consumed by the interrupted search
+        assertThat(backend.findModel(new VecInt())).containsExactly(-1, 2);
+    }
+
+    @Test
+    void findModel_interruptedThenReset() throws TimeoutException {
+        backend.interrupt();
+        backend.reset();
+        backend.newVar(1);
+        backend.addClause(new VecInt(new int[]{1}));
+
+        assertThat(backend.findModel(new VecInt())).containsExactly(1);
+    }
+}
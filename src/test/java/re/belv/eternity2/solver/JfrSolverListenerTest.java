@@ -0,0 +1,47 @@
+package re.belv.eternity2.solver;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class JfrSolverListenerTest {
+
+    @Test
+    void solve_2x2_recordsEvents(@TempDir final Path directory) throws IOException {
+        final var pieces = new Piece[]{
+                new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3),
+                new Piece(2, 0, 1, 2, 3), new Piece(3, 0, 1, 2, 3),
+        };
+        final var solver = new Solver(Configuration.defaults().withListener(new JfrSolverListener()));
+        final Path file = directory.resolve("solve.jfr");
+
+        try (final var recording = new Recording()) {
+            recording.enable("re.belv.eternity2.EncodingPhase");
+            recording.enable("re.belv.eternity2.Encoding");
+            recording.enable("re.belv.eternity2.ModelFound");
+            recording.start();
+            solver.solve(pieces, new Piece[2][2]).forEachRemaining(solution -> {
+                // Only events matter
+            });
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("re.belv.eternity2.EncodingPhase"))
+                .hasSize(6);
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("re.belv.eternity2.Encoding"))
+                .singleElement().satisfies(event -> assertThat(event.getLong("constraintCount")).isPositive());
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("re.belv.eternity2.ModelFound"))
+                .hasSize(96)
+                .extracting(event -> event.getLong("modelCount")).contains(96L);
+    }
+}
@@ -0,0 +1,86 @@
+package re.belv.eternity2.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static re.belv.eternity2.solver.Piece.Rotation.*;
+
+final class SessionTest {
+
+    private static final Piece[] PIECES = {
+            new Piece(0, 1, 0, 2, 1), new Piece(1, 1, 2, 4, 1), new Piece(2, 1, 2, 0, 1), new Piece(3, 1, 2, 0, 1), new Piece(4, 1, 3, 5, 4),
+            new Piece(5, 1, 0, 8, 2), new Piece(6, 1, 3, 8, 2), new Piece(7, 1, 4, 5, 0), new Piece(8, 1, 3, 6, 0), new Piece(9, 1, 2, 5, 2),
+            new Piece(10, 1, 3, 6, 2), new Piece(11, 1, 0, 7, 3), new Piece(12, 1, 4, 6, 3), new Piece(13, 1, 2, 7, 2), new Piece(14, 1, 0, 6, 3),
+            new Piece(15, 1, 2, 5, 3), new Piece(16, 6, 8, 4, 5), new Piece(17, 4, 8, 5, 5), new Piece(18, 6, 8, 7, 6), new Piece(19, 4, 8, 6, 8),
+            new Piece(20, 6, 7, 6, 7), new Piece(21, 6, 5, 8, 4), new Piece(22, 5, 8, 5, 8), new Piece(23, 5, 7, 7, 7), new Piece(24, 6, 6, 6, 5),
+    };
+
+    @Test
+    void nextSolution() {
+        final var initialBoard = new Piece[5][5];
+        initialBoard[2][2] = PIECES[19].rotate(PLUS_90);
+        final Set<List<List<Piece>>> expectedSolutions = new HashSet<>();
+        new Solver().solve(PIECES, initialBoard).forEachRemaining(solution -> expectedSolutions.add(asList(solution)));
+        final Session session = new Solver().newSession(PIECES, new Piece[5][5]);
+
+        session.place(2, 2, PIECES[19].rotate(PLUS_90));
+        final Set<List<List<Piece>>> solutions = new HashSet<>();
+        Optional<Piece[][]> solution;
+        while ((solution = session.nextSolution()).isPresent()) {
+            solutions.add(asList(solution.get()));
+        }
+
+        assertThat(solutions).isEqualTo(expectedSolutions);
+    }
+
+    @Test
+    void isSolvable_placeAndUnplace() {
+        final var solver = new Solver(Configuration.defaults().withFrameColor(1));
+        final Session session = solver.newSession(PIECES, new Piece[5][5]);
+        assertThat(session.isSolvable()).isTrue();
+
+        // A center piece cannot be placed in a corner, which has two borders of the frame color
+        session.place(0, 0, PIECES[24]);
+        assertThat(session.isSolvable()).isFalse();
+
+        session.unplace(0, 0);
+        session.place(2, 2, PIECES[19].rotate(PLUS_90));
+        assertThat(session.isSolvable()).isTrue();
+
+        // The previous enumeration must not hide solutions once the pieces change
+        while (session.nextSolution().isPresent()) {
+            // Exhaust solutions
+        }
+        session.unplace(2, 2);
+        assertThat(session.isSolvable()).isTrue();
+        assertThat(session.board()).isDeepEqualTo(new Piece[5][5]);
+    }
+
+    @Test
+    void place_alreadyPlaced() {
+        final Session session = new Solver().newSession(PIECES, new Piece[5][5]);
+        session.place(2, 2, PIECES[19]);
+
+        assertThatThrownBy(() -> session.place(1, 1, PIECES[19].rotate(PLUS_180)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void place_notAPiece() {
+        final Session session = new Solver().newSession(PIECES, new Piece[5][5]);
+
+        assertThatThrownBy(() -> session.place(2, 2, new Piece(19, 0, 0, 0, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<List<Piece>> asList(final Piece[][] solution) {
+        return Arrays.stream(solution).map(List::of).toList();
+    }
+}
@@ -0,0 +1,140 @@
+package re.belv.eternity2.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static re.belv.eternity2.solver.Piece.Rotation.PLUS_90;
+
+/**
+ * Tests for {@link SolverPool}.
+ */
+final class SolverPoolTest {
+
+    private static final Piece[] PIECES = {
+            new Piece(0, 1, 0, 2, 1), new Piece(1, 1, 2, 4, 1), new Piece(2, 1, 2, 0, 1), new Piece(3, 1, 2, 0, 1), new Piece(4, 1, 3, 5, 4),
+            new Piece(5, 1, 0, 8, 2), new Piece(6, 1, 3, 8, 2), new Piece(7, 1, 4, 5, 0), new Piece(8, 1, 3, 6, 0), new Piece(9, 1, 2, 5, 2),
+            new Piece(10, 1, 3, 6, 2), new Piece(11, 1, 0, 7, 3), new Piece(12, 1, 4, 6, 3), new Piece(13, 1, 2, 7, 2), new Piece(14, 1, 0, 6, 3),
+            new Piece(15, 1, 2, 5, 3), new Piece(16, 6, 8, 4, 5), new Piece(17, 4, 8, 5, 5), new Piece(18, 6, 8, 7, 6), new Piece(19, 4, 8, 6, 8),
+            new Piece(20, 6, 7, 6, 7), new Piece(21, 6, 5, 8, 4), new Piece(22, 5, 8, 5, 8), new Piece(23, 5, 7, 7, 7), new Piece(24, 6, 6, 6, 5),
+    };
+
+    private static Piece[][] initialBoard() {
+        final var initialBoard = new Piece[5][5];
+        initialBoard[2][2] = PIECES[19].rotate(PLUS_90);
+        return initialBoard;
+    }
+
+    private static Set<PackedBoard> expectedSolutions() {
+        final var solutions = new HashSet<PackedBoard>();
+        new Solver(Configuration.defaults().withFrameColor(1)).solveBoards(PIECES, initialBoard())
+                .forEachRemaining(solutions::add);
+        return solutions;
+    }
+
+    @Test
+    void solveBoards_concurrently() throws InterruptedException, ExecutionException {
+        final var smallPieces = new Piece[]{new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3)};
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        try (final var pool = new SolverPool(Configuration.defaults().withFrameColor(1), 3, Duration.ofMinutes(1));
+             final var smallPool = new SolverPool(Configuration.defaults(), 2, Duration.ofMinutes(1))) {
+            final List<Future<List<PackedBoard>>> solutions = new ArrayList<>();
+            final List<Future<Long>> smallSolutionCounts = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                solutions.add(callers.submit(() -> {
+                    final List<PackedBoard> gameSolutions = new ArrayList<>();
+                    try (final PooledSolutions pooledSolutions = pool.solveBoards(PIECES, initialBoard())) {
+                        pooledSolutions.forEachRemaining(gameSolutions::add);
+                    }
+                    return gameSolutions;
+                }));
+                smallSolutionCounts.add(callers.submit(() -> smallPool.count(smallPieces, new Piece[1][2])));
+            }
+
+            final Set<PackedBoard> expectedSolutions = expectedSolutions();
+            for (final Future<List<PackedBoard>> gameSolutions : solutions) {
+                assertThat(gameSolutions.get()).doesNotHaveDuplicates()
+                        .containsExactlyInAnyOrderElementsOf(expectedSolutions);
+            }
+            for (final Future<Long> smallSolutionCount : smallSolutionCounts) {
+                assertThat(smallSolutionCount.get()).isEqualTo(8);
+            }
+            assertThat(pool.idleSolverCount()).isBetween(1, 3);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void solveBoards_closed() throws InterruptedException {
+        try (final var pool = new SolverPool(Configuration.defaults().withFrameColor(1), 1, Duration.ofMinutes(1))) {
+            final PooledSolutions closedSolutions = pool.solveBoards(PIECES, initialBoard());
+            final PackedBoard firstSolution = closedSolutions.next();
+            assertThat(pool.idleSolverCount()).isZero();
+
+            closedSolutions.close();
+
+            assertThat(pool.idleSolverCount()).isOne();
+            assertThatThrownBy(closedSolutions::hasNext).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(closedSolutions::next).isInstanceOf(IllegalStateException.class);
+            // The solver is reused from scratch
+            assertThat(pool.count(PIECES, initialBoard())).isEqualTo(16);
+            assertThat(expectedSolutions()).contains(firstSolution);
+        }
+    }
+
+    @Test
+    void solveBoards_exhausted() throws InterruptedException {
+        try (final var pool = new SolverPool(Configuration.defaults().withFrameColor(1), 1, Duration.ofMinutes(1))) {
+            final PooledSolutions exhaustedSolutions = pool.solveBoards(PIECES, initialBoard());
+            exhaustedSolutions.forEachRemaining(solution -> {
+            });
+
+            // The solver is given back on exhaustion, not on close
+            assertThat(pool.idleSolverCount()).isOne();
+            final PooledSolutions solutions = pool.solveBoards(PIECES, initialBoard());
+            exhaustedSolutions.close();
+            assertThat(solutions).toIterable().hasSize(16);
+        }
+    }
+
+    @Test
+    void idleSolversEvicted() throws InterruptedException {
+        try (final var pool = new SolverPool(Configuration.defaults(), 2, Duration.ofMillis(50))) {
+            assertThat(pool.idleSolverCount()).isOne();
+
+            while (pool.idleSolverCount() > 0) {
+                Thread.sleep(10);
+            }
+
+            assertThat(pool.count(new Piece[]{new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3)},
+                    new Piece[1][2])).isEqualTo(8);
+        }
+    }
+
+    @Test
+    void solverPool_invalid() {
+        final var pool = new SolverPool(Configuration.defaults(), 1, Duration.ofMinutes(1));
+        pool.close();
+
+        assertThatThrownBy(() -> pool.solveBoards(PIECES, initialBoard())).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new SolverPool(Configuration.defaults(), 0, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SolverPool(Configuration.defaults(), 1, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SolverPool(Configuration.defaults()
+                .withCheckpoint(Path.of("checkpoint"), Duration.ofMinutes(1)), 1, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
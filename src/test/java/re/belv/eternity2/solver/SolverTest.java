@@ -3,17 +3,36 @@ package re.belv.eternity2.solver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import re.belv.eternity2.solver.io.FpsReader;
+import re.belv.eternity2.solver.io.Puzzle;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
-import static java.util.function.Predicate.not;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static re.belv.eternity2.solver.Piece.Rotation.*;
 
 /**
@@ -57,10 +76,7 @@ final class SolverTest {
 
     @Test
     void solve_2x2() {
-        final var pieces = new Piece[]{
-                new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3),
-                new Piece(2, 0, 1, 2, 3), new Piece(3, 0, 1, 2, 3),
-        };
+        final var pieces = pieces2x2();
         final var initialBoard = new Piece[2][2];
 
         final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
@@ -75,15 +91,805 @@ final class SolverTest {
 
     @Test
     void solve_5x5() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        assertThat(solutions).toIterable()
+                .contains(new Piece[][]{
+                        {pieces[2], pieces[13], pieces[6], pieces[12], pieces[1].rotate(PLUS_90)},
+                        {pieces[11].rotate(PLUS_270), pieces[23].rotate(PLUS_90), pieces[22].rotate(PLUS_90), pieces[24], pieces[10].rotate(PLUS_90)},
+                        {pieces[8].rotate(PLUS_270), pieces[20].rotate(PLUS_90), pieces[19].rotate(PLUS_90), pieces[21], pieces[15].rotate(PLUS_90)},
+                        {pieces[5].rotate(PLUS_270), pieces[18].rotate(PLUS_180), pieces[16].rotate(PLUS_270), pieces[17].rotate(PLUS_270), pieces[9].rotate(PLUS_90)},
+                        {pieces[3].rotate(PLUS_270), pieces[14].rotate(PLUS_180), pieces[4].rotate(PLUS_180), pieces[7].rotate(PLUS_180), pieces[0].rotate(PLUS_180)},
+                })
+                .hasSize(16);
+    }
+
+    @Test
+    void solveBoards_5x5() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+
+        final List<PackedBoard> boards = new ArrayList<>();
+        solver.solveBoards(pieces, initialBoard).forEachRemaining(boards::add);
+
+        assertThat(boards).hasSize(16).doesNotHaveDuplicates();
+        assertThat(boards).allSatisfy(board -> {
+            assertThat(board.rowCount()).isEqualTo(5);
+            assertThat(board.columnCount()).isEqualTo(5);
+            assertThat(board.pieceIdAt(2, 2)).isEqualTo(19);
+            assertThat(board.pieceAt(2, 2)).isEqualTo(initialBoard[2][2]);
+        });
+        assertThat(distinct(boards.stream().map(PackedBoard::toPieces).iterator())).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_2x2_colorEncodings() {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+
+        for (final Configuration.ColorEncoding colorEncoding : Configuration.ColorEncoding.values()) {
+            solver = new Solver(Configuration.defaults().withColorEncoding(colorEncoding));
+
+            assertThat(solver.solve(pieces, initialBoard)).as(colorEncoding.name()).toIterable().hasSize(96);
+        }
+    }
+
+    @Test
+    void solve_5x5_colorEncodings() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+
+        for (final Configuration.ColorEncoding colorEncoding : Configuration.ColorEncoding.values()) {
+            solver = new Solver(Configuration.defaults().withColorEncoding(colorEncoding));
+
+            final List<Piece[][]> solutions = new ArrayList<>();
+            solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+            assertThat(solutions).as(colorEncoding.name()).hasSize(16);
+            assertThat(distinct(solutions.iterator())).as(colorEncoding.name()).isEqualTo(allSolutions);
+        }
+    }
+
+    @Test
+    void solve_5x5_cardinalityEncodings() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+
+        for (final Configuration.CardinalityEncoding cardinalityEncoding : Configuration.CardinalityEncoding.values()) {
+            solver = new Solver(Configuration.defaults().withCardinalityEncoding(cardinalityEncoding));
+
+            final List<Piece[][]> solutions = new ArrayList<>();
+            solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+            assertThat(solutions).as(cardinalityEncoding.name()).hasSize(16);
+            assertThat(distinct(solutions.iterator())).as(cardinalityEncoding.name()).isEqualTo(allSolutions);
+        }
+    }
+
+    @Test
+    void solve_1x2_externalSolver() {
+        final var pieces = new Piece[]{new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3)};
+        final var initialBoard = new Piece[1][2];
+        final var javaExecutable = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        final var stubCommand = List.of(javaExecutable, "-cp", System.getProperty("java.class.path"), DimacsSolverStub.class.getName());
+        solver = new Solver(Configuration.defaults().withExternalSolver(stubCommand));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        assertThat(solutions).toIterable()
+                .contains(new Piece[][]{{new Piece(0, 2, 3, 0, 1), new Piece(1, 0, 1, 2, 3)},})
+                .hasSize(8);
+    }
+
+    @Test
+    void solve_5x5_portfolio() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        solver = new Solver(Configuration.defaults().withFrameColor(1).withPortfolioSize(10));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        assertThat(solutions).toIterable().hasSize(16);
+    }
+
+    @Test
+    void solve_2x2_parallel() {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        solver = new Solver(Configuration.defaults().withParallelEnumeration(4));
+
+        final List<Piece[][]> solutions = new ArrayList<>();
+        solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+        assertThat(solutions).hasSize(96);
+        assertThat(distinct(solutions.iterator())).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_5x5_parallel() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        solver = new Solver(Configuration.defaults().withParallelEnumeration(4));
+
+        final List<Piece[][]> solutions = new ArrayList<>();
+        solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+        assertThat(solutions).hasSize(16);
+        assertThat(distinct(solutions.iterator())).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_2x2_backtracking() {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        solver = new Solver(Configuration.defaults().withEngine(Configuration.Engine.BACKTRACKING));
+
+        final List<Piece[][]> solutions = new ArrayList<>();
+        solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+        assertThat(solutions).hasSize(96);
+        assertThat(distinct(solutions.iterator())).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_5x5_backtracking() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        solver = new Solver(Configuration.defaults().withEngine(Configuration.Engine.BACKTRACKING));
+
+        final List<Piece[][]> solutions = new ArrayList<>();
+        solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+        assertThat(solutions).hasSize(16);
+        assertThat(distinct(solutions.iterator())).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_backtracking_satOptions() {
+        final Configuration configuration = Configuration.defaults()
+                .withEngine(Configuration.Engine.BACKTRACKING)
+                .withPortfolioSize(2);
+
+        assertThatThrownBy(() -> new Solver(configuration)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void solve_5x5_frameFirst() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        final Configuration frameFirst = Configuration.defaults()
+                .withEngine(Configuration.Engine.FRAME_FIRST)
+                .withFrameColor(1);
+
+        for (final Configuration.ColorEncoding colorEncoding : Configuration.ColorEncoding.values()) {
+            solver = new Solver(frameFirst.withColorEncoding(colorEncoding));
+
+            final List<Piece[][]> solutions = new ArrayList<>();
+            solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+            assertThat(solutions).as(colorEncoding.name()).hasSize(16);
+            assertThat(distinct(solutions.iterator())).as(colorEncoding.name()).isEqualTo(allSolutions);
+        }
+        assertThat(new Solver(frameFirst.withParallelEnumeration(3)).count(pieces, initialBoard)).isEqualTo(16);
+    }
+
+    @Test
+    void solve_3x3_frameFirst_frameColorInside() {
+        // The frame color also appears inside the board: Some pieces fit both the frame and the interior
+        final var pieces = new Piece[]{
+                new Piece(0, 0, 1, 2, 0), new Piece(1, 0, 2, 0, 1), new Piece(2, 0, 0, 1, 2),
+                new Piece(3, 2, 0, 1, 0), new Piece(4, 0, 1, 2, 0), new Piece(5, 1, 0, 0, 1),
+                new Piece(6, 1, 2, 0, 0), new Piece(7, 2, 1, 0, 2), new Piece(8, 0, 0, 0, 1),
+        };
+        final var initialBoard = new Piece[3][3];
+        solver = new Solver(Configuration.defaults().withFrameColor(0));
+        final List<Piece[][]> allSolutions = new ArrayList<>();
+        solver.solve(pieces, initialBoard).forEachRemaining(allSolutions::add);
+        solver = new Solver(Configuration.defaults().withEngine(Configuration.Engine.FRAME_FIRST).withFrameColor(0));
+
+        final List<Piece[][]> solutions = new ArrayList<>();
+        solver.solve(pieces, initialBoard).forEachRemaining(solutions::add);
+
+        assertThat(allSolutions).isNotEmpty();
+        assertThat(solutions).hasSameSizeAs(allSolutions);
+        assertThat(distinct(solutions.iterator())).isEqualTo(distinct(allSolutions.iterator()));
+    }
+
+    @Test
+    void solve_2x2_frameFirst_withoutInterior() {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+        solver = new Solver(Configuration.defaults().withEngine(Configuration.Engine.FRAME_FIRST));
+
+        assertThat(solver.count(pieces, initialBoard)).isEqualTo(96);
+    }
+
+    @Test
+    void solve_frameFirst_unsupportedOptions() {
+        final Configuration configuration = Configuration.defaults()
+                .withEngine(Configuration.Engine.FRAME_FIRST)
+                .withSymmetryBreaking(Configuration.SymmetryBreaking.CANONICAL);
+
+        assertThatThrownBy(() -> new Solver(configuration)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void solve_5x5_dimacs(@TempDir final Path directory) throws IOException {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        final Path file = directory.resolve("5x5.cnf");
+
+        solver.export(pieces, initialBoard, file);
+        final List<Piece[][]> solutions = new ArrayList<>();
+        new Solver().solve(file).forEachRemaining(solutions::add);
+
+        assertThat(Files.readAllLines(file)).first().isEqualTo("c eternity2-solver 1");
+        assertThat(solutions).hasSize(16);
+        assertThat(distinct(solutions.iterator())).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void enumerate_5x5_solutionFile(@TempDir final Path directory) throws IOException {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final List<PackedBoard> allSolutions = new ArrayList<>();
+        solver.solveBoards(pieces, initialBoard).forEachRemaining(allSolutions::add);
+        final Path file = directory.resolve("5x5.e2s");
+
+        final long solutionCount;
+        try (final var writer = new SolutionWriter(file, pieces, initialBoard)) {
+            solutionCount = solver.enumerate(pieces, initialBoard, writer);
+        }
+        final List<PackedBoard> solutions = new ArrayList<>();
+        try (final var reader = new SolutionReader(file)) {
+            assertThat(reader.pieces()).containsExactly(pieces);
+            reader.forEachRemaining(solutions::add);
+        }
+
+        assertThat(solutionCount).isEqualTo(16);
+        assertThat(Files.size(file)).isEqualTo(4 * 4 + 25 * 4 * 4 + 16 * (4 + 25 * 2));
+        assertThat(solutions).containsExactlyInAnyOrderElementsOf(allSolutions);
+        assertThat(solutions).extracting(PackedBoard::toPieces)
+                .containsExactlyInAnyOrderElementsOf(allSolutions.stream().map(PackedBoard::toPieces).toList());
+    }
+
+    @Test
+    void solutionReader_invalidFile(@TempDir final Path directory) throws IOException {
+        final Path file = directory.resolve("invalid.e2s");
+        Files.writeString(file, "c eternity2-solver 1");
+
+        assertThatThrownBy(() -> new SolutionReader(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void resume_5x5_checkpoint(@TempDir final Path directory) throws IOException, InterruptedException {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final List<PackedBoard> allSolutions = new ArrayList<>();
+        solver.solveBoards(pieces, initialBoard).forEachRemaining(allSolutions::add);
+        final Path file = directory.resolve("5x5.e2c");
+        final Configuration configuration = Configuration.defaults().withFrameColor(1)
+                .withCheckpoint(file, Duration.ofMillis(10));
+
+        // An enumeration killed after 5 solutions, once they have been saved
+        final Iterator<PackedBoard> killedSolutions = new Solver(configuration).solveBoards(pieces, initialBoard);
+        final long emptyCheckpointSize = Files.size(file);
+        final List<PackedBoard> firstSolutions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            firstSolutions.add(killedSolutions.next());
+        }
+        while (Files.size(file) != emptyCheckpointSize + 5 * 25 * 4) {
+            Thread.sleep(10);
+        }
+        // The sixth solution is cut by the kill
+        Files.write(file, new byte[]{0, 0, 0, 4, 0, 0}, StandardOpenOption.APPEND);
+        final List<PackedBoard> resumedSolutions = new ArrayList<>();
+        new Solver(configuration).resume(pieces, initialBoard).forEachRemaining(resumedSolutions::add);
+        final Iterator<PackedBoard> solutionsAfterEnd = new Solver(configuration).resume(pieces, initialBoard);
+
+        assertThat(resumedSolutions).hasSize(11).doesNotContainAnyElementsOf(firstSolutions);
+        assertThat(Stream.concat(firstSolutions.stream(), resumedSolutions.stream()))
+                .containsExactlyInAnyOrderElementsOf(allSolutions);
+        assertThat(solutionsAfterEnd).isExhausted();
+    }
+
+    @Test
+    void resume_5x5_checkpoint_parallel(@TempDir final Path directory) throws IOException, InterruptedException {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final List<PackedBoard> allSolutions = new ArrayList<>();
+        solver.solveBoards(pieces, initialBoard).forEachRemaining(allSolutions::add);
+        final Path file = directory.resolve("5x5.e2c");
+        final Configuration configuration = Configuration.defaults().withFrameColor(1)
+                .withCheckpoint(file, Duration.ofMillis(10));
+
+        // An enumeration killed after 5 solutions, once some have been saved
+        final var killedSolver = new Solver(configuration.withParallelEnumeration(3));
+        final Iterator<PackedBoard> killedSolutions = killedSolver.solveBoards(pieces, initialBoard);
+        final long emptyCheckpointSize = Files.size(file);
+        final List<PackedBoard> firstSolutions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            firstSolutions.add(killedSolutions.next());
+        }
+        // Cubes exhausted without solution may be saved before the solutions: Wait for the file to settle
+        long checkpointSize = emptyCheckpointSize;
+        while (checkpointSize < emptyCheckpointSize + 5 * 25 * 4 || checkpointSize != Files.size(file)) {
+            checkpointSize = Files.size(file);
+            Thread.sleep(100);
+        }
+        killedSolver.interrupt();
+        final List<PackedBoard> resumedSolutions = new ArrayList<>();
+        new Solver(configuration.withParallelEnumeration(2)).resume(pieces, initialBoard)
+                .forEachRemaining(resumedSolutions::add);
+        final Iterator<PackedBoard> solutionsAfterEnd = new Solver(configuration.withParallelEnumeration(3))
+                .resume(pieces, initialBoard);
+
+        assertThat(resumedSolutions).hasSize(11).doesNotContainAnyElementsOf(firstSolutions);
+        assertThat(Stream.concat(firstSolutions.stream(), resumedSolutions.stream()))
+                .containsExactlyInAnyOrderElementsOf(allSolutions);
+        assertThat(solutionsAfterEnd).isExhausted();
+    }
+
+    @Test
+    void resume_checkpointOfAnotherGame(@TempDir final Path directory) throws IOException {
+        final var pieces = new Piece[]{new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3)};
+        final Path file = directory.resolve("1x2.e2c");
+        solver = new Solver(Configuration.defaults().withCheckpoint(file, Duration.ofMinutes(1)));
+        assertThat(solver.solveBoards(pieces, new Piece[1][2])).toIterable().hasSize(8);
+
+        assertThatThrownBy(() -> solver.resume(pieces, new Piece[2][1])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Solver(Configuration.defaults()).resume(pieces, new Piece[1][2]))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new Solver(Configuration.defaults().withCheckpoint(file, Duration.ofMinutes(1))
+                .withSymmetryBreaking(Configuration.SymmetryBreaking.EXPANDED)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void count_5x5() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+
+        assertThat(solver.count(pieces, initialBoard)).isEqualTo(16);
+        assertThat(new Solver(Configuration.defaults().withEngine(Configuration.Engine.BACKTRACKING))
+                .count(pieces, initialBoard)).isEqualTo(16);
+        assertThat(new Solver(Configuration.defaults().withParallelEnumeration(2))
+                .count(pieces, initialBoard)).isEqualTo(16);
+    }
+
+    @Test
+    void solve_5x5_dimacs_colorEncoding(@TempDir final Path directory) throws IOException {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        final Path file = directory.resolve("5x5.cnf");
+
+        new Solver(Configuration.defaults().withColorEncoding(Configuration.ColorEncoding.LOG))
+                .export(pieces, initialBoard, file);
+        final Set<List<List<Piece>>> solutions = distinct(new Solver().solve(file));
+
+        assertThat(Files.readAllLines(file)).contains("c color-encoding LOG");
+        assertThat(solutions).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_2x2_dimacs_expanded(@TempDir final Path directory) throws IOException {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        final Path file = directory.resolve("2x2.cnf");
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.EXPANDED));
+
+        solver.export(pieces, initialBoard, file);
+        final Set<List<List<Piece>>> solutions = distinct(new Solver().solve(file));
+
+        assertThat(solutions).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_5x5_encodingCache() {
+        final var pieces = pieces5x5();
+        final var centerFixed = new Piece[5][5];
+        centerFixed[2][2] = pieces[19].rotate(PLUS_90);
+        final Set<List<List<Piece>>> centerFixedSolutions = distinct(solver.solve(pieces, centerFixed));
+        final var cornerFixed = new Piece[5][5];
+        cornerFixed[2][2] = centerFixed[2][2];
+        cornerFixed[0][0] = centerFixedSolutions.iterator().next().get(0).get(0);
+        final Set<List<List<Piece>>> cornerFixedSolutions = distinct(solver.solve(pieces, cornerFixed));
+        solver = new Solver(Configuration.defaults().withEncodingCache(1));
+
+        // Blocking clauses of an enumeration must not hide the solutions of the next ones
+        assertThat(distinct(solver.solve(pieces, centerFixed))).isEqualTo(centerFixedSolutions);
+        assertThat(distinct(solver.solve(pieces, cornerFixed))).isEqualTo(cornerFixedSolutions);
+        assertThat(distinct(solver.solve(pieces, centerFixed))).isEqualTo(centerFixedSolutions);
+    }
+
+    @Test
+    void solve_5x5_encodingCacheDirectory(@TempDir final Path directory) throws IOException {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        final Configuration configuration = Configuration.defaults()
+                .withEncodingCache(1)
+                .withEncodingCacheDirectory(directory);
+
+        final Set<List<List<Piece>>> writingSolverSolutions = distinct(new Solver(configuration).solve(pieces, initialBoard));
+        final Set<List<List<Piece>>> readingSolverSolutions = distinct(new Solver(configuration).solve(pieces, initialBoard));
+
+        try (final Stream<Path> files = Files.list(directory)) {
+            assertThat(files).singleElement().asString().endsWith(".cnf");
+        }
+        assertThat(writingSolverSolutions).isEqualTo(allSolutions);
+        assertThat(readingSolverSolutions).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_encodingCache_symmetryBreaking() {
+        final Configuration configuration = Configuration.defaults()
+                .withEncodingCache(1)
+                .withSymmetryBreaking(Configuration.SymmetryBreaking.CANONICAL);
+
+        assertThatThrownBy(() -> new Solver(configuration)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void optimize_2x2() {
+        final var pieces = pieces2x2();
+
+        final List<BoardSample.Board> boards = new ArrayList<>();
+        solver.optimize(pieces, new Piece[2][2], 4, Duration.ofMinutes(1)).forEachRemaining(boards::add);
+
+        assertThat(boards).isNotEmpty();
+        assertThat(boards).extracting(BoardSample.Board::matchedEdgeCount).isSorted().doesNotHaveDuplicates();
+        assertThat(boards.get(boards.size() - 1).matchedEdgeCount()).isEqualTo(4);
+        assertThat(boards.get(boards.size() - 1).placedPieceCount()).isEqualTo(4);
+    }
+
+    @Test
+    void optimize_5x5_unsolvable() {
+        // Same pieces as solve_5x5, except that the west border of the last piece has a unique color
         final var pieces = new Piece[]{
                 new Piece(0, 1, 0, 2, 1), new Piece(1, 1, 2, 4, 1), new Piece(2, 1, 2, 0, 1), new Piece(3, 1, 2, 0, 1), new Piece(4, 1, 3, 5, 4),
                 new Piece(5, 1, 0, 8, 2), new Piece(6, 1, 3, 8, 2), new Piece(7, 1, 4, 5, 0), new Piece(8, 1, 3, 6, 0), new Piece(9, 1, 2, 5, 2),
                 new Piece(10, 1, 3, 6, 2), new Piece(11, 1, 0, 7, 3), new Piece(12, 1, 4, 6, 3), new Piece(13, 1, 2, 7, 2), new Piece(14, 1, 0, 6, 3),
                 new Piece(15, 1, 2, 5, 3), new Piece(16, 6, 8, 4, 5), new Piece(17, 4, 8, 5, 5), new Piece(18, 6, 8, 7, 6), new Piece(19, 4, 8, 6, 8),
-                new Piece(20, 6, 7, 6, 7), new Piece(21, 6, 5, 8, 4), new Piece(22, 5, 8, 5, 8), new Piece(23, 5, 7, 7, 7), new Piece(24, 6, 6, 6, 5),
+                new Piece(20, 6, 7, 6, 7), new Piece(21, 6, 5, 8, 4), new Piece(22, 5, 8, 5, 8), new Piece(23, 5, 7, 7, 7), new Piece(24, 6, 6, 6, 9),
         };
-        final var initialBoard = new Piece[5][5];
-        initialBoard[2][2] = pieces[19].rotate(PLUS_90);
+        final var initialBoard = initialBoard5x5();
+        solver = new Solver(Configuration.defaults().withFrameColor(1));
+        assertThat(solver.solve(pieces, initialBoard).hasNext()).isFalse();
+
+        final List<BoardSample.Board> boards = new ArrayList<>();
+        solver.optimize(pieces, initialBoard, 40, Duration.ofMinutes(1)).forEachRemaining(boards::add);
+
+        assertThat(boards).extracting(BoardSample.Board::matchedEdgeCount).isSorted().doesNotHaveDuplicates().endsWith(39);
+    }
+
+    @Test
+    @Disabled("too slow")
+    void optimize_16x16_timeLimit() throws Exception {
+        final Puzzle puzzle = readOriginalPuzzle();
+        final Piece[] pieces = puzzle.pieces();
+        final Piece[][] initialBoard = puzzle.initialBoard();
+        solver = new Solver(Configuration.defaults().withFrameColor(1));
+        final long start = System.nanoTime();
+
+        final List<BoardSample.Board> boards = new ArrayList<>();
+        solver.optimize(pieces, initialBoard, 480, Duration.ofSeconds(2)).forEachRemaining(boards::add);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(30));
+        assertThat(boards).extracting(BoardSample.Board::matchedEdgeCount).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void solveAsync_2x2() {
+        final var pieces = pieces2x2();
+        final var initialBoard = initialBoard2x2();
+
+        final Optional<Piece[][]> solution = solver.solveAsync(pieces, initialBoard, Duration.ofMinutes(1)).join();
+
+        assertThat(solution).hasValueSatisfying(board -> assertThat(board[1][1]).isEqualTo(initialBoard[1][1]));
+    }
+
+    @Test
+    void solveAsync_2x2_checkpoint(@TempDir final Path directory) {
+        final var pieces = pieces2x2();
+        final var initialBoard = initialBoard2x2();
+        final Path file = directory.resolve("2x2.e2c");
+        solver = new Solver(Configuration.defaults().withCheckpoint(file, Duration.ofMillis(10)));
+
+        final Optional<Piece[][]> solution = solver.solveAsync(pieces, initialBoard, Duration.ofMinutes(1)).join();
+
+        // The checkpoint file is left to the enumerations of the solver
+        assertThat(solution).isPresent();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void solveAsync_2x2_timeoutWhileEncoding() throws Exception {
+        final var pieces = pieces2x2();
+        final var initialBoard = initialBoard2x2();
+        final var timedOut = new CompletableFuture<Void>();
+        final var modelFound = new CompletableFuture<SearchStatistics>();
+        final var listener = new SolverListener() {
+            @Override
+            public void encoded(final EncodingStatistics statistics) {
+                // The timeout is reached before the search starts
+                timedOut.join();
+            }
+
+            @Override
+            public void modelFound(final SearchStatistics statistics) {
+                modelFound.complete(statistics);
+            }
+        };
+        solver = new Solver(Configuration.defaults().withListener(listener));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        final CompletableFuture<Optional<Piece[][]>> solution =
+                solver.solveAsync(pieces, initialBoard, Duration.ofMillis(100), executor);
+
+        assertThatThrownBy(solution::join).hasCauseInstanceOf(TimeoutException.class);
+        timedOut.complete(null);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(modelFound).isNotDone();
+    }
+
+    @Test
+    void interrupt_2x2_whileEncoding() {
+        final var pieces = pieces2x2();
+        final var initialBoard = initialBoard2x2();
+        final var encodingCount = new AtomicInteger();
+        final var listener = new SolverListener() {
+            @Override
+            public void encoded(final EncodingStatistics statistics) {
+                if (encodingCount.getAndIncrement() == 0) {
+                    // The interruption arrives before the search starts
+                    solver.interrupt();
+                }
+            }
+        };
+        solver = new Solver(Configuration.defaults().withListener(listener));
+
+        assertThat(solver.solve(pieces, initialBoard)).isExhausted();
+        // The interruption does not outlive the interrupted iteration
+        assertThat(solver.solve(pieces, initialBoard)).hasNext();
+    }
+
+    @Test
+    @Disabled("too slow")
+    void solveAsync_16x16_timeout() throws Exception {
+        final Puzzle puzzle = readOriginalPuzzle();
+        final Piece[] pieces = puzzle.pieces();
+        final Piece[][] initialBoard = puzzle.initialBoard();
+        solver = new Solver(Configuration.defaults()
+                .withFrameColor(1)
+                .withEngine(Configuration.Engine.BACKTRACKING));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        final CompletableFuture<Optional<Piece[][]>> solution =
+                solver.solveAsync(pieces, initialBoard, Duration.ofMillis(200), executor);
+
+        assertThatThrownBy(solution::join).hasCauseInstanceOf(TimeoutException.class);
+        // The search is stopped, so that the executor thread is released
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @Disabled("too slow")
+    void solveAsync_16x16_boardSampled() throws Exception {
+        final Puzzle puzzle = readOriginalPuzzle();
+        final Piece[] pieces = puzzle.pieces();
+        final Piece[][] initialBoard = puzzle.initialBoard();
+        final var sampled = new CompletableFuture<BoardSample>();
+        final var listener = new SolverListener() {
+            @Override
+            public void boardSampled(final BoardSample sample) {
+                sampled.complete(sample);
+            }
+        };
+        solver = new Solver(Configuration.defaults()
+                .withFrameColor(1)
+                .withListener(listener)
+                .withSamplingInterval(Duration.ofMillis(50)));
+
+        final CompletableFuture<Optional<Piece[][]>> solution =
+                solver.solveAsync(pieces, initialBoard, Duration.ofMinutes(1));
+        final BoardSample sample = sampled.get(1, TimeUnit.MINUTES);
+        solution.cancel(true);
+
+        assertThat(sample.current().pieces()).hasDimensions(16, 16);
+        assertThat(sample.current().pieces()[7][8]).isEqualTo(initialBoard[7][8]);
+        assertThat(sample.current().placedPieceCount()).isPositive();
+        assertThat(sample.best().placedPieceCount()).isGreaterThanOrEqualTo(sample.current().placedPieceCount());
+    }
+
+    @Test
+    void solve_5x5_boardSampled() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final var sampled = new CompletableFuture<BoardSample>();
+        final var listener = new SolverListener() {
+            @Override
+            public void modelFound(final SearchStatistics statistics) {
+                // A 5x5 game is solved within the sampling interval: Hold the search until its board is sampled
+                sampled.completeOnTimeout(null, 10, TimeUnit.SECONDS).join();
+            }
+
+            @Override
+            public void boardSampled(final BoardSample sample) {
+                sampled.complete(sample);
+            }
+        };
+        solver = new Solver(Configuration.defaults()
+                .withListener(listener)
+                .withSamplingInterval(Duration.ofMillis(10)));
+
+        assertThat(solver.solve(pieces, initialBoard).hasNext()).isTrue();
+        final BoardSample sample = sampled.join();
+
+        assertThat(sample).isNotNull();
+        assertThat(sample.current().pieces()).hasDimensions(5, 5);
+        assertThat(sample.current()).isEqualTo(BoardSample.Board.of(sample.current().pieces()));
+        assertThat(sample.current().placedPieceCount()).isBetween(0, 25);
+        assertThat(sample.current().matchedEdgeCount()).isBetween(0, 40);
+        assertThat(sample.best().placedPieceCount()).isGreaterThanOrEqualTo(sample.current().placedPieceCount());
+    }
+
+    @Test
+    void memoryReport_2x2() {
+        final var pieces = pieces2x2();
+        final List<EncodingStatistics> encodings = new CopyOnWriteArrayList<>();
+        final var listener = new SolverListener() {
+            @Override
+            public void encoded(final EncodingStatistics statistics) {
+                encodings.add(statistics);
+            }
+        };
+        solver = new Solver(Configuration.defaults().withListener(listener));
+
+        final MemoryReport report = solver.memoryReport(pieces, new Piece[2][2]);
+        solver.solve(pieces, new Piece[2][2]);
+
+        assertThat(report.colorEncoding()).isEqualTo(Configuration.ColorEncoding.BORDERS);
+        assertThat(report.solverCount()).isEqualTo(1);
+        assertThat(report.families()).extracting(MemoryReport.Family::name).containsExactlyElementsOf(
+                encodings.getFirst().phases().stream().map(EncodingStatistics.Phase::name).toList());
+        assertThat(report.families()).extracting(MemoryReport.Family::constraintCount).containsExactlyElementsOf(
+                encodings.getFirst().phases().stream().map(EncodingStatistics.Phase::constraintCount).toList());
+        assertThat(report.variableCount()).isEqualTo(encodings.getFirst().variableCount());
+        assertThat(report.estimatedBytes()).isGreaterThan(report.families().stream()
+                .mapToLong(MemoryReport.Family::estimatedBytes).sum());
+        assertThat(new Solver(Configuration.defaults().withPortfolioSize(2)).memoryReport(pieces, new Piece[2][2])
+                .estimatedBytes()).isEqualTo(2 * report.estimatedBytes());
+    }
+
+    @Test
+    void solve_5x5_heapBudget() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final var logConfiguration = Configuration.defaults().withColorEncoding(Configuration.ColorEncoding.LOG);
+        final long bordersBytes = solver.memoryReport(pieces, initialBoard).estimatedBytes();
+        final long logBytes = new Solver(logConfiguration).memoryReport(pieces, initialBoard).estimatedBytes();
+        assertThat(bordersBytes).isLessThan(logBytes);
+        final List<EncodingStatistics> encodings = new CopyOnWriteArrayList<>();
+        final var listener = new SolverListener() {
+            @Override
+            public void encoded(final EncodingStatistics statistics) {
+                encodings.add(statistics);
+            }
+        };
+
+        final var refusingSolver = new Solver(logConfiguration
+                .withHeapBudget(logBytes - 1, Configuration.HeapBudgetPolicy.REFUSE));
+        final var degradingSolver = new Solver(logConfiguration.withListener(listener)
+                .withHeapBudget(logBytes - 1, Configuration.HeapBudgetPolicy.DEGRADE));
+
+        assertThatThrownBy(() -> refusingSolver.solve(pieces, initialBoard)).isInstanceOf(IllegalStateException.class);
+        assertThat(degradingSolver.solve(pieces, initialBoard)).toIterable().hasSize(16);
+        assertThat(encodings.getFirst().phases()).extracting(EncodingStatistics.Phase::name)
+                .doesNotContain("edgeColorBitsMatchPieces");
+    }
+
+    @Test
+    void solve_2x2_listener() {
+        final var pieces = pieces2x2();
+        final List<EncodingStatistics> encodings = new CopyOnWriteArrayList<>();
+        final List<SearchStatistics> models = new CopyOnWriteArrayList<>();
+        final var listener = new SolverListener() {
+            @Override
+            public void encoded(final EncodingStatistics statistics) {
+                encodings.add(statistics);
+            }
+
+            @Override
+            public void modelFound(final SearchStatistics statistics) {
+                models.add(statistics);
+            }
+        };
+        solver = new Solver(Configuration.defaults().withListener(listener).withSamplingInterval(Duration.ofMillis(1)));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, new Piece[2][2]);
+        int solutionCount = 0;
+        while (solutions.hasNext()) {
+            solutions.next();
+            solutionCount++;
+        }
+
+        assertThat(encodings).singleElement().satisfies(encoding -> {
+            assertThat(encoding.phases()).extracting(EncodingStatistics.Phase::name).containsExactly(
+                    "initialBoardPiecesAreFixed", "exactlyOnePiecePerPosition", "exactlyOnePositionPerPiece",
+                    "exactlyOneColorPerBorder", "adjacentBordersMustHaveSameColor", "borderColorsMatchPieces");
+            assertThat(encoding.phases().stream().mapToLong(EncodingStatistics.Phase::constraintCount).sum())
+                    .isEqualTo(encoding.constraintCount()).isPositive();
+            assertThat(encoding.variableCount()).isPositive();
+        });
+        assertThat(models).hasSize(solutionCount);
+        assertThat(models).extracting(SearchStatistics::modelCount)
+                .containsExactlyElementsOf(Stream.iterate(1L, count -> count + 1).limit(solutionCount).toList());
+        assertThat(models.get(solutionCount - 1).decisions()).isPositive();
+    }
+
+    @Test
+    void solutionsAsync_2x2() {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+        final List<Piece[][]> expectedSolutions = new ArrayList<>();
+        solver.solve(pieces, initialBoard).forEachRemaining(expectedSolutions::add);
+        final List<Piece[][]> solutions = new CopyOnWriteArrayList<>();
+        final var completion = new CompletableFuture<Void>();
+
+        solver.solutionsAsync(pieces, initialBoard, Duration.ofMinutes(1), ForkJoinPool.commonPool())
+                .subscribe(new Flow.Subscriber<>() {
+                    private Flow.Subscription subscription;
+
+                    @Override
+                    public void onSubscribe(final Flow.Subscription newSubscription) {
+                        subscription = newSubscription;
+                        subscription.request(1);
+                    }
+
+                    @Override
+                    public void onNext(final Piece[][] solution) {
+                        solutions.add(solution);
+                        subscription.request(1);
+                    }
+
+                    @Override
+                    public void onError(final Throwable error) {
+                        completion.completeExceptionally(error);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        completion.complete(null);
+                    }
+                });
+        completion.join();
+
+        assertThat(solutions).hasSize(96);
+        assertThat(distinct(solutions.iterator())).isEqualTo(distinct(expectedSolutions.iterator()));
+    }
+
+    @Test
+    void solve_5x5_frameColor() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        solver = new Solver(Configuration.defaults().withFrameColor(1));
 
         final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
 
@@ -98,12 +904,102 @@ final class SolverTest {
                 .hasSize(16);
     }
 
+    @Test
+    void solve_frameColor_noSolution() {
+        final var pieces = new Piece[]{new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3)};
+        final var initialBoard = new Piece[1][2];
+        solver = new Solver(Configuration.defaults().withFrameColor(0));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        assertThat(solutions).isExhausted();
+    }
+
+    @Test
+    void solve_1x2_canonical() {
+        final var pieces = new Piece[]{new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3)};
+        final var initialBoard = new Piece[1][2];
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.CANONICAL));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        assertThat(solutions).toIterable()
+                .contains(new Piece[][]{{new Piece(0, 2, 3, 0, 1), new Piece(1, 0, 1, 2, 3)},})
+                .hasSize(4);
+    }
+
+    @Test
+    void solve_2x2_canonical() {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.CANONICAL));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        assertThat(solutions).toIterable()
+                .contains(new Piece[][]{
+                        {new Piece(0, 0, 1, 2, 3), new Piece(1, 2, 3, 0, 1)},
+                        {new Piece(2, 2, 3, 0, 1), new Piece(3, 0, 1, 2, 3)},
+                })
+                .hasSize(4);
+    }
+
+    @Test
+    void solve_2x2_expanded() {
+        final var pieces = pieces2x2();
+        final var initialBoard = new Piece[2][2];
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.EXPANDED));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        assertThat(distinct(solutions)).hasSize(96).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_3x3_expanded() {
+        final var pieces = new Piece[]{
+                new Piece(0, 3, 1, 1, 3), new Piece(1, 1, 3, 1, 0), new Piece(2, 0, 0, 0, 0),
+                new Piece(3, 2, 2, 2, 3), new Piece(4, 0, 2, 1, 3), new Piece(5, 3, 0, 1, 1),
+                new Piece(6, 2, 1, 2, 0), new Piece(7, 0, 0, 0, 0), new Piece(8, 0, 1, 2, 2),
+        };
+        final var initialBoard = new Piece[3][3];
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.CANONICAL));
+        final int canonicalSolutionCount = distinct(solver.solve(pieces, initialBoard)).size();
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.EXPANDED));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        // 4 board rotations, 2 orders of the identical pieces #2 and #7
+        assertThat(canonicalSolutionCount * 8).isEqualTo(allSolutions.size());
+        assertThat(distinct(solutions)).isEqualTo(allSolutions);
+    }
+
+    @Test
+    void solve_5x5_expanded() {
+        final var pieces = pieces5x5();
+        final var initialBoard = initialBoard5x5();
+        final Set<List<List<Piece>>> allSolutions = distinct(solver.solve(pieces, initialBoard));
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.CANONICAL));
+        final int canonicalSolutionCount = distinct(solver.solve(pieces, initialBoard)).size();
+        solver = new Solver(Configuration.defaults().withSymmetryBreaking(Configuration.SymmetryBreaking.EXPANDED));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        // no board rotation since a piece is fixed, 2 orders of the identical pieces #2 and #3
+        assertThat(canonicalSolutionCount * 2).isEqualTo(allSolutions.size());
+        assertThat(distinct(solutions)).isEqualTo(allSolutions);
+    }
+
     @Test
     @Disabled("too hard")
     void solve_16x16() throws IOException, URISyntaxException {
-        final Piece[] pieces = readFps();
-        final Piece[][] initialBoard = new Piece[16][16];
-        initialBoard[7][8] = pieces[138];
+        final Puzzle puzzle = readOriginalPuzzle();
+        final Piece[] pieces = puzzle.pieces();
+        final Piece[][] initialBoard = puzzle.initialBoard();
+        // the frame color is 2 in the .fps file, i.e. 1 once shifted to start at 0
+        solver = new Solver(Configuration.defaults().withFrameColor(1));
 
         final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
 
@@ -114,25 +1010,61 @@ final class SolverTest {
         }
     }
 
-    private static Piece[] readFps() throws URISyntaxException, IOException {
-        final Path filePath = Path.of(SolverTest.class.getResource("/EternityII-256-Bis-ORIGINAL.fps").toURI());
-        try (final Stream<String> lines = Files.lines(filePath)) {
-            return lines
-                    .dropWhile(not("[Bordure]"::equals))
-                    .skip(1)
-                    .filter(line -> line.contains("="))
-                    .map(line -> {
-                        final int equalsIndex = line.indexOf('=');
-                        final int id = Integer.parseInt(line.substring(0, equalsIndex)) - 1;
-                        final String[] borderColors = line.substring(equalsIndex + 1).split("-");
-                        final int north = Integer.parseInt(borderColors[0]) - 1;
-                        final int east = Integer.parseInt(borderColors[1]) - 1;
-                        final int south = Integer.parseInt(borderColors[2]) - 1;
-                        final int west = Integer.parseInt(borderColors[3]) - 1;
-                        return new Piece(id, north, east, south, west);
-                    })
-                    .toArray(Piece[]::new);
+    @Test
+    @Disabled("too hard")
+    void solve_16x16_backtracking() throws IOException, URISyntaxException {
+        final Puzzle puzzle = readOriginalPuzzle();
+        final Piece[] pieces = puzzle.pieces();
+        final Piece[][] initialBoard = puzzle.initialBoard();
+        solver = new Solver(Configuration.defaults()
+                .withFrameColor(1)
+                .withEngine(Configuration.Engine.BACKTRACKING));
+
+        final Iterator<Piece[][]> solutions = solver.solve(pieces, initialBoard);
+
+        if (solutions.hasNext()) {
+            System.out.println(Arrays.deepToString(solutions.next()));
+        } else {
+            System.out.println("No solution!");
         }
+    }
+
+    private static Piece[] pieces2x2() {
+        return new Piece[]{
+                new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3),
+                new Piece(2, 0, 1, 2, 3), new Piece(3, 0, 1, 2, 3),
+        };
+    }
+
+    private static Piece[][] initialBoard2x2() {
+        final var initialBoard = new Piece[2][2];
+        initialBoard[1][1] = pieces2x2()[1].rotate(PLUS_90);
+        return initialBoard;
+    }
+
+    private static Piece[] pieces5x5() {
+        return new Piece[]{
+                new Piece(0, 1, 0, 2, 1), new Piece(1, 1, 2, 4, 1), new Piece(2, 1, 2, 0, 1), new Piece(3, 1, 2, 0, 1), new Piece(4, 1, 3, 5, 4),
+                new Piece(5, 1, 0, 8, 2), new Piece(6, 1, 3, 8, 2), new Piece(7, 1, 4, 5, 0), new Piece(8, 1, 3, 6, 0), new Piece(9, 1, 2, 5, 2),
+                new Piece(10, 1, 3, 6, 2), new Piece(11, 1, 0, 7, 3), new Piece(12, 1, 4, 6, 3), new Piece(13, 1, 2, 7, 2), new Piece(14, 1, 0, 6, 3),
+                new Piece(15, 1, 2, 5, 3), new Piece(16, 6, 8, 4, 5), new Piece(17, 4, 8, 5, 5), new Piece(18, 6, 8, 7, 6), new Piece(19, 4, 8, 6, 8),
+                new Piece(20, 6, 7, 6, 7), new Piece(21, 6, 5, 8, 4), new Piece(22, 5, 8, 5, 8), new Piece(23, 5, 7, 7, 7), new Piece(24, 6, 6, 6, 5),
+        };
+    }
+
+    private static Piece[][] initialBoard5x5() {
+        final var initialBoard = new Piece[5][5];
+        initialBoard[2][2] = pieces5x5()[19].rotate(PLUS_90);
+        return initialBoard;
+    }
+
+    private static Set<List<List<Piece>>> distinct(final Iterator<Piece[][]> solutions) {
+        final Set<List<List<Piece>>> distinctSolutions = new HashSet<>();
+        solutions.forEachRemaining(solution -> distinctSolutions.add(Arrays.stream(solution).map(List::of).toList()));
+        return distinctSolutions;
+    }
 
+    private static Puzzle readOriginalPuzzle() throws URISyntaxException, IOException {
+        return FpsReader.read(Path.of(SolverTest.class.getResource("/EternityII-256-Bis-ORIGINAL.fps").toURI()));
     }
 }
@@ -3,10 +3,15 @@ package re.belv.eternity2.solver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.OptionalInt;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 final class VariablesTest {
 
+    private Game game;
+
     private Variables variables;
 
     @BeforeEach
@@ -17,7 +22,7 @@ final class VariablesTest {
                 new Piece(6, 0, 1, 2, 3), new Piece(7, 0, 1, 2, 3), new Piece(8, 0, 1, 2, 3),
         };
         final var initialBoard = new Piece[3][3];
-        final var game = new Game(pieces, initialBoard);
+        game = new Game(pieces, initialBoard);
         variables = new Variables(game);
     }
 
@@ -67,4 +72,74 @@ final class VariablesTest {
     void variableCount() {
         assertThat(variables.count()).isEqualTo(144 + 324);
     }
+
+    @Test
+    void representingEdge() {
+        variables = new Variables(game, new Domain(game), Configuration.ColorEncoding.SHARED_EDGES);
+
+        assertThat(variables.representingEdge(0, 0)).isEqualTo(325);
+        assertThat(variables.representingEdge(0, 3)).isEqualTo(328);
+        assertThat(variables.representingEdge(1, 0)).isEqualTo(329);
+        assertThat(variables.representingEdge(11, 3)).isEqualTo(372);
+        assertThat(variables.count()).isEqualTo(324 + 12 * 4);
+        assertThatThrownBy(() -> variables.representingBorder(0, 0, Piece.Border.NORTH, 0))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void representingEdgeBit() {
+        variables = new Variables(game, new Domain(game), Configuration.ColorEncoding.LOG);
+
+        assertThat(variables.colorBitCount()).isEqualTo(2);
+        assertThat(variables.representingEdgeBit(0, 0)).isEqualTo(325);
+        assertThat(variables.representingEdgeBit(0, 1)).isEqualTo(326);
+        assertThat(variables.representingEdgeBit(11, 1)).isEqualTo(348);
+        assertThat(variables.count()).isEqualTo(324 + 12 * 2);
+        assertThatThrownBy(() -> variables.representingEdge(0, 0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void variableCount_direct() {
+        variables = new Variables(game, new Domain(game), Configuration.ColorEncoding.DIRECT);
+
+        assertThat(variables.count()).isEqualTo(324);
+    }
+
+    @Test
+    void representingPiece_frameColor() {
+        final var pieces = new Piece[]{
+                new Piece(0, 0, 1, 1, 0), new Piece(1, 0, 1, 1, 0),
+                new Piece(2, 0, 1, 1, 0), new Piece(3, 0, 1, 1, 0),
+        };
+        game = new Game(pieces, new Piece[2][2], OptionalInt.of(0));
+        variables = new Variables(game);
+
+        assertThat(variables.representingPieceCount()).isEqualTo(16);
+        assertThat(variables.representingPiece(0, 0, 0, Piece.Rotation.PLUS_0)).isEqualTo(1);
+        assertThat(variables.representingPiece(0, 0, 1, Piece.Rotation.PLUS_0)).isEqualTo(2);
+        assertThat(variables.representingPiece(0, 1, 0, Piece.Rotation.PLUS_90)).isEqualTo(5);
+        assertThat(variables.representingPiece(1, 1, 3, Piece.Rotation.PLUS_180)).isEqualTo(16);
+        assertThat(variables.representingBorder(0, 0, Piece.Border.NORTH, 0)).isEqualTo(17);
+        assertThatThrownBy(() -> variables.representingPiece(0, 0, 0, Piece.Rotation.PLUS_90))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void backToBoard() {
+        final var model = new int[variables.count()];
+        for (int variable = 1; variable <= model.length; variable++) {
+            model[variable - 1] = -variable;
+        }
+        final int variable = variables.representingPiece(1, 2, 5, Piece.Rotation.PLUS_90);
+        model[variable - 1] = variable;
+
+        final PackedBoard board = variables.backToBoard(model);
+
+        assertThat(board.pieceIdAt(1, 2)).isEqualTo(5);
+        assertThat(board.pieceAt(1, 2)).isEqualTo(game.piece(5).rotate(Piece.Rotation.PLUS_90));
+        assertThat(board.pieceIdAt(0, 0)).isEqualTo(-1);
+        assertThat(board.pieceAt(0, 0)).isNull();
+        assertThat(board.toPieces()).isEqualTo(variables.backToPieces(model));
+        assertThat(board).isEqualTo(PackedBoard.of(game, board.toPieces()));
+    }
 }
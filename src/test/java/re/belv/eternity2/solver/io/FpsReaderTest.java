@@ -0,0 +1,69 @@
+package re.belv.eternity2.solver.io;
+
+import org.junit.jupiter.api.Test;
+import re.belv.eternity2.solver.Piece;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class FpsReaderTest {
+
+    @Test
+    void read_original() throws IOException, URISyntaxException {
+        final Path file = Path.of(FpsReaderTest.class.getResource("/EternityII-256-Bis-ORIGINAL.fps").toURI());
+
+        final Puzzle puzzle = FpsReader.read(file);
+
+        final Piece[] pieces = puzzle.pieces();
+        assertThat(pieces).hasSize(256);
+        assertThat(pieces[0]).isEqualTo(new Piece(0, 1, 1, 0, 2));
+        assertThat(pieces[255]).isEqualTo(new Piece(255, 20, 19, 16, 19));
+        assertThat(puzzle.rowCount()).isEqualTo(16);
+        assertThat(puzzle.columnCount()).isEqualTo(16);
+        assertThat(Arrays.stream(puzzle.initialBoard()).flatMap(Arrays::stream).filter(Objects::nonNull)).hasSize(5);
+        assertThat(puzzle.initialBoard()[7][8]).isEqualTo(pieces[138]);
+        assertThat(puzzle.initialBoard()[2][13]).isEqualTo(Rotations.rotate(pieces[180], 3));
+        assertThat(puzzle.initialBoard()[13][2]).isEqualTo(Rotations.rotate(pieces[254], 3));
+    }
+
+    @Test
+    void parse_withoutDimensions() {
+        final String content = """
+                [INDICE]
+                2=B2-Rot1
+
+                [Bordure]
+                1=1-2-3-4
+                2=1-2-3-4
+                3=1-2-3-4
+                4=1-2-3-4
+                """;
+
+        final Puzzle puzzle = FpsReader.parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(puzzle.pieces()).containsExactly(new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3),
+                new Piece(2, 0, 1, 2, 3), new Piece(3, 0, 1, 2, 3));
+        assertThat(puzzle.initialBoard()).isEqualTo(new Piece[][]{{null, null}, {null, new Piece(1, 3, 0, 1, 2)}});
+    }
+
+    @Test
+    void parse_invalid() {
+        final String content = """
+                [Bordure]
+                1=1-2-3-4
+                2=1-2-x-4
+                """;
+
+        assertThatThrownBy(() -> FpsReader.parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 3");
+    }
+}
@@ -0,0 +1,46 @@
+package re.belv.eternity2.solver.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import re.belv.eternity2.solver.Piece;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class PuzzleFileTest {
+
+    @Test
+    void write_read(@TempDir final Path directory) throws IOException, URISyntaxException {
+        final Puzzle original = FpsReader.read(
+                Path.of(PuzzleFileTest.class.getResource("/EternityII-256-Bis-ORIGINAL.fps").toURI()));
+        final var pieces = new Piece[]{new Piece(0, 0, 1, 2, 3), new Piece(1, 0, 1, 2, 3)};
+        final var initialBoard = new Piece[1][2];
+        initialBoard[0][1] = Rotations.rotate(pieces[0], 2);
+        final var small = new Puzzle(pieces, initialBoard);
+        final Path file = directory.resolve("corpus.e2p");
+
+        PuzzleFile.write(file, List.of(original, small, original));
+        final List<Puzzle> puzzles = PuzzleFile.read(file);
+
+        assertThat(puzzles).hasSize(3);
+        assertThat(puzzles.get(0).pieces()).isEqualTo(original.pieces());
+        assertThat(puzzles.get(0).initialBoard()).isEqualTo(original.initialBoard());
+        assertThat(puzzles.get(1).pieces()).isEqualTo(pieces);
+        assertThat(puzzles.get(1).initialBoard()).isEqualTo(initialBoard);
+        assertThat(puzzles.get(2).initialBoard()).isEqualTo(original.initialBoard());
+    }
+
+    @Test
+    void read_invalid(@TempDir final Path directory) throws IOException {
+        final Path file = directory.resolve("invalid.e2p");
+        Files.writeString(file, "[Bordure]");
+
+        assertThatThrownBy(() -> PuzzleFile.read(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+}